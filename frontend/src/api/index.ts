@@ -45,6 +45,7 @@ export interface ChatMessage {
     clarifyOptions?: string
     suggestQuestions?: string
     thinkingContent?: string
+    traceId?: string
     createdAt?: string
 }
 
@@ -60,6 +61,8 @@ export interface DataSource {
     password?: string
     status?: number
     schemaSyncedAt?: string
+    /** Query result cache TTL in seconds; empty or 0 disables caching */
+    resultCacheTtlSeconds?: number
 }
 
 export interface TableRelation {
@@ -76,7 +79,7 @@ export interface TableRelation {
 }
 
 // SSE stream event types
-export type SseEventType = 'user_message' | 'status' | 'thinking' | 'content' | 'sql_generated' | 'sql_executed' | 'analysis' | 'suggest_questions' | 'clarification' | 'complete' | 'error'
+export type SseEventType = 'user_message' | 'status' | 'thinking' | 'content' | 'content_reset' | 'sql_generated' | 'sql_rows_chunk' | 'sql_executed' | 'analysis' | 'suggest_questions' | 'clarification' | 'complete' | 'error'
 
 export interface SseEvent {
     type: SseEventType
@@ -106,9 +109,10 @@ export const chatApi = {
      *   - content: raw text token (LLM response)
      *   - status: { message: string }
      *   - sql_generated: { sql: string, explanation: string }
-     *   - sql_executed: SqlExecuteResult
+     *   - sql_rows_chunk: { columns: string[], rows: object[], offset: number }
+     *   - sql_executed: SqlExecuteResult (rows omitted when already streamed as chunks)
      *   - suggest_questions: string[]
-     *   - complete: ChatMessage
+     *   - complete: ChatMessage (sqlResult is the summary only; rows arrive as sql_rows_chunk)
      *   - error: { message: string }
      */
     sendMessageStream: (
@@ -233,6 +237,8 @@ export const dataSourceApi = {
     testAdHocConnection: (data: DataSource) => api.post('/datasource/test-connection', data),
     syncSchema: (id: number) => api.post(`/datasource/${id}/sync-schema`),
     getSyncProgress: (id: number) => api.get(`/datasource/${id}/sync-progress`),
+    cancelSync: (id: number) => api.post(`/datasource/${id}/sync-schema/cancel`),
+    flushResultCache: (id: number) => api.delete(`/datasource/${id}/result-cache`),
     getSchemaTables: (id: number) => api.get<{ table: string; columns: string[] }[]>(`/datasource/${id}/schema-tables`)
 }
 
@@ -90,7 +90,8 @@
             test: 'Test Connection',
             sync: 'Sync Schema',
             status: 'Status',
-            actions: 'Actions'
+            actions: 'Actions',
+            resultCacheTtl: 'Result Cache TTL (s)'
         },
         wecom: {
             corpId: 'Corp ID',
@@ -90,7 +90,8 @@
             test: '测试连接',
             sync: '同步表结构',
             status: '状态',
-            actions: '操作'
+            actions: '操作',
+            resultCacheTtl: '结果缓存(秒)'
         },
         wecom: {
             corpId: '企业ID (CorpId)',
@@ -69,6 +69,9 @@ export const useChatStore = defineStore('chat', () => {
         messages.value.push(assistantMsg)
 
         let contentBuffer = ''
+        // Rows received via sql_rows_chunk; sql_executed only carries the summary
+        let streamedRows: Record<string, any>[] = []
+        let streamedColumns: string[] = []
 
         const syncAssistantMessage = () => {
             messages.value[assistantIndex] = { ...assistantMsg }
@@ -95,18 +98,36 @@ export const useChatStore = defineStore('chat', () => {
                             }
                             syncAssistantMessage()
                             break
+                        case 'content_reset':
+                            // The model wrote text before deciding to call tools; the answer follows later
+                            contentBuffer = ''
+                            assistantMsg.content = ''
+                            syncAssistantMessage()
+                            break
                         case 'status':
                             streamingStatus.value = event.data?.message || '正在处理...'
                             break
                         case 'sql_generated':
+                            // Each (possibly retried) execution follows its own sql_generated;
+                            // rows streamed by an aborted attempt must not leak into this one
+                            streamedRows = []
+                            streamedColumns = []
+                            assistantMsg.sqlResult = undefined
                             assistantMsg.sqlQuery = event.data?.sql || ''
                             if (event.data?.explanation && !assistantMsg.content) {
                                 assistantMsg.content = event.data.explanation
                             }
                             syncAssistantMessage()
                             break
+                        case 'sql_rows_chunk':
+                            // Rows are only collected here; sqlResult is serialized once on sql_executed/complete
+                            streamedColumns = event.data?.columns || streamedColumns
+                            for (const row of event.data?.rows || []) streamedRows.push(row)
+                            streamingStatus.value = `已接收 ${streamedRows.length} 行数据...`
+                            break
                         case 'sql_executed':
-                            assistantMsg.sqlResult = JSON.stringify(event.data)
+                            assistantMsg.sqlResult = JSON.stringify(
+                                event.data?.rows ? event.data : { ...event.data, rows: streamedRows })
                             syncAssistantMessage()
                             break
                         case 'suggest_questions':
@@ -140,10 +161,18 @@ export const useChatStore = defineStore('chat', () => {
                                 if (!assistantMsg.thinkingContent && thinkingBackup) {
                                     assistantMsg.thinkingContent = thinkingBackup
                                 }
+                                // A successful result carries only the summary; rows came in sql_rows_chunk.
+                                // A failed one keeps no rows, whatever an aborted attempt streamed.
+                                const summary = finalMsg.sqlResult ? JSON.parse(finalMsg.sqlResult) : null
+                                if (summary?.success && !summary.rows) {
+                                    assistantMsg.sqlResult = JSON.stringify({ ...summary, rows: streamedRows })
+                                }
+                                streamedRows = []
                                 syncAssistantMessage()
                             }
                             break
                         case 'error':
+                            streamedRows = []
                             assistantMsg.content = event.data?.message || 'An error occurred'
                             assistantMsg.errorMsg = event.data?.message
                             syncAssistantMessage()
@@ -2,8 +2,10 @@ package com.example.mysqlbot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MySqlBotApplication {
     public static void main(String[] args) {
         SpringApplication.run(MySqlBotApplication.class, args);
@@ -1,10 +1,56 @@
 package com.example.mysqlbot.config;
 
+import com.example.mysqlbot.service.embedding.EmbeddingProvider;
+import com.example.mysqlbot.service.embedding.HashingEmbeddingProvider;
+import com.example.mysqlbot.service.embedding.OpenAiEmbeddingProvider;
+import com.example.mysqlbot.util.LlmHttpTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
- * AI 相关配置占位类，如需注册额外的 AI Bean 可在此扩展。
+ * AI 相关配置：注册向量检索使用的 {@link EmbeddingProvider} 与所有 LLM 客户端共享的 {@link LlmHttpTransport}，
+ * 如需注册额外的 AI Bean 可在此扩展。
  */
+@Slf4j
 @Configuration
 public class AiConfig {
+
+    /**
+     * provider=openai 时调用 OpenAI 兼容的 /embeddings 接口；否则使用离线的特征哈希向量。
+     */
+    @Bean
+    public EmbeddingProvider embeddingProvider(
+            @Value("${mysqlbot.embedding.provider:local}") String provider,
+            @Value("${mysqlbot.embedding.base-url:https://api.openai.com/v1}") String baseUrl,
+            @Value("${mysqlbot.embedding.api-key:}") String apiKey,
+            @Value("${mysqlbot.embedding.model:text-embedding-3-small}") String model,
+            @Value("${mysqlbot.embedding.dimension:256}") int dimension) {
+        if ("openai".equalsIgnoreCase(provider)) {
+            return new OpenAiEmbeddingProvider(baseUrl, apiKey, model, dimension);
+        }
+        if (!"local".equalsIgnoreCase(provider)) {
+            log.warn("Unknown mysqlbot.embedding.provider '{}', using local hashing embeddings", provider);
+        }
+        return new HashingEmbeddingProvider(dimension);
+    }
+
+    /**
+     * 所有 OpenAI 兼容 LLM 客户端共用的 HTTP 连接：长连接复用、HTTP/2、TLS 会话复用，并限制每个主机的并发请求数。
+     */
+    @Bean(destroyMethod = "close")
+    public LlmHttpTransport llmHttpTransport(
+            @Value("${mysqlbot.llm-http.max-connections-per-host:16}") int maxConnectionsPerHost,
+            @Value("${mysqlbot.llm-http.connect-timeout-seconds:10}") int connectTimeoutSeconds,
+            @Value("${mysqlbot.llm-http.request-timeout-seconds:90}") int requestTimeoutSeconds,
+            @Value("${mysqlbot.llm-http.stream-timeout-seconds:180}") int streamTimeoutSeconds,
+            @Value("${mysqlbot.llm-http.acquire-timeout-seconds:60}") int acquireTimeoutSeconds,
+            @Value("${mysqlbot.llm-http.http2:true}") boolean http2) {
+        return new LlmHttpTransport(maxConnectionsPerHost, Duration.ofSeconds(connectTimeoutSeconds),
+                Duration.ofSeconds(requestTimeoutSeconds), Duration.ofSeconds(streamTimeoutSeconds),
+                Duration.ofSeconds(acquireTimeoutSeconds), http2);
+    }
 }
@@ -0,0 +1,29 @@
+package com.example.mysqlbot.config;
+
+import com.example.mysqlbot.util.LocalSpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * 链路追踪配置：Spring Boot 将 {@link LocalSpanExporter} 接入 OpenTelemetry SDK 的批量导出，
+ * 无需外部追踪后端即可按 trace id 查看一次问答的耗时瀑布图（GET /api/chat/traces/{traceId}）。
+ * 如需接入 Jaeger / Tempo 等，只需再注册对应的 SpanExporter。
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * 内存中保留最近 max-traces 条链路；配置 file 时每个 span 追加写入一行 JSON，重启后仍可查询。
+     * 文件达到 max-file-mb 时轮转为 file.1（覆盖上一份），磁盘占用与按 trace id 的扫描量都有上限。
+     */
+    @Bean
+    public LocalSpanExporter localSpanExporter(
+            @Value("${mysqlbot.tracing.max-traces:500}") int maxTraces,
+            @Value("${mysqlbot.tracing.file:}") String file,
+            @Value("${mysqlbot.tracing.max-file-mb:64}") long maxFileMb) {
+        return new LocalSpanExporter(maxTraces, file.isBlank() ? null : Path.of(file), maxFileMb * 1024 * 1024);
+    }
+}
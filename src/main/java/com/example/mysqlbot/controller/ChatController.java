@@ -3,6 +3,8 @@ package com.example.mysqlbot.controller;
 import com.example.mysqlbot.model.ChatMessage;
 import com.example.mysqlbot.model.ChatSession;
 import com.example.mysqlbot.service.ChatService;
+import com.example.mysqlbot.service.TraceService;
+import com.example.mysqlbot.util.LocalSpanExporter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +30,8 @@ public class ChatController {
 
     private final ChatService chatService;
     private final ObjectMapper objectMapper;
+    private final TraceService traceService;
+    private final LocalSpanExporter localSpanExporter;
 
     private final ExecutorService sseExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
@@ -75,7 +79,8 @@ public class ChatController {
 
         SseEmitter emitter = new SseEmitter(180_000L); // 3 min timeout for streaming
 
-        sseExecutor.execute(() -> {
+        // the turn runs on another thread; keep it in this request's trace
+        sseExecutor.execute(traceService.wrap(() -> {
             try {
                 chatService.chatStream(sessionId, request.getContent(), request.isThinking(), (event) -> {
                     try {
@@ -96,7 +101,7 @@ public class ChatController {
                 } catch (Exception ignored) {}
                 emitter.complete();
             }
-        });
+        }));
 
         emitter.onTimeout(() -> log.warn("SSE emitter timed out for session {}", sessionId));
         emitter.onError(e -> log.warn("SSE emitter error for session {}: {}", sessionId, e.getMessage()));
@@ -110,6 +115,16 @@ public class ChatController {
                 .data(json, MediaType.APPLICATION_JSON));
     }
 
+    /**
+     * Spans of a chat turn ordered by start time (the trace id is on the answer message),
+     * for a waterfall of where the time went.
+     */
+    @GetMapping("/traces/{traceId}")
+    public ResponseEntity<List<LocalSpanExporter.SpanRecord>> getTrace(@PathVariable("traceId") String traceId) {
+        List<LocalSpanExporter.SpanRecord> spans = localSpanExporter.find(traceId);
+        return spans.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(spans);
+    }
+
     @PostMapping("/messages/{messageId}/analyze")
     public ResponseEntity<ChatMessage> analyzeMessage(@PathVariable("messageId") Long messageId) {
         try {
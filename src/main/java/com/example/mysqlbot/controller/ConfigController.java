@@ -2,6 +2,9 @@ package com.example.mysqlbot.controller;
 
 import com.example.mysqlbot.config.AppConfig;
 import com.example.mysqlbot.service.ConfigService;
+import com.example.mysqlbot.service.LlmService;
+import com.example.mysqlbot.service.SchemaRetrievalService;
+import com.example.mysqlbot.service.SqlGenerateCacheService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,6 +22,9 @@ public class ConfigController {
 
     private final ConfigService configService;
     private final AppConfig appConfig;
+    private final SqlGenerateCacheService sqlGenerateCacheService;
+    private final SchemaRetrievalService schemaRetrievalService;
+    private final LlmService llmService;
 
     @GetMapping("/llm")
     public AppConfig.LlmConfig getLlmConfig() {
@@ -58,6 +64,24 @@ public class ConfigController {
         return appConfig;
     }
 
+    /** SQL 生成缓存命中统计（hits / misses / hitRate / size）。 */
+    @GetMapping("/cache/sql-generate")
+    public Map<String, Object> getSqlGenerateCacheStats() {
+        return sqlGenerateCacheService.getStats();
+    }
+
+    /** 表结构预取统计：有/无预取时 Agent 平均工具轮次及估算节省的轮次。 */
+    @GetMapping("/prefetch")
+    public Map<String, Object> getPrefetchStats() {
+        return schemaRetrievalService.getStats();
+    }
+
+    /** LLM HTTP 连接统计：请求数、失败数、各主机进行中 / 排队的请求数。 */
+    @GetMapping("/llm/transport")
+    public Map<String, Object> getLlmTransportStats() {
+        return llmService.getTransportStats();
+    }
+
     // ===== 企业微信配置 =====
 
     @GetMapping("/wecom")
@@ -5,7 +5,13 @@ import com.example.mysqlbot.repository.DataSourceRepository;
 import com.example.mysqlbot.service.ConnectionPoolService;
 import com.example.mysqlbot.service.SchemaCacheService;
 import com.example.mysqlbot.service.SchemaService;
+import com.example.mysqlbot.service.SqlExampleSelectionService;
 import com.example.mysqlbot.service.SqlExecuteService;
+import com.example.mysqlbot.service.SqlGenerateCacheService;
+import com.example.mysqlbot.service.SchemaSnapshotService;
+import com.example.mysqlbot.service.SqlResultCacheService;
+import com.example.mysqlbot.service.TermGlossaryMatchService;
+import com.example.mysqlbot.service.VectorRetrievalService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +30,12 @@ public class DataSourceController {
     private final SqlExecuteService sqlExecuteService;
     private final ConnectionPoolService connectionPoolService;
     private final SchemaCacheService schemaCacheService;
+    private final SqlGenerateCacheService sqlGenerateCacheService;
+    private final SqlResultCacheService sqlResultCacheService;
+    private final SchemaSnapshotService schemaSnapshotService;
+    private final VectorRetrievalService vectorRetrievalService;
+    private final SqlExampleSelectionService sqlExampleSelectionService;
+    private final TermGlossaryMatchService termGlossaryMatchService;
 
     @GetMapping
     public List<DataSource> list() {
@@ -51,13 +63,22 @@ public class DataSourceController {
         // Evict pool + schema cache when data source config changes
         connectionPoolService.evictPool(id);
         schemaCacheService.evictDataSource(id);
+        sqlGenerateCacheService.evictDataSource(id);
+        sqlResultCacheService.evictDataSource(id);
         return ResponseEntity.ok(dataSourceRepository.save(dataSource));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") Long id) {
+        schemaService.cancelSync(id);
         connectionPoolService.evictPool(id);
         schemaCacheService.evictDataSource(id);
+        sqlGenerateCacheService.evictDataSource(id);
+        sqlResultCacheService.evictDataSource(id);
+        schemaSnapshotService.deleteDataSource(id);
+        vectorRetrievalService.evictDataSource(id);
+        sqlExampleSelectionService.evict(id);
+        termGlossaryMatchService.evict(id);
         dataSourceRepository.deleteById(id);
         return ResponseEntity.ok().build();
     }
@@ -89,16 +110,44 @@ public class DataSourceController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Starts a background schema sync; incremental by default, {@code full=true} re-reads every table.
+     */
     @PostMapping("/{id}/sync-schema")
-    public ResponseEntity<Map<String, Object>> syncSchema(@PathVariable("id") Long id) {
+    public ResponseEntity<Map<String, Object>> syncSchema(@PathVariable("id") Long id,
+                                                          @RequestParam(value = "full", defaultValue = "false") boolean full) {
         try {
-            schemaService.syncSchema(id);
+            schemaService.syncSchema(id, full);
             return ResponseEntity.ok(Map.of("success", true, "message", "Schema sync started in background"));
         } catch (Exception e) {
             return ResponseEntity.ok(Map.of("success", false, "message", e.getMessage()));
         }
     }
 
+    /**
+     * Cancels the running schema sync of a data source; the previous snapshot and relations stay in place.
+     */
+    @PostMapping("/{id}/sync-schema/cancel")
+    public ResponseEntity<Map<String, Object>> cancelSyncSchema(@PathVariable("id") Long id) {
+        boolean cancelled = schemaService.cancelSync(id);
+        return ResponseEntity.ok(Map.of("success", cancelled,
+                "message", cancelled ? "Schema sync cancelling" : "No schema sync is running"));
+    }
+
+    /**
+     * Flushes the cached query results of one data source (admin operation, e.g. after a bulk load).
+     */
+    @DeleteMapping("/{id}/result-cache")
+    public ResponseEntity<Map<String, Object>> flushResultCache(@PathVariable("id") Long id) {
+        int removed = sqlResultCacheService.evictDataSource(id);
+        return ResponseEntity.ok(Map.of("success", true, "removed", removed));
+    }
+
+    @GetMapping("/result-cache/stats")
+    public Map<String, Object> getResultCacheStats() {
+        return sqlResultCacheService.getStats();
+    }
+
     @GetMapping("/{id}/sync-progress")
     public ResponseEntity<SchemaService.SyncProgress> getSyncProgress(@PathVariable("id") Long id) {
         return ResponseEntity.ok(schemaService.getSyncProgress(id));
@@ -4,11 +4,15 @@ import com.example.mysqlbot.model.SqlExample;
 import com.example.mysqlbot.model.TermGlossary;
 import com.example.mysqlbot.repository.SqlExampleRepository;
 import com.example.mysqlbot.repository.TermGlossaryRepository;
+import com.example.mysqlbot.service.SqlExampleSelectionService;
+import com.example.mysqlbot.service.TermGlossaryMatchService;
+import com.example.mysqlbot.service.VectorRetrievalService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/knowledge")
@@ -18,6 +22,9 @@ public class KnowledgeBaseController {
 
     private final TermGlossaryRepository termGlossaryRepository;
     private final SqlExampleRepository sqlExampleRepository;
+    private final SqlExampleSelectionService sqlExampleSelectionService;
+    private final TermGlossaryMatchService termGlossaryMatchService;
+    private final VectorRetrievalService vectorRetrievalService;
 
     // ===== Term Glossary =====
 
@@ -31,15 +38,32 @@ public class KnowledgeBaseController {
 
     @PostMapping("/terms")
     public TermGlossary createTerm(@RequestBody TermGlossary term) {
-        return termGlossaryRepository.save(term);
+        if (term.getId() != null) {
+            termGlossaryRepository.findById(term.getId()).ifPresent(this::evictGlossary);
+        }
+        TermGlossary saved = termGlossaryRepository.save(term);
+        evictGlossary(saved);
+        return saved;
     }
 
     @DeleteMapping("/terms/{id}")
     public ResponseEntity<Void> deleteTerm(@PathVariable("id") Long id) {
+        Optional<TermGlossary> existing = termGlossaryRepository.findById(id);
         termGlossaryRepository.deleteById(id);
+        existing.ifPresent(this::evictGlossary);
         return ResponseEntity.ok().build();
     }
 
+    /** A global term (no data source) is visible to every data source. */
+    private void evictGlossary(TermGlossary term) {
+        if (term.getDataSourceId() == null) {
+            termGlossaryMatchService.evictAll();
+        } else {
+            termGlossaryMatchService.evict(term.getDataSourceId());
+        }
+        vectorRetrievalService.refresh(term.getDataSourceId());
+    }
+
     // ===== SQL Examples =====
 
     @GetMapping("/examples")
@@ -52,12 +76,25 @@ public class KnowledgeBaseController {
 
     @PostMapping("/examples")
     public SqlExample createExample(@RequestBody SqlExample example) {
-        return sqlExampleRepository.save(example);
+        if (example.getId() != null) {
+            // an update may move the example to another data source
+            sqlExampleRepository.findById(example.getId()).ifPresent(this::evictExamples);
+        }
+        SqlExample saved = sqlExampleRepository.save(example);
+        evictExamples(saved);
+        return saved;
     }
 
     @DeleteMapping("/examples/{id}")
     public ResponseEntity<Void> deleteExample(@PathVariable("id") Long id) {
+        Optional<SqlExample> existing = sqlExampleRepository.findById(id);
         sqlExampleRepository.deleteById(id);
+        existing.ifPresent(this::evictExamples);
         return ResponseEntity.ok().build();
     }
+
+    private void evictExamples(SqlExample example) {
+        sqlExampleSelectionService.evict(example.getDataSourceId());
+        if (example.getDataSourceId() != null) vectorRetrievalService.refresh(example.getDataSourceId());
+    }
 }
@@ -71,6 +71,12 @@ public class ChatMessage {
     @Column(name = "clarify_options", columnDefinition = "TEXT")
     private String clarifyOptions;
 
+    /**
+     * 生成该回答的链路 trace id，可据此查询各阶段耗时（GET /api/chat/traces/{traceId}）。
+     */
+    @Column(name = "trace_id", length = 32)
+    private String traceId;
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
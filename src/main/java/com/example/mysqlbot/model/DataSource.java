@@ -51,6 +51,10 @@ public class DataSource {
     @Column(name = "schema_synced_at")
     private LocalDateTime schemaSyncedAt;
 
+    /** 查询结果缓存时长（秒）；为空或 0 表示不缓存该数据源的查询结果。 */
+    @Column(name = "result_cache_ttl_seconds")
+    private Integer resultCacheTtlSeconds;
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
@@ -1,10 +1,15 @@
 package com.example.mysqlbot.model;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Arrays;
 
 /**
  * Database dialect abstraction.
- * Centralizes per-database differences: JDBC URL format, identifier quoting, default port.
+ * Centralizes per-database differences: JDBC URL format, identifier quoting, default port,
+ * and how query results are fetched from the server.
  * Add new databases by adding an enum constant.
  */
 public enum DatabaseDialect {
@@ -24,7 +29,106 @@ public enum DatabaseDialect {
             Backticks (`) are ILLEGAL in PostgreSQL.
             """,
             "postgresql"
-    ),
+    ) {
+        /**
+         * PgJDBC only honours the fetch size (server-side portal) inside a transaction,
+         * otherwise it reads the whole result into memory.
+         */
+        @Override
+        public Statement createQueryStatement(Connection conn, int fetchSize) throws SQLException {
+            conn.setAutoCommit(false);
+            return super.createQueryStatement(conn, fetchSize);
+        }
+
+        @Override
+        public void finishQuery(Connection conn) throws SQLException {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+
+        /** Planner statistics; {@code reltuples} is -1 for tables never analyzed. */
+        @Override
+        public String rowEstimateSql() {
+            return """
+                    SELECT n.nspname AS table_schema, c.relname AS table_name, c.reltuples::bigint AS row_estimate
+                    FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                    WHERE c.relkind IN ('r', 'p') AND n.nspname NOT IN ('pg_catalog', 'information_schema')
+                    """;
+        }
+
+        /** Hash of each table's columns (name, type, nullability, comment), comment and PK/FK definitions. */
+        @Override
+        public String schemaProbeSql() {
+            return """
+                    SELECT n.nspname AS table_schema, c.relname AS table_name,
+                           md5(string_agg(a.attnum || ':' || a.attname || ':' || format_type(a.atttypid, a.atttypmod)
+                                   || ':' || a.attnotnull || ':' || coalesce(col_description(c.oid, a.attnum), ''),
+                                   ',' ORDER BY a.attnum)
+                               || coalesce(obj_description(c.oid, 'pg_class'), '')
+                               || coalesce((SELECT string_agg(pg_get_constraintdef(con.oid), ',' ORDER BY con.conname)
+                                            FROM pg_constraint con
+                                            WHERE con.conrelid = c.oid AND con.contype IN ('p', 'f')), '')) AS fingerprint
+                    FROM pg_class c
+                    JOIN pg_namespace n ON n.oid = c.relnamespace
+                    JOIN pg_attribute a ON a.attrelid = c.oid AND a.attnum > 0 AND NOT a.attisdropped
+                    WHERE c.relkind = 'r' AND n.nspname <> 'information_schema' AND n.nspname NOT LIKE 'pg\\_%'
+                    GROUP BY n.nspname, c.relname, c.oid
+                    """;
+        }
+
+        /** Reads pg_catalog directly; same table set as {@code getTables(.., {"TABLE"})} (ordinary tables, non-system schemas). */
+        @Override
+        public CatalogQueries catalogQueries() {
+            String userSchemas = "n.nspname <> 'information_schema' AND n.nspname NOT LIKE 'pg\\_%'";
+            return new CatalogQueries(
+                    """
+                    SELECT n.nspname AS table_schema, c.relname AS table_name, d.description AS remarks,
+                           c.reltuples::bigint AS row_estimate
+                    FROM pg_class c
+                    JOIN pg_namespace n ON n.oid = c.relnamespace
+                    LEFT JOIN pg_description d ON d.objoid = c.oid AND d.classoid = 'pg_class'::regclass AND d.objsubid = 0
+                    WHERE c.relkind = 'r' AND %s
+                    ORDER BY 1, 2
+                    """.formatted(userSchemas),
+                    """
+                    SELECT n.nspname AS table_schema, c.relname AS table_name, a.attname AS column_name,
+                           t.typname AS type_name, d.description AS remarks
+                    FROM pg_attribute a
+                    JOIN pg_class c ON c.oid = a.attrelid
+                    JOIN pg_namespace n ON n.oid = c.relnamespace
+                    JOIN pg_type t ON t.oid = a.atttypid
+                    LEFT JOIN pg_description d ON d.objoid = a.attrelid AND d.classoid = 'pg_class'::regclass AND d.objsubid = a.attnum
+                    WHERE c.relkind = 'r' AND a.attnum > 0 AND NOT a.attisdropped AND %s
+                    ORDER BY 1, 2, a.attnum
+                    """.formatted(userSchemas),
+                    """
+                    SELECT n.nspname AS table_schema, c.relname AS table_name, a.attname AS column_name
+                    FROM pg_constraint con
+                    JOIN pg_class c ON c.oid = con.conrelid
+                    JOIN pg_namespace n ON n.oid = c.relnamespace
+                    CROSS JOIN LATERAL unnest(con.conkey) WITH ORDINALITY AS k(attnum, pos)
+                    JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = k.attnum
+                    WHERE con.contype = 'p' AND %s
+                    ORDER BY 1, 2, k.pos
+                    """.formatted(userSchemas),
+                    """
+                    SELECT n.nspname AS table_schema, c.relname AS table_name, a.attname AS fk_column,
+                           pn.nspname AS pk_table_schema, pc.relname AS pk_table_name, pa.attname AS pk_column
+                    FROM pg_constraint con
+                    JOIN pg_class c ON c.oid = con.conrelid
+                    JOIN pg_namespace n ON n.oid = c.relnamespace
+                    JOIN pg_class pc ON pc.oid = con.confrelid
+                    JOIN pg_namespace pn ON pn.oid = pc.relnamespace
+                    CROSS JOIN LATERAL unnest(con.conkey, con.confkey) WITH ORDINALITY AS k(attnum, pk_attnum, pos)
+                    JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = k.attnum
+                    JOIN pg_attribute pa ON pa.attrelid = con.confrelid AND pa.attnum = k.pk_attnum
+                    WHERE con.contype = 'f' AND %s
+                    ORDER BY 1, 2, con.conname, k.pos
+                    """.formatted(userSchemas));
+        }
+    },
 
     MYSQL(
             "mysql",
@@ -38,7 +142,91 @@ public enum DatabaseDialect {
             Use backticks for reserved words, special characters, or when case must be preserved.
             """,
             "mysql"
-    );
+    ) {
+        /**
+         * Connector/J buffers the full result unless the statement is forward-only, read-only
+         * and has fetch size {@link Integer#MIN_VALUE}, which streams rows one by one.
+         * (useCursorFetch would only apply to server-side prepared statements.)
+         */
+        @Override
+        public Statement createQueryStatement(Connection conn, int fetchSize) throws SQLException {
+            Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            return stmt;
+        }
+
+        /** InnoDB's TABLE_ROWS is an estimate maintained by the storage engine. */
+        @Override
+        public String rowEstimateSql() {
+            return """
+                    SELECT TABLE_SCHEMA AS table_schema, TABLE_NAME AS table_name, TABLE_ROWS AS row_estimate
+                    FROM information_schema.TABLES
+                    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE'
+                    """;
+        }
+
+        /**
+         * Order-independent CRC sum over each table's columns (position, name, full type, key flag,
+         * nullability, comment, referenced column), plus the table comment. Avoids GROUP_CONCAT,
+         * which truncates at group_concat_max_len.
+         */
+        @Override
+        public String schemaProbeSql() {
+            return """
+                    SELECT c.TABLE_SCHEMA AS table_schema, c.TABLE_NAME AS table_name,
+                           CONCAT(COUNT(*), '-',
+                                  SUM(CRC32(CONCAT_WS('|', c.ORDINAL_POSITION, c.COLUMN_NAME, c.COLUMN_TYPE, c.COLUMN_KEY,
+                                                      c.IS_NULLABLE, c.COLUMN_COMMENT,
+                                                      k.REFERENCED_TABLE_NAME, k.REFERENCED_COLUMN_NAME))), '-',
+                                  CRC32(MAX(t.TABLE_COMMENT))) AS fingerprint
+                    FROM information_schema.COLUMNS c
+                    JOIN information_schema.TABLES t
+                      ON t.TABLE_SCHEMA = c.TABLE_SCHEMA AND t.TABLE_NAME = c.TABLE_NAME AND t.TABLE_TYPE = 'BASE TABLE'
+                    LEFT JOIN information_schema.KEY_COLUMN_USAGE k
+                      ON k.TABLE_SCHEMA = c.TABLE_SCHEMA AND k.TABLE_NAME = c.TABLE_NAME AND k.COLUMN_NAME = c.COLUMN_NAME
+                     AND k.REFERENCED_TABLE_NAME IS NOT NULL
+                    WHERE c.TABLE_SCHEMA = DATABASE()
+                    GROUP BY c.TABLE_SCHEMA, c.TABLE_NAME
+                    """;
+        }
+
+        /** information_schema scoped to the connected database, like {@code getTables(dbName, ..)}. */
+        @Override
+        public CatalogQueries catalogQueries() {
+            return new CatalogQueries(
+                    """
+                    SELECT TABLE_SCHEMA AS table_schema, TABLE_NAME AS table_name, TABLE_COMMENT AS remarks,
+                           TABLE_ROWS AS row_estimate
+                    FROM information_schema.TABLES
+                    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE'
+                    ORDER BY TABLE_NAME
+                    """,
+                    """
+                    SELECT TABLE_SCHEMA AS table_schema, TABLE_NAME AS table_name, COLUMN_NAME AS column_name,
+                           UPPER(DATA_TYPE) AS type_name, COLUMN_COMMENT AS remarks
+                    FROM information_schema.COLUMNS
+                    WHERE TABLE_SCHEMA = DATABASE()
+                    ORDER BY TABLE_NAME, ORDINAL_POSITION
+                    """,
+                    """
+                    SELECT k.TABLE_SCHEMA AS table_schema, k.TABLE_NAME AS table_name, k.COLUMN_NAME AS column_name
+                    FROM information_schema.TABLE_CONSTRAINTS t
+                    JOIN information_schema.KEY_COLUMN_USAGE k
+                      ON k.CONSTRAINT_SCHEMA = t.CONSTRAINT_SCHEMA AND k.CONSTRAINT_NAME = t.CONSTRAINT_NAME
+                     AND k.TABLE_NAME = t.TABLE_NAME
+                    WHERE t.CONSTRAINT_TYPE = 'PRIMARY KEY' AND t.TABLE_SCHEMA = DATABASE()
+                    ORDER BY k.TABLE_NAME, k.ORDINAL_POSITION
+                    """,
+                    """
+                    SELECT TABLE_SCHEMA AS table_schema, TABLE_NAME AS table_name, COLUMN_NAME AS fk_column,
+                           REFERENCED_TABLE_SCHEMA AS pk_table_schema, REFERENCED_TABLE_NAME AS pk_table_name,
+                           REFERENCED_COLUMN_NAME AS pk_column
+                    FROM information_schema.KEY_COLUMN_USAGE
+                    WHERE TABLE_SCHEMA = DATABASE() AND REFERENCED_TABLE_NAME IS NOT NULL
+                    ORDER BY TABLE_NAME, CONSTRAINT_NAME, ORDINAL_POSITION
+                    """);
+        }
+    };
 
     private final String id;
     private final String displayName;
@@ -88,6 +276,63 @@ public enum DatabaseDialect {
         return quoteIdentifier(table);
     }
 
+    /**
+     * Creates a read-only statement configured so the driver fetches rows incrementally
+     * ({@code fetchSize} at a time where supported) instead of materializing the whole result.
+     * Every caller must call {@link #finishQuery(Connection)} once the statement is closed.
+     */
+    public Statement createQueryStatement(Connection conn, int fetchSize) throws SQLException {
+        Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(fetchSize);
+        return stmt;
+    }
+
+    /**
+     * Restores connection state changed by {@link #createQueryStatement(Connection, int)}
+     * before the connection goes back to the pool.
+     */
+    public void finishQuery(Connection conn) throws SQLException {
+    }
+
+    /**
+     * Query returning the catalog's row-count estimate per table as
+     * ({@code table_schema}, {@code table_name}, {@code row_estimate}), or {@code null}
+     * when the database has no cheap way to provide one.
+     */
+    public String rowEstimateSql() {
+        return null;
+    }
+
+    /**
+     * Set-based catalog queries that read the whole schema in a fixed number of round trips,
+     * or {@code null} to fall back to per-table {@link java.sql.DatabaseMetaData} calls.
+     */
+    public CatalogQueries catalogQueries() {
+        return null;
+    }
+
+    /**
+     * Cheap change probe returning ({@code table_schema}, {@code table_name}, {@code fingerprint})
+     * for every table {@link #catalogQueries()} would read. The fingerprint changes whenever the
+     * table's columns, types, keys or comments change, so comparing it with the stored snapshot
+     * tells which tables need re-extraction. {@code null} disables incremental sync.
+     */
+    public String schemaProbeSql() {
+        return null;
+    }
+
+    /**
+     * Bulk schema extraction SQL. Every query returns {@code table_schema} and {@code table_name}, plus:
+     * <ul>
+     *   <li>{@code tables}: {@code remarks}, {@code row_estimate}</li>
+     *   <li>{@code columns}: {@code column_name}, {@code type_name}, {@code remarks}, in ordinal order</li>
+     *   <li>{@code primaryKeys}: {@code column_name}, in key order</li>
+     *   <li>{@code foreignKeys}: {@code fk_column}, {@code pk_table_schema}, {@code pk_table_name}, {@code pk_column}</li>
+     * </ul>
+     */
+    public record CatalogQueries(String tables, String columns, String primaryKeys, String foreignKeys) {
+    }
+
     /**
      * Look up dialect by dbType string. Throws if unknown.
      */
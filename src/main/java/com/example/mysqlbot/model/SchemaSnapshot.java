@@ -0,0 +1,43 @@
+package com.example.mysqlbot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一次 Schema 同步产出的快照版本头；表结构明细见 {@link SchemaSnapshotTable}。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "schema_snapshot")
+public class SchemaSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "data_source_id", nullable = false)
+    private Long dataSourceId;
+
+    /** 同一数据源内单调递增 */
+    @Column(nullable = false)
+    private Integer version;
+
+    @Column(name = "table_count")
+    private Integer tableCount;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.mysqlbot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 快照中的单张表：列（含类型、注释）、主键、外键以 JSON 文本存储，
+ * 由 {@link com.example.mysqlbot.service.SchemaSnapshotService} 负责编解码。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "schema_snapshot_table")
+public class SchemaSnapshotTable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "snapshot_id", nullable = false)
+    private Long snapshotId;
+
+    /** 限定表名（非默认 schema 带引号前缀），与 table_relation / vector_store 一致 */
+    @Column(name = "table_name", nullable = false, length = 500)
+    private String tableName;
+
+    @Column(name = "simple_name", nullable = false, length = 200)
+    private String simpleName;
+
+    @Column(name = "table_schema", length = 200)
+    private String tableSchema;
+
+    @Column(columnDefinition = "TEXT")
+    private String remarks;
+
+    /** 数据库统计信息中的行数估算，未知为 NULL */
+    @Column(name = "row_estimate")
+    private Long rowEstimate;
+
+    /** 表结构指纹（列、类型、键、注释），增量同步据此判断哪些表发生了变化 */
+    @Column(length = 64)
+    private String fingerprint;
+
+    /** [{"name","type","remarks"}] */
+    @Column(name = "columns_json", nullable = false, columnDefinition = "TEXT")
+    private String columnsJson;
+
+    /** ["col", ...] */
+    @Column(name = "primary_keys_json", columnDefinition = "TEXT")
+    private String primaryKeysJson;
+
+    /** [{"fkColumn","pkTable","pkColumn"}] */
+    @Column(name = "foreign_keys_json", columnDefinition = "TEXT")
+    private String foreignKeysJson;
+}
@@ -29,6 +29,9 @@ public class TermGlossary {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String definition;
 
+    @Column(length = 500)
+    private String synonyms; // 同义词，逗号/顿号/分号分隔（如 "成交总额,交易额"）
+
     @Column(name = "is_active")
     @Builder.Default
     private Integer isActive = 1;
@@ -0,0 +1,19 @@
+package com.example.mysqlbot.repository;
+
+import com.example.mysqlbot.model.SchemaSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SchemaSnapshotRepository extends JpaRepository<SchemaSnapshot, Long> {
+
+    Optional<SchemaSnapshot> findTopByDataSourceIdOrderByVersionDesc(Long dataSourceId);
+
+    /**
+     * 按版本从新到旧列出快照（用于保留最近 N 个版本）
+     */
+    List<SchemaSnapshot> findByDataSourceIdOrderByVersionDesc(Long dataSourceId);
+}
@@ -0,0 +1,21 @@
+package com.example.mysqlbot.repository;
+
+import com.example.mysqlbot.model.SchemaSnapshotTable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SchemaSnapshotTableRepository extends JpaRepository<SchemaSnapshotTable, Long> {
+
+    List<SchemaSnapshotTable> findBySnapshotId(Long snapshotId);
+
+    @Modifying
+    @Query("DELETE FROM SchemaSnapshotTable t WHERE t.snapshotId IN :snapshotIds")
+    void deleteBySnapshotIdIn(@Param("snapshotIds") Collection<Long> snapshotIds);
+}
@@ -46,6 +46,16 @@ public interface TableRelationRepository extends JpaRepository<TableRelation, Lo
     void deleteByDataSourceIdAndSourceIn(@Param("dataSourceId") Long dataSourceId,
                                          @Param("sources") List<String> sources);
 
+    /**
+     * 增量同步时调用：只删除涉及给定表（from 或 to 方向）的指定来源关系
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TableRelation r WHERE r.dataSourceId = :dataSourceId AND r.source IN :sources AND (r.fromTable IN :tables OR r.toTable IN :tables)")
+    void deleteByDataSourceIdAndSourceInInvolvingTables(@Param("dataSourceId") Long dataSourceId,
+                                                        @Param("sources") List<String> sources,
+                                                        @Param("tables") List<String> tables);
+
     /**
      * 安全删除指定来源的关系记录，空 sources 列表时直接返回（避免 IN () 语法错误）。
      * 保留 source='manual' 记录，由调用方控制传入的 sources 列表。
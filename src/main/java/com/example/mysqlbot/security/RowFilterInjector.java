@@ -0,0 +1,292 @@
+package com.example.mysqlbot.security;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnyComparisonExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Deterministic row-level permission rewrite on the JSqlParser AST.
+ *
+ * <p>Every base-table reference — in the main query, joins, CTE bodies, set operations and
+ * subqueries in any clause — is replaced by a filtered derived table under the same alias:
+ * <pre>
+ *   FROM orders o LEFT JOIN refunds r ON ...
+ *   FROM (SELECT * FROM orders WHERE tenant_id = 'x') o LEFT JOIN (SELECT * FROM refunds WHERE tenant_id = 'x') r ON ...
+ * </pre>
+ * Filtering inside the derived table keeps outer-join semantics intact and needs no knowledge
+ * of where the original query's WHERE clause lives. References to CTE names are left alone;
+ * the CTE bodies are filtered instead.
+ *
+ * <p>After rewriting, every table the statement references is checked against the set the
+ * rewriter actually handled. A table reached only through an expression node the rewriter does
+ * not descend into fails the check, so an unfiltered table can never slip through as success.
+ *
+ * <p>{@link #inject} returns empty when the rule or the statement is outside what this rewriter
+ * can guarantee (qualified columns or subqueries in the rule, table functions, index hints,
+ * non-SELECT statements, unparsable SQL); callers then fall back to another strategy.
+ */
+public final class RowFilterInjector {
+
+    private RowFilterInjector() {
+    }
+
+    public static Optional<String> inject(String sql, String filterRule) {
+        if (sql == null || filterRule == null || filterRule.isBlank()) return Optional.empty();
+        try {
+            if (!isSelfContained(CCJSqlParserUtil.parseCondExpression(filterRule))) return Optional.empty();
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            if (!(statement instanceof Select select)) return Optional.empty();
+
+            Rewriter rewriter = new Rewriter(filterRule);
+            select.accept(rewriter);
+            verifyCovered(select, rewriter.handled);
+            return Optional.of(select.toString());
+        } catch (JSQLParserException | UnsupportedOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** The rule is evaluated inside a single-table derived table, so it may only use that table's columns. */
+    private static boolean isSelfContained(Expression rule) {
+        boolean[] ok = {true};
+        rule.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                if (column.getTable() != null && column.getTable().getName() != null) ok[0] = false;
+            }
+
+            @Override
+            public void visit(Select select) {
+                ok[0] = false;
+            }
+
+            @Override
+            public void visit(ParenthesedSelect select) {
+                ok[0] = false;
+            }
+        });
+        return ok[0];
+    }
+
+    /** Fails the rewrite if any table in the result was not wrapped or recognised as a CTE reference. */
+    private static void verifyCovered(Select select, Set<Table> handled) {
+        new TablesNamesFinder() {
+            @Override
+            public void visit(Table table) {
+                if (!handled.contains(table)) {
+                    throw new UnsupportedOperationException("unfiltered table " + table.getFullyQualifiedName());
+                }
+            }
+        }.getTableList((Statement) select);
+    }
+
+    private static final class Rewriter extends SelectVisitorAdapter {
+
+        private final String filterRule;
+        /** CTE names visible at the current nesting level (lower-cased). */
+        private final Deque<Set<String>> cteScopes = new ArrayDeque<>();
+        /** Table nodes that were filtered or are CTE references, by identity. */
+        private final Set<Table> handled = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final ExpressionVisitorAdapter subqueries;
+
+        Rewriter(String filterRule) {
+            this.filterRule = filterRule;
+            Rewriter self = this;
+            this.subqueries = new ExpressionVisitorAdapter() {
+                @Override
+                public void visit(Select select) {
+                    select.accept(self);
+                }
+
+                @Override
+                public void visit(ParenthesedSelect select) {
+                    select.accept(self);
+                }
+
+                @Override
+                public void visit(AnyComparisonExpression expression) {
+                    // col > ANY / ALL / SOME (SELECT ...): the adapter does not descend into the subquery
+                    expression.getSelect().accept(self);
+                }
+            };
+            // any other path the adapter takes into a subquery lands on the rewriter as well
+            this.subqueries.setSelectVisitor(this);
+        }
+
+        @Override
+        public void visit(PlainSelect plainSelect) {
+            boolean scoped = enterWith(plainSelect);
+            try {
+                plainSelect.setFromItem(rewrite(plainSelect.getFromItem()));
+                rewriteJoins(plainSelect.getJoins());
+                for (SelectItem<?> item : plainSelect.getSelectItems()) {
+                    acceptExpression(item.getExpression());
+                }
+                acceptExpression(plainSelect.getWhere());
+                acceptExpression(plainSelect.getHaving());
+                acceptExpression(plainSelect.getQualify());
+                if (plainSelect.getGroupBy() != null) {
+                    acceptExpression(plainSelect.getGroupBy().getGroupByExpressionList());
+                }
+                acceptOrderBy(plainSelect.getOrderByElements());
+            } finally {
+                exitWith(scoped);
+            }
+        }
+
+        @Override
+        public void visit(SetOperationList setOperationList) {
+            boolean scoped = enterWith(setOperationList);
+            try {
+                for (Select select : setOperationList.getSelects()) {
+                    select.accept(this);
+                }
+                acceptOrderBy(setOperationList.getOrderByElements());
+            } finally {
+                exitWith(scoped);
+            }
+        }
+
+        @Override
+        public void visit(ParenthesedSelect parenthesedSelect) {
+            boolean scoped = enterWith(parenthesedSelect);
+            try {
+                parenthesedSelect.getSelect().accept(this);
+            } finally {
+                exitWith(scoped);
+            }
+        }
+
+        @Override
+        public void visit(LateralSubSelect lateralSubSelect) {
+            lateralSubSelect.getSelect().accept(this);
+        }
+
+        @Override
+        public void visit(WithItem withItem) {
+            withItem.getSelect().accept(this);
+        }
+
+        @Override
+        public void visit(TableStatement tableStatement) {
+            throw new UnsupportedOperationException("TABLE statement");
+        }
+
+        private FromItem rewrite(FromItem item) {
+            if (item == null) return null;
+            if (item instanceof Table table) {
+                if (isCteReference(table)) {
+                    handled.add(table);
+                    return table;
+                }
+                return filtered(table);
+            }
+            if (item instanceof ParenthesedSelect parenthesedSelect) {
+                // also covers LATERAL subqueries
+                parenthesedSelect.accept(this);
+                return item;
+            }
+            if (item instanceof ParenthesedFromItem parenthesed) {
+                parenthesed.setFromItem(rewrite(parenthesed.getFromItem()));
+                rewriteJoins(parenthesed.getJoins());
+                return item;
+            }
+            throw new UnsupportedOperationException("FROM item " + item.getClass().getSimpleName());
+        }
+
+        private void rewriteJoins(List<Join> joins) {
+            if (joins == null) return;
+            for (Join join : joins) {
+                join.setRightItem(rewrite(join.getRightItem()));
+                if (join.getOnExpressions() != null) {
+                    for (Expression on : join.getOnExpressions()) {
+                        acceptExpression(on);
+                    }
+                }
+            }
+        }
+
+        /** {@code t AS a} → {@code (SELECT * FROM t WHERE <rule>) AS a}; an unaliased table keeps its name as alias. */
+        private FromItem filtered(Table table) {
+            if (table.getPivot() != null || table.getUnPivot() != null || table.getIndexHint() != null
+                    || table.getSqlServerHints() != null || table.getSampleClause() != null) {
+                throw new UnsupportedOperationException("table modifiers on " + table.getFullyQualifiedName());
+            }
+            Alias alias = table.getAlias() != null ? table.getAlias() : new Alias(table.getName(), false);
+            table.setAlias(null);
+            handled.add(table);
+
+            PlainSelect inner = new PlainSelect();
+            inner.addSelectItems(new AllColumns());
+            inner.setFromItem(table);
+            try {
+                inner.setWhere(CCJSqlParserUtil.parseCondExpression(filterRule));
+            } catch (JSQLParserException e) {
+                throw new UnsupportedOperationException(e);
+            }
+
+            ParenthesedSelect derived = new ParenthesedSelect();
+            derived.setSelect(inner);
+            derived.setAlias(alias);
+            return derived;
+        }
+
+        private boolean isCteReference(Table table) {
+            if (table.getSchemaName() != null) return false;
+            String name = table.getName().toLowerCase();
+            for (Set<String> scope : cteScopes) {
+                if (scope.contains(name)) return true;
+            }
+            return false;
+        }
+
+        /** Pushes the CTE names of {@code select} (if any) and filters the CTE bodies. */
+        private boolean enterWith(Select select) {
+            List<WithItem> withItems = select.getWithItemsList();
+            if (withItems == null || withItems.isEmpty()) return false;
+            boolean recursive = withItems.stream().anyMatch(WithItem::isRecursive);
+            Set<String> names = new HashSet<>();
+            cteScopes.push(names);
+            for (WithItem withItem : withItems) {
+                String name = withItem.getAlias().getName().toLowerCase();
+                // A non-recursive CTE body cannot see its own name: "WITH t AS (SELECT * FROM t)" reads the table
+                if (recursive) names.add(name);
+                withItem.accept(this);
+                names.add(name);
+            }
+            return true;
+        }
+
+        private void exitWith(boolean scoped) {
+            if (scoped) cteScopes.pop();
+        }
+
+        private void acceptOrderBy(List<OrderByElement> orderBy) {
+            if (orderBy == null) return;
+            for (OrderByElement element : orderBy) {
+                acceptExpression(element.getExpression());
+            }
+        }
+
+        private void acceptExpression(Expression expression) {
+            if (expression != null) expression.accept(subqueries);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.mysqlbot.service;
 
+import com.example.mysqlbot.util.OpenAiLlmUtil;
+import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResponse;
+import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResponse.Choice.ToolCall;
 import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResult;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,10 +11,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -29,12 +40,23 @@ public class AgentService {
 
     private final LlmService llmService;
     private final ToolService toolService;
+    private final MetricsService metricsService;
+    private final TraceService traceService;
 
     @Value("${mysqlbot.tool.max-rounds:8}")
     private int maxToolRounds;
 
+    /**
+     * Stream the rounds of the generic loop (chart / suggest agents) too, so their tool calls
+     * start as soon as their arguments are complete; otherwise each round is one blocking call.
+     */
+    @Value("${mysqlbot.tool.eager-dispatch:true}")
+    private boolean eagerDispatch;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().start(task);
+
     /**
      * Tool executor: maps tool name + arguments to a result string.
      * Different agents inject their own execution logic.
@@ -42,15 +64,44 @@ public class AgentService {
     @FunctionalInterface
     public interface ToolExecutor {
         String execute(String toolName, Map<String, Object> args);
+
+        /** Arguments of a call still being streamed; lets an executor start I/O ahead of the call. */
+        default void onPartialArguments(String toolName, String partialArguments) {}
+
+        /** Whether a call will be served from a cache ({@code hit}/{@code miss}), for the tool metrics. */
+        default String cacheState(String toolName, Map<String, Object> args) {
+            return MetricsService.NONE;
+        }
     }
 
     /**
      * Builds a dataSourceId-bound executor: injects data_source_id then delegates to {@link ToolService}.
+     * Table names appearing in the partial arguments of a schema call are pre-loaded into the
+     * schema cache while the rest of the call is generated.
      */
     public ToolExecutor dataSourceToolExecutor(Long dataSourceId) {
-        return (name, args) -> {
-            args.put("data_source_id", dataSourceId);
-            return toolService.executeTool(name, args);
+        Set<String> warmed = ConcurrentHashMap.newKeySet();
+        return new ToolExecutor() {
+            @Override
+            public String execute(String toolName, Map<String, Object> args) {
+                args.put("data_source_id", dataSourceId);
+                return toolService.executeTool(toolName, args);
+            }
+
+            @Override
+            public void onPartialArguments(String toolName, String partialArguments) {
+                for (String table : ToolService.tableNamesIn(toolName, partialArguments)) {
+                    if (warmed.add(toolName + ":" + table)) {
+                        Thread.ofVirtual().start(traceService.wrap(
+                                () -> toolService.prewarmTableSchema(dataSourceId, toolName, table)));
+                    }
+                }
+            }
+
+            @Override
+            public String cacheState(String toolName, Map<String, Object> args) {
+                return toolService.cacheState(dataSourceId, toolName, args);
+            }
         };
     }
 
@@ -68,8 +119,8 @@ public class AgentService {
             Long dataSourceId,
             double temperature,
             com.example.mysqlbot.model.LlmConfig llmConfig) {
-        return runAgentLoop(messages, tools, temperature, llmConfig,
-                dataSourceToolExecutor(dataSourceId), maxToolRounds);
+        return traceService.inSpan("agent.loop", () -> agentLoop(messages, tools, dataSourceId, temperature, llmConfig,
+                dataSourceToolExecutor(dataSourceId), maxToolRounds));
     }
 
     /**
@@ -95,41 +146,82 @@ public class AgentService {
             com.example.mysqlbot.model.LlmConfig llmConfig,
             ToolExecutor executor,
             int maxRounds) {
+        return traceService.inSpan("agent.loop",
+                () -> agentLoop(messages, tools, null, temperature, llmConfig, executor, maxRounds));
+    }
 
-        for (int round = 0; round < maxRounds; round++) {
-            log.debug("Agent round {}/{}, messages={}, tools={}", round + 1, maxRounds,
-                    messages.size(), tools != null ? tools.size() : 0);
+    /** Loop body; {@code dataSourceId} only tags metrics and spans (null for the chart / suggest agents). */
+    private String agentLoop(
+            List<Map<String, Object>> messages,
+            List<Map<String, Object>> tools,
+            Long dataSourceId,
+            double temperature,
+            com.example.mysqlbot.model.LlmConfig llmConfig,
+            ToolExecutor executor,
+            int maxRounds) {
 
-            ChatResult result = llmService.chatWithMessagesAndTools(messages, tools, temperature, llmConfig);
+        String mode = eagerDispatch ? "stream" : "blocking";
+        traceService.tag("agent.mode", mode);
+        traceService.tag("data_source.id", dataSourceId);
+        long start = System.nanoTime();
+        int rounds = 0;
+        boolean success = false;
+        try {
+            for (int round = 0; round < maxRounds; round++) {
+                log.debug("Agent round {}/{}, messages={}, tools={}", round + 1, maxRounds,
+                        messages.size(), tools != null ? tools.size() : 0);
+
+                Map<ToolCall, CompletableFuture<Map<String, Object>>> dispatched = newDispatchMap();
+                rounds++;
+                ChatResult result = timedLlmCall(mode, dataSourceId, llmConfig, () -> eagerDispatch
+                        ? llmService.chatStreamWithTools(messages, tools, temperature, llmConfig,
+                                (type, token) -> {}, dispatcher(executor, dispatched))
+                        : llmService.chatWithMessagesAndTools(messages, tools, temperature, llmConfig));
+
+                if (result.getToolCalls() == null || result.getToolCalls().isEmpty()) {
+                    String content = result.getContent() != null ? result.getContent() : "";
+                    log.debug("Agent loop finished after {} round(s), response {} chars", round + 1, content.length());
+                    success = true;
+                    return content;
+                }
 
-            if (result.getToolCalls() == null || result.getToolCalls().isEmpty()) {
-                String content = result.getContent() != null ? result.getContent() : "";
-                log.debug("Agent loop finished after {} round(s), response {} chars", round + 1, content.length());
-                return content;
+                log.info("Agent round {}: LLM requested {} tool call(s)", round + 1, result.getToolCalls().size());
+                appendAssistantMessage(messages, result);
+                if (dispatched.isEmpty()) {
+                    executeToolCalls(messages, result, executor);
+                } else {
+                    collectToolResults(messages, result, executor, dispatched);
+                }
             }
 
-            log.info("Agent round {}: LLM requested {} tool call(s)", round + 1, result.getToolCalls().size());
-            appendAssistantMessage(messages, result);
-            executeToolCalls(messages, result, executor);
-        }
-
-        // Exceeded max rounds — force tool_choice=none so the model outputs text
-        log.warn("Agent loop reached max rounds ({}), forcing final answer with tool_choice=none", maxRounds);
-        ChatResult finalResult = llmService.chatWithMessagesAndTools(messages, null, temperature, llmConfig, "none");
-        String finalContent = finalResult.getContent() != null ? finalResult.getContent() : "";
-        if (finalContent.isBlank()) {
-            log.error("Agent loop: final forced turn returned empty content");
-            finalContent = "{\"success\":false,\"message\":\"tool call rounds exceeded limit, unable to generate answer\"}";
+            // Exceeded max rounds — force tool_choice=none so the model outputs text
+            log.warn("Agent loop reached max rounds ({}), forcing final answer with tool_choice=none", maxRounds);
+            rounds++;
+            ChatResult finalResult = timedLlmCall("blocking", dataSourceId, llmConfig,
+                    () -> llmService.chatWithMessagesAndTools(messages, null, temperature, llmConfig, "none"));
+            String finalContent = finalResult.getContent() != null ? finalResult.getContent() : "";
+            if (finalContent.isBlank()) {
+                log.error("Agent loop: final forced turn returned empty content");
+                finalContent = "{\"success\":false,\"message\":\"tool call rounds exceeded limit, unable to generate answer\"}";
+            }
+            log.info("Agent loop forced final answer, response {} chars", finalContent.length());
+            success = true;
+            return finalContent;
+        } finally {
+            metricsService.recordAgentLoop(mode, dataSourceId, llmConfig, System.nanoTime() - start, rounds, success);
         }
-        log.info("Agent loop forced final answer, response {} chars", finalContent.length());
-        return finalContent;
     }
 
     /**
-     * Tool exploration phase is non-streaming; final answer is streamed.
-     * Used by generateStream: frontend waits during tool phase, then receives token stream.
+     * Fully streamed agent loop, used by generateStream. Every round is a streamed request:
+     * thinking and content tokens reach {@code tokenCallback} as the model generates them, and
+     * each tool call starts executing as soon as its arguments are complete, while later calls of
+     * the same response are still being generated.
+     *
+     * <p>Some models write a sentence before calling tools; when a round that streamed content
+     * ends in tool calls, a {@code content_reset} token tells the client to discard that text.
      */
-    public String runAgentLoopThenStream(
+    public String runStreamingAgentLoop(
             List<Map<String, Object>> messages,
             List<Map<String, Object>> tools,
             Long dataSourceId,
@@ -137,40 +229,97 @@ public class AgentService {
             com.example.mysqlbot.model.LlmConfig llmConfig,
             boolean thinking,
             com.example.mysqlbot.util.OpenAiLlmUtil.StreamCallback tokenCallback) {
+        return traceService.inSpan("agent.loop", () -> streamingAgentLoop(
+                messages, tools, dataSourceId, temperature, llmConfig, thinking, tokenCallback));
+    }
 
-        ToolExecutor executor = dataSourceToolExecutor(dataSourceId);
-
-        // Tool exploration phase (non-streaming)
-        for (int round = 0; round < maxToolRounds; round++) {
-            log.debug("AgentStream round {}/{}", round + 1, maxToolRounds);
-
-            ChatResult result = llmService.chatWithMessagesAndTools(messages, tools, temperature, llmConfig);
+    private String streamingAgentLoop(
+            List<Map<String, Object>> messages,
+            List<Map<String, Object>> tools,
+            Long dataSourceId,
+            double temperature,
+            com.example.mysqlbot.model.LlmConfig llmConfig,
+            boolean thinking,
+            com.example.mysqlbot.util.OpenAiLlmUtil.StreamCallback tokenCallback) {
 
-            if (result.getToolCalls() == null || result.getToolCalls().isEmpty()) {
-                // Model ready to answer directly, but this was a non-streaming result;
-                // convert to streaming output for the frontend.
-                log.debug("AgentStream: no more tool_calls after {} round(s), streaming final answer", round + 1);
-                String content = result.getContent() != null ? result.getContent() : "";
-                if (!content.isBlank()) {
-                    tokenCallback.onToken("content", content);
+        traceService.tag("agent.mode", "stream");
+        traceService.tag("data_source.id", dataSourceId);
+        ToolExecutor executor = dataSourceToolExecutor(dataSourceId);
+        long start = System.nanoTime();
+        int rounds = 0;
+        boolean success = false;
+        try {
+            for (int round = 0; round < maxToolRounds; round++) {
+                log.debug("AgentStream round {}/{}", round + 1, maxToolRounds);
+
+                Map<ToolCall, CompletableFuture<Map<String, Object>>> dispatched = newDispatchMap();
+                AtomicBoolean streamedContent = new AtomicBoolean();
+                rounds++;
+                ChatResult result = timedLlmCall("stream", dataSourceId, llmConfig,
+                        () -> llmService.chatStreamWithTools(messages, tools, temperature, llmConfig,
+                                (type, token) -> {
+                                    if ("content".equals(type)) streamedContent.set(true);
+                                    tokenCallback.onToken(type, token);
+                                },
+                                dispatcher(executor, dispatched)));
+
+                if (result.getToolCalls() == null || result.getToolCalls().isEmpty()) {
+                    String content = result.getContent() != null ? result.getContent() : "";
+                    log.debug("AgentStream: answered after {} round(s), {} chars", round + 1, content.length());
+                    success = true;
+                    return content;
                 }
-                return content;
+
+                log.info("AgentStream round {}: {} tool call(s), {} dispatched while streaming",
+                        round + 1, result.getToolCalls().size(), dispatched.size());
+                if (streamedContent.get()) tokenCallback.onToken("content_reset", "");
+                appendAssistantMessage(messages, result);
+                collectToolResults(messages, result, executor, dispatched);
             }
 
-            log.info("AgentStream round {}: {} tool call(s)", round + 1, result.getToolCalls().size());
-            appendAssistantMessage(messages, result);
-            executeToolCalls(messages, result, executor);
+            // Exceeded round limit — final round streams without tools
+            log.warn("AgentStream reached max rounds ({}), streaming final answer", maxToolRounds);
+            rounds++;
+            String answer = timedLlmCall("stream", dataSourceId, llmConfig,
+                    () -> llmService.chatStreamObjectMessages(messages, temperature, llmConfig, thinking, tokenCallback));
+            success = true;
+            return answer;
+        } finally {
+            metricsService.recordAgentLoop("stream", dataSourceId, llmConfig, System.nanoTime() - start, rounds, success);
         }
-
-        // Exceeded round limit — final round goes real streaming (no tools)
-        log.warn("AgentStream reached max rounds ({}), streaming final answer", maxToolRounds);
-        return llmService.chatStreamObjectMessages(messages, temperature, llmConfig, thinking, tokenCallback);
     }
 
     // ---------------------------------------------------------------------------
     // Internal helpers
     // ---------------------------------------------------------------------------
 
+    /** Runs one LLM request in its own span and records its latency, token usage and retries. */
+    private <T> T timedLlmCall(String mode, Long dataSourceId, com.example.mysqlbot.model.LlmConfig llmConfig,
+                               Supplier<T> call) {
+        return traceService.inSpan("llm.request", () -> {
+            traceService.tag("llm.mode", mode);
+            long start = System.nanoTime();
+            try {
+                T result = call.get();
+                ChatResult chat = result instanceof ChatResult r ? r : null;
+                ChatResponse.Usage usage = chat != null ? chat.getUsage() : null;
+                if (usage != null) {
+                    traceService.tag("llm.prompt_tokens", usage.getPromptTokens());
+                    traceService.tag("llm.completion_tokens", usage.getCompletionTokens());
+                }
+                if (chat != null && chat.getToolCalls() != null) {
+                    traceService.tag("llm.tool_calls", chat.getToolCalls().size());
+                }
+                metricsService.recordLlmCall(mode, dataSourceId, llmConfig, System.nanoTime() - start, true,
+                        usage, chat != null ? chat.getRetries() : 0);
+                return result;
+            } catch (RuntimeException e) {
+                metricsService.recordLlmCall(mode, dataSourceId, llmConfig, System.nanoTime() - start, false, null, 0);
+                throw e;
+            }
+        });
+    }
+
     private void appendAssistantMessage(List<Map<String, Object>> messages, ChatResult result) {
         Map<String, Object> assistantMsg = new HashMap<>();
         assistantMsg.put("role", "assistant");
@@ -181,6 +330,43 @@ public class AgentService {
         messages.add(assistantMsg);
     }
 
+    private static Map<ToolCall, CompletableFuture<Map<String, Object>>> newDispatchMap() {
+        // identity: two calls with equal fields are still two calls
+        return Collections.synchronizedMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Starts each tool call on a virtual thread the moment the stream completes it, and passes
+     * partial arguments on to the executor.
+     */
+    private OpenAiLlmUtil.ToolCallListener dispatcher(
+            ToolExecutor executor, Map<ToolCall, CompletableFuture<Map<String, Object>>> dispatched) {
+        return new OpenAiLlmUtil.ToolCallListener() {
+            @Override
+            public void onToolCall(ToolCall tc) {
+                if (tc.getFunction() == null) return;
+                log.debug("Dispatching tool {} while the response streams", tc.getFunction().getName());
+                dispatched.put(tc, CompletableFuture.supplyAsync(
+                        () -> executeSingleToolCall(tc, executor), traceService.wrap(VIRTUAL_THREADS)));
+            }
+
+            @Override
+            public void onPartialArguments(String toolName, String partialArguments) {
+                executor.onPartialArguments(toolName, partialArguments);
+            }
+        };
+    }
+
+    /** Appends the results of a streamed round in call order; calls never dispatched run now. */
+    private void collectToolResults(List<Map<String, Object>> messages, ChatResult result, ToolExecutor executor,
+                                    Map<ToolCall, CompletableFuture<Map<String, Object>>> dispatched) {
+        for (ToolCall tc : result.getToolCalls()) {
+            if (tc == null || tc.getFunction() == null) continue;
+            CompletableFuture<Map<String, Object>> future = dispatched.get(tc);
+            messages.add(future != null ? future.join() : executeSingleToolCall(tc, executor));
+        }
+    }
+
     private void executeToolCalls(List<Map<String, Object>> messages, ChatResult result, ToolExecutor executor) {
         var calls = result.getToolCalls();
         if (calls == null || calls.isEmpty()) return;
@@ -197,10 +383,11 @@ public class AgentService {
             return;
         }
 
-        // Multiple tool calls — execute in parallel (virtual threads enabled)
+        // Multiple tool calls — execute in parallel (virtual threads enabled), each in this round's trace
         log.info("Executing {} tool calls in parallel", validCalls.size());
+        Executor toolPool = traceService.wrap(ForkJoinPool.commonPool());
         List<CompletableFuture<Map<String, Object>>> futures = validCalls.stream()
-                .map(tc -> CompletableFuture.supplyAsync(() -> executeSingleToolCall(tc, executor)))
+                .map(tc -> CompletableFuture.supplyAsync(() -> executeSingleToolCall(tc, executor), toolPool))
                 .collect(Collectors.toList());
 
         // Wait for all, then append results in original order
@@ -214,8 +401,21 @@ public class AgentService {
             com.example.mysqlbot.util.OpenAiLlmUtil.ChatResponse.Choice.ToolCall tc, ToolExecutor executor) {
         Map<String, Object> toolArgs = parseArguments(tc.getFunction().getArguments());
 
-        log.debug("Executing tool: {} args: {}", tc.getFunction().getName(), toolArgs);
-        String toolResult = executor.execute(tc.getFunction().getName(), toolArgs);
+        String toolName = tc.getFunction().getName();
+        log.debug("Executing tool: {} args: {}", toolName, toolArgs);
+        String toolResult = traceService.inSpan("tool.call", () -> {
+            String cache = executor.cacheState(toolName, toolArgs);
+            traceService.tag("tool.name", toolName);
+            traceService.tag("tool.cache", cache);
+            long start = System.nanoTime();
+            String output = executor.execute(toolName, toolArgs);
+            // data_source_id is injected by the data-source executor during execute
+            Long dsId = toolArgs.get("data_source_id") instanceof Number n ? n.longValue() : null;
+            boolean success = !isToolError(output);
+            traceService.tag("tool.success", success);
+            metricsService.recordTool(toolName, dsId, cache, System.nanoTime() - start, success);
+            return output;
+        });
 
         Map<String, Object> toolMsg = new HashMap<>();
         toolMsg.put("role", "tool");
@@ -228,6 +428,10 @@ public class AgentService {
         return toolMsg;
     }
 
+    private static boolean isToolError(String toolResult) {
+        return toolResult == null || toolResult.startsWith("工具执行失败") || toolResult.startsWith("错误");
+    }
+
     private Map<String, Object> parseArguments(String argumentsJson) {
         try {
             if (argumentsJson == null || argumentsJson.isBlank()) {
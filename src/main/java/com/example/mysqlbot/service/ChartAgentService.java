@@ -1,6 +1,8 @@
 package com.example.mysqlbot.service;
 
 import com.example.mysqlbot.model.LlmConfig;
+import com.example.mysqlbot.service.result.ColumnarResult;
+import com.example.mysqlbot.util.PromptTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -10,9 +12,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,34 +36,34 @@ public class ChartAgentService {
     @Value("${mysqlbot.chart.max-rounds:3}")
     private int chartMaxRounds;
 
-    private String chartAgentPrompt;
+    private PromptTemplate chartAgentPrompt;
 
     @PostConstruct
     public void init() {
-        chartAgentPrompt = loadResource("prompts/chart-agent.st");
+        chartAgentPrompt = PromptTemplate.load("prompts/chart-agent.st");
         log.info("ChartAgentService: prompt template cached ({} chars)", chartAgentPrompt.length());
     }
 
-    public ChartResult generate(String question, String sql, List<Map<String, Object>> rows, LlmConfig llmConfig) {
-        if (rows == null || rows.isEmpty()) {
+    public ChartResult generate(String question, String sql, ColumnarResult data, LlmConfig llmConfig) {
+        if (data == null || data.getRowCount() == 0) {
             return ChartResult.builder().insight("查询结果为空，无可视化内容。").chartType("Table").build();
         }
 
-        String columns = String.join(", ", rows.get(0).keySet());
-        String systemContent = chartAgentPrompt
-                .replace("{question}", question != null ? question : "")
-                .replace("{sql}", sql != null ? sql : "")
-                .replace("{columns}", columns)
-                .replace("{rowCount}", String.valueOf(rows.size()));
+        String columns = String.join(", ", data.getFieldNames());
+        String systemContent = chartAgentPrompt.render(Map.of(
+                "question", question != null ? question : "",
+                "sql", sql != null ? sql : "",
+                "columns", columns,
+                "rowCount", String.valueOf(data.getRowCount())));
 
         List<Map<String, Object>> messages = new ArrayList<>();
         messages.add(Map.of("role", "system", "content", systemContent));
         messages.add(Map.of("role", "user", "content", "请先探查数据形态，再产出最合适的图表配置与洞察。"));
 
         List<Map<String, Object>> tools = chartToolService.getToolDefinitions();
-        AgentService.ToolExecutor executor = (name, args) -> chartToolService.execute(name, args, rows);
+        AgentService.ToolExecutor executor = (name, args) -> chartToolService.execute(name, args, data);
 
-        log.debug("ChartAgent: starting loop, rows={}, columns={}", rows.size(), columns);
+        log.debug("ChartAgent: starting loop, rows={}, columns={}", data.getRowCount(), columns);
         String response = agentService.runAgentLoop(messages, tools, 0.3, llmConfig, executor, chartMaxRounds);
         log.debug("ChartAgent response: {}", response);
 
@@ -124,14 +124,6 @@ public class ChartAgentService {
         return null;
     }
 
-    private static String loadResource(String path) {
-        try (var is = new org.springframework.core.io.ClassPathResource(path).getInputStream()) {
-            return StreamUtils.copyToString(is, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load resource: " + path, e);
-        }
-    }
-
     @Data
     @Builder
     public static class ChartResult {
@@ -1,11 +1,13 @@
 package com.example.mysqlbot.service;
 
+import com.example.mysqlbot.service.result.ColumnVector;
+import com.example.mysqlbot.service.result.ColumnarResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -13,7 +15,7 @@ import java.util.Set;
 /**
  * 制图 / 追问 Agent 共用的结果集探查工具。
  *
- * <p>纯内存、无状态：所有工具以当前查询结果 {@code rows} 作为入参计算，
+ * <p>纯内存、无状态：所有工具以当前查询结果（列式 {@link ColumnarResult}）作为入参计算，
  * 不持有任何跨调用状态，避免多个 agent 并发共用时的状态耦合。
  * 工具定义采用 OpenAI tools 格式（仿 {@link ToolService}），不需要 data_source_id。
  */
@@ -80,15 +82,15 @@ public class ChartToolService {
     }
 
     /**
-     * 执行工具：以 {@code rows} 作为数据上下文。
+     * 执行工具：以列式结果集 {@code data} 作为数据上下文。
      */
-    public String execute(String toolName, Map<String, Object> args, List<Map<String, Object>> rows) {
+    public String execute(String toolName, Map<String, Object> args, ColumnarResult data) {
         try {
-            if (rows == null || rows.isEmpty()) return "结果集为空，无数据可供分析。";
+            if (data == null || data.getRowCount() == 0) return "结果集为空，无数据可供分析。";
             return switch (toolName) {
-                case "profile_columns" -> profileColumns(rows);
-                case "get_distinct_values" -> getDistinctValues(args, rows);
-                case "get_numeric_distribution" -> getNumericDistribution(args, rows);
+                case "profile_columns" -> profileColumns(data);
+                case "get_distinct_values" -> getDistinctValues(args, data);
+                case "get_numeric_distribution" -> getNumericDistribution(args, data);
                 default -> "未知工具：" + toolName;
             };
         } catch (Exception e) {
@@ -99,31 +101,34 @@ public class ChartToolService {
 
     // ===== Tool implementations =====
 
-    private String profileColumns(List<Map<String, Object>> rows) {
-        Set<String> columns = collectColumns(rows);
+    private String profileColumns(ColumnarResult data) {
+        List<String> columns = data.getFieldNames();
         StringBuilder sb = new StringBuilder();
-        sb.append("结果集共 ").append(rows.size()).append(" 行，").append(columns.size()).append(" 列。列画像：\n");
+        sb.append("结果集共 ").append(data.getRowCount()).append(" 行，").append(columns.size()).append(" 列。列画像：\n");
 
         for (String col : columns) {
-            List<Object> nonNull = new ArrayList<>();
-            for (Map<String, Object> row : rows) {
-                Object v = row.get(col);
-                if (v != null && !(v instanceof String s && s.isBlank())) nonNull.add(v);
+            ColumnVector vector = data.column(col);
+            if (vector.isNumeric()) {
+                // 数值列：直接在原始数组上统计，不装箱
+                profileNumeric(col, vector, sb);
+                continue;
             }
-            long distinct = nonNull.stream().map(String::valueOf).distinct().count();
-            String type = inferType(nonNull);
+            ValueCounts counts = countValues(vector, false);
+            int distinct = counts.keys.size();
+            String type = inferType(counts.samples, counts.total);
 
             sb.append("  - ").append(col).append(" (").append(type)
-              .append(", 非空 ").append(nonNull.size())
+              .append(", 非空 ").append(counts.total)
               .append(", 去重 ").append(distinct);
 
             if ("数值".equals(type)) {
                 double min = Double.MAX_VALUE, max = -Double.MAX_VALUE, sum = 0;
                 int cnt = 0;
-                for (Object v : nonNull) {
-                    Double d = toDouble(v);
+                for (int i = 0; i < distinct; i++) {
+                    Double d = toDouble(counts.samples.get(i));
                     if (d == null) continue;
-                    min = Math.min(min, d); max = Math.max(max, d); sum += d; cnt++;
+                    int n = counts.counts[i];
+                    min = Math.min(min, d); max = Math.max(max, d); sum += d * n; cnt += n;
                 }
                 if (cnt > 0) {
                     sb.append(String.format(", min=%s, max=%s, avg=%s",
@@ -131,15 +136,14 @@ public class ChartToolService {
                 }
             } else if ("日期".equals(type)) {
                 String minS = null, maxS = null;
-                for (Object v : nonNull) {
-                    String s = String.valueOf(v);
+                for (String s : counts.keys) {
                     if (minS == null || s.compareTo(minS) < 0) minS = s;
                     if (maxS == null || s.compareTo(maxS) > 0) maxS = s;
                 }
                 sb.append(", 范围=[").append(minS).append(" ~ ").append(maxS).append("]");
             } else if ("类别".equals(type)) {
                 // 列出少量示例类别值
-                List<String> samples = nonNull.stream().map(String::valueOf).distinct().limit(5).toList();
+                List<String> samples = counts.keys.subList(0, Math.min(5, distinct));
                 sb.append(", 示例=").append(samples);
             }
             sb.append(")\n");
@@ -148,55 +152,90 @@ public class ChartToolService {
         return sb.toString();
     }
 
-    private String getDistinctValues(Map<String, Object> args, List<Map<String, Object>> rows) {
+    private void profileNumeric(String col, ColumnVector vector, StringBuilder sb) {
+        int rows = vector.size();
+        double[] values = new double[rows - vector.nullCount()];
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE, sum = 0;
+        int cnt = 0;
+        for (int r = 0; r < rows; r++) {
+            if (vector.isNull(r)) continue;
+            double d = vector.getDouble(r);
+            values[cnt++] = d;
+            min = Math.min(min, d); max = Math.max(max, d); sum += d;
+        }
+        Arrays.sort(values);
+        int distinct = 0;
+        for (int i = 0; i < cnt; i++) {
+            if (i == 0 || values[i] != values[i - 1]) distinct++;
+        }
+
+        sb.append("  - ").append(col).append(" (").append(cnt > 0 ? "数值" : "空")
+          .append(", 非空 ").append(cnt)
+          .append(", 去重 ").append(distinct);
+        if (cnt > 0) {
+            sb.append(String.format(", min=%s, max=%s, avg=%s", fmt(min), fmt(max), fmt(sum / cnt)));
+        }
+        sb.append(")\n");
+    }
+
+    private String getDistinctValues(Map<String, Object> args, ColumnarResult data) {
         String column = (String) args.get("column");
         if (column == null || column.isBlank()) return "错误：缺少 column 参数";
         int limit = toInt(args.get("limit"), 20);
 
-        Map<String, Integer> counts = new LinkedHashMap<>();
-        for (Map<String, Object> row : rows) {
-            Object v = row.get(column);
-            String key = v == null ? "(NULL)" : String.valueOf(v);
-            counts.merge(key, 1, Integer::sum);
-        }
-        if (counts.isEmpty()) return "列 " + column + " 无数据，请确认列名是否正确。";
+        ColumnVector vector = data.column(column);
+        if (vector == null) return "列 " + column + " 无数据，请确认列名是否正确。";
+        ValueCounts counts = countValues(vector, true);
+        int distinct = counts.keys.size();
 
-        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(counts.entrySet());
-        sorted.sort((a, b) -> b.getValue() - a.getValue());
+        Integer[] order = new Integer[distinct];
+        for (int i = 0; i < distinct; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> counts.counts[b] - counts.counts[a]);
 
         StringBuilder sb = new StringBuilder();
-        sb.append("列 ").append(column).append(" 共 ").append(counts.size()).append(" 个去重值（按出现次数降序，最多 ").append(limit).append(" 个）：\n");
+        sb.append("列 ").append(column).append(" 共 ").append(distinct).append(" 个去重值（按出现次数降序，最多 ").append(limit).append(" 个）：\n");
         int shown = 0;
-        for (Map.Entry<String, Integer> e : sorted) {
+        for (int i : order) {
             if (shown++ >= limit) break;
-            sb.append("  - ").append(e.getKey()).append(": ").append(e.getValue()).append(" 次\n");
+            sb.append("  - ").append(counts.keys.get(i)).append(": ").append(counts.counts[i]).append(" 次\n");
         }
-        if (counts.size() > limit) sb.append("  …（其余 ").append(counts.size() - limit).append(" 个未列出）\n");
+        if (distinct > limit) sb.append("  …（其余 ").append(distinct - limit).append(" 个未列出）\n");
         return sb.toString();
     }
 
-    private String getNumericDistribution(Map<String, Object> args, List<Map<String, Object>> rows) {
+    private String getNumericDistribution(Map<String, Object> args, ColumnarResult data) {
         String column = (String) args.get("column");
         if (column == null || column.isBlank()) return "错误：缺少 column 参数";
         int bins = toInt(args.get("bins"), 10);
         if (bins < 1) bins = 10;
 
-        List<Double> nums = new ArrayList<>();
-        for (Map<String, Object> row : rows) {
-            Double d = toDouble(row.get(column));
-            if (d != null) nums.add(d);
+        ColumnVector vector = data.column(column);
+        if (vector == null) return "列 " + column + " 不是数值列或无有效数值。";
+        double[] nums = new double[vector.size()];
+        int n = 0;
+        for (int r = 0; r < vector.size(); r++) {
+            if (vector.isNull(r)) continue;
+            if (vector.isNumeric()) {
+                nums[n++] = vector.getDouble(r);
+            } else {
+                Double d = toDouble(vector.get(r));
+                if (d != null) nums[n++] = d;
+            }
         }
-        if (nums.isEmpty()) return "列 " + column + " 不是数值列或无有效数值。";
+        if (n == 0) return "列 " + column + " 不是数值列或无有效数值。";
 
-        double min = nums.stream().mapToDouble(Double::doubleValue).min().orElse(0);
-        double max = nums.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, nums[i]);
+            max = Math.max(max, nums[i]);
+        }
         if (min == max) {
-            return "列 " + column + " 所有值均为 " + fmt(min) + "（共 " + nums.size() + " 个）。";
+            return "列 " + column + " 所有值均为 " + fmt(min) + "（共 " + n + " 个）。";
         }
         double width = (max - min) / bins;
         int[] hist = new int[bins];
-        for (double d : nums) {
-            int idx = (int) ((d - min) / width);
+        for (int i = 0; i < n; i++) {
+            int idx = (int) ((nums[i] - min) / width);
             if (idx >= bins) idx = bins - 1;
             if (idx < 0) idx = 0;
             hist[idx]++;
@@ -212,22 +251,85 @@ public class ChartToolService {
 
     // ===== Helpers =====
 
-    private Set<String> collectColumns(List<Map<String, Object>> rows) {
-        Set<String> columns = new LinkedHashSet<>();
-        for (Map<String, Object> row : rows) columns.addAll(row.keySet());
-        return columns;
+    /** 去重值统计（按首次出现顺序）：字符串形式、一个原始样本值、出现次数。 */
+    private static final class ValueCounts {
+        final List<String> keys = new ArrayList<>();
+        final List<Object> samples = new ArrayList<>();
+        int[] counts = new int[16];
+        /** 参与统计的值总数。 */
+        int total;
+
+        void add(String key, Object sample, int n) {
+            if (keys.size() == counts.length) counts = Arrays.copyOf(counts, counts.length * 2);
+            counts[keys.size()] = n;
+            keys.add(key);
+            samples.add(sample);
+            total += n;
+        }
+    }
+
+    /**
+     * 统计某列的去重值。{@code includeNulls} 为 true 时 NULL 计为 "(NULL)"；
+     * 否则跳过 NULL 与空白字符串（列画像口径）。
+     * 字典编码的字符串列直接按编码计数，每行不产生任何对象。
+     */
+    private ValueCounts countValues(ColumnVector vector, boolean includeNulls) {
+        ValueCounts result = new ValueCounts();
+        int rows = vector.size();
+
+        if (vector instanceof ColumnVector.StringVector sv && sv.isDictionaryEncoded()) {
+            int[] perCode = new int[sv.dictionarySize()];
+            // 首次出现顺序；-1 表示 NULL
+            int[] order = new int[sv.dictionarySize() + 1];
+            int seen = 0, nulls = 0;
+            for (int r = 0; r < rows; r++) {
+                if (sv.isNull(r)) {
+                    if (nulls++ == 0) order[seen++] = -1;
+                } else {
+                    int code = sv.code(r);
+                    if (perCode[code]++ == 0) order[seen++] = code;
+                }
+            }
+            for (int i = 0; i < seen; i++) {
+                int code = order[i];
+                if (code < 0) {
+                    if (includeNulls) result.add("(NULL)", null, nulls);
+                    continue;
+                }
+                String value = sv.dictionaryValue(code);
+                if (!includeNulls && value.isBlank()) continue;
+                result.add(value, value, perCode[code]);
+            }
+            return result;
+        }
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int r = 0; r < rows; r++) {
+            Object v = vector.get(r);
+            if (!includeNulls && (v == null || v instanceof String s && s.isBlank())) continue;
+            String key = v == null ? "(NULL)" : String.valueOf(v);
+            Integer i = index.get(key);
+            if (i == null) {
+                index.put(key, result.keys.size());
+                result.add(key, v, 1);
+            } else {
+                result.counts[i]++;
+                result.total++;
+            }
+        }
+        return result;
     }
 
-    /** 推断列类型：数值 / 日期 / 类别 / 文本 / 空。 */
-    private String inferType(List<Object> nonNull) {
-        if (nonNull.isEmpty()) return "空";
-        boolean allNumeric = nonNull.stream().allMatch(v -> toDouble(v) != null);
+    /** 推断列类型：数值 / 日期 / 类别 / 文本 / 空。{@code distinctValues} 为去重后的样本值。 */
+    private String inferType(List<Object> distinctValues, int nonNullCount) {
+        if (nonNullCount == 0) return "空";
+        boolean allNumeric = distinctValues.stream().allMatch(v -> toDouble(v) != null);
         if (allNumeric) return "数值";
-        boolean allDate = nonNull.stream().allMatch(this::isDateLike);
+        boolean allDate = distinctValues.stream().allMatch(this::isDateLike);
         if (allDate) return "日期";
-        long distinct = nonNull.stream().map(String::valueOf).distinct().count();
+        int distinct = distinctValues.size();
         // 去重比例低且基数有限 → 类别
-        if (distinct <= 50 && distinct <= nonNull.size() * 0.5) return "类别";
+        if (distinct <= 50 && distinct <= nonNullCount * 0.5) return "类别";
         return "文本";
     }
 
@@ -8,9 +8,12 @@ import com.example.mysqlbot.repository.ChatMessageRepository;
 import com.example.mysqlbot.repository.ChatSessionRepository;
 import com.example.mysqlbot.repository.LlmConfigRepository;
 import com.example.mysqlbot.repository.DataSourceRepository;
+import com.example.mysqlbot.service.result.ColumnarResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +29,14 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.DriverManager;
 import com.example.mysqlbot.security.SecurityContext;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -46,6 +57,19 @@ public class ChatService {
     private final LlmConfigRepository llmConfigRepository;
     private final DataSourceRepository dataSourceRepository;
     private final ObjectMapper objectMapper;
+    private final TraceService traceService;
+
+    /** Chart and suggestion agents run here when the answer pipeline is enabled. */
+    private final ExecutorService agentExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${mysqlbot.chat.pipeline-agents:true}")
+    private boolean pipelineEnabled;
+
+    @Value("${mysqlbot.chart.timeout-seconds:60}")
+    private long chartTimeoutSeconds;
+
+    @Value("${mysqlbot.suggest.timeout-seconds:45}")
+    private long suggestTimeoutSeconds;
 
     /**
      * Stream event record for SSE.
@@ -78,8 +102,14 @@ public class ChatService {
      */
     @Transactional
     public ChatMessage chat(String sessionId, String userQuestion) {
+        return traceService.inSpan("chat.turn", () -> answer(sessionId, userQuestion));
+    }
+
+    private ChatMessage answer(String sessionId, String userQuestion) {
         ChatSession session = sessionRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        traceService.tag("chat.session_id", sessionId);
+        traceService.tag("data_source.id", session.getDataSourceId());
 
         LlmConfig llmConfig = resolveLlmConfig(session);
 
@@ -115,16 +145,19 @@ public class ChatService {
                 conversation.add(retryUser);
             }
 
-            generateResult = sqlGenerateService.generate(userQuestion, session.getDataSourceId(), conversation, llmConfig);
+            generateResult = traceService.inSpan("sql.generate",
+                    () -> sqlGenerateService.generate(userQuestion, session.getDataSourceId(), conversation, llmConfig));
             if (!generateResult.isSuccess() || generateResult.getSql() == null) break;
 
             String finalSql = applyPermission(generateResult.getSql(), session.getDataSourceId(), llmConfig);
             executeResult = sqlExecuteService.execute(finalSql, session.getDataSourceId());
             if (executeResult.isSuccess()) break;
+            sqlGenerateService.evictCached(generateResult);
             lastErrorMsg = executeResult.getErrorMessage();
         }
 
         ChatMessage assistantMsg = buildAssistantMessage(sessionId, userQuestion, generateResult, executeResult, llmConfig);
+        assistantMsg.setTraceId(traceService.currentTraceId());
         messageRepository.save(assistantMsg);
         updateSessionTitle(session, userQuestion);
         return assistantMsg;
@@ -136,8 +169,14 @@ public class ChatService {
      */
     @Transactional
     public void chatStream(String sessionId, String userQuestion, boolean thinking, Consumer<StreamEvent> emitter) {
+        traceService.inSpan("chat.turn", () -> streamAnswer(sessionId, userQuestion, thinking, emitter));
+    }
+
+    private void streamAnswer(String sessionId, String userQuestion, boolean thinking, Consumer<StreamEvent> emitter) {
         ChatSession session = sessionRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        traceService.tag("chat.session_id", sessionId);
+        traceService.tag("data_source.id", session.getDataSourceId());
 
         LlmConfig llmConfig = resolveLlmConfig(session);
 
@@ -185,7 +224,7 @@ public class ChatService {
             }
 
             progress.accept("正在调用模型生成 SQL...");
-            generateResult = sqlGenerateService.generateStream(
+            generateResult = traceService.inSpan("sql.generate", () -> sqlGenerateService.generateStream(
                     userQuestion, session.getDataSourceId(), conversation, llmConfig, thinking,
                     (type, token) -> {
                         if ("thinking".equals(type)) {
@@ -193,7 +232,7 @@ public class ChatService {
                         }
                         emitter.accept(new StreamEvent(type, token));
                     }
-            );
+            ));
 
             if (!generateResult.isSuccess() || generateResult.getSql() == null) break;
 
@@ -207,8 +246,11 @@ public class ChatService {
 
             // Step 2: Execute SQL
             progress.accept("正在执行 SQL 并读取结果...");
-            executeResult = sqlExecuteService.execute(finalSql, session.getDataSourceId());
+            // 行数据随游标推进分块推送（sql_rows_chunk），前端无需等待整个结果集
+            executeResult = sqlExecuteService.execute(finalSql, session.getDataSourceId(),
+                    chunk -> emitter.accept(new StreamEvent("sql_rows_chunk", chunk)));
             if (executeResult.isSuccess()) break;
+            sqlGenerateService.evictCached(generateResult);
             lastErrorMsg = executeResult.getErrorMessage();
         }
 
@@ -218,31 +260,43 @@ public class ChatService {
         ChartAgentService.ChartResult chart = null;
         if (!needClarification && generateResult != null && generateResult.isSuccess()
                 && executeResult != null && executeResult.isSuccess()) {
-            emitter.accept(new StreamEvent("sql_executed", executeResult));
-            List<Map<String, Object>> rows = executeResult.getRows();
-
-            // Step 3: 自动出图 — 制图 Agent 探查数据形态并直出 ECharts 配置
-            try {
-                progress.accept("正在分析数据并生成图表...");
-                chart = chartAgentService.generate(userQuestion, generateResult.getSql(), rows, llmConfig);
-                Map<String, Object> analysisPayload = new java.util.HashMap<>();
-                analysisPayload.put("insight", chart.getInsight());
-                analysisPayload.put("chartType", chart.getChartType());
-                analysisPayload.put("chartOption", chart.getChartOption());
-                emitter.accept(new StreamEvent("analysis", analysisPayload));
-            } catch (Exception e) {
-                log.error("Failed to generate chart", e);
-            }
+            // 行已通过 sql_rows_chunk 下发，这里只发送结果摘要（rows 为 null）
+            emitter.accept(new StreamEvent("sql_executed", SqlExecuteService.SqlExecuteResult.builder()
+                    .success(true)
+                    .columns(executeResult.getColumns())
+                    .rowCount(executeResult.getRowCount())
+                    .truncated(executeResult.isTruncated())
+                    .sql(executeResult.getSql())
+                    .build()));
+            ColumnarResult data = executeResult.getData();
+
+            if (pipelineEnabled) {
+                // Step 3+4 并行：制图与追问两个 Agent 同时启动，谁先完成先推送
+                progress.accept("正在分析数据、生成图表与追问建议...");
+                AnswerAgents agents = runAnswerAgentsPipelined(userQuestion, generateResult.getSql(), data,
+                        session.getDataSourceId(), llmConfig, emitter);
+                chart = agents.chart();
+                suggestedQuestions = agents.suggestions();
+            } else {
+                // Step 3: 自动出图 — 制图 Agent 探查数据形态并直出 ECharts 配置
+                try {
+                    progress.accept("正在分析数据并生成图表...");
+                    chart = generateChart(userQuestion, generateResult.getSql(), data, llmConfig);
+                    emitAnalysis(emitter, chart);
+                } catch (Exception e) {
+                    log.error("Failed to generate chart", e);
+                }
 
-            // Step 4: 追问建议 — 基于真实数据 + 洞察 + 关联维度
-            try {
-                progress.accept("正在生成追问建议...");
-                String insight = chart != null ? chart.getInsight() : null;
-                suggestedQuestions = suggestQuestionService.suggest(
-                        userQuestion, generateResult.getSql(), rows, insight, session.getDataSourceId(), llmConfig);
-                emitter.accept(new StreamEvent("suggest_questions", suggestedQuestions));
-            } catch (Exception e) {
-                log.error("Failed to generate suggested questions", e);
+                // Step 4: 追问建议 — 基于真实数据 + 洞察 + 关联维度
+                try {
+                    progress.accept("正在生成追问建议...");
+                    String insight = chart != null ? chart.getInsight() : null;
+                    suggestedQuestions = suggest(
+                            userQuestion, generateResult.getSql(), data, insight, session.getDataSourceId(), llmConfig);
+                    emitter.accept(new StreamEvent("suggest_questions", suggestedQuestions));
+                } catch (Exception e) {
+                    log.error("Failed to generate suggested questions", e);
+                }
             }
         }
         progress.accept("回答已整理完成。");
@@ -260,6 +314,7 @@ public class ChatService {
             assistantMsg.setChartType(chart.getChartType());
             assistantMsg.setChartOption(chart.getChartOption());
         }
+        assistantMsg.setTraceId(traceService.currentTraceId());
         messageRepository.save(assistantMsg);
         updateSessionTitle(session, userQuestion);
 
@@ -269,7 +324,31 @@ public class ChatService {
             clarifyPayload.put("options", generateResult.getClarifyOptions());
             emitter.accept(new StreamEvent("clarification", clarifyPayload));
         }
-        emitter.accept(new StreamEvent("complete", assistantMsg));
+        emitter.accept(new StreamEvent("complete", completeEvent(assistantMsg, executeResult)));
+    }
+
+    /**
+     * The saved message as sent in the {@code complete} event. Rows already went out as
+     * {@code sql_rows_chunk} events, so {@code sqlResult} carries only the summary (columns,
+     * row count, truncation flag); the full result stays in the database for history reloads.
+     */
+    private ChatMessage completeEvent(ChatMessage saved, SqlExecuteService.SqlExecuteResult executeResult) {
+        if (saved.getSqlResult() == null || executeResult == null || !executeResult.isSuccess()) return saved;
+        ChatMessage event = new ChatMessage();
+        BeanUtils.copyProperties(saved, event);
+        try {
+            event.setSqlResult(objectMapper.writeValueAsString(SqlExecuteService.SqlExecuteResult.builder()
+                    .success(true)
+                    .columns(executeResult.getColumns())
+                    .rowCount(executeResult.getRowCount())
+                    .truncated(executeResult.isTruncated())
+                    .sql(executeResult.getSql())
+                    .build()));
+        } catch (Exception e) {
+            log.error("Failed to serialize result summary", e);
+            event.setSqlResult(null);
+        }
+        return event;
     }
 
     @Transactional
@@ -289,11 +368,11 @@ public class ChatService {
         try {
             SqlExecuteService.SqlExecuteResult executeResult = objectMapper.readValue(message.getSqlResult(),
                     SqlExecuteService.SqlExecuteResult.class);
-            List<java.util.Map<String, Object>> rows = executeResult.getRows();
-            if (rows == null || rows.isEmpty()) throw new RuntimeException("No data in results");
+            ColumnarResult data = executeResult.getData();
+            if (data == null || data.getRowCount() == 0) throw new RuntimeException("No data in results");
 
-            ChartAgentService.ChartResult chart = chartAgentService.generate(
-                    userQuestion, message.getSqlQuery(), rows, llmConfig);
+            ChartAgentService.ChartResult chart = generateChart(
+                    userQuestion, message.getSqlQuery(), data, llmConfig);
 
             message.setAnalysis(chart.getInsight());
             message.setChartType(chart.getChartType());
@@ -333,7 +412,8 @@ public class ChatService {
         if (permissionRule != null && !permissionRule.isBlank()) {
             try {
                 String engineName = dataSourceRepository.findById(dataSourceId).map(ds -> ds.getDialect().getDisplayName()).orElse("PostgreSQL");
-                String result = sqlPermissionService.applyPermission(sql, engineName, permissionRule, llmConfig);
+                String result = traceService.inSpan("sql.permission",
+                        () -> sqlPermissionService.applyPermission(sql, engineName, permissionRule, llmConfig));
                 log.info("SQL after permission applied: {}", result);
                 return result;
             } catch (Exception e) {
@@ -426,6 +506,124 @@ public class ChatService {
         return value == null || value.isBlank() ? null : value;
     }
 
+    private record AnswerAgents(ChartAgentService.ChartResult chart, List<String> suggestions) {}
+
+    /**
+     * Runs the chart and suggestion agents concurrently on virtual threads. Each result is emitted
+     * on the calling thread as soon as it completes, so the emitter is never used concurrently.
+     * Suggestions are generated without the insight and re-ranked against it when the chart has
+     * already finished; a stage that misses its deadline is cancelled and simply omitted.
+     */
+    private AnswerAgents runAnswerAgentsPipelined(String userQuestion, String sql, ColumnarResult data,
+                                                  Long dataSourceId, LlmConfig llmConfig,
+                                                  Consumer<StreamEvent> emitter) {
+        SecurityContext.UserContext user = SecurityContext.get();
+        ExecutorCompletionService<Object> completion = new ExecutorCompletionService<>(agentExecutor);
+        Future<Object> chartFuture = completion.submit(withSecurityContext(user, traceService.wrap(
+                () -> generateChart(userQuestion, sql, data, llmConfig))));
+        Future<Object> suggestFuture = completion.submit(withSecurityContext(user, traceService.wrap(
+                () -> suggest(userQuestion, sql, data, null, dataSourceId, llmConfig))));
+
+        long start = System.nanoTime();
+        long chartDeadline = start + TimeUnit.SECONDS.toNanos(chartTimeoutSeconds);
+        long suggestDeadline = start + TimeUnit.SECONDS.toNanos(suggestTimeoutSeconds);
+        boolean chartPending = true;
+        boolean suggestPending = true;
+        ChartAgentService.ChartResult chart = null;
+        List<String> suggestions = List.of();
+
+        while (chartPending || suggestPending) {
+            long deadline = chartPending && suggestPending
+                    ? Math.min(chartDeadline, suggestDeadline)
+                    : chartPending ? chartDeadline : suggestDeadline;
+            Future<Object> done;
+            try {
+                done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                chartFuture.cancel(true);
+                suggestFuture.cancel(true);
+                break;
+            }
+
+            if (done == null) {
+                long now = System.nanoTime();
+                if (chartPending && now - chartDeadline >= 0) {
+                    log.warn("Chart agent exceeded {}s deadline, skipping chart", chartTimeoutSeconds);
+                    chartFuture.cancel(true);
+                    chartPending = false;
+                }
+                if (suggestPending && now - suggestDeadline >= 0) {
+                    log.warn("Suggest agent exceeded {}s deadline, skipping suggestions", suggestTimeoutSeconds);
+                    suggestFuture.cancel(true);
+                    suggestPending = false;
+                }
+            } else if (done == chartFuture) {
+                chartPending = false;
+                chart = (ChartAgentService.ChartResult) stageResult(done, "chart");
+                if (chart != null) {
+                    emitAnalysis(emitter, chart);
+                }
+            } else {
+                suggestPending = false;
+                @SuppressWarnings("unchecked")
+                List<String> questions = (List<String>) stageResult(done, "suggest");
+                if (questions != null) {
+                    if (chart != null) {
+                        questions = suggestQuestionService.rankByInsight(questions, chart.getInsight());
+                    }
+                    suggestions = questions;
+                    emitter.accept(new StreamEvent("suggest_questions", suggestions));
+                }
+            }
+        }
+        log.info("Chart/suggest agents finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new AnswerAgents(chart, suggestions);
+    }
+
+    private ChartAgentService.ChartResult generateChart(String userQuestion, String sql, ColumnarResult data,
+                                                       LlmConfig llmConfig) {
+        return traceService.inSpan("agent.chart", () -> chartAgentService.generate(userQuestion, sql, data, llmConfig));
+    }
+
+    private List<String> suggest(String userQuestion, String sql, ColumnarResult data, String insight,
+                                 Long dataSourceId, LlmConfig llmConfig) {
+        return traceService.inSpan("agent.suggest",
+                () -> suggestQuestionService.suggest(userQuestion, sql, data, insight, dataSourceId, llmConfig));
+    }
+
+    private static Object stageResult(Future<Object> future, String stage) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            log.error("Failed to run {} agent", stage, e.getCause());
+        } catch (InterruptedException | CancellationException e) {
+            log.warn("{} agent was interrupted", stage);
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /** Agent tools run on other threads; carry the caller's row-level permission context with them. */
+    private static Callable<Object> withSecurityContext(SecurityContext.UserContext user, Callable<Object> task) {
+        return () -> {
+            SecurityContext.set(user);
+            try {
+                return task.call();
+            } finally {
+                SecurityContext.clear();
+            }
+        };
+    }
+
+    private void emitAnalysis(Consumer<StreamEvent> emitter, ChartAgentService.ChartResult chart) {
+        Map<String, Object> analysisPayload = new java.util.HashMap<>();
+        analysisPayload.put("insight", chart.getInsight());
+        analysisPayload.put("chartType", chart.getChartType());
+        analysisPayload.put("chartOption", chart.getChartOption());
+        emitter.accept(new StreamEvent("analysis", analysisPayload));
+    }
+
     private void emitProgress(Consumer<StreamEvent> emitter, String message) {
         // Status only — never emit canned progress as a "thinking" event, so the thinking
         // block shows the model's real reasoning_content exclusively.
@@ -0,0 +1,225 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+
+import java.util.*;
+
+/**
+ * In-memory column-name search over one data source's schema snapshot, used by the
+ * {@code search_tables_by_column} tool.
+ *
+ * <p>Distinct lower-cased column names are indexed by their trigrams (padded with {@code ^} and
+ * {@code $}); each name maps to the tables that have it. A substring query intersects the posting
+ * sets of its trigrams and verifies the survivors, so it touches only plausible names instead of
+ * every column of every table. Matches rank exact &gt; prefix &gt; word start ({@code _user})
+ * &gt; other substring. When nothing contains the query, names sharing enough trigrams with it
+ * are returned as fuzzy matches, which catches typos such as {@code user_nmae}.
+ *
+ * <p>An index is never modified once built, so it can be searched from any thread. {@link #update}
+ * derives the next version from a copy, re-indexing only the tables whose column list changed, so
+ * a sync that touches a few tables costs a few tables of trigram work and readers still holding
+ * the previous version are unaffected. Names left without any table are compacted away by a full
+ * rebuild once they make up more than {@link #MAX_DEAD_RATIO} of all names.
+ */
+public final class ColumnSearchIndex {
+
+    /** One table whose columns matched; {@code columns} are the matching ones, best first. */
+    public record TableMatch(String tableName, List<String> columns, double score, boolean fuzzy) {}
+
+    /** Minimum trigram Dice similarity for a fuzzy match. */
+    private static final double MIN_SIMILARITY = 0.45;
+    /** Share of names without any table above which {@link #update} rebuilds instead of copying. */
+    private static final double MAX_DEAD_RATIO = 0.25;
+
+    /** Table name → its column names as last indexed. */
+    private final Map<String, List<String>> tableColumns = new HashMap<>();
+    /** Lower-cased column name → id. Ids are not reused; a name whose tables are all gone just has no owners. */
+    private final Map<String, Integer> ids = new HashMap<>();
+    /** id → lower-cased column name. */
+    private final List<String> names = new ArrayList<>();
+    /** id → tables having that column (table name → column name as written). */
+    private final List<Map<String, String>> owners = new ArrayList<>();
+    /** Padded trigram → ids of the names containing it. */
+    private final Map<String, BitSet> postings = new HashMap<>();
+    /** Ids whose owners are all gone. */
+    private int deadIds;
+    /** Tables re-indexed or removed by the {@link #update} that produced this index. */
+    private int reindexedTables;
+
+    private ColumnSearchIndex() {
+    }
+
+    public static ColumnSearchIndex build(Collection<TableInfo> tables) {
+        ColumnSearchIndex index = new ColumnSearchIndex();
+        for (TableInfo t : tables) index.add(t.getTableName(), t.columnNames());
+        return index;
+    }
+
+    /**
+     * An index in line with {@code tables}: a copy of this one in which tables that disappeared or
+     * whose column list differs are re-indexed, or a fresh build when too many names would be
+     * left without a table. This index is not modified.
+     */
+    public ColumnSearchIndex update(Collection<TableInfo> tables) {
+        ColumnSearchIndex next = copy();
+        int touched = 0;
+        Set<String> present = new HashSet<>();
+        for (TableInfo t : tables) {
+            present.add(t.getTableName());
+            List<String> columns = t.columnNames();
+            if (columns.equals(next.tableColumns.get(t.getTableName()))) continue;
+            next.remove(t.getTableName());
+            next.add(t.getTableName(), columns);
+            touched++;
+        }
+        for (String stale : new ArrayList<>(next.tableColumns.keySet())) {
+            if (!present.contains(stale)) {
+                next.remove(stale);
+                touched++;
+            }
+        }
+        if (next.deadIds > next.names.size() * MAX_DEAD_RATIO) next = build(tables);
+        next.reindexedTables = touched;
+        return next;
+    }
+
+    /** Tables re-indexed or removed by the {@link #update} that produced this index; 0 for a fresh build. */
+    int reindexedTables() {
+        return reindexedTables;
+    }
+
+    /** Distinct column names held, including those no table has any more. */
+    int indexedNames() {
+        return names.size();
+    }
+
+    /**
+     * Tables with a column containing {@code pattern} (case-insensitive; surrounding SQL
+     * wildcards are ignored), best match first. Falls back to fuzzy matches when none do.
+     */
+    public List<TableMatch> search(String pattern) {
+        String needle = pattern == null ? "" : pattern.trim().toLowerCase().replaceAll("^[%*]+|[%*]+$", "");
+        if (needle.isEmpty()) return List.of();
+
+        Map<Integer, Double> scores = substringMatches(needle);
+        boolean fuzzy = scores.isEmpty();
+        if (fuzzy) scores = fuzzyMatches(needle);
+        return toTableMatches(scores, fuzzy);
+    }
+
+    private Map<Integer, Double> substringMatches(String needle) {
+        BitSet candidates;
+        if (needle.length() >= 3) {
+            candidates = null;
+            for (int i = 0; i + 3 <= needle.length(); i++) {
+                BitSet posting = postings.get(needle.substring(i, i + 3));
+                if (posting == null) return Map.of();
+                if (candidates == null) {
+                    candidates = (BitSet) posting.clone();
+                } else {
+                    candidates.and(posting);
+                }
+            }
+        } else {
+            candidates = new BitSet();
+            candidates.set(0, names.size());
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            if (owners.get(id).isEmpty()) continue;
+            String name = names.get(id);
+            int at = name.indexOf(needle);
+            if (at < 0) continue;
+            double score;
+            if (name.length() == needle.length()) score = 1.0;
+            else if (at == 0) score = 0.9;
+            else if (name.contains("_" + needle)) score = 0.8;
+            else score = 0.6;
+            scores.put(id, score);
+        }
+        return scores;
+    }
+
+    private Map<Integer, Double> fuzzyMatches(String needle) {
+        Set<String> grams = grams("^" + needle + "$");
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            BitSet posting = postings.get(gram);
+            if (posting == null) continue;
+            for (int id = posting.nextSetBit(0); id >= 0; id = posting.nextSetBit(id + 1)) {
+                shared.merge(id, 1, Integer::sum);
+            }
+        }
+        Map<Integer, Double> scores = new HashMap<>();
+        shared.forEach((id, count) -> {
+            if (owners.get(id).isEmpty()) return;
+            double similarity = 2.0 * count / (grams.size() + names.get(id).length());
+            if (similarity >= MIN_SIMILARITY) scores.put(id, 0.5 * similarity);
+        });
+        return scores;
+    }
+
+    private List<TableMatch> toTableMatches(Map<Integer, Double> scores, boolean fuzzy) {
+        record Hit(String column, double score) {}
+        Map<String, List<Hit>> byTable = new HashMap<>();
+        scores.forEach((id, score) -> owners.get(id).forEach((table, column) ->
+                byTable.computeIfAbsent(table, k -> new ArrayList<>()).add(new Hit(column, score))));
+
+        List<TableMatch> result = new ArrayList<>(byTable.size());
+        byTable.forEach((table, hits) -> {
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::column));
+            result.add(new TableMatch(table, hits.stream().map(Hit::column).toList(), hits.get(0).score(), fuzzy));
+        });
+        result.sort(Comparator.comparingDouble(TableMatch::score).reversed().thenComparing(TableMatch::tableName));
+        return result;
+    }
+
+    /** Deep copy; postings and owner maps are cloned because {@link #add} and {@link #remove} mutate them. */
+    private ColumnSearchIndex copy() {
+        ColumnSearchIndex copy = new ColumnSearchIndex();
+        copy.tableColumns.putAll(tableColumns);
+        copy.ids.putAll(ids);
+        copy.names.addAll(names);
+        for (Map<String, String> tablesHavingName : owners) copy.owners.add(new HashMap<>(tablesHavingName));
+        postings.forEach((gram, bits) -> copy.postings.put(gram, (BitSet) bits.clone()));
+        copy.deadIds = deadIds;
+        return copy;
+    }
+
+    /** Only called on an index that is still being built or updated and not yet visible to readers. */
+    private void add(String table, List<String> columns) {
+        tableColumns.put(table, List.copyOf(columns));
+        for (String column : columns) {
+            String name = column.toLowerCase();
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+                owners.add(new HashMap<>());
+                for (String gram : grams("^" + name + "$")) {
+                    postings.computeIfAbsent(gram, k -> new BitSet()).set(id);
+                }
+            } else if (owners.get(id).isEmpty()) {
+                deadIds--;
+            }
+            owners.get(id).put(table, column);
+        }
+    }
+
+    private void remove(String table) {
+        List<String> columns = tableColumns.remove(table);
+        if (columns == null) return;
+        for (String column : columns) {
+            Integer id = ids.get(column.toLowerCase());
+            if (id != null && owners.get(id).remove(table) != null && owners.get(id).isEmpty()) deadIds++;
+        }
+    }
+
+    private static Set<String> grams(String padded) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) grams.add(padded.substring(i, i + 3));
+        return grams;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.mysqlbot.service;
 import com.example.mysqlbot.config.AppConfig;
 import com.example.mysqlbot.model.SystemConfig;
 import com.example.mysqlbot.repository.SystemConfigRepository;
+import com.example.mysqlbot.util.LlmHttpTransport;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -48,6 +49,7 @@ public class ConfigService {
     private final AppConfig appConfig;
     private final SystemConfigRepository configRepository;
     private final ObjectMapper objectMapper;
+    private final LlmHttpTransport llmHttpTransport;
 
     @Lazy @Autowired
     private WeComBotService weComBotService;
@@ -195,7 +197,7 @@ public class ConfigService {
             } else {
                 String effectiveBaseUrl = (baseUrl != null && !baseUrl.isBlank()) ? baseUrl : "https://api.openai.com/v1";
                 com.example.mysqlbot.util.OpenAiLlmUtil util =
-                        new com.example.mysqlbot.util.OpenAiLlmUtil(effectiveBaseUrl, apiKey, modelName);
+                        new com.example.mysqlbot.util.OpenAiLlmUtil(effectiveBaseUrl, apiKey, modelName, llmHttpTransport);
                 String response = util.chat(java.util.List.of(
                         Map.of("role", "user", "content", "1+1=?")), 0.1);
                 boolean success = response != null && !response.isBlank();
@@ -29,7 +29,7 @@ public class ConnectionPoolService {
 
     private final ConcurrentHashMap<Long, HikariDataSource> pools = new ConcurrentHashMap<>();
 
-    private static final int MAX_POOL_SIZE = 10;
+    static final int MAX_POOL_SIZE = 10;
 
     /**
      * Returns a pooled connection for the given data-source ID.
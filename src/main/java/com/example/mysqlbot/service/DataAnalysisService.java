@@ -1,6 +1,7 @@
 package com.example.mysqlbot.service;
 
 import com.example.mysqlbot.model.LlmConfig;
+import com.example.mysqlbot.util.PromptTemplate;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -9,9 +10,7 @@ import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -27,11 +26,11 @@ public class DataAnalysisService {
     private final ObjectMapper objectMapper;
 
     // Cached prompt template
-    private String dataAnalysisPrompt;
+    private PromptTemplate dataAnalysisPrompt;
 
     @PostConstruct
     public void init() {
-        dataAnalysisPrompt = loadResource("prompts/data-analysis.st");
+        dataAnalysisPrompt = PromptTemplate.load("prompts/data-analysis.st");
         log.info("DataAnalysisService: prompt template cached ({} chars)", dataAnalysisPrompt.length());
     }
 
@@ -49,10 +48,10 @@ public class DataAnalysisService {
 
         String dataJson = truncateDataForPrompt(data);
 
-        String prompt = dataAnalysisPrompt
-                .replace("{question}", question)
-                .replace("{sql}", sql)
-                .replace("{data}", dataJson);
+        String prompt = dataAnalysisPrompt.render(Map.of(
+                "question", question,
+                "sql", sql,
+                "data", dataJson));
 
         String llmResponse;
         if (llmConfig != null) {
@@ -87,14 +86,6 @@ public class DataAnalysisService {
         }
     }
 
-    private static String loadResource(String path) {
-        try (var is = new org.springframework.core.io.ClassPathResource(path).getInputStream()) {
-            return StreamUtils.copyToString(is, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load resource: " + path, e);
-        }
-    }
-
     @Data
     @Builder
     public static class AnalysisResult {
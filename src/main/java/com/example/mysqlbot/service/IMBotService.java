@@ -4,6 +4,8 @@ import com.example.mysqlbot.model.ChatMessage;
 import com.example.mysqlbot.model.ChatSession;
 import com.example.mysqlbot.model.DataSource;
 import com.example.mysqlbot.repository.DataSourceRepository;
+import com.example.mysqlbot.service.result.ColumnVector;
+import com.example.mysqlbot.service.result.ColumnarResult;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +14,6 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 
@@ -233,20 +234,18 @@ public class IMBotService {
     /**
      * 将 SQL 结果 JSON 格式化为纯文本表格
      */
-    @SuppressWarnings("unchecked")
     private String formatSqlResultAsTable(String sqlResultJson) throws Exception {
-        Map<String, Object> result = objectMapper.readValue(sqlResultJson,
-                new TypeReference<Map<String, Object>>() {});
+        SqlExecuteService.SqlExecuteResult result = objectMapper.readValue(sqlResultJson,
+                SqlExecuteService.SqlExecuteResult.class);
 
-        Object rowsObj = result.get("rows");
-        if (rowsObj == null) return null;
-
-        List<Map<String, Object>> rows = (List<Map<String, Object>>) rowsObj;
-        if (rows.isEmpty()) return "（无数据）";
+        ColumnarResult data = result.getData();
+        if (data == null) return null;
+        if (data.getRowCount() == 0) return "（无数据）";
 
         // 限制显示行数
-        int maxDisplay = Math.min(rows.size(), 20);
-        List<String> columns = rows.get(0).keySet().stream().toList();
+        int rowCount = data.getRowCount();
+        int maxDisplay = Math.min(rowCount, 20);
+        List<String> columns = data.getFieldNames();
 
         // 计算列宽（简化处理）
         StringBuilder sb = new StringBuilder();
@@ -255,22 +254,25 @@ public class IMBotService {
         sb.append(String.join(" | ", columns)).append("\n");
         sb.append("-".repeat(columns.size() * 12)).append("\n");
 
-        // 数据行
+        // 数据行：按列取值，无需为每行构造 Map
+        ColumnVector[] vectors = new ColumnVector[columns.size()];
+        for (int j = 0; j < vectors.length; j++) {
+            vectors[j] = data.column(columns.get(j));
+        }
         for (int i = 0; i < maxDisplay; i++) {
-            Map<String, Object> row = rows.get(i);
             StringBuilder line = new StringBuilder();
-            for (int j = 0; j < columns.size(); j++) {
+            for (int j = 0; j < vectors.length; j++) {
                 if (j > 0) line.append(" | ");
-                Object val = row.get(columns.get(j));
+                Object val = vectors[j].get(i);
                 line.append(val != null ? val.toString() : "NULL");
             }
             sb.append(line).append("\n");
         }
 
-        if (rows.size() > maxDisplay) {
-            sb.append(String.format("\n... 共 %d 条记录，仅显示前 %d 条", rows.size(), maxDisplay));
+        if (rowCount > maxDisplay) {
+            sb.append(String.format("\n... 共 %d 条记录，仅显示前 %d 条", rowCount, maxDisplay));
         } else {
-            sb.append(String.format("\n共 %d 条记录", rows.size()));
+            sb.append(String.format("\n共 %d 条记录", rowCount));
         }
 
         return sb.toString();
@@ -3,6 +3,7 @@ package com.example.mysqlbot.service;
 import com.example.mysqlbot.config.AppConfig;
 import com.example.mysqlbot.model.LlmConfig;
 import com.example.mysqlbot.repository.LlmConfigRepository;
+import com.example.mysqlbot.util.LlmHttpTransport;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -30,6 +31,7 @@ public class LlmConfigService {
     private final LlmConfigRepository llmConfigRepository;
     private final AppConfig appConfig;
     private final ObjectMapper objectMapper;
+    private final LlmHttpTransport llmHttpTransport;
 
     @Lazy @Autowired
     private LlmService llmService;
@@ -240,7 +242,7 @@ public class LlmConfigService {
         }
 
         com.example.mysqlbot.util.OpenAiLlmUtil util = new com.example.mysqlbot.util.OpenAiLlmUtil(
-                baseUrl, apiKey, modelName);
+                baseUrl, apiKey, modelName, llmHttpTransport);
 
         List<Map<String, String>> messages = java.util.List.of(
                 Map.of("role", "user", "content", "1+1=?"));
@@ -6,6 +6,7 @@ import com.example.mysqlbot.repository.LlmConfigRepository;
 import com.example.mysqlbot.service.llm.LlmProvider;
 import com.example.mysqlbot.service.llm.OpenAiCompatibleProvider;
 import com.example.mysqlbot.service.llm.ZhipuProvider;
+import com.example.mysqlbot.util.LlmHttpTransport;
 import com.example.mysqlbot.util.OpenAiLlmUtil;
 import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResult;
 import jakarta.annotation.PostConstruct;
@@ -29,6 +30,7 @@ public class LlmService {
 
     private final AppConfig appConfig;
     private final LlmConfigRepository llmConfigRepository;
+    private final LlmHttpTransport llmHttpTransport;
 
     private final ConcurrentHashMap<Long, LlmProvider> providerCache = new ConcurrentHashMap<>();
 
@@ -47,38 +49,18 @@ public class LlmService {
     }
 
     public String chatWithSystem(String systemPrompt, String userMessage, Double temperature) {
-        LlmProvider provider = providerCache.computeIfAbsent(GLOBAL_CONFIG_KEY, k -> createProviderFromAppConfig());
-        AppConfig.LlmConfig llm = appConfig.getLlm();
-        String modelName = llm.getModelMap().getOrDefault(llm.getDefaultModel(), llm.getDefaultModel());
-        double temp = (temperature != null) ? temperature : llm.getTemperature();
-        return provider.chat(systemPrompt, userMessage, temp, modelName);
+        Resolved r = resolve(null, temperature, false);
+        return r.provider().chat(systemPrompt, userMessage, r.temperature(), r.modelName());
     }
 
     public String chatWithConfig(String systemPrompt, String userMessage, Double temperature, LlmConfig config) {
-        if (config == null) return chatWithSystem(systemPrompt, userMessage, temperature);
-        LlmProvider provider = providerCache.computeIfAbsent(config.getId(), k -> createProvider(config));
-        String modelName = resolveModelName(config);
-        double temp = (temperature != null) ? temperature : config.getTemperature().doubleValue();
-        return provider.chat(systemPrompt, userMessage, temp, modelName);
+        Resolved r = resolve(config, temperature, false);
+        return r.provider().chat(systemPrompt, userMessage, r.temperature(), r.modelName());
     }
 
     public String chatWithMessages(List<Map<String, String>> messages, Double temperature, LlmConfig config) {
-        LlmProvider provider;
-        String modelName;
-        double temp;
-
-        if (config != null) {
-            provider = providerCache.computeIfAbsent(config.getId(), k -> createProvider(config));
-            modelName = resolveModelName(config);
-            temp = (temperature != null) ? temperature : config.getTemperature().doubleValue();
-        } else {
-            provider = providerCache.computeIfAbsent(GLOBAL_CONFIG_KEY, k -> createProviderFromAppConfig());
-            AppConfig.LlmConfig llm = appConfig.getLlm();
-            modelName = llm.getModelMap().getOrDefault(llm.getDefaultModel(), llm.getDefaultModel());
-            temp = (temperature != null) ? temperature : llm.getTemperature();
-        }
-
-        return provider.chatWithMessages(messages, temp, modelName);
+        Resolved r = resolve(config, temperature, false);
+        return r.provider().chatWithMessages(messages, r.temperature(), r.modelName());
     }
 
     /**
@@ -113,24 +95,9 @@ public class LlmService {
     public String chatStreamWithMessages(List<Map<String, String>> messages, Double temperature,
                                          LlmConfig config, boolean thinking,
                                          OpenAiLlmUtil.StreamCallback callback) {
-        LlmProvider provider;
-        String modelName;
-        double temp;
-
-        if (config != null) {
-            provider = providerCache.computeIfAbsent(config.getId(), k -> createProvider(config));
-            modelName = thinking ? resolveReasoningModel(config) : resolveModelName(config);
-            temp = (temperature != null) ? temperature : config.getTemperature().doubleValue();
-        } else {
-            provider = providerCache.computeIfAbsent(GLOBAL_CONFIG_KEY, k -> createProviderFromAppConfig());
-            AppConfig.LlmConfig llm = appConfig.getLlm();
-            modelName = thinking ? appConfig.getLlm().getReasoningModel()
-                    : llm.getModelMap().getOrDefault(llm.getDefaultModel(), llm.getDefaultModel());
-            temp = (temperature != null) ? temperature : llm.getTemperature();
-        }
-
-        log.debug("LlmService.chatStreamWithMessages: thinking={}, model={}, messages={}", thinking, modelName, messages.size());
-        return provider.chatStreamWithMessages(messages, temp, modelName, callback);
+        Resolved r = resolve(config, temperature, thinking);
+        log.debug("LlmService.chatStreamWithMessages: thinking={}, model={}, messages={}", thinking, r.modelName(), messages.size());
+        return r.provider().chatStreamWithMessages(messages, r.temperature(), r.modelName(), callback);
     }
 
     public String getModelName() {
@@ -163,7 +130,7 @@ public class LlmService {
             return new ZhipuProvider(apiKey);
         } else {
             log.info("LlmService: creating OpenAiCompatibleProvider, configId={}, baseUrl={}", config.getId(), baseUrl);
-            return new OpenAiCompatibleProvider(baseUrl, apiKey, modelName);
+            return new OpenAiCompatibleProvider(baseUrl, apiKey, modelName, llmHttpTransport);
         }
     }
 
@@ -178,7 +145,37 @@ public class LlmService {
             return new ZhipuProvider(apiKey);
         } else {
             log.info("LlmService: creating global OpenAiCompatibleProvider, baseUrl={}", baseUrl);
-            return new OpenAiCompatibleProvider(baseUrl, apiKey, modelName);
+            return new OpenAiCompatibleProvider(baseUrl, apiKey, modelName, llmHttpTransport);
+        }
+    }
+
+    /** Provider, model and temperature for one call. */
+    private record Resolved(LlmProvider provider, String modelName, double temperature) {}
+
+    /**
+     * Resolves {@code config}, or the global settings when it is null: the cached provider, the
+     * reasoning model when {@code thinking} is set or else the default model, and {@code temperature}
+     * unless it is null.
+     */
+    private Resolved resolve(LlmConfig config, Double temperature, boolean thinking) {
+        if (config != null) {
+            LlmProvider provider = providerCache.computeIfAbsent(config.getId(), k -> createProvider(config));
+            String modelName = thinking ? resolveReasoningModel(config) : resolveModelName(config);
+            double temp = (temperature != null) ? temperature : config.getTemperature().doubleValue();
+            return new Resolved(provider, modelName, temp);
+        }
+        LlmProvider provider = providerCache.computeIfAbsent(GLOBAL_CONFIG_KEY, k -> createProviderFromAppConfig());
+        AppConfig.LlmConfig llm = appConfig.getLlm();
+        String modelName = thinking ? llm.getReasoningModel()
+                : llm.getModelMap().getOrDefault(llm.getDefaultModel(), llm.getDefaultModel());
+        double temp = (temperature != null) ? temperature : llm.getTemperature();
+        return new Resolved(provider, modelName, temp);
+    }
+
+    private static void requireToolSupport(LlmProvider provider) {
+        if (provider instanceof ZhipuProvider) {
+            throw new UnsupportedOperationException(
+                    "当前配置的 Zhipu 模型不支持工具调用，请在设置中改用 OpenAI 兼容模型（如 DeepSeek）后重试。");
         }
     }
 
@@ -226,26 +223,31 @@ public class LlmService {
             Double temperature,
             LlmConfig config,
             String toolChoice) {
-        LlmProvider provider;
-        String modelName;
-        double temp;
+        Resolved r = resolve(config, temperature, false);
+        requireToolSupport(r.provider());
+        return r.provider().chatWithMessagesAndTools(messages, tools, r.temperature(), r.modelName(), toolChoice);
+    }
 
-        if (config != null) {
-            provider = providerCache.computeIfAbsent(config.getId(), k -> createProvider(config));
-            modelName = resolveModelName(config);
-            temp = (temperature != null) ? temperature : config.getTemperature().doubleValue();
-        } else {
-            provider = providerCache.computeIfAbsent(GLOBAL_CONFIG_KEY, k -> createProviderFromAppConfig());
-            AppConfig.LlmConfig llm = appConfig.getLlm();
-            modelName = llm.getModelMap().getOrDefault(llm.getDefaultModel(), llm.getDefaultModel());
-            temp = (temperature != null) ? temperature : llm.getTemperature();
-        }
+    /**
+     * Streamed chat with tools: tokens go to {@code callback} while the model generates, and each
+     * tool call is handed to {@code listener} as soon as its arguments are complete.
+     */
+    public ChatResult chatStreamWithTools(
+            List<Map<String, Object>> messages,
+            List<Map<String, Object>> tools,
+            Double temperature,
+            LlmConfig config,
+            OpenAiLlmUtil.StreamCallback callback,
+            OpenAiLlmUtil.ToolCallListener listener) {
+        Resolved r = resolve(config, temperature, false);
+        requireToolSupport(r.provider());
+        log.debug("LlmService.chatStreamWithTools: model={}, messages={}", r.modelName(), messages.size());
+        return r.provider().chatStreamWithTools(messages, tools, r.temperature(), r.modelName(), null, callback, listener);
+    }
 
-        if (provider instanceof ZhipuProvider) {
-            throw new UnsupportedOperationException(
-                    "当前配置的 Zhipu 模型不支持工具调用，请在设置中改用 OpenAI 兼容模型（如 DeepSeek）后重试。");
-        }
-        return provider.chatWithMessagesAndTools(messages, tools, temp, modelName, toolChoice);
+    /** Shared LLM HTTP transport statistics (requests, failures, per-host in-flight / queued). */
+    public Map<String, Object> getTransportStats() {
+        return llmHttpTransport.getStats();
     }
 
     /**
@@ -258,28 +260,10 @@ public class LlmService {
             LlmConfig config,
             boolean thinking,
             OpenAiLlmUtil.StreamCallback callback) {
-        LlmProvider provider;
-        String modelName;
-        double temp;
-
-        if (config != null) {
-            provider = providerCache.computeIfAbsent(config.getId(), k -> createProvider(config));
-            modelName = thinking ? resolveReasoningModel(config) : resolveModelName(config);
-            temp = (temperature != null) ? temperature : config.getTemperature().doubleValue();
-        } else {
-            provider = providerCache.computeIfAbsent(GLOBAL_CONFIG_KEY, k -> createProviderFromAppConfig());
-            AppConfig.LlmConfig llm = appConfig.getLlm();
-            modelName = thinking ? appConfig.getLlm().getReasoningModel()
-                    : llm.getModelMap().getOrDefault(llm.getDefaultModel(), llm.getDefaultModel());
-            temp = (temperature != null) ? temperature : llm.getTemperature();
-        }
-
-        if (provider instanceof ZhipuProvider) {
-            throw new UnsupportedOperationException(
-                    "当前配置的 Zhipu 模型不支持工具调用，请在设置中改用 OpenAI 兼容模型（如 DeepSeek）后重试。");
-        }
-        log.debug("LlmService.chatStreamObjectMessages: thinking={}, model={}, messages={}", thinking, modelName, messages.size());
-        return provider.chatStreamObjectMessages(messages, temp, modelName, callback);
+        Resolved r = resolve(config, temperature, thinking);
+        requireToolSupport(r.provider());
+        log.debug("LlmService.chatStreamObjectMessages: thinking={}, model={}, messages={}", thinking, r.modelName(), messages.size());
+        return r.provider().chatStreamObjectMessages(messages, r.temperature(), r.modelName(), callback);
     }
 
     private boolean isZhipuUrl(String baseUrl) {
@@ -0,0 +1,122 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.LlmConfig;
+import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the answer pipeline, exposed at {@code /actuator/prometheus}: LLM request
+ * latency and token usage per agent round, whole agent loops, tool calls and SQL execution, so a
+ * slow answer can be attributed to the model, the tools or the database.
+ *
+ * <p>Meters are tagged with {@code data_source} (id) and {@code llm_config} (id, {@code global}
+ * for the application-level config); {@value #NONE} where not applicable.
+ */
+@Service
+@RequiredArgsConstructor
+public class MetricsService {
+
+    public static final String NONE = "none";
+
+    private final MeterRegistry registry;
+
+    /**
+     * One LLM request: a tool round or a streamed answer. {@code mode} is {@code stream} or
+     * {@code blocking}; {@code usage} may be null when the provider reports none.
+     */
+    public void recordLlmCall(String mode, Long dataSourceId, LlmConfig config, long nanos, boolean success,
+                              ChatResponse.Usage usage, int retries) {
+        Tags tags = Tags.of("mode", mode, "data_source", tag(dataSourceId), "llm_config", configTag(config));
+        Timer.builder("mysqlbot.llm.request")
+                .description("LLM request latency, one per agent round")
+                .tags(tags).tag("outcome", outcome(success))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (retries > 0) {
+            Counter.builder("mysqlbot.llm.retries")
+                    .description("LLM requests retried after a transport error, 429 or 5xx")
+                    .tags(tags)
+                    .register(registry)
+                    .increment(retries);
+        }
+        if (usage == null) return;
+        recordTokens(tags, "prompt", usage.getPromptTokens());
+        recordTokens(tags, "completion", usage.getCompletionTokens());
+        if (usage.getCompletionTokensDetails() != null) {
+            recordTokens(tags, "reasoning", usage.getCompletionTokensDetails().getReasoningTokens());
+        }
+    }
+
+    /** A whole agent loop, from the first round to the answer. */
+    public void recordAgentLoop(String mode, Long dataSourceId, LlmConfig config, long nanos, int rounds,
+                                boolean success) {
+        Tags tags = Tags.of("mode", mode, "data_source", tag(dataSourceId), "llm_config", configTag(config));
+        Timer.builder("mysqlbot.agent.loop")
+                .description("Agent loop latency including all LLM rounds and tool calls")
+                .tags(tags).tag("outcome", outcome(success))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("mysqlbot.agent.rounds")
+                .description("LLM rounds per agent loop")
+                .tags(tags)
+                .register(registry)
+                .record(rounds);
+    }
+
+    /** One tool call; {@code cache} is {@code hit}, {@code miss} or {@value #NONE} for uncached tools. */
+    public void recordTool(String tool, Long dataSourceId, String cache, long nanos, boolean success) {
+        Timer.builder("mysqlbot.tool.execution")
+                .description("Agent tool call latency")
+                .tags("tool", tool, "data_source", tag(dataSourceId), "cache", cache != null ? cache : NONE,
+                        "outcome", outcome(success))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** One user query execution; {@code cached} when served from the result cache. */
+    public void recordSqlExecution(Long dataSourceId, long nanos, boolean success, boolean cached, int rows) {
+        Tags tags = Tags.of("data_source", tag(dataSourceId), "cached", String.valueOf(cached));
+        Timer.builder("mysqlbot.sql.execution")
+                .description("SQL execution latency including result streaming")
+                .tags(tags).tag("outcome", outcome(success))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            DistributionSummary.builder("mysqlbot.sql.rows")
+                    .description("Rows returned per query")
+                    .tags(tags)
+                    .register(registry)
+                    .record(rows);
+        }
+    }
+
+    private void recordTokens(Tags tags, String type, int tokens) {
+        Counter.builder("mysqlbot.llm.tokens")
+                .description("LLM tokens by type")
+                .tags(tags).tag("type", type)
+                .register(registry)
+                .increment(tokens);
+    }
+
+    private static String tag(Long id) {
+        return id != null ? id.toString() : NONE;
+    }
+
+    private static String configTag(LlmConfig config) {
+        return config != null && config.getId() != null ? config.getId().toString() : "global";
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "error";
+    }
+}
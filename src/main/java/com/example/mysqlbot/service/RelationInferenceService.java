@@ -1,16 +1,16 @@
 package com.example.mysqlbot.service;
 
+import com.example.mysqlbot.util.PromptTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Service responsible for inferring table relationships via three strategies:
@@ -23,6 +23,18 @@ public class RelationInferenceService {
 
     private final ObjectMapper objectMapper;
 
+    /** Max schema-summary characters per LLM call; larger schemas are split into batches. */
+    @Value("${mysqlbot.relation.llm-batch-chars:8000}")
+    private int llmBatchChars;
+
+    /** Max concurrent LLM calls when a schema is split into batches. */
+    @Value("${mysqlbot.relation.llm-parallelism:4}")
+    private int llmParallelism;
+
+    /** Overall deadline for all batches; unfinished batches are cancelled and skipped. */
+    @Value("${mysqlbot.relation.llm-timeout-seconds:180}")
+    private long llmTimeoutSeconds;
+
     // -------------------------------------------------------------------------
     // Inner data structures
     // -------------------------------------------------------------------------
@@ -109,18 +121,20 @@ public class RelationInferenceService {
     // -------------------------------------------------------------------------
 
     /**
-     * Infers relationships from column naming patterns (e.g. {@code order.user_id}
-     * → {@code user.id}).  Only underscore-style {@code _id} suffixes are processed.
+     * Infers relationships from column naming patterns:
+     * <ul>
+     *   <li>A: the column names another table by convention ({@code order.user_id},
+     *       {@code order.userId} or {@code order.fk_user} → {@code t_users.id}; see
+     *       {@link TableNameIndex}), confidence 0.70;</li>
+     *   <li>B: the column has the same name as another table's primary-key column
+     *       ({@code order_items.order_id} → {@code order_header.order_id}), confidence 0.65.</li>
+     * </ul>
+     * Both are resolved through a {@link TableNameIndex} built once per call, so the pass is
+     * linear in the number of columns plus the relations found.
      * Deduplicates by (fromTable, fromColumn, toTable, toColumn).
      */
     public List<InferredRelation> inferFromNamingConventions(List<TableMeta> tables) {
-        // Build lookup maps for quick access
-        // simpleTableName (lower) → TableMeta
-        Map<String, TableMeta> bySimpleName = new HashMap<>();
-        for (TableMeta t : tables) {
-            bySimpleName.put(t.simpleTableName.toLowerCase(), t);
-        }
-
+        TableNameIndex index = new TableNameIndex(tables);
         Map<String, InferredRelation> dedup = new LinkedHashMap<>();
 
         for (TableMeta table : tables) {
@@ -130,43 +144,30 @@ public class RelationInferenceService {
                 // Skip if the column is itself a primary key of this table
                 if (pkSet.contains(col)) continue;
 
-                String colLower = col.toLowerCase();
-
-                // Strategy A: columns ending with "_id" (but not equal to "id")
-                if (colLower.endsWith("_id") && !colLower.equals("_id")) {
-                    String prefix = colLower.substring(0, colLower.length() - 3); // strip "_id"
-
-                    TableMeta candidate = bySimpleName.get(prefix);
-                    if (candidate == null) {
-                        // try plural form: prefix + "s"
-                        candidate = bySimpleName.get(prefix + "s");
-                    }
-
-                    if (candidate != null && !candidate.primaryKeys.isEmpty()) {
-                        String pk = candidate.primaryKeys.get(0);
-                        String dedupKey = table.tableName + "|" + col + "|" + candidate.tableName + "|" + pk;
-                        dedup.putIfAbsent(dedupKey, new InferredRelation(
-                                table.tableName, col,
-                                candidate.tableName, pk,
-                                "naming",
-                                new BigDecimal("0.70")
-                        ));
-                    }
+                // Strategy A: column names another table (user_id, userId, fk_user, ...)
+                TableMeta candidate = index.referencedTable(col);
+                if (candidate != null && !candidate.primaryKeys.isEmpty()) {
+                    String pk = candidate.primaryKeys.get(0);
+                    String dedupKey = table.tableName + "|" + col + "|" + candidate.tableName + "|" + pk;
+                    dedup.putIfAbsent(dedupKey, new InferredRelation(
+                            table.tableName, col,
+                            candidate.tableName, pk,
+                            "naming",
+                            new BigDecimal("0.70")
+                    ));
                 }
 
                 // Strategy B: col matches another table's primary key name exactly
                 // e.g. another table has pk "order_id" and this table also has a column "order_id"
-                for (TableMeta other : tables) {
+                for (TableMeta other : index.primaryKeyOwners(col)) {
                     if (other.tableName.equals(table.tableName)) continue;
-                    if (other.primaryKeys.contains(col)) {
-                        String dedupKey = table.tableName + "|" + col + "|" + other.tableName + "|" + col;
-                        dedup.putIfAbsent(dedupKey, new InferredRelation(
-                                table.tableName, col,
-                                other.tableName, col,
-                                "naming",
-                                new BigDecimal("0.65")
-                        ));
-                    }
+                    String dedupKey = table.tableName + "|" + col + "|" + other.tableName + "|" + col;
+                    dedup.putIfAbsent(dedupKey, new InferredRelation(
+                            table.tableName, col,
+                            other.tableName, col,
+                            "naming",
+                            new BigDecimal("0.65")
+                    ));
                 }
             }
         }
@@ -182,40 +183,113 @@ public class RelationInferenceService {
      * Calls the LLM with a schema summary and parses its JSON response into
      * {@link InferredRelation} objects with source="llm".
      * <p>
+     * Schemas whose summary exceeds {@code mysqlbot.relation.llm-batch-chars} are split into
+     * batches of related tables (see {@link #planBatches}) that are sent concurrently, at most
+     * {@code mysqlbot.relation.llm-parallelism} at a time and within
+     * {@code mysqlbot.relation.llm-timeout-seconds} overall; the per-batch results are merged,
+     * keeping the highest confidence per relation.
+     * <p>
      * All exceptions are caught and logged as warnings — a failure here must
      * never abort the schema-sync process.
      */
     public List<InferredRelation> inferFromLlm(List<TableMeta> tables, LlmService llmService, String dbEngine) {
+        return inferFromLlm(tables, llmService, dbEngine, null);
+    }
+
+    /**
+     * Like {@link #inferFromLlm(List, LlmService, String)}, but when {@code focusTables} is given
+     * only the batches containing at least one of those tables are sent (incremental sync).
+     */
+    public List<InferredRelation> inferFromLlm(List<TableMeta> tables, LlmService llmService, String dbEngine,
+                                               Set<String> focusTables) {
         try {
-            // 1. Build schemaInfo text (capped at 8000 chars)
-            // The first table is always included (truncated to 8000 if necessary)
+            PromptTemplate template = PromptTemplate.load("prompts/relation-infer.st");
+            // shared by batch planning and every batch's referenced-table hint
+            TableNameIndex index = new TableNameIndex(tables);
+            List<List<TableMeta>> batches = planBatches(tables, index, llmBatchChars);
+            if (focusTables != null) {
+                batches.removeIf(batch -> batch.stream().noneMatch(t -> focusTables.contains(t.tableName)));
+            }
+            if (batches.isEmpty()) return Collections.emptyList();
+            if (batches.size() == 1) {
+                return inferBatch(batches.get(0), tables, index, template, llmService, dbEngine);
+            }
+
+            log.info("RelationInferenceService: LLM inference over {} tables in {} batches (parallelism {})",
+                    tables.size(), batches.size(), llmParallelism);
+            List<Callable<List<InferredRelation>>> tasks = new ArrayList<>();
+            for (List<TableMeta> batch : batches) {
+                tasks.add(() -> inferBatch(batch, tables, index, template, llmService, dbEngine));
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, llmParallelism),
+                    Thread.ofVirtual().name("relation-llm-", 0).factory());
+            Map<String, InferredRelation> merged = new LinkedHashMap<>();
+            int timedOut = 0;
+            try {
+                for (Future<List<InferredRelation>> future : pool.invokeAll(tasks, llmTimeoutSeconds, TimeUnit.SECONDS)) {
+                    if (future.isCancelled()) {
+                        timedOut++;
+                        continue;
+                    }
+                    for (InferredRelation r : future.get()) {
+                        String key = r.getFromTable() + "|" + r.getFromColumn() + "|" + r.getToTable() + "|" + r.getToColumn();
+                        merged.merge(key, r, (a, b) -> a.getConfidence().compareTo(b.getConfidence()) >= 0 ? a : b);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            if (timedOut > 0) {
+                log.warn("RelationInferenceService: {} of {} LLM batches timed out after {}s",
+                        timedOut, batches.size(), llmTimeoutSeconds);
+            }
+            return new ArrayList<>(merged.values());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } catch (Exception e) {
+            log.warn("RelationInferenceService: LLM inference failed, skipping. Reason: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * One LLM call for {@code batch}. Tables outside the batch that its columns point at are
+     * listed by name and primary key so cross-batch relations can still be found. Names in the
+     * response are validated and resolved against {@code allTables}, whose name index is {@code index}.
+     */
+    private List<InferredRelation> inferBatch(List<TableMeta> batch, List<TableMeta> allTables, TableNameIndex index,
+                                              PromptTemplate template, LlmService llmService, String dbEngine) {
+        try {
+            // 1. Build schemaInfo text (capped at the batch budget)
+            // The first table is always included (truncated if necessary)
             // to guarantee schemaInfo is never empty even for very wide tables.
             StringBuilder schemaInfo = new StringBuilder();
             boolean firstTable = true;
-            for (TableMeta t : tables) {
-                String block = "Table: " + t.tableName + "\n"
-                        + "  Columns: " + String.join(", ", t.columns) + "\n"
-                        + "  PrimaryKey: " + String.join(", ", t.primaryKeys) + "\n";
+            for (TableMeta t : batch) {
+                String block = tableBlock(t);
                 if (firstTable) {
                     // Always add the first table; truncate if it alone exceeds the limit
-                    if (block.length() > 8000) {
-                        schemaInfo.append(block, 0, 8000).append("...(truncated)\n");
+                    if (block.length() > llmBatchChars) {
+                        schemaInfo.append(block, 0, llmBatchChars).append("...(truncated)\n");
                     } else {
                         schemaInfo.append(block);
                     }
                     firstTable = false;
                 } else {
                     // For subsequent tables stop as soon as adding would exceed the limit
-                    if (schemaInfo.length() + block.length() > 8000) break;
+                    if (schemaInfo.length() + block.length() > llmBatchChars) break;
                     schemaInfo.append(block);
                 }
             }
+            schemaInfo.append(referencedTables(batch, allTables, index));
 
-            // 2. Load prompt template and substitute placeholders
-            String template = loadPromptTemplate();
-            String prompt = template
-                    .replace("{dbEngine}", dbEngine == null ? "Unknown" : dbEngine)
-                    .replace("{schemaInfo}", schemaInfo.toString());
+            // 2. Substitute placeholders
+            String prompt = template.render(Map.of(
+                    "dbEngine", dbEngine == null ? "Unknown" : dbEngine,
+                    "schemaInfo", schemaInfo.toString()));
 
             // 3. Call LLM (low temperature for deterministic output)
             String response = llmService.chat(prompt, 0.1);
@@ -234,7 +308,7 @@ public class RelationInferenceService {
 
             // Build a set of known table names for validation
             Set<String> knownTableNames = new HashSet<>();
-            for (TableMeta t : tables) {
+            for (TableMeta t : allTables) {
                 knownTableNames.add(t.tableName);
                 knownTableNames.add(t.simpleTableName);
             }
@@ -256,8 +330,8 @@ public class RelationInferenceService {
                 if (!knownTableNames.contains(toTable) && !knownTableNames.contains(toTable.toLowerCase())) continue;
 
                 // Resolve to the fully-qualified table name if only the simple name was returned
-                String resolvedFromTable = resolveTableName(fromTable, tables);
-                String resolvedToTable   = resolveTableName(toTable, tables);
+                String resolvedFromTable = resolveTableName(fromTable, allTables);
+                String resolvedToTable   = resolveTableName(toTable, allTables);
 
                 result.add(new InferredRelation(
                         resolvedFromTable, fromColumn,
@@ -269,20 +343,161 @@ public class RelationInferenceService {
             return result;
 
         } catch (Exception e) {
-            log.warn("RelationInferenceService: LLM inference failed, skipping. Reason: {}", e.getMessage());
+            log.warn("RelationInferenceService: LLM batch of {} tables failed, skipping. Reason: {}",
+                    batch.size(), e.getMessage());
             return Collections.emptyList();
         }
     }
 
+    private static String tableBlock(TableMeta t) {
+        return "Table: " + t.tableName + "\n"
+                + "  Columns: " + String.join(", ", t.columns) + "\n"
+                + "  PrimaryKey: " + String.join(", ", t.primaryKeys) + "\n";
+    }
+
+    /** Compact "name(pk)" list of FK / naming-convention targets outside the batch, capped at 1000 chars. */
+    private static String referencedTables(List<TableMeta> batch, List<TableMeta> allTables, TableNameIndex index) {
+        if (batch.size() == allTables.size()) return "";
+        Set<String> inBatch = new HashSet<>();
+        for (TableMeta t : batch) inBatch.add(t.tableName);
+
+        Set<String> refs = new LinkedHashSet<>();
+        for (TableMeta t : batch) {
+            for (TableMeta target : referencedBy(t, index)) {
+                if (inBatch.contains(target.tableName)) continue;
+                refs.add(target.tableName + "(" + String.join(", ", target.primaryKeys) + ")");
+            }
+        }
+        if (refs.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("Referenced tables outside this batch: ");
+        for (String ref : refs) {
+            if (sb.length() + ref.length() > 1000) break;
+            sb.append(ref).append("; ");
+        }
+        return sb.append("\n").toString();
+    }
+
     // -------------------------------------------------------------------------
-    // Helpers
+    // Batch planning
     // -------------------------------------------------------------------------
 
-    private String loadPromptTemplate() throws IOException {
-        ClassPathResource resource = new ClassPathResource("prompts/relation-infer.st");
-        return resource.getContentAsString(StandardCharsets.UTF_8);
+    /**
+     * Partitions tables into batches whose summaries fit {@code budgetChars}, keeping related
+     * tables together. A batch grows breadth-first from a seed table along, in order of strength:
+     * physical FKs (both directions), columns naming another table ({@code xxx_id} etc.), a shared
+     * name prefix ({@code sys_user}/{@code sys_role}) and shared distinctive column names
+     * (ones used by only a few tables). Each table lands in exactly one batch.
+     */
+    static List<List<TableMeta>> planBatches(List<TableMeta> tables, int budgetChars) {
+        return planBatches(tables, new TableNameIndex(tables), budgetChars);
+    }
+
+    private static List<List<TableMeta>> planBatches(List<TableMeta> tables, TableNameIndex index, int budgetChars) {
+        List<List<TableMeta>> batches = new ArrayList<>();
+        if (tables.isEmpty()) return batches;
+
+        Map<TableMeta, LinkedHashSet<TableMeta>> neighbours = new IdentityHashMap<>();
+        for (TableMeta t : tables) neighbours.put(t, new LinkedHashSet<>());
+
+        // 1. FK and naming-convention edges
+        for (TableMeta t : tables) {
+            for (TableMeta target : referencedBy(t, index)) {
+                if (target == t) continue;
+                neighbours.get(t).add(target);
+                neighbours.get(target).add(t);
+            }
+        }
+        // 2. Shared name prefix
+        Map<String, List<TableMeta>> byPrefix = new LinkedHashMap<>();
+        for (TableMeta t : tables) byPrefix.computeIfAbsent(namePrefix(t), k -> new ArrayList<>()).add(t);
+        link(byPrefix.values(), neighbours);
+        // 3. Shared distinctive columns
+        Map<String, List<TableMeta>> byColumn = new HashMap<>();
+        for (TableMeta t : tables) {
+            for (String col : t.columns) {
+                byColumn.computeIfAbsent(col.toLowerCase(), k -> new ArrayList<>()).add(t);
+            }
+        }
+        int maxSharing = Math.max(2, tables.size() / 20);
+        link(byColumn.entrySet().stream()
+                .filter(e -> !e.getKey().equals("id") && e.getValue().size() > 1 && e.getValue().size() <= maxSharing)
+                .map(Map.Entry::getValue)
+                .toList(), neighbours);
+
+        Set<TableMeta> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TableMeta seed : tables) {
+            if (assigned.contains(seed)) continue;
+            List<TableMeta> batch = new ArrayList<>();
+            int size = 0;
+            Deque<TableMeta> queue = new ArrayDeque<>(List.of(seed));
+            Iterator<TableMeta> fill = tables.iterator();
+            while (true) {
+                TableMeta next = queue.poll();
+                // Cluster exhausted: top up with the next unassigned table while the batch is under
+                // half full; past that, starting another cluster would likely cut it in two
+                while (next == null && size < budgetChars / 2 && fill.hasNext()) {
+                    TableMeta candidate = fill.next();
+                    if (!assigned.contains(candidate)) next = candidate;
+                }
+                if (next == null) break;
+                if (assigned.contains(next)) continue;
+                int length = tableBlock(next).length();
+                if (!batch.isEmpty() && size + length > budgetChars) {
+                    if (size >= budgetChars / 2) break;
+                    continue; // too wide for what's left; another batch will take it
+                }
+                batch.add(next);
+                assigned.add(next);
+                size += length;
+                for (TableMeta n : neighbours.get(next)) {
+                    if (!assigned.contains(n)) queue.add(n);
+                }
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /** Links tables within each group, skipping groups too large to say anything about relatedness. */
+    private static void link(Collection<List<TableMeta>> groups, Map<TableMeta, LinkedHashSet<TableMeta>> neighbours) {
+        for (List<TableMeta> group : groups) {
+            if (group.size() < 2 || group.size() > 50) continue;
+            for (TableMeta a : group) {
+                for (TableMeta b : group) {
+                    if (a != b) neighbours.get(a).add(b);
+                }
+            }
+        }
+    }
+
+    /** Tables {@code t} points at: physical FK targets and tables named by its columns' naming conventions. */
+    private static List<TableMeta> referencedBy(TableMeta t, TableNameIndex index) {
+        List<TableMeta> result = new ArrayList<>();
+        if (t.importedKeys != null) {
+            for (ForeignKeyInfo fk : t.importedKeys) {
+                TableMeta target = index.get(fk.pkTable);
+                if (target != null) result.add(target);
+            }
+        }
+        for (String col : t.columns) {
+            TableMeta target = index.referencedTable(col);
+            if (target != null && target != t) result.add(target);
+        }
+        return result;
+    }
+
+    /** First underscore-separated token of the bare name, singularized: {@code orders}/{@code order_items} → {@code order}. */
+    private static String namePrefix(TableMeta t) {
+        String name = t.simpleTableName.toLowerCase();
+        int underscore = name.indexOf('_');
+        String token = underscore > 0 ? name.substring(0, underscore) : name;
+        return token.length() > 3 && token.endsWith("s") ? token.substring(0, token.length() - 1) : token;
     }
 
+    // -------------------------------------------------------------------------
+    // Helpers
+    // -------------------------------------------------------------------------
+
     /**
      * Strips markdown code fences that LLMs sometimes add around JSON output.
      */
@@ -4,14 +4,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple TTL-based in-memory cache for database schema metadata.
  *
- * <p>Caches table-name lists, per-table column schemas, and table relations
+ * <p>Caches table-name lists, per-table column schemas (full and compact), and table relations
  * so that repeated tool calls within an agent loop (or across nearby requests)
  * avoid redundant JDBC metadata round-trips. No external cache dependency.
  *
@@ -54,6 +57,16 @@ public class SchemaCacheService {
         put(keySchema(dataSourceId, tableName), schema);
     }
 
+    // ---- Compact per-table schema line (get_table_schemas) ----
+
+    public String getCompactSchema(Long dataSourceId, String tableName) {
+        return get(keyCompactSchema(dataSourceId, tableName), String.class);
+    }
+
+    public void putCompactSchema(Long dataSourceId, String tableName, String schema) {
+        put(keyCompactSchema(dataSourceId, tableName), schema);
+    }
+
     // ---- Relations string ----
 
     public String getRelations(Long dataSourceId, String scope) {
@@ -84,6 +97,43 @@ public class SchemaCacheService {
         }
     }
 
+    /**
+     * Removes the cached schemas of the given tables after an incremental sync, plus the
+     * table list and every relation scope of the data source (those can span any table).
+     * Table names are matched case-insensitively, with or without quotes and schema prefix,
+     * since tool callers may use any of those forms.
+     */
+    public void evictTables(Long dataSourceId, Collection<String> tableNames) {
+        Set<String> names = new HashSet<>();
+        for (String table : tableNames) {
+            String unquoted = table.replace("\"", "").replace("`", "").toLowerCase();
+            names.add(table.toLowerCase());
+            names.add(unquoted);
+            names.add(unquoted.substring(unquoted.lastIndexOf('.') + 1));
+        }
+        String schemaPrefix = "ds:" + dataSourceId + ":schema:";
+        String compactPrefix = keyCompactSchema(dataSourceId, "");
+        String relationsPrefix = keyRelations(dataSourceId, "");
+        int removed = 0;
+        var it = cache.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            boolean stale = key.equals(keyTables(dataSourceId))
+                    || key.startsWith(relationsPrefix)
+                    || key.equals(keySchema(dataSourceId, null))
+                    || (key.startsWith(schemaPrefix) && names.contains(key.substring(schemaPrefix.length()).toLowerCase()))
+                    || (key.startsWith(compactPrefix) && names.contains(key.substring(compactPrefix.length()).toLowerCase()));
+            if (stale) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("Schema cache: evicted {} entries for {} changed table(s) of dataSourceId={}",
+                    removed, tableNames.size(), dataSourceId);
+        }
+    }
+
     // ---- Internal helpers ----
 
     @SuppressWarnings("unchecked")
@@ -111,6 +161,10 @@ public class SchemaCacheService {
         return "ds:" + dsId + ":schema:" + (table != null ? table : "all");
     }
 
+    private static String keyCompactSchema(Long dsId, String table) {
+        return "ds:" + dsId + ":compact:" + table;
+    }
+
     private static String keyRelations(Long dsId, String scope) {
         return "ds:" + dsId + ":relations:" + (scope != null ? scope : "all");
     }
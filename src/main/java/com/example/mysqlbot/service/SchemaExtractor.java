@@ -0,0 +1,369 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.DatabaseDialect;
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.ForeignKey;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+/**
+ * Reads a data source's table structure (columns with types and remarks, primary keys,
+ * imported foreign keys, row-count estimate) from pooled connections.
+ *
+ * <p>Dialects that provide {@link DatabaseDialect#catalogQueries()} are read with four set-based
+ * catalog queries regardless of the number of tables; the primary-key and foreign-key queries run
+ * on their own connections while the column query streams. Catalog queries are issued through
+ * {@link DatabaseDialect#createQueryStatement}, so MySQL streams rows instead of buffering the
+ * whole result and PostgreSQL reads through a cursor. Other dialects — or a bulk read that
+ * fails, e.g. for lack of catalog privileges — fall back to {@link DatabaseMetaData}, which costs
+ * three round trips per table, so the table list is split into chunks read concurrently.
+ *
+ * <p>At most {@code parallelism} connections are opened on top of the coordinating one.
+ * When a {@link SchemaService.SyncProgress} is given, totals are set as soon as the table list is
+ * known, processed tables are counted as they complete, and a cancel request aborts the read
+ * with a {@link CancellationException}.
+ */
+@Slf4j
+public final class SchemaExtractor {
+
+    /** Rows per round trip for catalog queries, where the driver honours a fetch size. */
+    private static final int FETCH_SIZE = 1000;
+
+    private SchemaExtractor() {
+    }
+
+    /** Source of pooled connections; each one is closed by the extractor when its work is done. */
+    @FunctionalInterface
+    public interface Connections {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * @param include  qualified table names to read (see {@link #buildQualifiedTableName}); other tables are skipped
+     * @param progress optional sync-progress sink; pass {@code null} when not syncing.
+     */
+    public static List<TableInfo> extract(Connections connections, int parallelism, int chunkSize,
+                                          DatabaseDialect dialect, String dbName, Predicate<String> include,
+                                          SchemaService.SyncProgress progress) throws SQLException {
+        DatabaseDialect.CatalogQueries queries = dialect.catalogQueries();
+        if (queries != null) {
+            try {
+                return extractBulk(connections, parallelism, dialect, queries, dbName, include, progress);
+            } catch (SQLException e) {
+                log.warn("Bulk catalog extraction failed for [{}], falling back to DatabaseMetaData: {}",
+                        dbName, e.getMessage());
+                if (progress != null) progress.setProcessedTables(0);
+            }
+        }
+        return extractWithMetaData(connections, parallelism, chunkSize, dialect, dbName, include, progress);
+    }
+
+    /** Reads every table with the dialect's catalog queries. */
+    public static List<TableInfo> extractBulk(Connections connections, int parallelism,
+                                              DatabaseDialect dialect, DatabaseDialect.CatalogQueries queries,
+                                              String dbName, Predicate<String> include,
+                                              SchemaService.SyncProgress progress) throws SQLException {
+        // Keyed by exact schema + table (PostgreSQL may hold both "Orders" and orders)
+        Map<String, TableInfo> tables = new LinkedHashMap<>();
+        ExecutorService pool = newPool(parallelism);
+        try (Connection conn = connections.open()) {
+            try (Statement stmt = dialect.createQueryStatement(conn, FETCH_SIZE)) {
+                // Each result is read to the end before the next query: a streaming MySQL
+                // connection cannot run another statement while one is open
+                try (ResultSet rs = stmt.executeQuery(queries.tables())) {
+                    while (rs.next()) {
+                        String tableSchema = rs.getString("table_schema");
+                        String tableName = rs.getString("table_name");
+                        String fullTableName = buildQualifiedTableName(dialect, tableSchema, tableName, dbName);
+                        if (!include.test(fullTableName)) continue;
+                        long rows = rs.getLong("row_estimate");
+                        Long rowEstimate = rs.wasNull() || rows < 0 ? null : rows;
+                        tables.put(tableKey(tableSchema, tableName), TableInfo.builder()
+                                .tableName(fullTableName)
+                                .simpleName(tableName)
+                                .tableSchema(tableSchema)
+                                .remarks(blankToNull(rs.getString("remarks")))
+                                .rowEstimate(rowEstimate)
+                                .build());
+                    }
+                }
+                if (progress != null) progress.setTotalTables(tables.size());
+                checkCancelled(progress);
+
+                // Keys are small; fetch them next to the column scan and attach afterwards on this thread
+                Future<List<String[]>> primaryKeys = pool.submit(() -> readRows(connections, dialect, queries.primaryKeys(), progress,
+                        "table_schema", "table_name", "column_name"));
+                Future<List<String[]>> foreignKeys = pool.submit(() -> readRows(connections, dialect, queries.foreignKeys(), progress,
+                        "table_schema", "table_name", "fk_column", "pk_table_schema", "pk_table_name", "pk_column"));
+
+                try (ResultSet rs = stmt.executeQuery(queries.columns())) {
+                    TableInfo current = null;
+                    while (rs.next()) {
+                        TableInfo table = tables.get(tableKey(rs.getString("table_schema"), rs.getString("table_name")));
+                        if (table == null) continue;
+                        if (table != current) {
+                            checkCancelled(progress);
+                            if (progress != null) {
+                                if (current != null) progress.addProcessed(1);
+                                progress.setCurrentTable(table.getTableName());
+                            }
+                            current = table;
+                        }
+                        table.getColumns().add(new ColumnInfo(
+                                rs.getString("column_name"), rs.getString("type_name"), blankToNull(rs.getString("remarks"))));
+                    }
+                }
+
+                for (String[] row : await(primaryKeys)) {
+                    TableInfo table = tables.get(tableKey(row[0], row[1]));
+                    if (table != null) table.getPrimaryKeys().add(row[2]);
+                }
+                for (String[] row : await(foreignKeys)) {
+                    TableInfo table = tables.get(tableKey(row[0], row[1]));
+                    if (table == null) continue;
+                    String pkFullTable = buildQualifiedTableName(dialect, row[3], row[4], dbName);
+                    table.getForeignKeys().add(new ForeignKey(row[2], pkFullTable, row[5]));
+                }
+            } finally {
+                dialect.finishQuery(conn);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        if (progress != null) progress.setProcessedTables(tables.size());
+        return new ArrayList<>(tables.values());
+    }
+
+    /**
+     * Portable path: {@code getTables} once, then columns, primary keys and imported keys per table,
+     * with the table list split into chunks of {@code chunkSize} that are read concurrently.
+     */
+    public static List<TableInfo> extractWithMetaData(Connections connections, int parallelism, int chunkSize,
+                                                      DatabaseDialect dialect, String dbName, Predicate<String> include,
+                                                      SchemaService.SyncProgress progress) throws SQLException {
+        List<TableInfo> listed = new ArrayList<>();
+        Map<String, Long> rowEstimates;
+        try (Connection conn = connections.open()) {
+            rowEstimates = readRowEstimates(conn, dialect);
+            try (ResultSet rs = conn.getMetaData().getTables(dbName, null, "%", new String[] { "TABLE" })) {
+                while (rs.next()) {
+                    String tableName = rs.getString("TABLE_NAME");
+                    String tableSchema = rs.getString("TABLE_SCHEM");
+                    // Build qualified table name with dialect-aware logic
+                    String fullTableName = buildQualifiedTableName(dialect, tableSchema, tableName, dbName);
+                    if (!include.test(fullTableName)) continue;
+                    listed.add(TableInfo.builder()
+                            .tableName(fullTableName)
+                            .simpleName(tableName)
+                            .tableSchema(tableSchema)
+                            .remarks(blankToNull(rs.getString("REMARKS")))
+                            .rowEstimate(rowEstimates.get(key(tableSchema != null ? tableSchema : dbName, tableName)))
+                            .build());
+                }
+            }
+        }
+        if (progress != null) progress.setTotalTables(listed.size());
+
+        int size = Math.max(1, chunkSize);
+        ExecutorService pool = newPool(parallelism);
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < listed.size(); from += size) {
+                List<TableInfo> chunk = listed.subList(from, Math.min(from + size, listed.size()));
+                chunks.add(pool.submit(() -> {
+                    readChunk(connections, chunk, dialect, dbName, progress);
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                await(chunk);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return listed;
+    }
+
+    /** Fills columns and keys of each table in {@code chunk} over one connection. */
+    private static void readChunk(Connections connections, List<TableInfo> chunk, DatabaseDialect dialect,
+                                  String dbName, SchemaService.SyncProgress progress) throws SQLException {
+        try (Connection conn = connections.open()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            for (TableInfo table : chunk) {
+                checkCancelled(progress);
+                String tableSchema = table.getTableSchema();
+                String tableName = table.getSimpleName();
+                if (progress != null) progress.setCurrentTable(table.getTableName());
+
+                try (ResultSet cols = metaData.getColumns(dbName, tableSchema, tableName, "%")) {
+                    while (cols.next()) {
+                        table.getColumns().add(new ColumnInfo(
+                                cols.getString("COLUMN_NAME"), cols.getString("TYPE_NAME"), blankToNull(cols.getString("REMARKS"))));
+                    }
+                }
+
+                try (ResultSet pks = metaData.getPrimaryKeys(dbName, tableSchema, tableName)) {
+                    while (pks.next()) {
+                        table.getPrimaryKeys().add(pks.getString("COLUMN_NAME"));
+                    }
+                }
+
+                table.setForeignKeys(extractImportedKeys(metaData, dialect, dbName, tableSchema, tableName, table.getTableName()));
+                if (progress != null) progress.addProcessed(1);
+            }
+        }
+    }
+
+    /**
+     * Reads physical foreign-key constraints for a single table via JDBC metadata.
+     */
+    private static List<ForeignKey> extractImportedKeys(DatabaseMetaData metaData, DatabaseDialect dialect, String dbName,
+                                                        String tableSchema, String tableName, String fullTableName) {
+        List<ForeignKey> result = new ArrayList<>();
+        try (ResultSet fks = metaData.getImportedKeys(dbName, tableSchema, tableName)) {
+            while (fks.next()) {
+                String fkColumn      = fks.getString("FKCOLUMN_NAME");
+                String pkTableName   = fks.getString("PKTABLE_NAME");
+                String pkTableSchema = fks.getString("PKTABLE_SCHEM");
+                String pkColumn      = fks.getString("PKCOLUMN_NAME");
+                String pkFullTable   = buildQualifiedTableName(dialect, pkTableSchema, pkTableName, dbName);
+                result.add(new ForeignKey(fkColumn, pkFullTable, pkColumn));
+            }
+        } catch (Exception e) {
+            log.warn("Cannot extract foreign keys for table [{}]: {}", fullTableName, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Runs the dialect's {@link DatabaseDialect#schemaProbeSql() change probe}: one catalog query
+     * returning a structure fingerprint per table, keyed by qualified table name.
+     *
+     * @return the fingerprints, or {@code null} when the dialect has no probe
+     */
+    public static Map<String, String> probe(Connections connections, DatabaseDialect dialect, String dbName)
+            throws SQLException {
+        String sql = dialect.schemaProbeSql();
+        if (sql == null) return null;
+        Map<String, String> fingerprints = new HashMap<>();
+        try (Connection conn = connections.open()) {
+            try (Statement stmt = dialect.createQueryStatement(conn, FETCH_SIZE);
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    String fullTableName = buildQualifiedTableName(
+                            dialect, rs.getString("table_schema"), rs.getString("table_name"), dbName);
+                    fingerprints.put(fullTableName, rs.getString("fingerprint"));
+                }
+            } finally {
+                dialect.finishQuery(conn);
+            }
+        }
+        return fingerprints;
+    }
+
+    /** Catalog row-count estimates keyed by {@link #key}; empty if the dialect has none or the query fails. */
+    private static Map<String, Long> readRowEstimates(Connection conn, DatabaseDialect dialect) {
+        String sql = dialect.rowEstimateSql();
+        if (sql == null) return Map.of();
+        Map<String, Long> estimates = new HashMap<>();
+        try {
+            try (Statement stmt = dialect.createQueryStatement(conn, FETCH_SIZE); ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    long rows = rs.getLong("row_estimate");
+                    if (!rs.wasNull() && rows >= 0) {
+                        estimates.put(key(rs.getString("table_schema"), rs.getString("table_name")), rows);
+                    }
+                }
+            } finally {
+                dialect.finishQuery(conn);
+            }
+        } catch (SQLException e) {
+            log.warn("Cannot read row-count estimates: {}", e.getMessage());
+        }
+        return estimates;
+    }
+
+    /** Runs {@code sql} on its own connection and returns the named string columns of every row. */
+    private static List<String[]> readRows(Connections connections, DatabaseDialect dialect, String sql,
+                                           SchemaService.SyncProgress progress, String... labels) throws SQLException {
+        List<String[]> rows = new ArrayList<>();
+        try (Connection conn = connections.open()) {
+            try (Statement stmt = dialect.createQueryStatement(conn, FETCH_SIZE);
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    String[] row = new String[labels.length];
+                    for (int i = 0; i < labels.length; i++) {
+                        row[i] = rs.getString(labels[i]);
+                    }
+                    rows.add(row);
+                }
+            } finally {
+                dialect.finishQuery(conn);
+            }
+        }
+        checkCancelled(progress);
+        return rows;
+    }
+
+    private static ExecutorService newPool(int parallelism) {
+        return Executors.newFixedThreadPool(Math.max(1, parallelism), Thread.ofVirtual().name("schema-sync-", 0).factory());
+    }
+
+    /** Waits for a worker, rethrowing its SQL or cancellation failure as-is. */
+    private static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Schema sync interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void checkCancelled(SchemaService.SyncProgress progress) {
+        if (progress != null) progress.checkCancelled();
+    }
+
+    /**
+     * Build a qualified table name with dialect-aware quoting.
+     * MySQL typically uses a single schema (the database name), so we skip the schema prefix
+     * when tableSchema is null, empty, or equals the database name.
+     */
+    static String buildQualifiedTableName(DatabaseDialect dialect, String tableSchema, String tableName, String dbName) {
+        // Skip the schema prefix for the default schema:
+        //  - MySQL: the schema equals the database name
+        //  - PostgreSQL: the default "public" schema is on the search_path, so tables are
+        //    reachable unqualified. Keeping it bare also matches listTableNames() / the tool
+        //    layer, which already use bare table names.
+        // Non-default schemas (e.g. "sales") are still qualified to avoid ambiguity.
+        boolean useSchemaPrefix = tableSchema != null && !tableSchema.isBlank()
+                && !tableSchema.equalsIgnoreCase(dbName)
+                && !"public".equalsIgnoreCase(tableSchema);
+        if (useSchemaPrefix) {
+            return dialect.quoteQualifiedTable(tableSchema, tableName);
+        }
+        return tableName;
+    }
+
+    private static String tableKey(String schema, String table) {
+        return schema + "." + table;
+    }
+
+    /** Case-insensitive key for joining {@link DatabaseDialect#rowEstimateSql()} rows to metadata tables. */
+    private static String key(String schema, String table) {
+        return (schema != null ? schema.toLowerCase() : "") + "." + table.toLowerCase();
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.SqlExample;
+import com.example.mysqlbot.model.TableRelation;
+import com.example.mysqlbot.model.TermGlossary;
+import com.example.mysqlbot.repository.TableRelationRepository;
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.Snapshot;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import com.example.mysqlbot.service.embedding.VectorIndex.Hit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lexical pre-retrieval of the tables a question is most likely about, so that their schemas and
+ * relations go straight into the SQL-generation prompt instead of costing agent tool rounds.
+ * The tools remain available for whatever the retrieval misses.
+ *
+ * <p>Questions and tables are reduced to terms: ASCII words split on {@code _} and camel case
+ * (singularized), and character bigrams for Chinese text. A table's terms come from its name
+ * (weight 3), comment (2), column names and column comments (1). The score of a table is the sum,
+ * over distinct question terms, of the best field weight times the term's inverse document
+ * frequency. The question is expanded with the definitions of glossary terms it mentions, and
+ * tables used by SQL examples whose question resembles this one get a bonus.
+ *
+ * <p>{@link VectorRetrievalService} adds what the words miss: tables whose embedding is close to
+ * the question gain up to a name match, glossary entries close to the question expand it as if
+ * they were mentioned, and example similarity is the larger of the lexical and embedding one.
+ *
+ * <p>Per-table terms are indexed once per snapshot version. Agent tool rounds are counted with and
+ * without a prefetch so the saving can be read from {@link #getStats()}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SchemaRetrievalService {
+
+    private final SchemaSnapshotService schemaSnapshotService;
+    private final TableRelationRepository tableRelationRepository;
+    private final VectorRetrievalService vectorRetrievalService;
+
+    /** Max tables whose schema is put into the prompt; 0 disables pre-retrieval. */
+    @Value("${mysqlbot.tool.prefetch-tables:5}")
+    private int prefetchTables;
+
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double TABLE_REMARKS_WEIGHT = 2.0;
+    private static final double COLUMN_WEIGHT = 1.0;
+    /** Weight of terms that come from glossary definitions or the previous question rather than the question itself. */
+    private static final double CONTEXT_TERM_WEIGHT = 0.5;
+    /** Tables scoring below this fraction of the best one are left to the tools. */
+    private static final double MIN_RELATIVE_SCORE = 0.35;
+    private static final double MIN_EXAMPLE_SIMILARITY = 0.3;
+    /** Embedding hits below this cosine similarity are ignored. */
+    private static final double MIN_VECTOR_SIMILARITY = 0.15;
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][\\w.\"`]*");
+
+    private final ConcurrentHashMap<Long, TermIndex> indexes = new ConcurrentHashMap<>();
+
+    private final AtomicLong prefetchedQuestions = new AtomicLong();
+    private final AtomicLong prefetchedToolRounds = new AtomicLong();
+    private final AtomicLong plainQuestions = new AtomicLong();
+    private final AtomicLong plainToolRounds = new AtomicLong();
+
+    /** Retrieved tables, best first, and their prompt rendering; empty when nothing scored. */
+    public record Retrieval(List<TableInfo> tables, String context) {
+        public static final Retrieval EMPTY = new Retrieval(List.of(), null);
+
+        public boolean isEmpty() {
+            return tables.isEmpty();
+        }
+    }
+
+    /**
+     * Scores the data source's tables against {@code question} (plus, at lower weight,
+     * {@code previousQuestion} for follow-ups) and renders the top ones.
+     */
+    public Retrieval retrieve(Long dataSourceId, String question, String previousQuestion,
+                              List<TermGlossary> terms, List<SqlExample> examples) {
+        if (prefetchTables <= 0 || question == null || question.isBlank()) return Retrieval.EMPTY;
+        Snapshot snapshot = schemaSnapshotService.getLatest(dataSourceId);
+        if (snapshot == null || snapshot.getTables().isEmpty()) return Retrieval.EMPTY;
+
+        TermIndex index = indexes.compute(dataSourceId,
+                (id, existing) -> existing != null && existing.snapshot == snapshot ? existing : new TermIndex(snapshot));
+
+        List<Hit> hits = vectorRetrievalService.search(dataSourceId, question, terms, examples, prefetchTables);
+        Map<String, Double> query = queryTerms(question, previousQuestion, terms, vectorKeys(hits, VectorRetrievalService.TYPE_TERM));
+        double[] scores = index.score(query);
+        addExampleBonus(scores, index, snapshot, question, examples, vectorScores(hits, VectorRetrievalService.TYPE_EXAMPLE));
+        addVectorBonus(scores, index, snapshot, vectorScores(hits, VectorRetrievalService.TYPE_TABLE));
+
+        List<TableInfo> top = topTables(snapshot.getTables(), scores);
+        if (top.isEmpty()) return Retrieval.EMPTY;
+        log.debug("Schema pre-retrieval for dataSourceId={}: {}", dataSourceId,
+                top.stream().map(TableInfo::getTableName).toList());
+        return new Retrieval(top, render(dataSourceId, top));
+    }
+
+    /** Records how many tool rounds the agent needed for one generated answer. */
+    public void recordToolRounds(boolean prefetched, int toolRounds) {
+        if (prefetched) {
+            prefetchedQuestions.incrementAndGet();
+            prefetchedToolRounds.addAndGet(toolRounds);
+        } else {
+            plainQuestions.incrementAndGet();
+            plainToolRounds.addAndGet(toolRounds);
+        }
+    }
+
+    /**
+     * Average tool rounds with and without a prefetched schema, and the estimated number of
+     * rounds saved so far (difference of averages × prefetched questions).
+     */
+    public Map<String, Object> getStats() {
+        long withCount = prefetchedQuestions.get(), withoutCount = plainQuestions.get();
+        double withAvg = withCount == 0 ? 0.0 : (double) prefetchedToolRounds.get() / withCount;
+        double withoutAvg = withoutCount == 0 ? 0.0 : (double) plainToolRounds.get() / withoutCount;
+        double saved = withCount == 0 || withoutCount == 0 ? 0.0 : (withoutAvg - withAvg) * withCount;
+        return Map.of(
+                "enabled", prefetchTables > 0,
+                "prefetchTables", prefetchTables,
+                "prefetchedQuestions", withCount,
+                "avgToolRoundsWithPrefetch", withAvg,
+                "plainQuestions", withoutCount,
+                "avgToolRoundsWithoutPrefetch", withoutAvg,
+                "estimatedRoundsSaved", saved,
+                "vector", vectorRetrievalService.getStats());
+    }
+
+    // ---------------------------------------------------------------------------
+    // Scoring
+    // ---------------------------------------------------------------------------
+
+    /** {@code similarTerms}: glossary terms whose embedding is close to the question, treated as mentioned. */
+    private static Map<String, Double> queryTerms(String question, String previousQuestion,
+                                                  List<TermGlossary> glossary, Set<String> similarTerms) {
+        Map<String, Double> query = new HashMap<>();
+        if (previousQuestion != null) {
+            for (String t : terms(previousQuestion)) query.put(t, CONTEXT_TERM_WEIGHT);
+        }
+        if (glossary != null) {
+            String lower = question.toLowerCase();
+            for (TermGlossary g : glossary) {
+                if (g.getTerm() == null || g.getTerm().isBlank()) continue;
+                if (!lower.contains(g.getTerm().toLowerCase()) && !similarTerms.contains(g.getTerm())) continue;
+                for (String t : terms(g.getDefinition())) query.putIfAbsent(t, CONTEXT_TERM_WEIGHT);
+            }
+        }
+        for (String t : terms(question)) query.put(t, 1.0);
+        return query;
+    }
+
+    /** Tables used by SQL examples whose question resembles this one score as if their name matched the rarest term, scaled by the similarity. */
+    private static void addExampleBonus(double[] scores, TermIndex index, Snapshot snapshot, String question,
+                                        List<SqlExample> examples, Map<String, Double> vectorSimilarity) {
+        if (examples == null || examples.isEmpty()) return;
+        Set<String> questionTerms = terms(question);
+        for (SqlExample example : examples) {
+            if (example.getQuestion() == null || example.getSqlQuery() == null) continue;
+            double similarity = Math.max(jaccard(questionTerms, terms(example.getQuestion())),
+                    vectorSimilarity.getOrDefault(String.valueOf(example.getId()), 0.0));
+            if (similarity < MIN_EXAMPLE_SIMILARITY) continue;
+            Set<Integer> used = new HashSet<>();
+            Matcher m = IDENTIFIER.matcher(example.getSqlQuery());
+            while (m.find()) {
+                TableInfo table = snapshot.findTable(m.group());
+                if (table != null) used.add(index.position.get(table));
+            }
+            for (int i : used) scores[i] += similarity * NAME_WEIGHT * index.maxIdf;
+        }
+    }
+
+    /** Embedding-similar tables gain up to a match on the rarest term in the name, relative to the closest table. */
+    private static void addVectorBonus(double[] scores, TermIndex index, Snapshot snapshot, Map<String, Double> similarity) {
+        double best = similarity.values().stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+        if (best <= 0) return;
+        similarity.forEach((name, sim) -> {
+            TableInfo table = snapshot.findTable(name);
+            if (table != null) scores[index.position.get(table)] += sim / best * NAME_WEIGHT * index.maxIdf;
+        });
+    }
+
+    private static Map<String, Double> vectorScores(List<Hit> hits, String type) {
+        Map<String, Double> scores = new HashMap<>();
+        for (Hit hit : hits) {
+            if (hit.entry().type().equals(type) && hit.score() >= MIN_VECTOR_SIMILARITY) {
+                scores.put(hit.entry().key(), (double) hit.score());
+            }
+        }
+        return scores;
+    }
+
+    private static Set<String> vectorKeys(List<Hit> hits, String type) {
+        return vectorScores(hits, type).keySet();
+    }
+
+    private List<TableInfo> topTables(List<TableInfo> tables, double[] scores) {
+        Integer[] order = new Integer[tables.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        double best = scores[order[0]];
+        if (best <= 0) return List.of();
+
+        List<TableInfo> top = new ArrayList<>();
+        for (int i = 0; i < order.length && top.size() < prefetchTables; i++) {
+            if (scores[order[i]] < best * MIN_RELATIVE_SCORE) break;
+            top.add(tables.get(order[i]));
+        }
+        return top;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0.0;
+        int common = 0;
+        for (String t : a) if (b.contains(t)) common++;
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    /**
+     * Lower-cased terms of free text or identifiers: ASCII words split on non-alphanumerics and
+     * camel case, singularized, at least two characters; CJK runs as character bigrams (a lone
+     * character stands for itself).
+     */
+    public static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        if (text == null) return terms;
+        StringBuilder word = new StringBuilder();
+        StringBuilder cjk = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean han = Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+            boolean ascii = c < 128 && Character.isLetterOrDigit(c);
+            boolean camelBreak = ascii && Character.isUpperCase(c) && i > 0 && word.length() > 0
+                    && Character.isLowerCase(text.charAt(i - 1));
+            if (!ascii || camelBreak) flushWord(word, terms);
+            if (!han) flushCjk(cjk, terms);
+            if (ascii) word.append(Character.toLowerCase(c));
+            if (han) cjk.append(c);
+        }
+        return terms;
+    }
+
+    private static void flushWord(StringBuilder word, Set<String> terms) {
+        if (word.length() >= 2) terms.add(TableNameIndex.singular(word.toString()));
+        word.setLength(0);
+    }
+
+    private static void flushCjk(StringBuilder cjk, Set<String> terms) {
+        if (cjk.length() == 1) terms.add(cjk.toString());
+        for (int i = 0; i + 2 <= cjk.length(); i++) terms.add(cjk.substring(i, i + 2));
+        cjk.setLength(0);
+    }
+
+    /** Term postings of one snapshot: term → tables containing it, with the best field weight per table. */
+    private static final class TermIndex {
+        final Snapshot snapshot;
+        final Map<TableInfo, Integer> position = new IdentityHashMap<>();
+        final Map<String, Map<Integer, Double>> postings = new HashMap<>();
+        final double maxIdf;
+
+        TermIndex(Snapshot snapshot) {
+            this.snapshot = snapshot;
+            List<TableInfo> tables = snapshot.getTables();
+            for (int i = 0; i < tables.size(); i++) {
+                TableInfo t = tables.get(i);
+                position.put(t, i);
+                add(i, terms(t.getSimpleName()), NAME_WEIGHT);
+                add(i, terms(t.getRemarks()), TABLE_REMARKS_WEIGHT);
+                for (ColumnInfo col : t.getColumns()) {
+                    add(i, terms(col.name()), COLUMN_WEIGHT);
+                    add(i, terms(col.remarks()), COLUMN_WEIGHT);
+                }
+            }
+            maxIdf = Math.log(1 + tables.size());
+        }
+
+        private void add(int table, Set<String> terms, double weight) {
+            for (String term : terms) {
+                postings.computeIfAbsent(term, k -> new HashMap<>()).merge(table, weight, Math::max);
+            }
+        }
+
+        double[] score(Map<String, Double> query) {
+            double[] scores = new double[snapshot.getTables().size()];
+            query.forEach((term, queryWeight) -> {
+                Map<Integer, Double> posting = postings.get(term);
+                if (posting == null) return;
+                double idf = Math.log(1 + (double) scores.length / posting.size());
+                posting.forEach((table, fieldWeight) -> scores[table] += queryWeight * fieldWeight * idf);
+            });
+            return scores;
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+    // Rendering
+    // ---------------------------------------------------------------------------
+
+    /** Compact schema lines (same format as {@code get_table_schemas}) plus relations among the tables. */
+    private String render(Long dataSourceId, List<TableInfo> tables) {
+        StringBuilder sb = new StringBuilder();
+        Set<String> names = new HashSet<>();
+        for (TableInfo t : tables) {
+            sb.append(ToolService.renderCompactSchema(t)).append("\n");
+            names.add(t.getTableName());
+        }
+        List<TableRelation> relations = tableRelationRepository.safelyFindRelationsInvolvingTables(
+                dataSourceId, new ArrayList<>(names));
+        boolean header = false;
+        for (TableRelation r : relations) {
+            if (!names.contains(r.getFromTable()) || !names.contains(r.getToTable())) continue;
+            if (!header) {
+                sb.append("表间关系：\n");
+                header = true;
+            }
+            sb.append("  ").append(r.getFromTable()).append(".").append(r.getFromColumn())
+              .append(" → ").append(r.getToTable()).append(".").append(r.getToColumn()).append("\n");
+        }
+        return sb.toString();
+    }
+}
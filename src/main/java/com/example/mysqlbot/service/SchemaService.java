@@ -5,14 +5,23 @@ import com.example.mysqlbot.model.DatabaseDialect;
 import com.example.mysqlbot.model.TableRelation;
 import com.example.mysqlbot.repository.DataSourceRepository;
 import com.example.mysqlbot.repository.TableRelationRepository;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -31,17 +40,51 @@ public class SchemaService {
     private final LlmService llmService;
     private final ConnectionPoolService connectionPoolService;
     private final SchemaCacheService schemaCacheService;
+    private final SqlGenerateCacheService sqlGenerateCacheService;
+    private final SchemaSnapshotService schemaSnapshotService;
+    private final VectorRetrievalService vectorRetrievalService;
+    private final TransactionTemplate transactionTemplate;
 
     private final java.util.Map<Long, SyncProgress> progressMap = new java.util.concurrent.ConcurrentHashMap<>();
+    private final ExecutorService syncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Max pooled connections one sync reads the catalog on, capped at half the data source's pool. */
+    @Value("${mysqlbot.schema.sync-parallelism:4}")
+    private int syncParallelism;
+
+    /** Tables per unit of work when the catalog is read table by table (DatabaseMetaData fallback). */
+    @Value("${mysqlbot.schema.sync-chunk-size:100}")
+    private int syncChunkSize;
+
+    @Value("${mysqlbot.schema.probe-enabled:true}")
+    private boolean probeEnabled;
 
     @lombok.Data
     public static class SyncProgress {
-        private int totalTables;
-        private int processedTables;
-        private String currentTable;
-        private boolean completed;
-        private String error;
-        private String status; // "extracting", "done", "error"
+        private volatile int totalTables;
+        private volatile int processedTables;
+        private volatile String currentTable;
+        private volatile boolean completed;
+        private volatile String error;
+        private volatile String status; // "extracting", "inferring", "done", "error", "cancelled"
+        /** True when only changed tables were re-read; {@link #changedTables} then counts added, altered and dropped tables. */
+        private volatile boolean incremental;
+        private volatile int changedTables;
+        @JsonIgnore
+        private volatile boolean cancelRequested;
+        @JsonIgnore
+        private volatile Future<?> task;
+
+        public synchronized void addProcessed(int tables) {
+            processedTables += tables;
+        }
+
+        /** Throws once cancellation was requested; long-running sync steps call this between units of work. */
+        public void checkCancelled() {
+            if (cancelRequested || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Schema sync cancelled");
+            }
+        }
     }
 
     public SyncProgress getSyncProgress(Long dataSourceId) {
@@ -49,23 +92,90 @@ public class SchemaService {
     }
 
     public void syncSchema(Long dataSourceId) {
-        SyncProgress progress = new SyncProgress();
-        progress.setStatus("extracting");
-        progressMap.put(dataSourceId, progress);
+        syncSchema(dataSourceId, false);
+    }
+
+    /**
+     * Starts a background sync. At most one sync runs per data source; a second request while
+     * one is in flight fails with {@link IllegalStateException}.
+     * <p>
+     * Unless {@code full} is set, the sync is incremental whenever the dialect has a change probe
+     * and the latest snapshot carries fingerprints: only added or altered tables are re-read, and
+     * relations and caches are refreshed only for added, altered and dropped tables.
+     */
+    public void syncSchema(Long dataSourceId, boolean full) {
+        SyncProgress progress = progressMap.compute(dataSourceId, (id, running) -> {
+            if (running != null && !running.isCompleted()) {
+                throw new IllegalStateException("Schema sync is already running for this data source");
+            }
+            SyncProgress fresh = new SyncProgress();
+            fresh.setStatus("extracting");
+            return fresh;
+        });
 
-        java.util.concurrent.CompletableFuture.runAsync(() -> {
+        progress.setTask(syncExecutor.submit(() -> {
             try {
-                doSyncSchema(dataSourceId, progress);
+                doSyncSchema(dataSourceId, progress, full);
             } catch (Exception e) {
-                log.error("Schema sync task failed", e);
+                if (progress.isCancelRequested()) {
+                    log.info("Schema sync for dataSourceId={} cancelled", dataSourceId);
+                    progress.setStatus("cancelled");
+                } else {
+                    log.error("Schema sync task failed", e);
+                    progress.setStatus("error");
+                    progress.setError(e.getMessage());
+                }
                 progress.setCompleted(true);
-                progress.setStatus("error");
-                progress.setError(e.getMessage());
             }
-        });
+        }));
+    }
+
+    /**
+     * Requests cancellation of the running sync. Extraction stops at the next table or chunk
+     * boundary and nothing from the cancelled run is persisted.
+     *
+     * @return {@code false} if no sync is running for the data source
+     */
+    public boolean cancelSync(Long dataSourceId) {
+        SyncProgress progress = progressMap.get(dataSourceId);
+        if (progress == null || progress.isCompleted()) return false;
+        progress.setCancelRequested(true);
+        Future<?> task = progress.getTask();
+        if (task != null) task.cancel(true);
+        return true;
+    }
+
+    /**
+     * Scheduled "has anything changed?" check: runs the one-query change probe against every
+     * synced data source and starts an incremental sync for those whose fingerprints differ
+     * from the latest snapshot. Never-synced data sources are left for the user to sync.
+     */
+    @Scheduled(fixedDelayString = "${mysqlbot.schema.probe-interval-ms:600000}",
+            initialDelayString = "${mysqlbot.schema.probe-initial-delay-ms:120000}")
+    public void probeSchemaChanges() {
+        if (!probeEnabled) return;
+        for (DataSource ds : dataSourceRepository.findAll()) {
+            SyncProgress running = progressMap.get(ds.getId());
+            if (running != null && !running.isCompleted()) continue;
+            SchemaSnapshotService.Snapshot snapshot = schemaSnapshotService.getLatest(ds.getId());
+            Map<String, String> known = snapshot != null ? snapshot.fingerprints() : null;
+            if (known == null) continue;
+            try {
+                Map<String, String> current = SchemaExtractor.probe(
+                        () -> connectionPoolService.getConnection(ds), ds.getDialect(), ds.getDbName());
+                if (current == null) continue;
+                SchemaSnapshotService.SchemaChanges changes = SchemaSnapshotService.SchemaChanges.between(known, current);
+                if (changes.isEmpty()) continue;
+                log.info("Schema change detected for data source [{}]: {} changed, {} dropped; starting incremental sync",
+                        ds.getName(), changes.changed().size(), changes.removed().size());
+                syncSchema(ds.getId(), false);
+            } catch (Exception e) {
+                log.warn("Schema change probe failed for data source [{}]: {}", ds.getName(), e.getMessage());
+            }
+        }
     }
 
-    private void doSyncSchema(Long dataSourceId, SyncProgress progress) {
+    private void doSyncSchema(Long dataSourceId, SyncProgress progress, boolean full) {
         DataSource ds = dataSourceRepository.findById(dataSourceId)
                 .orElseThrow(() -> new RuntimeException("Data source not found: " + dataSourceId));
 
@@ -73,94 +183,187 @@ public class SchemaService {
         log.info("Starting schema sync for data source [{}] (type={})...", ds.getName(), dialect.getDisplayName());
 
         try {
-            // Pass 1: collect TableMeta (columns, PKs, FKs) for relation inference
-            List<RelationInferenceService.TableMeta> tableMetas = extractTableMetas(ds, progress);
+            Map<String, String> fingerprints = probeFingerprints(ds);
+            SchemaSnapshotService.Snapshot previous = full ? null : schemaSnapshotService.getLatest(dataSourceId);
+            Map<String, String> known = previous != null ? previous.fingerprints() : null;
+
+            if (fingerprints != null && known != null) {
+                SchemaSnapshotService.SchemaChanges changes = SchemaSnapshotService.SchemaChanges.between(known, fingerprints);
+                progress.setIncremental(true);
+                progress.setChangedTables(changes.size());
+                if (changes.isEmpty()) {
+                    progress.setCompleted(true);
+                    progress.setStatus("done");
+                    log.info("Data source [{}] schema unchanged since snapshot v{}", ds.getName(), previous.getVersion());
+                    return;
+                }
+                syncIncremental(ds, previous, fingerprints, changes, progress);
+            } else {
+                syncFull(ds, fingerprints, progress);
+            }
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Schema sync failed", e);
+            throw new RuntimeException("Sync failed: " + e.getMessage(), e);
+        }
+    }
 
-            if (tableMetas.isEmpty()) {
-                log.warn("Data source [{}] has no tables", ds.getName());
-                tableRelationRepository.safelyDeleteByDataSourceIdAndSourceIn(
-                        dataSourceId, List.of("fk", "naming", "llm"));
-                progress.setCompleted(true);
-                progress.setStatus("done");
-                return;
+    /** Re-reads every table and re-infers every auto relation. */
+    private void syncFull(DataSource ds, Map<String, String> fingerprints, SyncProgress progress) throws Exception {
+        Long dataSourceId = ds.getId();
+
+        // Pass 1: read table structure
+        List<SchemaSnapshotService.TableInfo> tables = extractTables(ds, table -> true, progress);
+        applyFingerprints(tables, fingerprints);
+        progress.checkCancelled();
+        List<RelationInferenceService.TableMeta> tableMetas = toTableMetas(tables);
+
+        if (tableMetas.isEmpty()) {
+            log.warn("Data source [{}] has no tables", ds.getName());
+            tableRelationRepository.safelyDeleteByDataSourceIdAndSourceIn(
+                    dataSourceId, List.of("fk", "naming", "llm"));
+            commitSnapshot(ds, tables);
+            progress.setCompleted(true);
+            progress.setStatus("done");
+            return;
+        }
+
+        // Pass 2: infer and persist relations (connections already closed), then the snapshot
+        if (!inferRelations(ds, tableMetas, null, progress)) {
+            markPending(tables, t -> true);
+        }
+        commitSnapshot(ds, tables);
+        schemaCacheService.evictDataSource(dataSourceId);
+        sqlGenerateCacheService.evictDataSource(dataSourceId);
+
+        progress.setCompleted(true);
+        progress.setStatus("done");
+        log.info("Data source [{}] schema sync completed ({} tables, relations inferred)", ds.getName(), tableMetas.size());
+    }
+
+    /**
+     * Re-reads only added or altered tables, carries the rest over from {@code previous}, and
+     * refreshes relations and cached schemas only where added, altered or dropped tables are involved.
+     */
+    private void syncIncremental(DataSource ds, SchemaSnapshotService.Snapshot previous, Map<String, String> fingerprints,
+                                 SchemaSnapshotService.SchemaChanges changes, SyncProgress progress) throws Exception {
+        Long dataSourceId = ds.getId();
+        log.info("Incremental schema sync for data source [{}]: {} added/altered, {} dropped",
+                ds.getName(), changes.changed().size(), changes.removed().size());
+
+        List<SchemaSnapshotService.TableInfo> tables = new ArrayList<>();
+        for (SchemaSnapshotService.TableInfo t : previous.getTables()) {
+            if (!changes.affected().contains(t.getTableName())) tables.add(t);
+        }
+        List<SchemaSnapshotService.TableInfo> reread = changes.changed().isEmpty()
+                ? List.of()
+                : extractTables(ds, changes.changed()::contains, progress);
+        applyFingerprints(reread, fingerprints);
+        tables.addAll(reread);
+        progress.checkCancelled();
+
+        if (!inferRelations(ds, toTableMetas(tables), changes, progress)) {
+            // Relations of dropped tables need no LLM; drop them now so only the changed set stays pending
+            if (!changes.removed().isEmpty()) {
+                tableRelationRepository.deleteByDataSourceIdAndSourceInInvolvingTables(
+                        dataSourceId, List.of("fk", "naming", "llm"), new ArrayList<>(changes.removed()));
             }
+            markPending(tables, changes.changed()::contains);
+        }
+        commitSnapshot(ds, tables);
+        schemaCacheService.evictTables(dataSourceId, changes.affected());
+        sqlGenerateCacheService.evictDataSource(dataSourceId);
+
+        progress.setCompleted(true);
+        progress.setStatus("done");
+        log.info("Data source [{}] incremental schema sync completed ({} of {} tables re-read)",
+                ds.getName(), reread.size(), tables.size());
+    }
 
-            // Pass 2: infer and persist relations (connection already closed)
-            try {
-                inferAndSaveRelations(dataSourceId, tableMetas, dialect.getDisplayName());
-            } catch (Exception e) {
-                log.warn("Relation inference failed for dataSourceId={}, continuing schema sync. Reason: {}",
-                        dataSourceId, e.getMessage());
+    /**
+     * Infers and persists relations; {@code false} if inference failed, in which case the sync
+     * still completes but the caller keeps the affected tables pending via {@link #markPending}.
+     */
+    private boolean inferRelations(DataSource ds, List<RelationInferenceService.TableMeta> tableMetas,
+                                   SchemaSnapshotService.SchemaChanges changes, SyncProgress progress) {
+        progress.setStatus("inferring");
+        progress.setCurrentTable(null);
+        try {
+            inferAndSaveRelations(ds.getId(), tableMetas, ds.getDialect().getDisplayName(), progress, changes);
+            return true;
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Relation inference failed for dataSourceId={}, continuing schema sync. Reason: {}",
+                    ds.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Persists the snapshot, stamps the data source as synced and schedules the vector index
+     * rebuild. Runs only once relation inference has finished, so a failed or cancelled inference
+     * never leaves fingerprints claiming the tables are current.
+     */
+    private void commitSnapshot(DataSource ds, List<SchemaSnapshotService.TableInfo> tables) {
+        schemaSnapshotService.save(ds.getId(), tables);
+        DataSource updatedDs = dataSourceRepository.findById(ds.getId()).orElse(ds);
+        updatedDs.setSchemaSyncedAt(LocalDateTime.now());
+        dataSourceRepository.save(updatedDs);
+        vectorRetrievalService.refresh(ds.getId());
+    }
+
+    /**
+     * Replaces the fingerprint of the selected tables with {@link SchemaSnapshotService#PENDING_FINGERPRINT},
+     * which never matches a probe, so the next incremental sync re-reads them and re-infers their relations.
+     */
+    private static void markPending(List<SchemaSnapshotService.TableInfo> tables, Predicate<String> pending) {
+        for (SchemaSnapshotService.TableInfo t : tables) {
+            if (t.getFingerprint() != null && pending.test(t.getTableName())) {
+                t.setFingerprint(SchemaSnapshotService.PENDING_FINGERPRINT);
             }
+        }
+    }
 
-            DataSource updatedDs = dataSourceRepository.findById(dataSourceId).orElse(ds);
-            updatedDs.setSchemaSyncedAt(LocalDateTime.now());
-            dataSourceRepository.save(updatedDs);
-            schemaCacheService.evictDataSource(dataSourceId);
+    /** Relation-inference input in snapshot order (by qualified name). */
+    private static List<RelationInferenceService.TableMeta> toTableMetas(List<SchemaSnapshotService.TableInfo> tables) {
+        return tables.stream()
+                .sorted(Comparator.comparing(SchemaSnapshotService.TableInfo::getTableName))
+                .map(SchemaSnapshotService.TableInfo::toTableMeta)
+                .toList();
+    }
 
-            progress.setCompleted(true);
-            progress.setStatus("done");
-            log.info("Data source [{}] schema sync completed ({} tables, relations inferred)", ds.getName(), tableMetas.size());
+    /** Current per-table fingerprints, or {@code null} when the dialect has no probe or it fails. */
+    private Map<String, String> probeFingerprints(DataSource ds) {
+        try {
+            return SchemaExtractor.probe(() -> connectionPoolService.getConnection(ds), ds.getDialect(), ds.getDbName());
+        } catch (SQLException e) {
+            log.warn("Schema change probe failed for data source [{}], running a full sync: {}", ds.getName(), e.getMessage());
+            return null;
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Schema sync failed", e);
-            throw new RuntimeException("Sync failed: " + e.getMessage(), e);
+    private static void applyFingerprints(List<SchemaSnapshotService.TableInfo> tables, Map<String, String> fingerprints) {
+        if (fingerprints == null) return;
+        for (SchemaSnapshotService.TableInfo t : tables) {
+            t.setFingerprint(fingerprints.get(t.getTableName()));
         }
     }
 
     /**
-     * Connects to the data source and collects {@link RelationInferenceService.TableMeta}
-     * (columns, primary keys, imported foreign keys) for every table. Shared by schema
-     * sync, AI relation generation, and the schema-tables dropdown endpoint.
+     * Reads the structure (columns with types and remarks, primary keys, imported foreign keys,
+     * row-count estimate) of the tables accepted by {@code include} via {@link SchemaExtractor},
+     * spreading the work over up to {@code mysqlbot.schema.sync-parallelism} pooled connections.
+     * This live read only runs during sync; readers use the persisted {@link SchemaSnapshotService} snapshot.
      *
      * @param progress optional sync-progress sink; pass {@code null} when not syncing.
      */
-    private List<RelationInferenceService.TableMeta> extractTableMetas(DataSource ds, SyncProgress progress) throws Exception {
-        DatabaseDialect dialect = ds.getDialect();
-        List<RelationInferenceService.TableMeta> tableMetas = new ArrayList<>();
-
-        try (Connection conn = connectionPoolService.getConnection(ds)) {
-            DatabaseMetaData metaData = conn.getMetaData();
-
-            try (ResultSet tables = metaData.getTables(ds.getDbName(), null, "%", new String[] { "TABLE" })) {
-                while (tables.next()) {
-                    String tableName = tables.getString("TABLE_NAME");
-                    String tableSchema = tables.getString("TABLE_SCHEM");
-
-                    // Build qualified table name with dialect-aware logic
-                    String fullTableName = buildQualifiedTableName(dialect, tableSchema, tableName, ds.getDbName());
-
-                    if (progress != null) progress.setCurrentTable(fullTableName);
-
-                    List<String> columnNames = new ArrayList<>();
-                    try (ResultSet columns = metaData.getColumns(ds.getDbName(), tableSchema, tableName, "%")) {
-                        while (columns.next()) {
-                            columnNames.add(columns.getString("COLUMN_NAME"));
-                        }
-                    }
-
-                    List<String> primaryKeys = new ArrayList<>();
-                    try (ResultSet pks = metaData.getPrimaryKeys(ds.getDbName(), tableSchema, tableName)) {
-                        while (pks.next()) {
-                            primaryKeys.add(pks.getString("COLUMN_NAME"));
-                        }
-                    }
-
-                    if (progress != null) progress.setTotalTables(tableMetas.size() + 1);
-
-                    List<RelationInferenceService.ForeignKeyInfo> fkList =
-                            extractImportedKeys(metaData, ds, dialect, tableSchema, tableName, fullTableName);
-                    RelationInferenceService.TableMeta meta = new RelationInferenceService.TableMeta();
-                    meta.tableName = fullTableName;
-                    meta.simpleTableName = tableName;
-                    meta.columns = columnNames;
-                    meta.primaryKeys = primaryKeys;
-                    meta.importedKeys = fkList;
-                    tableMetas.add(meta);
-                }
-            }
-        }
-        return tableMetas;
+    private List<SchemaSnapshotService.TableInfo> extractTables(DataSource ds, Predicate<String> include,
+                                                                SyncProgress progress) throws Exception {
+        int parallelism = Math.max(1, Math.min(syncParallelism, ConnectionPoolService.MAX_POOL_SIZE / 2));
+        return SchemaExtractor.extract(() -> connectionPoolService.getConnection(ds), parallelism, syncChunkSize,
+                ds.getDialect(), ds.getDbName(), include, progress);
     }
 
     /**
@@ -172,7 +375,8 @@ public class SchemaService {
         DataSource ds = dataSourceRepository.findById(dataSourceId)
                 .orElseThrow(() -> new RuntimeException("Data source not found: " + dataSourceId));
 
-        List<RelationInferenceService.TableMeta> tableMetas = extractTableMetas(ds, null);
+        List<RelationInferenceService.TableMeta> tableMetas =
+                schemaSnapshotService.requireLatest(dataSourceId).toTableMetas();
         if (tableMetas.isEmpty()) return new ArrayList<>();
 
         List<RelationInferenceService.InferredRelation> inferred =
@@ -239,13 +443,10 @@ public class SchemaService {
      * Returns every table with its column list (fully-qualified table names),
      * used to drive the manual relation form's dropdowns.
      */
-    public List<Map<String, Object>> listSchemaTables(Long dataSourceId) throws Exception {
-        DataSource ds = dataSourceRepository.findById(dataSourceId)
-                .orElseThrow(() -> new RuntimeException("Data source not found: " + dataSourceId));
-        List<RelationInferenceService.TableMeta> metas = extractTableMetas(ds, null);
+    public List<Map<String, Object>> listSchemaTables(Long dataSourceId) {
         List<Map<String, Object>> result = new ArrayList<>();
-        for (RelationInferenceService.TableMeta m : metas) {
-            result.add(Map.of("table", m.tableName, "columns", m.columns));
+        for (SchemaSnapshotService.TableInfo t : schemaSnapshotService.requireLatest(dataSourceId).getTables()) {
+            result.add(Map.of("table", t.getTableName(), "columns", t.columnNames()));
         }
         return result;
     }
@@ -255,47 +456,50 @@ public class SchemaService {
     }
 
     /**
-     * Reads physical foreign-key constraints for a single table via JDBC metadata.
-     */
-    private List<RelationInferenceService.ForeignKeyInfo> extractImportedKeys(
-            DatabaseMetaData metaData, DataSource ds, DatabaseDialect dialect,
-            String tableSchema, String tableName, String fullTableName) {
-        List<RelationInferenceService.ForeignKeyInfo> result = new ArrayList<>();
-        try (ResultSet fks = metaData.getImportedKeys(ds.getDbName(), tableSchema, tableName)) {
-            while (fks.next()) {
-                String fkColumn      = fks.getString("FKCOLUMN_NAME");
-                String pkTableName   = fks.getString("PKTABLE_NAME");
-                String pkTableSchema = fks.getString("PKTABLE_SCHEM");
-                String pkColumn      = fks.getString("PKCOLUMN_NAME");
-                String pkFullTable   = buildQualifiedTableName(dialect, pkTableSchema, pkTableName, ds.getDbName());
-                result.add(new RelationInferenceService.ForeignKeyInfo(fkColumn, pkFullTable, pkColumn));
-            }
-        } catch (Exception e) {
-            log.warn("Cannot extract foreign keys for table [{}]: {}", fullTableName, e.getMessage());
-        }
-        return result;
-    }
-
-    /**
-     * Runs all three inference strategies and persists the deduplicated results.
-     * Manual relations are never touched.
+     * Runs all three inference strategies and persists the deduplicated results, replacing the
+     * previous auto-inferred relations. Manual relations are never touched.
      * <p>
-     * {@code @Transactional} ensures that the delete and saveAll happen in the same
-     * transaction — if saveAll throws, the delete is rolled back too.
+     * With {@code changes}, only relations involving an added, altered or dropped table are
+     * replaced; the LLM only gets the batches holding added/altered tables and is skipped if only drops occurred.
+     * <p>
+     * Inference (LLM calls included) runs outside any transaction; the delete and saveAll then run
+     * in one through {@link #transactionTemplate} — a self-invoked {@code @Transactional} method
+     * would bypass the proxy — so if saveAll throws, the delete is rolled back too.
      */
-    @Transactional
-    void inferAndSaveRelations(Long dataSourceId,
-                               List<RelationInferenceService.TableMeta> tableMetas,
-                               String dbEngine) {
-        // 1. Remove previously auto-inferred relations (fk / naming / llm); keep manual
-        tableRelationRepository.safelyDeleteByDataSourceIdAndSourceIn(
-                dataSourceId, List.of("fk", "naming", "llm"));
-
-        // 2. Run all three strategies
+    private void inferAndSaveRelations(Long dataSourceId,
+                                       List<RelationInferenceService.TableMeta> tableMetas,
+                                       String dbEngine,
+                                       SyncProgress progress,
+                                       SchemaSnapshotService.SchemaChanges changes) {
+        // 1. Run all three strategies
         List<RelationInferenceService.InferredRelation> all = new ArrayList<>();
         all.addAll(relationInferenceService.inferFromForeignKeys(tableMetas));
         all.addAll(relationInferenceService.inferFromNamingConventions(tableMetas));
-        all.addAll(relationInferenceService.inferFromLlm(tableMetas, llmService, dbEngine));
+        if (changes == null) {
+            all.addAll(relationInferenceService.inferFromLlm(tableMetas, llmService, dbEngine));
+        } else if (!changes.changed().isEmpty()) {
+            // Only the LLM batches that contain a changed table
+            all.addAll(relationInferenceService.inferFromLlm(tableMetas, llmService, dbEngine, changes.changed()));
+        }
+        // A cancelled sync must leave the previous relations in place
+        progress.checkCancelled();
+
+        transactionTemplate.executeWithoutResult(status -> replaceRelations(dataSourceId, all, changes));
+    }
+
+    /** Steps 2-4 of {@link #inferAndSaveRelations}; must run inside a transaction. */
+    private void replaceRelations(Long dataSourceId, List<RelationInferenceService.InferredRelation> all,
+                                  SchemaSnapshotService.SchemaChanges changes) {
+        // 2. Remove previously auto-inferred relations (fk / naming / llm); keep manual
+        if (changes == null) {
+            tableRelationRepository.safelyDeleteByDataSourceIdAndSourceIn(
+                    dataSourceId, List.of("fk", "naming", "llm"));
+        } else {
+            Set<String> affected = changes.affected();
+            all.removeIf(r -> !affected.contains(r.getFromTable()) && !affected.contains(r.getToTable()));
+            tableRelationRepository.deleteByDataSourceIdAndSourceInInvolvingTables(
+                    dataSourceId, List.of("fk", "naming", "llm"), new ArrayList<>(affected));
+        }
 
         // 3. Deduplicate: fk wins over llm wins over naming (insert fk first, putIfAbsent keeps first)
         Map<String, RelationInferenceService.InferredRelation> dedup = new LinkedHashMap<>();
@@ -338,27 +542,6 @@ public class SchemaService {
                 toSave.size(), dataSourceId);
     }
 
-    /**
-     * Build a qualified table name with dialect-aware quoting.
-     * MySQL typically uses a single schema (the database name), so we skip the schema prefix
-     * when tableSchema is null, empty, or equals the database name.
-     */
-    private String buildQualifiedTableName(DatabaseDialect dialect, String tableSchema, String tableName, String dbName) {
-        // Skip the schema prefix for the default schema:
-        //  - MySQL: the schema equals the database name
-        //  - PostgreSQL: the default "public" schema is on the search_path, so tables are
-        //    reachable unqualified. Keeping it bare also matches listTableNames() / the tool
-        //    layer, which already use bare table names.
-        // Non-default schemas (e.g. "sales") are still qualified to avoid ambiguity.
-        boolean useSchemaPrefix = tableSchema != null && !tableSchema.isBlank()
-                && !tableSchema.equalsIgnoreCase(dbName)
-                && !"public".equalsIgnoreCase(tableSchema);
-        if (useSchemaPrefix) {
-            return dialect.quoteQualifiedTable(tableSchema, tableName);
-        }
-        return tableName;
-    }
-
     public boolean testConnection(DataSource ds) {
         // ds may be a transient, unsaved entity (no id) — pool lookup is by id,
         // so use a raw connection here.
@@ -0,0 +1,361 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.SchemaSnapshot;
+import com.example.mysqlbot.model.SchemaSnapshotTable;
+import com.example.mysqlbot.repository.SchemaSnapshotRepository;
+import com.example.mysqlbot.repository.SchemaSnapshotTableRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persisted, versioned schema snapshots.
+ *
+ * <p>{@link SchemaService} writes a new version on every sync; everything else (agent tools,
+ * relation preview, the relation form dropdowns) reads the latest version from here instead of
+ * walking JDBC metadata. The latest snapshot of each data source is held in memory once loaded
+ * (a newly saved one only once its transaction has committed); older versions are pruned beyond
+ * {@code mysqlbot.schema.snapshot-retain}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SchemaSnapshotService {
+
+    /** Fingerprint of a table whose relations still need inferring; never equals a probed fingerprint. */
+    public static final String PENDING_FINGERPRINT = "pending";
+
+    private static final TypeReference<List<ColumnInfo>> COLUMNS = new TypeReference<>() {};
+    private static final TypeReference<List<String>> STRINGS = new TypeReference<>() {};
+    private static final TypeReference<List<ForeignKey>> FOREIGN_KEYS = new TypeReference<>() {};
+
+    private final SchemaSnapshotRepository snapshotRepository;
+    private final SchemaSnapshotTableRepository snapshotTableRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${mysqlbot.schema.snapshot-retain:3}")
+    private int retainVersions;
+
+    private final ConcurrentHashMap<Long, Snapshot> latest = new ConcurrentHashMap<>();
+
+    public record ColumnInfo(String name, String type, String remarks) {}
+
+    public record ForeignKey(String fkColumn, String pkTable, String pkColumn) {}
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TableInfo {
+        /** Qualified name (quoted schema prefix for non-default schemas), as used by relations. */
+        private String tableName;
+        private String simpleName;
+        private String tableSchema;
+        private String remarks;
+        private Long rowEstimate;
+        /** Structure fingerprint from {@link com.example.mysqlbot.model.DatabaseDialect#schemaProbeSql()}; null if unknown. */
+        private String fingerprint;
+        @Builder.Default
+        private List<ColumnInfo> columns = new ArrayList<>();
+        @Builder.Default
+        private List<String> primaryKeys = new ArrayList<>();
+        @Builder.Default
+        private List<ForeignKey> foreignKeys = new ArrayList<>();
+
+        public List<String> columnNames() {
+            return columns.stream().map(ColumnInfo::name).toList();
+        }
+
+        /** True when {@link #tableName} carries a schema prefix. */
+        public boolean isQualified() {
+            return !Objects.equals(tableName, simpleName);
+        }
+
+        public RelationInferenceService.TableMeta toTableMeta() {
+            RelationInferenceService.TableMeta meta = new RelationInferenceService.TableMeta();
+            meta.tableName = tableName;
+            meta.simpleTableName = simpleName;
+            meta.columns = new ArrayList<>(columnNames());
+            meta.primaryKeys = new ArrayList<>(primaryKeys);
+            for (ForeignKey fk : foreignKeys) {
+                meta.importedKeys.add(new RelationInferenceService.ForeignKeyInfo(fk.fkColumn(), fk.pkTable(), fk.pkColumn()));
+            }
+            return meta;
+        }
+    }
+
+    /**
+     * Difference between a snapshot's fingerprints and freshly probed ones, by qualified table name.
+     *
+     * @param changed tables that are new or whose fingerprint differs
+     * @param removed tables that no longer exist
+     */
+    public record SchemaChanges(Set<String> changed, Set<String> removed) {
+
+        public static SchemaChanges between(Map<String, String> known, Map<String, String> current) {
+            Set<String> changed = new TreeSet<>();
+            current.forEach((table, fingerprint) -> {
+                if (!Objects.equals(known.get(table), fingerprint)) changed.add(table);
+            });
+            Set<String> removed = new TreeSet<>(known.keySet());
+            removed.removeAll(current.keySet());
+            return new SchemaChanges(Collections.unmodifiableSet(changed), Collections.unmodifiableSet(removed));
+        }
+
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+
+        public int size() {
+            return changed.size() + removed.size();
+        }
+
+        /** Changed and removed tables together. */
+        public Set<String> affected() {
+            Set<String> all = new TreeSet<>(changed);
+            all.addAll(removed);
+            return all;
+        }
+    }
+
+    /** Immutable view of one snapshot version. */
+    public static final class Snapshot {
+        private final Long dataSourceId;
+        private final int version;
+        private final LocalDateTime createdAt;
+        private final List<TableInfo> tables;
+        /** Lower-cased qualified, unquoted-qualified and simple names → table; first table wins on clashes. */
+        private final Map<String, TableInfo> byName = new HashMap<>();
+        private volatile ColumnSearchIndex columnIndex;
+
+        Snapshot(Long dataSourceId, int version, LocalDateTime createdAt, List<TableInfo> tables) {
+            this.dataSourceId = dataSourceId;
+            this.version = version;
+            this.createdAt = createdAt;
+            List<TableInfo> sorted = new ArrayList<>(tables);
+            sorted.sort(Comparator.comparing(TableInfo::getTableName));
+            this.tables = List.copyOf(sorted);
+            for (TableInfo t : this.tables) {
+                byName.putIfAbsent(t.getTableName().toLowerCase(), t);
+            }
+            for (TableInfo t : this.tables) {
+                byName.putIfAbsent(unquote(t.getTableName()).toLowerCase(), t);
+                byName.putIfAbsent(t.getSimpleName().toLowerCase(), t);
+            }
+        }
+
+        public Long getDataSourceId() { return dataSourceId; }
+        public int getVersion() { return version; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public List<TableInfo> getTables() { return tables; }
+
+        /** Looks a table up by qualified name (quoted or not) or by bare name, case-insensitively. */
+        public TableInfo findTable(String name) {
+            if (name == null) return null;
+            TableInfo t = byName.get(name.trim().toLowerCase());
+            return t != null ? t : byName.get(unquote(name.trim()).toLowerCase());
+        }
+
+        public List<String> tableNames() {
+            return tables.stream().map(TableInfo::getTableName).toList();
+        }
+
+        /**
+         * Fingerprint per qualified table name, or {@code null} when any table lacks one
+         * (snapshot written before fingerprints existed, or by a dialect without a probe).
+         */
+        public Map<String, String> fingerprints() {
+            Map<String, String> result = new HashMap<>();
+            for (TableInfo t : tables) {
+                if (t.getFingerprint() == null) return null;
+                result.put(t.getTableName(), t.getFingerprint());
+            }
+            return result;
+        }
+
+        public List<RelationInferenceService.TableMeta> toTableMetas() {
+            return tables.stream().map(TableInfo::toTableMeta).toList();
+        }
+
+        /** Column-name search index, built on first use or carried over from the previous version. */
+        public ColumnSearchIndex columnIndex() {
+            ColumnSearchIndex index = columnIndex;
+            if (index != null) return index;
+            synchronized (this) {
+                if (columnIndex == null) columnIndex = ColumnSearchIndex.build(tables);
+                return columnIndex;
+            }
+        }
+
+        /**
+         * Derives this version's index from {@code previous}'s, if it was built, re-indexing only the
+         * tables that changed. {@code previous}'s index is left as it was for readers still holding it.
+         */
+        void inheritColumnIndex(Snapshot previous) {
+            ColumnSearchIndex index = previous.columnIndex;
+            if (index == null) return;
+            ColumnSearchIndex updated = index.update(tables);
+            columnIndex = updated;
+            log.debug("Column search index for dataSourceId={} updated incrementally ({} tables re-indexed)",
+                    dataSourceId, updated.reindexedTables());
+        }
+
+        private static String unquote(String name) {
+            return name.replace("\"", "").replace("`", "");
+        }
+    }
+
+    /** Latest snapshot of the data source, or {@code null} if it has never been synced. */
+    public Snapshot getLatest(Long dataSourceId) {
+        Snapshot cached = latest.get(dataSourceId);
+        if (cached != null) return cached;
+        Snapshot loaded = snapshotRepository.findTopByDataSourceIdOrderByVersionDesc(dataSourceId)
+                .map(this::load)
+                .orElse(null);
+        // a save may have published a newer version while this one was loading
+        return loaded != null ? publish(loaded) : null;
+    }
+
+    /** Like {@link #getLatest} but fails with a user-facing message when no sync has run yet. */
+    public Snapshot requireLatest(Long dataSourceId) {
+        Snapshot snapshot = getLatest(dataSourceId);
+        if (snapshot == null) {
+            throw new IllegalStateException("Schema has not been synced yet, please sync the data source first");
+        }
+        return snapshot;
+    }
+
+    /** Persists {@code tables} as the next version and prunes old versions. */
+    @Transactional
+    public Snapshot save(Long dataSourceId, List<TableInfo> tables) {
+        int version = snapshotRepository.findTopByDataSourceIdOrderByVersionDesc(dataSourceId)
+                .map(s -> s.getVersion() + 1)
+                .orElse(1);
+        SchemaSnapshot header = snapshotRepository.save(SchemaSnapshot.builder()
+                .dataSourceId(dataSourceId)
+                .version(version)
+                .tableCount(tables.size())
+                .build());
+
+        List<SchemaSnapshotTable> rows = new ArrayList<>(tables.size());
+        for (TableInfo t : tables) {
+            rows.add(SchemaSnapshotTable.builder()
+                    .snapshotId(header.getId())
+                    .tableName(t.getTableName())
+                    .simpleName(t.getSimpleName())
+                    .tableSchema(t.getTableSchema())
+                    .remarks(t.getRemarks())
+                    .rowEstimate(t.getRowEstimate())
+                    .fingerprint(t.getFingerprint())
+                    .columnsJson(toJson(t.getColumns()))
+                    .primaryKeysJson(toJson(t.getPrimaryKeys()))
+                    .foreignKeysJson(toJson(t.getForeignKeys()))
+                    .build());
+        }
+        snapshotTableRepository.saveAll(rows);
+        prune(dataSourceId);
+
+        Snapshot snapshot = new Snapshot(dataSourceId, version, header.getCreatedAt(), tables);
+        Snapshot previous = latest.get(dataSourceId);
+        if (previous != null) snapshot.inheritColumnIndex(previous);
+        publishAfterCommit(snapshot);
+        log.info("Schema snapshot v{} saved for dataSourceId={} ({} tables)", version, dataSourceId, tables.size());
+        return snapshot;
+    }
+
+    /**
+     * Makes {@code snapshot} the cached latest version once the surrounding transaction commits,
+     * so a rollback never leaves readers on a version that was not persisted.
+     */
+    private void publishAfterCommit(Snapshot snapshot) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(snapshot);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(snapshot);
+            }
+        });
+    }
+
+    /** Caches {@code snapshot} unless a newer version already is; returns the cached one. */
+    private Snapshot publish(Snapshot snapshot) {
+        return latest.merge(snapshot.getDataSourceId(), snapshot,
+                (current, saved) -> saved.getVersion() >= current.getVersion() ? saved : current);
+    }
+
+    /** Removes every snapshot of a deleted data source. */
+    @Transactional
+    public void deleteDataSource(Long dataSourceId) {
+        List<SchemaSnapshot> all = snapshotRepository.findByDataSourceIdOrderByVersionDesc(dataSourceId);
+        if (!all.isEmpty()) {
+            snapshotTableRepository.deleteBySnapshotIdIn(all.stream().map(SchemaSnapshot::getId).toList());
+            snapshotRepository.deleteAll(all);
+        }
+        latest.remove(dataSourceId);
+    }
+
+    private void prune(Long dataSourceId) {
+        List<SchemaSnapshot> all = snapshotRepository.findByDataSourceIdOrderByVersionDesc(dataSourceId);
+        if (all.size() <= Math.max(1, retainVersions)) return;
+        List<SchemaSnapshot> stale = all.subList(Math.max(1, retainVersions), all.size());
+        snapshotTableRepository.deleteBySnapshotIdIn(stale.stream().map(SchemaSnapshot::getId).toList());
+        snapshotRepository.deleteAll(stale);
+        log.debug("Pruned {} old schema snapshot(s) for dataSourceId={}", stale.size(), dataSourceId);
+    }
+
+    private Snapshot load(SchemaSnapshot header) {
+        List<SchemaSnapshotTable> rows = snapshotTableRepository.findBySnapshotId(header.getId());
+        List<TableInfo> tables = new ArrayList<>(rows.size());
+        for (SchemaSnapshotTable row : rows) {
+            tables.add(TableInfo.builder()
+                    .tableName(row.getTableName())
+                    .simpleName(row.getSimpleName())
+                    .tableSchema(row.getTableSchema())
+                    .remarks(row.getRemarks())
+                    .rowEstimate(row.getRowEstimate())
+                    .fingerprint(row.getFingerprint())
+                    .columns(fromJson(row.getColumnsJson(), COLUMNS))
+                    .primaryKeys(fromJson(row.getPrimaryKeysJson(), STRINGS))
+                    .foreignKeys(fromJson(row.getForeignKeysJson(), FOREIGN_KEYS))
+                    .build());
+        }
+        log.info("Schema snapshot v{} loaded for dataSourceId={} ({} tables)",
+                header.getVersion(), header.getDataSourceId(), tables.size());
+        return new Snapshot(header.getDataSourceId(), header.getVersion(), header.getCreatedAt(), tables);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize schema snapshot", e);
+        }
+    }
+
+    private <T> List<T> fromJson(String json, TypeReference<List<T>> type) {
+        if (json == null || json.isBlank()) return new ArrayList<>();
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt schema snapshot row", e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.SqlExample;
+import com.example.mysqlbot.repository.SqlExampleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Few-shot selection: instead of putting every curated {@link SqlExample} of a data source into
+ * the SQL-generation prompt, only the ones most similar to the question are used.
+ *
+ * <p>Examples are ranked with BM25 over the terms of their question and description (see
+ * {@link SchemaRetrievalService#terms}), then taken best first until
+ * {@code mysqlbot.few-shot.max-examples} or the {@code mysqlbot.few-shot.token-budget} is reached.
+ * Each data source's examples and their term postings are loaded once and kept in memory until
+ * {@link #evict} is called by a knowledge-base write, so a request no longer queries them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SqlExampleSelectionService {
+
+    private final SqlExampleRepository sqlExampleRepository;
+
+    /** Max examples per prompt; 0 disables examples. */
+    @Value("${mysqlbot.few-shot.max-examples:5}")
+    private int maxExamples;
+
+    /** Estimated prompt tokens the selected examples may take. */
+    @Value("${mysqlbot.few-shot.token-budget:1500}")
+    private int tokenBudget;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ConcurrentHashMap<Long, Corpus> corpora = new ConcurrentHashMap<>();
+
+    /** All examples of the data source, from the in-memory corpus. */
+    public List<SqlExample> examples(Long dataSourceId) {
+        return corpus(dataSourceId).examples;
+    }
+
+    /** Changes whenever the data source's examples do; part of the generated-SQL cache key. */
+    public String fingerprint(Long dataSourceId) {
+        return corpus(dataSourceId).fingerprint;
+    }
+
+    /** The examples most relevant to {@code question}, best first, within the count and token budget. */
+    public List<SqlExample> select(Long dataSourceId, String question) {
+        Corpus corpus = corpus(dataSourceId);
+        if (maxExamples <= 0 || corpus.examples.isEmpty() || question == null) return List.of();
+        double[] scores = corpus.score(SchemaRetrievalService.terms(question));
+
+        Integer[] order = new Integer[scores.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        List<SqlExample> selected = new ArrayList<>();
+        int tokens = 0;
+        for (int i = 0; i < order.length && selected.size() < maxExamples; i++) {
+            if (scores[order[i]] <= 0) break;
+            SqlExample example = corpus.examples.get(order[i]);
+            int cost = estimateTokens(render(example));
+            if (tokens + cost > tokenBudget) continue;
+            selected.add(example);
+            tokens += cost;
+        }
+        log.debug("Selected {} of {} SQL examples (~{} tokens) for dataSourceId={}",
+                selected.size(), corpus.examples.size(), tokens, dataSourceId);
+        return selected;
+    }
+
+    /** Drops the cached corpus of one data source; the next request reloads it. */
+    public void evict(Long dataSourceId) {
+        if (dataSourceId != null) corpora.remove(dataSourceId);
+    }
+
+    public void evictAll() {
+        corpora.clear();
+    }
+
+    /** Prompt rendering of one example. */
+    public static String render(SqlExample example) {
+        return "Q: " + example.getQuestion() + "\nSQL: " + example.getSqlQuery();
+    }
+
+    /**
+     * Rough token count for budgeting without a tokenizer: one per CJK character, one per four
+     * other characters.
+     */
+    static int estimateTokens(String text) {
+        int cjk = 0, other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) cjk++;
+            else other++;
+        }
+        return cjk + (other + 3) / 4;
+    }
+
+    private Corpus corpus(Long dataSourceId) {
+        // computeIfAbsent blocks a concurrent evict of the same key until loading is done,
+        // so a corpus loaded before a write is never cached after it
+        return corpora.computeIfAbsent(dataSourceId, id -> new Corpus(sqlExampleRepository.findByDataSourceId(id)));
+    }
+
+    /** Examples of one data source with BM25 postings over their terms. */
+    private static final class Corpus {
+        final List<SqlExample> examples;
+        final String fingerprint;
+        final Map<String, int[]> postings = new HashMap<>();
+        final int[] lengths;
+        final double avgLength;
+
+        Corpus(List<SqlExample> examples) {
+            this.examples = List.copyOf(examples);
+            this.lengths = new int[examples.size()];
+            Map<String, List<Integer>> docs = new HashMap<>();
+            long hash = 1125899906842597L;
+            long total = 0;
+            for (int i = 0; i < examples.size(); i++) {
+                SqlExample e = examples.get(i);
+                hash = 31 * hash + Objects.hash(e.getId(), e.getQuestion(), e.getSqlQuery(), e.getDescription());
+                Set<String> terms = SchemaRetrievalService.terms(
+                        Objects.toString(e.getQuestion(), "") + " " + Objects.toString(e.getDescription(), ""));
+                for (String term : terms) docs.computeIfAbsent(term, k -> new ArrayList<>()).add(i);
+                lengths[i] = terms.size();
+                total += terms.size();
+            }
+            docs.forEach((term, ids) -> postings.put(term, ids.stream().mapToInt(Integer::intValue).toArray()));
+            this.avgLength = examples.isEmpty() ? 0 : Math.max(1.0, (double) total / examples.size());
+            this.fingerprint = examples.size() + ":" + Long.toHexString(hash);
+        }
+
+        /** BM25 with binary term frequency: question and example texts are short enough that repeats carry no signal. */
+        double[] score(Set<String> queryTerms) {
+            int n = examples.size();
+            double[] scores = new double[n];
+            for (String term : queryTerms) {
+                int[] docs = postings.get(term);
+                if (docs == null) continue;
+                double idf = Math.log(1 + (n - docs.length + 0.5) / (docs.length + 0.5));
+                for (int doc : docs) {
+                    scores[doc] += idf * (K1 + 1) / (1 + K1 * (1 - B + B * lengths[doc] / avgLength));
+                }
+            }
+            return scores;
+        }
+    }
+}
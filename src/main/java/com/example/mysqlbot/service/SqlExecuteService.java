@@ -1,7 +1,13 @@
 package com.example.mysqlbot.service;
 
 import com.example.mysqlbot.model.DataSource;
+import com.example.mysqlbot.model.DatabaseDialect;
 import com.example.mysqlbot.repository.DataSourceRepository;
+import com.example.mysqlbot.security.SecurityContext;
+import com.example.mysqlbot.service.result.ColumnarResult;
+import com.example.mysqlbot.service.result.ColumnarResultBuilder;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
@@ -12,6 +18,7 @@ import org.springframework.stereotype.Service;
 
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -25,6 +32,9 @@ public class SqlExecuteService {
 
     private final DataSourceRepository dataSourceRepository;
     private final ConnectionPoolService connectionPoolService;
+    private final SqlResultCacheService sqlResultCacheService;
+    private final MetricsService metricsService;
+    private final TraceService traceService;
 
     @Value("${mysqlbot.sql.allow-only-select:true}")
     private boolean allowOnlySelect;
@@ -35,6 +45,24 @@ public class SqlExecuteService {
     @Value("${mysqlbot.sql.timeout-seconds:30}")
     private int timeoutSeconds;
 
+    /** Rows per round trip; see {@link DatabaseDialect#createQueryStatement} for how each driver applies it. */
+    @Value("${mysqlbot.sql.fetch-size:200}")
+    private int fetchSize;
+
+    /** Per-query budget for buffered result values; larger results are aborted early. */
+    @Value("${mysqlbot.sql.max-result-mb:64}")
+    private int maxResultMb;
+
+    /** Rows per {@link RowChunk} pushed to a streaming listener. */
+    @Value("${mysqlbot.sql.stream-chunk-size:200}")
+    private int streamChunkSize;
+
+    /** First allocation of the column buffers; they grow by doubling up to {@code max-rows}. */
+    private static final int INITIAL_ROW_CAPACITY = 256;
+
+    /** The memory budget is re-checked every this many rows. */
+    private static final int BUDGET_CHECK_INTERVAL = 256;
+
     private static final Pattern[] DANGEROUS_KEYWORD_PATTERNS;
     static {
         List<String> keywords = List.of("INSERT", "UPDATE", "DELETE", "DROP", "CREATE", "ALTER", "TRUNCATE", "EXEC", "EXECUTE");
@@ -44,46 +72,128 @@ public class SqlExecuteService {
     }
 
     public SqlExecuteResult execute(String sql, Long dataSourceId) {
+        return execute(sql, dataSourceId, null);
+    }
+
+    /**
+     * Executes the query and, when {@code chunkListener} is given, pushes rows to it in chunks of
+     * {@code mysqlbot.sql.stream-chunk-size} as the cursor advances. The returned result still
+     * holds every row (bounded by {@code max-rows}) for charting and persistence.
+     */
+    public SqlExecuteResult execute(String sql, Long dataSourceId, Consumer<RowChunk> chunkListener) {
+        return traceService.inSpan("sql.execute", () -> {
+            traceService.tag("data_source.id", dataSourceId);
+            SqlExecuteResult result = executeInSpan(sql, dataSourceId, chunkListener);
+            traceService.tag("sql.success", result.isSuccess());
+            traceService.tag("sql.rows", result.getRowCount());
+            return result;
+        });
+    }
+
+    private SqlExecuteResult executeInSpan(String sql, Long dataSourceId, Consumer<RowChunk> chunkListener) {
         validateSql(sql);
 
         DataSource ds = dataSourceRepository.findById(dataSourceId)
                 .orElseThrow(() -> new RuntimeException("Data source not found: " + dataSourceId));
 
-        log.info("Executing SQL [dataSource={}]: {}", ds.getName(), sql);
-
-        try (Connection conn = connectionPoolService.getConnection(ds);
-             java.sql.Statement stmt = conn.createStatement()) {
+        Integer cacheTtl = ds.getResultCacheTtlSeconds();
+        boolean cacheable = sqlResultCacheService.isEnabled() && cacheTtl != null && cacheTtl > 0;
+        String cacheKey = cacheable
+                ? sqlResultCacheService.buildKey(dataSourceId, sql, SecurityContext.getPermissionRule())
+                : null;
+        long start = System.nanoTime();
+        if (cacheable) {
+            SqlExecuteResult cached = sqlResultCacheService.get(cacheKey);
+            if (cached != null) {
+                log.info("SQL result served from cache [dataSource={}], {} rows", ds.getName(), cached.getRowCount());
+                traceService.tag("sql.cached", true);
+                SqlExecuteResult replayed = replayCached(cached, sql, chunkListener);
+                metricsService.recordSqlExecution(dataSourceId, System.nanoTime() - start, true, true, replayed.getRowCount());
+                return replayed;
+            }
+        }
 
-            stmt.setQueryTimeout(timeoutSeconds);
-            stmt.setMaxRows(maxRows);
+        log.info("Executing SQL [dataSource={}]: {}", ds.getName(), sql);
+        SqlExecuteResult result = traceService.inSpan("sql.jdbc", () -> runQuery(sql, ds, chunkListener));
+        metricsService.recordSqlExecution(dataSourceId, System.nanoTime() - start, result.isSuccess(), false,
+                result.getRowCount());
+        if (cacheable && result.isSuccess()) {
+            sqlResultCacheService.put(cacheKey, dataSourceId, result, cacheTtl);
+        }
+        return result;
+    }
 
-            try (ResultSet rs = stmt.executeQuery(sql)) {
-                ResultSetMetaData metaData = rs.getMetaData();
-                int columnCount = metaData.getColumnCount();
+    /** Emits a cached result to the chunk listener and returns a copy bound to the requested SQL text. */
+    private SqlExecuteResult replayCached(SqlExecuteResult cached, String sql, Consumer<RowChunk> chunkListener) {
+        ColumnarResult data = cached.getData();
+        if (chunkListener != null) {
+            for (int from = 0; from < data.getRowCount(); from += streamChunkSize) {
+                int to = Math.min(from + streamChunkSize, data.getRowCount());
+                chunkListener.accept(new RowChunk(data.getColumns(), data.asRowMaps(from, to), from));
+            }
+        }
+        return SqlExecuteResult.builder()
+                .success(true)
+                .columns(cached.getColumns())
+                .data(data)
+                .rowCount(cached.getRowCount())
+                .truncated(cached.isTruncated())
+                .sql(sql)
+                .build();
+    }
 
-                List<String> columns = new ArrayList<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    columns.add(metaData.getColumnLabel(i));
-                }
+    private SqlExecuteResult runQuery(String sql, DataSource ds, Consumer<RowChunk> chunkListener) {
+        DatabaseDialect dialect = ds.getDialect();
+        try (Connection conn = connectionPoolService.getConnection(ds)) {
+            try (java.sql.Statement stmt = dialect.createQueryStatement(conn, Math.min(fetchSize, maxRows))) {
+                stmt.setQueryTimeout(timeoutSeconds);
+                // one row past the limit tells a truncated result from one that has exactly max-rows
+                stmt.setMaxRows(maxRows < Integer.MAX_VALUE ? maxRows + 1 : maxRows);
 
-                List<Map<String, Object>> rows = new ArrayList<>();
-                while (rs.next()) {
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        Object value = rs.getObject(i);
-                        row.put(columns.get(i - 1), value);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    ColumnarResultBuilder builder = ColumnarResultBuilder.forResultSet(
+                            rs.getMetaData(), Math.min(maxRows, INITIAL_ROW_CAPACITY));
+                    long budgetBytes = maxResultMb * 1024L * 1024L;
+                    int emitted = 0;
+                    boolean truncated = false;
+                    while (rs.next()) {
+                        if (builder.rowCount() == maxRows) {
+                            truncated = true;
+                            break;
+                        }
+                        builder.appendRow(rs);
+                        if (builder.rowCount() % BUDGET_CHECK_INTERVAL == 0 && builder.estimatedBytes() > budgetBytes) {
+                            log.warn("SQL result exceeded memory budget ({} MB) after {} rows: {}",
+                                    maxResultMb, builder.rowCount(), sql);
+                            cancelQuietly(stmt);
+                            return SqlExecuteResult.builder()
+                                    .success(false)
+                                    .errorMessage("Query result exceeds the " + maxResultMb + " MB memory budget after "
+                                            + builder.rowCount() + " rows, please add filters, aggregation or a LIMIT")
+                                    .sql(sql)
+                                    .build();
+                        }
+                        if (chunkListener != null && builder.rowCount() - emitted >= streamChunkSize) {
+                            emitted = emitChunk(builder, emitted, chunkListener);
+                        }
                     }
-                    rows.add(row);
-                }
+                    if (chunkListener != null && builder.rowCount() > emitted) {
+                        emitChunk(builder, emitted, chunkListener);
+                    }
+                    ColumnarResult data = builder.build();
 
-                log.info("SQL executed successfully, returned {} rows", rows.size());
-                return SqlExecuteResult.builder()
-                        .success(true)
-                        .columns(columns)
-                        .rows(rows)
-                        .rowCount(rows.size())
-                        .sql(sql)
-                        .build();
+                    log.info("SQL executed successfully, returned {} rows", data.getRowCount());
+                    return SqlExecuteResult.builder()
+                            .success(true)
+                            .columns(data.getColumns())
+                            .data(data)
+                            .rowCount(data.getRowCount())
+                            .truncated(truncated)
+                            .sql(sql)
+                            .build();
+                }
+            } finally {
+                dialect.finishQuery(conn);
             }
 
         } catch (SQLTimeoutException e) {
@@ -103,6 +213,23 @@ public class SqlExecuteService {
         }
     }
 
+    /** Stops the server-side query so closing a streaming result set does not drain the remaining rows. */
+    private void cancelQuietly(java.sql.Statement stmt) {
+        try {
+            stmt.cancel();
+        } catch (SQLException e) {
+            log.debug("Failed to cancel statement: {}", e.getMessage());
+        }
+    }
+
+    /** Sends rows {@code [from, rowCount)} to the listener and returns the new emitted offset. */
+    private int emitChunk(ColumnarResultBuilder builder, int from, Consumer<RowChunk> listener) {
+        ColumnarResult snapshot = builder.build();
+        int to = snapshot.getRowCount();
+        listener.accept(new RowChunk(snapshot.getColumns(), snapshot.asRowMaps(from, to), from));
+        return to;
+    }
+
     private void validateSql(String sql) {
         if (sql == null || sql.trim().isEmpty()) {
             throw new IllegalArgumentException("SQL cannot be empty");
@@ -134,9 +261,34 @@ public class SqlExecuteService {
     public static class SqlExecuteResult {
         private boolean success;
         private List<String> columns;
-        private List<Map<String, Object>> rows;
+        /** Result values, column-oriented. Serialized as {@code rows} (array of objects). */
+        @JsonIgnore
+        private ColumnarResult data;
         private int rowCount;
+        /** True when the result stopped at {@code mysqlbot.sql.max-rows}; further rows were not read. */
+        private boolean truncated;
         private String sql;
         private String errorMessage;
+
+        /** Row-oriented view of {@link #data}, kept for JSON and existing callers. */
+        @JsonSerialize(using = ColumnarResult.RowsSerializer.class)
+        public List<Map<String, Object>> getRows() {
+            return data != null ? data.asRowMaps() : null;
+        }
+
+        public void setRows(List<Map<String, Object>> rows) {
+            this.data = rows != null ? ColumnarResult.fromRows(rows) : null;
+        }
+    }
+
+    /** A contiguous slice of a result, pushed while the query is still being read. */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    public static class RowChunk {
+        private List<String> columns;
+        @JsonSerialize(using = ColumnarResult.RowsSerializer.class)
+        private List<Map<String, Object>> rows;
+        /** Index of the first row of this chunk within the whole result. */
+        private int offset;
     }
 }
@@ -0,0 +1,178 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * LRU + TTL cache of generated SQL, in front of the SQL-generation agent loop.
+ *
+ * <p>The key covers everything that shapes the answer: data source, LLM config and thinking
+ * mode, normalized question, preceding conversation turns, the term-glossary / SQL-example set,
+ * and the schema-sync timestamp. A schema re-sync or a knowledge-base edit therefore yields new keys, and stale
+ * entries simply age out. Values are the raw LLM responses, so a hit is parsed (and replayed
+ * to streaming clients) exactly like a fresh answer.
+ */
+@Slf4j
+@Service
+public class SqlGenerateCacheService {
+
+    private record CacheEntry(Long dataSourceId, String llmResponse, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}\\p{IsPunctuation}\\s]+$");
+
+    @Value("${mysqlbot.cache.sql-generate.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mysqlbot.cache.sql-generate.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${mysqlbot.cache.sql-generate.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    /** Access-ordered map; guarded by {@code this}. */
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Builds the cache key for one generation request.
+     *
+     * @param llmConfigId  LLM config answering the request; null for the default one
+     * @param thinking     whether the model is asked to think before answering
+     * @param knowledge    rendered glossary + examples exactly as injected into the prompt
+     * @param conversation conversation window; the trailing turn equal to {@code question} is ignored
+     */
+    public String buildKey(Long dataSourceId, Long llmConfigId, boolean thinking, LocalDateTime schemaSyncedAt,
+                           String knowledge, String question, List<ChatMessage> conversation) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(llmConfigId).append('\u0000')
+          .append(thinking).append('\u0000')
+          .append(schemaSyncedAt).append('\u0000')
+          .append(knowledge).append('\u0000')
+          .append(normalizeQuestion(question)).append('\u0000');
+        if (conversation != null) {
+            int end = conversation.size();
+            ChatMessage last = end > 0 ? conversation.get(end - 1) : null;
+            if (last != null && "user".equals(last.getRole()) && question != null && question.equals(last.getContent())) {
+                end--;
+            }
+            for (int i = 0; i < end; i++) {
+                ChatMessage m = conversation.get(i);
+                sb.append(m.getRole()).append(':').append(m.getContent())
+                  .append(':').append(m.getSqlQuery()).append('\u0000');
+            }
+        }
+        return "ds:" + dataSourceId + ":" + sha256(sb.toString());
+    }
+
+    /** Returns the cached raw LLM response, or {@code null} on a miss. */
+    public String get(String key) {
+        if (!enabled || key == null) return null;
+        CacheEntry entry;
+        synchronized (this) {
+            entry = cache.get(key);
+            if (entry != null && entry.isExpired()) {
+                cache.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        log.debug("SQL generate cache HIT: {}", key);
+        return entry.llmResponse();
+    }
+
+    public void put(String key, Long dataSourceId, String llmResponse) {
+        if (!enabled || key == null || llmResponse == null) return;
+        long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        synchronized (this) {
+            cache.put(key, new CacheEntry(dataSourceId, llmResponse, expiresAt));
+        }
+    }
+
+    /** Drops a single entry, e.g. when its SQL failed to execute. */
+    public synchronized void evict(String key) {
+        if (key != null && cache.remove(key) != null) {
+            log.info("SQL generate cache: evicted failing entry {}", key);
+        }
+    }
+
+    /** Removes all cached entries for the given data source (schema sync, config change). */
+    public synchronized void evictDataSource(Long dataSourceId) {
+        int before = cache.size();
+        cache.values().removeIf(e -> dataSourceId.equals(e.dataSourceId()));
+        int removed = before - cache.size();
+        if (removed > 0) {
+            log.info("SQL generate cache: evicted {} entries for dataSourceId={}", removed, dataSourceId);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.get(), m = misses.get();
+        int size;
+        synchronized (this) {
+            size = cache.size();
+        }
+        return Map.of(
+                "enabled", enabled,
+                "size", size,
+                "maxEntries", maxEntries,
+                "hits", h,
+                "misses", m,
+                "evictions", evictions.get(),
+                "hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+    }
+
+    /**
+     * Canonical form of a question: NFKC (full-width → half-width), lower case, collapsed
+     * whitespace, trailing punctuation removed. "本月销售额是多少？" and "本月销售额是多少" share a key.
+     */
+    static String normalizeQuestion(String question) {
+        if (question == null) return "";
+        String s = Normalizer.normalize(question, Normalizer.Form.NFKC).toLowerCase();
+        s = WHITESPACE.matcher(s.trim()).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(s).replaceAll("");
+    }
+
+    private static String sha256(String s) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -8,30 +8,32 @@ import com.example.mysqlbot.model.DatabaseDialect;
 import com.example.mysqlbot.model.LlmConfig;
 import com.example.mysqlbot.model.TermGlossary;
 import com.example.mysqlbot.repository.DataSourceRepository;
-import com.example.mysqlbot.repository.SqlExampleRepository;
-import com.example.mysqlbot.repository.TermGlossaryRepository;
 import com.example.mysqlbot.util.OpenAiLlmUtil;
+import com.example.mysqlbot.util.PromptTemplate;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
-import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
- * SQL generation service — pure LLM tool-driven mode.
- * The LLM receives a table-name list as a starting hint and uses tools
- * (get_table_schema, get_table_relations, etc.) to explore the schema before
- * generating SQL. No vector retrieval (RAG) is performed.
+ * SQL generation service — LLM tool-driven mode.
+ * The LLM receives a table-name list as a starting hint, plus the schemas and relations of
+ * the tables {@link SchemaRetrievalService} scores as most relevant to the question (lexical
+ * scoring combined with embedding retrieval from {@link VectorRetrievalService}), and uses
+ * tools (get_table_schemas, get_table_relations, etc.) to explore the rest of the schema before
+ * generating SQL.
  */
 @Slf4j
 @Service
@@ -39,25 +41,35 @@ import java.util.stream.Collectors;
 public class SqlGenerateService {
 
     private final AppConfig appConfig;
-    private final TermGlossaryRepository termGlossaryRepository;
-    private final SqlExampleRepository sqlExampleRepository;
+    private final TermGlossaryMatchService termGlossaryMatchService;
+    private final SqlExampleSelectionService sqlExampleSelectionService;
     private final DataSourceRepository dataSourceRepository;
     private final LlmService llmService;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
     private final ToolService toolService;
     private final AgentService agentService;
+    private final SqlGenerateCacheService sqlGenerateCacheService;
+    private final SchemaRetrievalService schemaRetrievalService;
 
     @Value("${mysqlbot.sql.max-retry:3}")
     private int maxRetry;
 
-    private String sqlGeneratePrompt;
+    private PromptTemplate sqlGeneratePrompt;
+
+    /** sql-generate.st with one data source's static placeholders bound. */
+    private record StaticPrompt(DatabaseDialect dialect, LocalDateTime schemaSyncedAt, PromptTemplate template) {}
+
+    private final ConcurrentHashMap<Long, StaticPrompt> staticPrompts = new ConcurrentHashMap<>();
+
+    /** Earlier user turns, besides the question, whose glossary terms are injected. */
+    private static final int GLOSSARY_HISTORY_TURNS = 2;
 
     private static final Pattern SQL_PATTERN = Pattern.compile(
             "```sql\\s*([\\s\\S]+?)\\s*```", Pattern.CASE_INSENSITIVE);
 
     @PostConstruct
     public void init() {
-        sqlGeneratePrompt = loadResource("prompts/sql-generate.st");
+        sqlGeneratePrompt = PromptTemplate.load("prompts/sql-generate.st");
         log.info("SqlGenerateService: prompt template cached ({} chars)", sqlGeneratePrompt.length());
     }
 
@@ -67,29 +79,93 @@ public class SqlGenerateService {
 
     public SqlGenerateResult generate(String question, Long dataSourceId,
                                       List<ChatMessage> conversation, LlmConfig llmConfig) {
-        List<Map<String, Object>> messages = buildMessages(question, dataSourceId, conversation);
+        PromptContext context = loadPromptContext(dataSourceId, question, conversation);
+        String cacheKey = sqlGenerateCacheService.buildKey(dataSourceId, llmConfigId(llmConfig), false,
+                context.schemaSyncedAt(), context.knowledge(), question, conversation);
+        String cached = sqlGenerateCacheService.get(cacheKey);
+        if (cached != null) {
+            log.debug("generate: cache hit, dataSourceId={}", dataSourceId);
+            return withCacheKey(parseLlmResponse(cached, dataSourceId), cacheKey);
+        }
+
+        SchemaRetrievalService.Retrieval retrieval = retrieve(question, dataSourceId, context, conversation);
+        List<Map<String, Object>> messages = buildMessages(question, dataSourceId, context, retrieval, conversation);
         List<Map<String, Object>> tools = toolService.getToolDefinitions();
         double temperature = resolveTemperature(llmConfig);
 
         log.debug("generate: starting agent loop, dataSourceId={}", dataSourceId);
+        int initialMessages = messages.size();
         String llmResponse = agentService.runAgentLoop(messages, tools, dataSourceId, temperature, llmConfig);
+        recordToolRounds(retrieval, messages, initialMessages);
         log.debug("generate: LLM response length={}", llmResponse.length());
-        return parseLlmResponse(llmResponse, dataSourceId);
+        return cacheIfReusable(cacheKey, dataSourceId, llmResponse, parseLlmResponse(llmResponse, dataSourceId));
     }
 
     public SqlGenerateResult generateStream(String question, Long dataSourceId,
                                             List<ChatMessage> conversation,
                                             LlmConfig llmConfig, boolean thinking,
                                             OpenAiLlmUtil.StreamCallback tokenCallback) {
-        List<Map<String, Object>> messages = buildMessages(question, dataSourceId, conversation);
+        PromptContext context = loadPromptContext(dataSourceId, question, conversation);
+        String cacheKey = sqlGenerateCacheService.buildKey(dataSourceId, llmConfigId(llmConfig), thinking,
+                context.schemaSyncedAt(), context.knowledge(), question, conversation);
+        String cached = sqlGenerateCacheService.get(cacheKey);
+        if (cached != null) {
+            // 命中缓存：把原始回答作为一次 content 推送，前端处理方式与实时生成一致
+            log.debug("generateStream: cache hit, dataSourceId={}", dataSourceId);
+            tokenCallback.onToken("content", cached);
+            return withCacheKey(parseLlmResponse(cached, dataSourceId), cacheKey);
+        }
+
+        SchemaRetrievalService.Retrieval retrieval = retrieve(question, dataSourceId, context, conversation);
+        List<Map<String, Object>> messages = buildMessages(question, dataSourceId, context, retrieval, conversation);
         List<Map<String, Object>> tools = toolService.getToolDefinitions();
         double temperature = resolveTemperature(llmConfig);
 
-        log.debug("generateStream: starting agent loop then stream, dataSourceId={}", dataSourceId);
-        String llmResponse = agentService.runAgentLoopThenStream(
+        log.debug("generateStream: starting streaming agent loop, dataSourceId={}", dataSourceId);
+        int initialMessages = messages.size();
+        String llmResponse = agentService.runStreamingAgentLoop(
                 messages, tools, dataSourceId, temperature, llmConfig, thinking, tokenCallback);
+        recordToolRounds(retrieval, messages, initialMessages);
         log.debug("generateStream: response length={}", llmResponse.length());
-        return parseLlmResponse(llmResponse, dataSourceId);
+        return cacheIfReusable(cacheKey, dataSourceId, llmResponse, parseLlmResponse(llmResponse, dataSourceId));
+    }
+
+    /**
+     * Drops the cached answer behind {@code result}, e.g. because its SQL failed to execute,
+     * so the next identical question regenerates instead of replaying a broken query.
+     */
+    public void evictCached(SqlGenerateResult result) {
+        if (result != null && result.getCacheKey() != null) {
+            sqlGenerateCacheService.evict(result.getCacheKey());
+        }
+    }
+
+    /**
+     * The agent loop appends one assistant message per tool round; counting them tells how many
+     * rounds this answer took, with or without a prefetched schema.
+     */
+    private void recordToolRounds(SchemaRetrievalService.Retrieval retrieval, List<Map<String, Object>> messages,
+                                  int initialMessages) {
+        int toolRounds = 0;
+        for (Map<String, Object> m : messages.subList(initialMessages, messages.size())) {
+            if ("assistant".equals(m.get("role"))) toolRounds++;
+        }
+        schemaRetrievalService.recordToolRounds(!retrieval.isEmpty(), toolRounds);
+    }
+
+    /** Only clean SQL answers are cached; clarifications and failures always go back to the LLM. */
+    private SqlGenerateResult cacheIfReusable(String cacheKey, Long dataSourceId, String llmResponse,
+                                              SqlGenerateResult result) {
+        if (result.isSuccess() && result.getSql() != null && !result.isNeedClarification()) {
+            sqlGenerateCacheService.put(cacheKey, dataSourceId, llmResponse);
+            return withCacheKey(result, cacheKey);
+        }
+        return result;
+    }
+
+    private static SqlGenerateResult withCacheKey(SqlGenerateResult result, String cacheKey) {
+        result.setCacheKey(cacheKey);
+        return result;
     }
 
     // ---------------------------------------------------------------------------
@@ -110,25 +186,64 @@ public class SqlGenerateService {
     // Core: build structured messages array
     // ---------------------------------------------------------------------------
 
-    private List<Map<String, Object>> buildMessages(String question, Long dataSourceId,
-                                                    List<ChatMessage> conversation) {
-        DatabaseDialect dialect = resolveDialect(dataSourceId);
+    /**
+     * Per-request inputs of the system prompt. {@code terms} and {@code examples} are everything
+     * the data source has (for table retrieval); {@code termGlossary} and {@code sqlExamples}
+     * render only the terms mentioned in the conversation and the examples selected for the
+     * question. {@code knowledge} identifies both sets in the cache key.
+     */
+    private record PromptContext(DatabaseDialect dialect, LocalDateTime schemaSyncedAt,
+                                 List<TermGlossary> terms, List<SqlExample> examples,
+                                 String termGlossary, String sqlExamples, String knowledge) {
+    }
 
-        // 表名清单作起点提示（仅表名，不含列——LLM 按需调工具深入）
-        List<String> tableNames = toolService.listTableNames(dataSourceId);
-        String tableList = tableNames.isEmpty()
-                ? "（无法获取表列表，请调用 list_tables 工具）"
-                : String.join(", ", tableNames);
+    private PromptContext loadPromptContext(Long dataSourceId, String question, List<ChatMessage> conversation) {
+        DataSource ds = dataSourceRepository.findById(dataSourceId).orElse(null);
+        List<String> texts = new ArrayList<>();
+        texts.add(question);
+        texts.addAll(previousUserTurns(conversation, question, GLOSSARY_HISTORY_TURNS));
+        return new PromptContext(
+                ds != null ? ds.getDialect() : DatabaseDialect.POSTGRESQL,
+                ds != null ? ds.getSchemaSyncedAt() : null,
+                termGlossaryMatchService.terms(dataSourceId),
+                sqlExampleSelectionService.examples(dataSourceId),
+                buildTermGlossaryContext(termGlossaryMatchService.match(dataSourceId, texts)),
+                buildSqlExamplesContext(sqlExampleSelectionService.select(dataSourceId, question)),
+                termGlossaryMatchService.fingerprint(dataSourceId) + "\n"
+                        + sqlExampleSelectionService.fingerprint(dataSourceId));
+    }
 
-        String termGlossary = buildTermGlossaryContext(dataSourceId);
-        String sqlExamples = loadSqlExamples(dataSourceId);
+    /** Contents of the last {@code limit} user turns before the current question, most recent first. */
+    private static List<String> previousUserTurns(List<ChatMessage> conversation, String question, int limit) {
+        List<String> turns = new ArrayList<>();
+        if (conversation == null) return turns;
+        for (int i = conversation.size() - 1; i >= 0 && turns.size() < limit; i--) {
+            ChatMessage msg = conversation.get(i);
+            if ("user".equals(msg.getRole()) && msg.getContent() != null && !msg.getContent().equals(question)) {
+                turns.add(msg.getContent());
+            }
+        }
+        return turns;
+    }
 
-        String systemContent = sqlGeneratePrompt
-                .replace("{dbEngine}", dialect.getDisplayName())
-                .replace("{quoteRules}", dialect.getQuotingRules())
-                .replace("{tableList}", tableList)
-                .replace("{termGlossary}", termGlossary)
-                .replace("{sqlExamples}", sqlExamples);
+    /** Pre-retrieves the question's likely tables; the previous user turn helps with follow-ups. */
+    private SchemaRetrievalService.Retrieval retrieve(String question, Long dataSourceId, PromptContext context,
+                                                      List<ChatMessage> conversation) {
+        List<String> previous = previousUserTurns(conversation, question, 1);
+        String previousQuestion = previous.isEmpty() ? null : previous.get(0);
+        return schemaRetrievalService.retrieve(dataSourceId, question, previousQuestion,
+                context.terms(), context.examples());
+    }
+
+    private List<Map<String, Object>> buildMessages(String question, Long dataSourceId, PromptContext context,
+                                                    SchemaRetrievalService.Retrieval retrieval,
+                                                    List<ChatMessage> conversation) {
+        String systemContent = staticPrompt(dataSourceId, context).template().render(Map.of(
+                "prefetchedSchema", retrieval.isEmpty()
+                        ? "（未预取，请按需调用工具获取表结构）"
+                        : retrieval.context(),
+                "termGlossary", context.termGlossary(),
+                "sqlExamples", context.sqlExamples()));
 
         List<Map<String, Object>> messages = new ArrayList<>();
         messages.add(Map.of("role", "system", "content", systemContent));
@@ -149,11 +264,38 @@ public class SqlGenerateService {
             }
         }
 
-        log.debug("buildMessages: system + {} history turns, tableList={} tables",
-                messages.size() - 1, tableNames.size());
+        log.debug("buildMessages: system + {} history turns, prefetched={} tables",
+                messages.size() - 1, retrieval.tables().size());
         return messages;
     }
 
+    /**
+     * The system prompt with the data source's static placeholders (engine, quoting rules, table
+     * names) bound; the per-question sections are last in the template, so everything before them
+     * is a stable prefix that providers can cache. Reused while the dialect and schema sync time
+     * are unchanged.
+     */
+    private StaticPrompt staticPrompt(Long dataSourceId, PromptContext context) {
+        StaticPrompt cached = staticPrompts.get(dataSourceId);
+        if (cached != null && cached.dialect() == context.dialect()
+                && Objects.equals(cached.schemaSyncedAt(), context.schemaSyncedAt())) {
+            return cached;
+        }
+        DatabaseDialect dialect = context.dialect();
+        // 表名清单作起点提示（仅表名，不含列——LLM 按需调工具深入）
+        List<String> tableNames = toolService.listTableNames(dataSourceId);
+        String tableList = tableNames.isEmpty()
+                ? "（无法获取表列表，请调用 list_tables 工具）"
+                : String.join(", ", tableNames);
+        StaticPrompt prompt = new StaticPrompt(dialect, context.schemaSyncedAt(), sqlGeneratePrompt.bind(Map.of(
+                "dbEngine", dialect.getDisplayName(),
+                "quoteRules", dialect.getQuotingRules(),
+                "tableList", tableList)));
+        // an unreachable never-synced source is retried next time rather than cached without tables
+        if (!tableNames.isEmpty()) staticPrompts.put(dataSourceId, prompt);
+        return prompt;
+    }
+
     private String reconstructAssistantJson(ChatMessage msg) {
         try {
             if (msg.getSqlQuery() != null && !msg.getSqlQuery().isBlank()) {
@@ -281,25 +423,21 @@ public class SqlGenerateService {
                 : appConfig.getLlm().getTemperature();
     }
 
-    private DatabaseDialect resolveDialect(Long dataSourceId) {
-        return dataSourceRepository.findById(dataSourceId)
-                .map(DataSource::getDialect)
-                .orElse(DatabaseDialect.POSTGRESQL);
+    private static Long llmConfigId(LlmConfig llmConfig) {
+        return llmConfig != null ? llmConfig.getId() : null;
     }
 
-    private String buildTermGlossaryContext(Long dataSourceId) {
-        List<TermGlossary> terms = termGlossaryRepository.findByDataSourceIdOrDataSourceIdIsNull(dataSourceId);
+    private String buildTermGlossaryContext(List<TermGlossary> terms) {
         if (terms.isEmpty()) return "(no specific business terms)";
         return terms.stream()
                 .map(t -> "- " + t.getTerm() + ": " + t.getDefinition())
                 .collect(Collectors.joining("\n"));
     }
 
-    private String loadSqlExamples(Long dataSourceId) {
-        List<SqlExample> examples = sqlExampleRepository.findByDataSourceId(dataSourceId);
+    private String buildSqlExamplesContext(List<SqlExample> examples) {
         if (examples.isEmpty()) return "(no SQL examples)";
         return examples.stream()
-                .map(e -> "Q: " + e.getQuestion() + "\nSQL: " + e.getSqlQuery())
+                .map(SqlExampleSelectionService::render)
                 .collect(Collectors.joining("\n\n"));
     }
 
@@ -315,14 +453,6 @@ public class SqlGenerateService {
         return conversation;
     }
 
-    private static String loadResource(String path) {
-        try (var is = new org.springframework.core.io.ClassPathResource(path).getInputStream()) {
-            return StreamUtils.copyToString(is, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load resource: " + path, e);
-        }
-    }
-
     // ---------------------------------------------------------------------------
     // Result DTO
     // ---------------------------------------------------------------------------
@@ -342,6 +472,9 @@ public class SqlGenerateService {
         private boolean needClarification;
         /** 澄清的可点选项（仅 needClarification 时非空）。 */
         private List<String> clarifyOptions;
+        /** 生成结果缓存键；SQL 执行失败时据此剔除缓存。 */
+        @com.fasterxml.jackson.annotation.JsonIgnore
+        private String cacheKey;
     }
 
     public int getMaxRetry() {
@@ -1,19 +1,23 @@
 package com.example.mysqlbot.service;
 
 import com.example.mysqlbot.model.LlmConfig;
+import com.example.mysqlbot.security.RowFilterInjector;
+import com.example.mysqlbot.util.PromptTemplate;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * SQL permission control service.
- * Uses LLM to rewrite SQL with row-level permission rules before execution.
+ * Injects row-level permission rules into SQL before execution: deterministically on the AST via
+ * {@link RowFilterInjector}, falling back to an LLM rewrite for SQL or rules the injector cannot handle.
  */
 @Slf4j
 @Service
@@ -22,15 +26,19 @@ public class SqlPermissionService {
 
     private final LlmService llmService;
 
+    /** When false, every rewrite goes through the LLM (the pre-AST behavior). */
+    @Value("${mysqlbot.permission.ast-rewrite:true}")
+    private boolean astRewrite;
+
     private static final Pattern SQL_PATTERN = Pattern.compile(
             "```sql\\s*([\\s\\S]+?)\\s*```", Pattern.CASE_INSENSITIVE);
 
     // Cached prompt template
-    private String permissionPrompt;
+    private PromptTemplate permissionPrompt;
 
     @PostConstruct
     public void init() {
-        permissionPrompt = loadResource("prompts/sql-permissions.st");
+        permissionPrompt = PromptTemplate.load("prompts/sql-permissions.st");
         log.info("SqlPermissionService: prompt template cached ({} chars)", permissionPrompt.length());
     }
 
@@ -43,10 +51,18 @@ public class SqlPermissionService {
 
         log.info("Applying SQL permission control: rule='{}'", filterRule);
 
-        String prompt = permissionPrompt
-                .replace("{sql}", originalSql)
-                .replace("{engine}", engine)
-                .replace("{filter}", filterRule);
+        if (astRewrite) {
+            Optional<String> injected = RowFilterInjector.inject(originalSql, filterRule);
+            if (injected.isPresent()) {
+                return injected.get();
+            }
+            log.info("AST permission rewrite not applicable, falling back to LLM");
+        }
+
+        String prompt = permissionPrompt.render(Map.of(
+                "sql", originalSql,
+                "engine", engine,
+                "filter", filterRule));
 
         String llmResponse;
         if (llmConfig != null) {
@@ -67,12 +83,4 @@ public class SqlPermissionService {
         if (trimmed.toUpperCase().startsWith("SELECT")) return trimmed;
         return null;
     }
-
-    private static String loadResource(String path) {
-        try (var is = new org.springframework.core.io.ClassPathResource(path).getInputStream()) {
-            return StreamUtils.copyToString(is, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load resource: " + path, e);
-        }
-    }
 }
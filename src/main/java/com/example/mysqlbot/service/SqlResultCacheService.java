@@ -0,0 +1,154 @@
+package com.example.mysqlbot.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in cache of successful query results, consulted by {@link SqlExecuteService}.
+ *
+ * <p>Keyed on (data source, JSqlParser-canonical SQL, permission rule), so formatting-only
+ * differences share an entry while different row filters never do. The cache is bounded by
+ * the estimated size of the cached results rather than by entry count; the least recently
+ * used entries are dropped once {@code mysqlbot.cache.sql-result.max-mb} is exceeded.
+ * The TTL comes from the data source ({@code DataSource.resultCacheTtlSeconds}); data sources
+ * without a TTL are never cached.
+ */
+@Slf4j
+@Service
+public class SqlResultCacheService {
+
+    private record CacheEntry(Long dataSourceId, SqlExecuteService.SqlExecuteResult result,
+                              long bytes, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    @Value("${mysqlbot.cache.sql-result.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mysqlbot.cache.sql-result.max-mb:64}")
+    private long maxMb;
+
+    /** Access-ordered map; guarded by {@code this}. */
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Builds the cache key. SQL that JSqlParser cannot parse is keyed on its whitespace-collapsed
+     * text instead.
+     */
+    public String buildKey(Long dataSourceId, String sql, String permissionRule) {
+        String canonical;
+        try {
+            canonical = CCJSqlParserUtil.parse(sql).toString();
+        } catch (Exception e) {
+            canonical = sql.trim().replaceAll("\\s+", " ");
+        }
+        return "ds:" + dataSourceId + ":" + sha256(canonical + "\u0000" + (permissionRule != null ? permissionRule : ""));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns the cached result, or {@code null} on a miss. */
+    public SqlExecuteService.SqlExecuteResult get(String key) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = cache.get(key);
+            if (entry != null && entry.isExpired()) {
+                remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        log.debug("SQL result cache HIT: {}", key);
+        return entry.result();
+    }
+
+    /**
+     * Caches a successful result for {@code ttlSeconds}. Results larger than a quarter of the
+     * budget are skipped so a single heavy query cannot flush everything else.
+     */
+    public void put(String key, Long dataSourceId, SqlExecuteService.SqlExecuteResult result, long ttlSeconds) {
+        if (!enabled || ttlSeconds <= 0 || result == null || !result.isSuccess() || result.getData() == null) return;
+        long bytes = result.getData().getEstimatedBytes();
+        long budget = maxMb * 1024 * 1024;
+        if (bytes > budget / 4) {
+            log.debug("SQL result cache: result too large to cache ({} bytes)", bytes);
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        synchronized (this) {
+            remove(key);
+            cache.put(key, new CacheEntry(dataSourceId, result, bytes, expiresAt));
+            totalBytes += bytes;
+            Iterator<CacheEntry> it = cache.values().iterator();
+            while (totalBytes > budget && it.hasNext()) {
+                totalBytes -= it.next().bytes();
+                it.remove();
+            }
+        }
+    }
+
+    /** Removes all cached results for the given data source; returns the number removed. */
+    public synchronized int evictDataSource(Long dataSourceId) {
+        int removed = 0;
+        Iterator<CacheEntry> it = cache.values().iterator();
+        while (it.hasNext()) {
+            CacheEntry e = it.next();
+            if (dataSourceId.equals(e.dataSourceId())) {
+                totalBytes -= e.bytes();
+                it.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("SQL result cache: evicted {} entries for dataSourceId={}", removed, dataSourceId);
+        }
+        return removed;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        return Map.of(
+                "enabled", enabled,
+                "size", cache.size(),
+                "bytes", totalBytes,
+                "maxBytes", maxMb * 1024 * 1024,
+                "hits", hits.get(),
+                "misses", misses.get());
+    }
+
+    private void remove(String key) {
+        CacheEntry old = cache.remove(key);
+        if (old != null) totalBytes -= old.bytes();
+    }
+
+    private static String sha256(String s) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.mysqlbot.service;
 
 import com.example.mysqlbot.model.LlmConfig;
+import com.example.mysqlbot.service.result.ColumnarResult;
+import com.example.mysqlbot.util.PromptTemplate;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -9,19 +11,20 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 追问建议 Agent：工具驱动地探查结果数据与数据库关联关系，
  * 产出紧扣真实字段、可下钻的高相关追问。
  *
  * <p>复用 {@link AgentService} 工具循环；工具按名路由：结果探查走 {@link ChartToolService}
- * （内存 rows），schema 探查走 {@link ToolService}（注入 data_source_id）。
+ * （内存中的列式结果集），schema 探查走 {@link ToolService}（注入 data_source_id）。
  * 旧的无数据上下文调用（如各 IM Bot）传 rows/dataSourceId 为空时自动降级为单次推荐。
  */
 @Slf4j
@@ -37,11 +40,11 @@ public class SuggestQuestionService {
     @Value("${mysqlbot.suggest.max-rounds:3}")
     private int suggestMaxRounds;
 
-    private String suggestAgentPrompt;
+    private PromptTemplate suggestAgentPrompt;
 
     @PostConstruct
     public void init() {
-        suggestAgentPrompt = loadResource("prompts/suggest-agent.st");
+        suggestAgentPrompt = PromptTemplate.load("prompts/suggest-agent.st");
         log.info("SuggestQuestionService: prompt template cached ({} chars)", suggestAgentPrompt.length());
     }
 
@@ -57,18 +60,18 @@ public class SuggestQuestionService {
 
     // ===== 主入口：带结果数据 + 洞察 + 数据源（工具驱动）=====
 
-    public List<String> suggest(String question, String sql, List<Map<String, Object>> rows,
+    public List<String> suggest(String question, String sql, ColumnarResult data,
                                 String insight, Long dataSourceId, LlmConfig llmConfig) {
-        boolean hasRows = rows != null && !rows.isEmpty();
-        String columns = hasRows ? String.join(", ", rows.get(0).keySet()) : "(无)";
-        int rowCount = rows != null ? rows.size() : 0;
+        boolean hasRows = data != null && data.getRowCount() > 0;
+        String columns = hasRows ? String.join(", ", data.getFieldNames()) : "(无)";
+        int rowCount = data != null ? data.getRowCount() : 0;
 
-        String systemContent = suggestAgentPrompt
-                .replace("{question}", question != null ? question : "")
-                .replace("{sql}", sql != null ? sql : "(no SQL)")
-                .replace("{columns}", columns)
-                .replace("{rowCount}", String.valueOf(rowCount))
-                .replace("{insight}", insight != null && !insight.isBlank() ? insight : "(无)");
+        String systemContent = suggestAgentPrompt.render(Map.of(
+                "question", question != null ? question : "",
+                "sql", sql != null ? sql : "(no SQL)",
+                "columns", columns,
+                "rowCount", String.valueOf(rowCount),
+                "insight", insight != null && !insight.isBlank() ? insight : "(无)"));
 
         List<Map<String, Object>> messages = new ArrayList<>();
         messages.add(Map.of("role", "system", "content", systemContent));
@@ -79,9 +82,8 @@ public class SuggestQuestionService {
         if (hasRows) tools.addAll(chartToolService.getToolDefinitions());
         if (dataSourceId != null) tools.addAll(toolService.getToolDefinitions());
 
-        final List<Map<String, Object>> rowsRef = rows;
         AgentService.ToolExecutor executor = (name, args) -> {
-            if (hasRows && chartToolService.supports(name)) return chartToolService.execute(name, args, rowsRef);
+            if (hasRows && chartToolService.supports(name)) return chartToolService.execute(name, args, data);
             if (dataSourceId != null) {
                 args.put("data_source_id", dataSourceId);
                 return toolService.executeTool(name, args);
@@ -100,6 +102,33 @@ public class SuggestQuestionService {
         }
     }
 
+    /**
+     * 按与洞察的字符二元组重合度对追问做稳定排序（并行模式下追问先于洞察生成，
+     * 洞察到达后用它把最贴近结论的追问提前，不再额外调用 LLM）。
+     */
+    public List<String> rankByInsight(List<String> questions, String insight) {
+        if (questions == null || questions.size() < 2 || insight == null || insight.isBlank()) return questions;
+        Set<String> insightBigrams = bigrams(insight);
+        List<String> ranked = new ArrayList<>(questions);
+        ranked.sort(Comparator.comparingInt((String q) -> {
+            int overlap = 0;
+            for (String g : bigrams(q)) {
+                if (insightBigrams.contains(g)) overlap++;
+            }
+            return overlap;
+        }).reversed());
+        return ranked;
+    }
+
+    private static Set<String> bigrams(String text) {
+        String s = text.toLowerCase().replaceAll("[\\s\\p{Punct}\\p{IsPunctuation}]+", "");
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 2 <= s.length(); i++) {
+            grams.add(s.substring(i, i + 2));
+        }
+        return grams;
+    }
+
     private List<String> parseLlmResponse(String response) {
         try {
             String cleanerJson = response.replaceAll("```json", "").replaceAll("```", "").trim();
@@ -120,12 +149,4 @@ public class SuggestQuestionService {
             return list;
         }
     }
-
-    private static String loadResource(String path) {
-        try (var is = new org.springframework.core.io.ClassPathResource(path).getInputStream()) {
-            return StreamUtils.copyToString(is, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load resource: " + path, e);
-        }
-    }
 }
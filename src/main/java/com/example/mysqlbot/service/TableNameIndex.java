@@ -0,0 +1,145 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.service.RelationInferenceService.TableMeta;
+
+import java.util.*;
+
+/**
+ * Hash lookups over a table list for naming-convention relation inference, built once so that
+ * each column resolves in a few map probes instead of a scan over every other table.
+ *
+ * <p>A column names a table when it follows one of the reference conventions below and the
+ * entity it names matches a table either verbatim, with a plural {@code s}, or after both sides
+ * are normalized (table prefix stripped, singularized):
+ * <ul>
+ *   <li>{@code user_id} / {@code USER_ID} — snake case {@code _id} suffix</li>
+ *   <li>{@code userId} / {@code orderItemId} — camel case {@code Id} suffix</li>
+ *   <li>{@code fk_user} / {@code fk_user_id} — {@code fk_} prefix</li>
+ * </ul>
+ * Table names {@code t_user}, {@code tb_user} and {@code tbl_users} all normalize to {@code user};
+ * {@code categories}, {@code addresses} and {@code people} to {@code category}, {@code address}
+ * and {@code person}.
+ */
+final class TableNameIndex {
+
+    private static final List<String> TABLE_PREFIXES = List.of("tbl_", "tb_", "t_");
+
+    private static final Map<String, String> IRREGULAR_PLURALS = Map.ofEntries(
+            Map.entry("people", "person"),
+            Map.entry("children", "child"),
+            Map.entry("men", "man"),
+            Map.entry("women", "woman"),
+            Map.entry("mice", "mouse"),
+            Map.entry("geese", "goose"),
+            Map.entry("feet", "foot"),
+            Map.entry("teeth", "tooth"),
+            Map.entry("indices", "index"),
+            Map.entry("matrices", "matrix"),
+            Map.entry("vertices", "vertex"),
+            Map.entry("criteria", "criterion"),
+            Map.entry("analyses", "analysis"),
+            Map.entry("statuses", "status"),
+            Map.entry("aliases", "alias"),
+            Map.entry("leaves", "leaf"),
+            Map.entry("lives", "life"),
+            Map.entry("wives", "wife"));
+
+    /** Lower-cased qualified and simple names → table (first wins). */
+    private final Map<String, TableMeta> byName = new HashMap<>();
+    /** Normalized entity name → table (first wins). */
+    private final Map<String, TableMeta> byEntity = new HashMap<>();
+    /** Primary-key column name → tables whose primary key includes it. */
+    private final Map<String, List<TableMeta>> byPrimaryKey = new HashMap<>();
+
+    TableNameIndex(List<TableMeta> tables) {
+        for (TableMeta t : tables) byName.putIfAbsent(t.tableName.toLowerCase(), t);
+        for (TableMeta t : tables) {
+            String simple = t.simpleTableName.toLowerCase();
+            byName.putIfAbsent(simple, t);
+            byEntity.putIfAbsent(singular(stripTablePrefix(simple)), t);
+            for (String pk : t.primaryKeys) {
+                byPrimaryKey.computeIfAbsent(pk, k -> new ArrayList<>(1)).add(t);
+            }
+        }
+    }
+
+    /** Table by qualified or simple name, case-insensitive; null if unknown. */
+    TableMeta get(String name) {
+        return byName.get(name.toLowerCase());
+    }
+
+    /** Table the column refers to by naming convention, or null. */
+    TableMeta referencedTable(String column) {
+        String entity = entityOf(column);
+        if (entity == null) return null;
+        TableMeta target = byName.get(entity);
+        if (target == null) target = byName.get(entity + "s");
+        if (target == null) target = byEntity.get(singular(stripTablePrefix(entity)));
+        return target;
+    }
+
+    /** Tables whose primary key includes a column with exactly this name. */
+    List<TableMeta> primaryKeyOwners(String column) {
+        return byPrimaryKey.getOrDefault(column, List.of());
+    }
+
+    /**
+     * Entity a column refers to, lower snake case: {@code user_id}, {@code userId}, {@code fk_user}
+     * and {@code fk_user_id} → {@code user}. Null when the column follows no reference convention.
+     */
+    static String entityOf(String column) {
+        String snake = toSnakeCase(column);
+        if (snake.startsWith("fk_")) {
+            String rest = snake.substring(3);
+            if (rest.endsWith("_id")) rest = rest.substring(0, rest.length() - 3);
+            return rest.isEmpty() ? null : rest;
+        }
+        if (snake.endsWith("_id") && snake.length() > 3) {
+            return snake.substring(0, snake.length() - 3);
+        }
+        return null;
+    }
+
+    /** Removes a conventional table prefix ({@code t_}, {@code tb_}, {@code tbl_}) if something is left. */
+    static String stripTablePrefix(String name) {
+        for (String prefix : TABLE_PREFIXES) {
+            if (name.startsWith(prefix) && name.length() > prefix.length()) {
+                return name.substring(prefix.length());
+            }
+        }
+        return name;
+    }
+
+    /** Singularizes the last underscore-separated word: {@code order_items} → {@code order_item}. */
+    static String singular(String name) {
+        int split = name.lastIndexOf('_') + 1;
+        String word = name.substring(split);
+        String irregular = IRREGULAR_PLURALS.get(word);
+        if (irregular != null) return name.substring(0, split) + irregular;
+        if (word.length() <= 3) return name;
+
+        String head = name.substring(0, name.length() - word.length());
+        if (word.endsWith("ies")) return head + word.substring(0, word.length() - 3) + "y";
+        if (word.endsWith("sses") || word.endsWith("xes") || word.endsWith("ches") || word.endsWith("shes")) {
+            return head + word.substring(0, word.length() - 2);
+        }
+        if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            return head + word.substring(0, word.length() - 1);
+        }
+        return name;
+    }
+
+    /** {@code orderItemId} → {@code order_item_id}; already snake or upper case names are just lower-cased. */
+    private static String toSnakeCase(String column) {
+        StringBuilder sb = new StringBuilder(column.length() + 4);
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                char prev = column.charAt(i - 1);
+                if (Character.isLowerCase(prev) || Character.isDigit(prev)) sb.append('_');
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.TermGlossary;
+import com.example.mysqlbot.repository.TermGlossaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-question glossary injection: of the data source's terms and the global ones, only those
+ * whose term or a synonym occurs in the question or recent conversation go into the prompt.
+ *
+ * <p>Each data source's entries are loaded and compiled into a {@link TermMatcher} once and kept
+ * until {@link #evict} / {@link #evictAll} is called by a glossary write.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TermGlossaryMatchService {
+
+    private final TermGlossaryRepository termGlossaryRepository;
+
+    private record Glossary(List<TermGlossary> entries, TermMatcher matcher, String fingerprint) {}
+
+    private final ConcurrentHashMap<Long, Glossary> glossaries = new ConcurrentHashMap<>();
+
+    /** All entries visible to the data source (its own and global ones). */
+    public List<TermGlossary> terms(Long dataSourceId) {
+        return glossary(dataSourceId).entries();
+    }
+
+    /** Changes whenever the visible entries do; part of the generated-SQL cache key. */
+    public String fingerprint(Long dataSourceId) {
+        return glossary(dataSourceId).fingerprint();
+    }
+
+    /** Entries mentioned in {@code texts}, in order of first mention. */
+    public List<TermGlossary> match(Long dataSourceId, Collection<String> texts) {
+        Glossary glossary = glossary(dataSourceId);
+        List<TermGlossary> matched = glossary.matcher().match(texts);
+        log.debug("Glossary: {} of {} terms matched for dataSourceId={}",
+                matched.size(), glossary.entries().size(), dataSourceId);
+        return matched;
+    }
+
+    /** Drops one data source's compiled glossary. */
+    public void evict(Long dataSourceId) {
+        if (dataSourceId != null) glossaries.remove(dataSourceId);
+    }
+
+    /** Drops every compiled glossary, e.g. after a global term changed. */
+    public void evictAll() {
+        glossaries.clear();
+    }
+
+    private Glossary glossary(Long dataSourceId) {
+        // computeIfAbsent blocks a concurrent evict of the same key until loading is done
+        return glossaries.computeIfAbsent(dataSourceId, id -> {
+            List<TermGlossary> entries = List.copyOf(termGlossaryRepository.findByDataSourceIdOrDataSourceIdIsNull(id));
+            long hash = 1125899906842597L;
+            for (TermGlossary g : entries) {
+                hash = 31 * hash + Objects.hash(g.getId(), g.getTerm(), g.getSynonyms(), g.getDefinition());
+            }
+            return new Glossary(entries, new TermMatcher(entries), entries.size() + ":" + Long.toHexString(hash));
+        });
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.TermGlossary;
+
+import java.util.*;
+
+/**
+ * Aho–Corasick automaton over glossary terms and their synonyms: one pass over a text finds every
+ * entry mentioned in it, however many entries there are.
+ *
+ * <p>Matching is case-insensitive and folds full-width ASCII ({@code ＧＭＶ}) to half-width, as
+ * typed by Chinese input methods. Chinese needs no segmentation — a pattern matches wherever its
+ * characters occur — while a pattern that starts or ends with an ASCII letter or digit must not
+ * continue a word there, so {@code id} is not found in {@code paid}.
+ *
+ * <p>Instances are immutable after construction and safe to share.
+ */
+public final class TermMatcher {
+
+    private record Pattern(TermGlossary entry, int length, boolean wordStart, boolean wordEnd) {}
+
+    /** (state << 16 | char) → next state. */
+    private final Map<Long, Integer> edges = new HashMap<>();
+    /** Failure link per state. */
+    private int[] fail;
+    /** Patterns ending at each state (without those of its suffix states). */
+    private final List<List<Pattern>> output = new ArrayList<>();
+    /** Nearest proper-suffix state that has output, or -1. */
+    private int[] outputLink;
+    private final int patterns;
+
+    public TermMatcher(List<TermGlossary> entries) {
+        output.add(new ArrayList<>());
+        int count = 0;
+        for (TermGlossary entry : entries) {
+            for (String text : patternsOf(entry)) {
+                String folded = fold(text.trim());
+                if (folded.isEmpty()) continue;
+                add(folded, new Pattern(entry, folded.length(),
+                        isWordChar(folded.charAt(0)), isWordChar(folded.charAt(folded.length() - 1))));
+                count++;
+            }
+        }
+        this.patterns = count;
+        link();
+    }
+
+    /** Number of compiled patterns (terms plus synonyms). */
+    public int size() {
+        return patterns;
+    }
+
+    /** Entries mentioned in any of {@code texts}, in order of first mention, without duplicates. */
+    public List<TermGlossary> match(Collection<String> texts) {
+        Map<TermGlossary, Boolean> found = new LinkedHashMap<>();
+        for (String text : texts) {
+            if (text != null) scan(text, found);
+        }
+        return new ArrayList<>(found.keySet());
+    }
+
+    private void scan(String text, Map<TermGlossary, Boolean> found) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            Integer next;
+            while ((next = edges.get(key(state, c))) == null && state != 0) state = fail[state];
+            state = next == null ? 0 : next;
+            for (int s = output.get(state).isEmpty() ? outputLink[state] : state; s > 0; s = outputLink[s]) {
+                for (Pattern p : output.get(s)) {
+                    int start = i - p.length() + 1;
+                    if (p.wordStart() && start > 0 && isWordChar(fold(text.charAt(start - 1)))) continue;
+                    if (p.wordEnd() && i + 1 < text.length() && isWordChar(fold(text.charAt(i + 1)))) continue;
+                    found.putIfAbsent(p.entry(), Boolean.TRUE);
+                }
+            }
+        }
+    }
+
+    private void add(String pattern, Pattern p) {
+        int state = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            long key = key(state, pattern.charAt(i));
+            Integer next = edges.get(key);
+            if (next == null) {
+                next = output.size();
+                output.add(new ArrayList<>());
+                edges.put(key, next);
+            }
+            state = next;
+        }
+        output.get(state).add(p);
+    }
+
+    /** Breadth-first computation of failure and output links. */
+    private void link() {
+        int states = output.size();
+        fail = new int[states];
+        outputLink = new int[states];
+        outputLink[0] = -1;
+        Map<Integer, List<long[]>> children = new HashMap<>();
+        edges.forEach((key, child) -> children.computeIfAbsent((int) (key >>> 16), k -> new ArrayList<>())
+                .add(new long[]{key & 0xFFFF, child}));
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (long[] edge : children.getOrDefault(state, List.of())) {
+                char c = (char) edge[0];
+                int child = (int) edge[1];
+                int f = 0;
+                if (state != 0) {
+                    f = fail[state];
+                    Integer next;
+                    while ((next = edges.get(key(f, c))) == null && f != 0) f = fail[f];
+                    f = next == null ? 0 : next;
+                }
+                fail[child] = f;
+                outputLink[child] = !output.get(f).isEmpty() ? f : outputLink[f];
+                queue.add(child);
+            }
+        }
+    }
+
+    /** The entry's term and its synonyms (separated by commas, 、 or semicolons, ASCII or full-width). */
+    static List<String> patternsOf(TermGlossary entry) {
+        List<String> patterns = new ArrayList<>();
+        if (entry.getTerm() != null) patterns.add(entry.getTerm());
+        if (entry.getSynonyms() != null) patterns.addAll(Arrays.asList(entry.getSynonyms().split("[,，、;；]")));
+        return patterns;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static String fold(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) sb.append(fold(s.charAt(i)));
+        return sb.toString();
+    }
+
+    /** Full-width ASCII to half-width, then lower case; always one char for one char. */
+    private static char fold(char c) {
+        if (c >= '！' && c <= '～') c = (char) (c - 0xFEE0);
+        else if (c == '　') c = ' ';
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean isWordChar(char c) {
+        return c < 128 && (Character.isLetterOrDigit(c) || c == '_');
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.mysqlbot.service;
 
 import com.example.mysqlbot.model.DataSource;
+import com.example.mysqlbot.model.DatabaseDialect;
 import com.example.mysqlbot.repository.TableRelationRepository;
 import com.example.mysqlbot.repository.DataSourceRepository;
 import lombok.RequiredArgsConstructor;
@@ -11,7 +12,8 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Tool execution service for LLM Function Calling.
@@ -30,8 +32,14 @@ public class ToolService {
     private final TableRelationRepository tableRelationRepository;
     private final ConnectionPoolService connectionPoolService;
     private final SchemaCacheService schemaCacheService;
+    private final SchemaSnapshotService schemaSnapshotService;
 
     private static final int TOOL_QUERY_TIMEOUT_SECONDS = 10;
+    private static final int MAX_COLUMN_SEARCH_TABLES = 30;
+    private static final int MAX_SCHEMA_BATCH_TABLES = 30;
+    private static final Pattern SINGLE_TABLE_ARG = Pattern.compile("\"table_name\"\\s*:\\s*\"([^\"\\\\]+)\"");
+    private static final Pattern TABLE_LIST_ARG = Pattern.compile("\"table_names\"\\s*:\\s*\\[([^\\]]*)");
+    private static final Pattern QUOTED = Pattern.compile("\"([^\"\\\\]+)\"");
 
     /**
      * Returns tool definitions in OpenAI-compatible format.
@@ -68,6 +76,24 @@ public class ToolService {
                                 )
                         )
                 ),
+                Map.of(
+                        "type", "function",
+                        "function", Map.of(
+                                "name", "get_table_schemas",
+                                "description", "一次获取多张表的列信息（精简格式：每表一行，含列名、类型、主键、外键与注释）。涉及两张及以上表时优先调用此工具，而不是逐张调用 get_table_schema。",
+                                "parameters", Map.of(
+                                        "type", "object",
+                                        "properties", Map.of(
+                                                "table_names", Map.of(
+                                                        "type", "array",
+                                                        "items", Map.of("type", "string"),
+                                                        "description", "表名列表（单次最多 " + MAX_SCHEMA_BATCH_TABLES + " 张）"
+                                                )
+                                        ),
+                                        "required", List.of("table_names")
+                                )
+                        )
+                ),
                 Map.of(
                         "type", "function",
                         "function", Map.of(
@@ -95,7 +121,7 @@ public class ToolService {
                                         "properties", Map.of(
                                                 "pattern", Map.of(
                                                         "type", "string",
-                                                        "description", "列名关键词（模糊匹配）"
+                                                        "description", "列名关键词（子串匹配，按匹配度排序；无匹配时返回名称相近的列）"
                                                 )
                                         ),
                                         "required", List.of("pattern")
@@ -129,12 +155,13 @@ public class ToolService {
         List<String> cached = schemaCacheService.getTableNames(dataSourceId);
         if (cached != null) return cached;
 
-        List<String> tables = fetchTableNames(dataSourceId);
+        SchemaSnapshotService.Snapshot snapshot = schemaSnapshotService.getLatest(dataSourceId);
+        List<String> tables = snapshot != null ? snapshot.tableNames() : fetchTableNames(dataSourceId);
         schemaCacheService.putTableNames(dataSourceId, tables);
         return tables;
     }
 
-    /** Fetches table names via JDBC without touching the cache. */
+    /** Fetches table names via JDBC; only used for data sources that have never been synced. */
     private List<String> fetchTableNames(Long dataSourceId) {
         DataSource ds = dataSourceRepository.findById(dataSourceId).orElse(null);
         if (ds == null) return List.of();
@@ -159,10 +186,81 @@ public class ToolService {
         }
     }
 
+    /**
+     * Loads the schema of a table named in a tool call that is still being generated into the
+     * cache, so the call itself is a cache hit once its arguments are complete. Warms the
+     * rendering the tool will ask for: compact for {@code get_table_schemas}, full otherwise.
+     */
+    public void prewarmTableSchema(Long dataSourceId, String toolName, String tableName) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("data_source_id", dataSourceId);
+        try {
+            if ("get_table_schemas".equals(toolName)) {
+                if (schemaCacheService.getCompactSchema(dataSourceId, tableName) != null) return;
+                args.put("table_names", List.of(tableName));
+                getTableSchemas(args);
+            } else {
+                if (schemaCacheService.getTableSchema(dataSourceId, tableName) != null) return;
+                args.put("table_name", tableName);
+                getTableSchema(args);
+            }
+            log.debug("Pre-warmed schema of {} for {}", tableName, toolName);
+        } catch (Exception e) {
+            log.debug("Schema pre-warm failed for {}: {}", tableName, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a tool call is about to be served from the schema cache, for the tool metrics:
+     * {@code hit}, {@code miss}, or {@link MetricsService#NONE} for tools that bypass the cache.
+     * {@code get_table_schemas} is a hit only if every requested table is cached.
+     */
+    public String cacheState(Long dataSourceId, String toolName, Map<String, Object> arguments) {
+        if (dataSourceId == null) return MetricsService.NONE;
+        Boolean hit = switch (toolName) {
+            case "list_tables" -> schemaCacheService.getTableNames(dataSourceId) != null;
+            case "get_table_schema" -> arguments.get("table_name") instanceof String table
+                    && schemaCacheService.getTableSchema(dataSourceId, table) != null;
+            case "get_table_schemas" -> {
+                List<String> names = stringList(arguments.get("table_names"));
+                yield !names.isEmpty() && names.stream()
+                        .allMatch(name -> schemaCacheService.getCompactSchema(dataSourceId, name) != null);
+            }
+            case "get_table_relations" -> {
+                String scope = arguments.get("table_name") instanceof String s && !s.isBlank() ? s : "all";
+                yield schemaCacheService.getRelations(dataSourceId, scope) != null;
+            }
+            default -> null;
+        };
+        if (hit == null) return MetricsService.NONE;
+        return hit ? "hit" : "miss";
+    }
+
+    /**
+     * Table names already complete in the partial JSON arguments of a schema tool call, e.g.
+     * {@code orders} and {@code users} in <code>{"table_names":["orders","users","pay</code>.
+     */
+    static List<String> tableNamesIn(String toolName, String partialArguments) {
+        if (partialArguments == null) return List.of();
+        Matcher m = switch (toolName) {
+            case "get_table_schema" -> SINGLE_TABLE_ARG.matcher(partialArguments);
+            case "get_table_schemas" -> TABLE_LIST_ARG.matcher(partialArguments);
+            default -> null;
+        };
+        if (m == null || !m.find()) return List.of();
+        if ("get_table_schema".equals(toolName)) return List.of(m.group(1));
+        List<String> names = new ArrayList<>();
+        Matcher item = QUOTED.matcher(m.group(1));
+        // an item still being written has no closing quote yet and does not match
+        while (item.find()) names.add(item.group(1));
+        return names;
+    }
+
     private String switchTool(String toolName, Map<String, Object> arguments) {
         return switch (toolName) {
             case "list_tables" -> listTables(arguments);
             case "get_table_schema" -> getTableSchema(arguments);
+            case "get_table_schemas" -> getTableSchemas(arguments);
             case "get_table_relations" -> getTableRelations(arguments);
             case "search_tables_by_column" -> searchTablesByColumn(arguments);
             case "get_sample_data" -> getSampleData(arguments);
@@ -200,11 +298,149 @@ public class ToolService {
         String cached = schemaCacheService.getTableSchema(dsId.longValue(), tableName);
         if (cached != null) return cached;
 
-        String result = fetchTableSchema(dsId.longValue(), tableName);
+        SchemaSnapshotService.Snapshot snapshot = schemaSnapshotService.getLatest(dsId.longValue());
+        String result = snapshot != null
+                ? renderTableSchema(snapshot.findTable(tableName))
+                : fetchTableSchema(dsId.longValue(), tableName);
         if (result != null) schemaCacheService.putTableSchema(dsId.longValue(), tableName, result);
         return result != null ? result : "未找到表 " + tableName + "，请用 list_tables 确认表名是否正确。";
     }
 
+    private String renderTableSchema(SchemaSnapshotService.TableInfo table) {
+        if (table == null) return null;
+        StringBuilder result = new StringBuilder();
+        result.append("表 ").append(table.getTableName()).append(" 的列信息：\n");
+        if (table.getRemarks() != null) result.append("  表注释：").append(table.getRemarks()).append("\n");
+        if (table.getRowEstimate() != null) result.append("  估算行数：").append(table.getRowEstimate()).append("\n");
+        for (SchemaSnapshotService.ColumnInfo col : table.getColumns()) {
+            result.append("  - ").append(col.name()).append(" (").append(col.type()).append(")");
+            if (table.getPrimaryKeys().contains(col.name())) result.append(" [PK]");
+            if (col.remarks() != null) result.append(" // ").append(col.remarks());
+            result.append("\n");
+        }
+        return result.toString();
+    }
+
+    private String getTableSchemas(Map<String, Object> arguments) {
+        Number dsId = (Number) arguments.get("data_source_id");
+        List<String> tableNames = stringList(arguments.get("table_names"));
+        if (dsId == null || tableNames.isEmpty()) return "错误：缺少 data_source_id 或 table_names 参数";
+        if (tableNames.size() > MAX_SCHEMA_BATCH_TABLES) {
+            return "错误：单次最多查询 " + MAX_SCHEMA_BATCH_TABLES + " 张表，请分批调用";
+        }
+
+        Map<String, String> lines = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String name : tableNames) {
+            String cached = schemaCacheService.getCompactSchema(dsId.longValue(), name);
+            if (cached != null) {
+                lines.put(name, cached);
+            } else {
+                lines.put(name, null);
+                misses.add(name);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            SchemaSnapshotService.Snapshot snapshot = schemaSnapshotService.getLatest(dsId.longValue());
+            if (snapshot == null) {
+                try {
+                    snapshot = fetchTables(dsId.longValue(), misses);
+                } catch (Exception e) {
+                    return "错误：" + e.getMessage();
+                }
+                if (snapshot == null) return "错误：数据源不存在";
+            }
+            for (String name : misses) {
+                String line = renderCompactSchema(snapshot.findTable(name));
+                if (line == null) continue;
+                lines.put(name, line);
+                schemaCacheService.putCompactSchema(dsId.longValue(), name, line);
+            }
+        }
+
+        StringBuilder result = new StringBuilder("表结构（每行：表名(列名 类型 [PK] [→引用表.列] \"注释\")）：\n");
+        List<String> notFound = new ArrayList<>();
+        lines.forEach((name, line) -> {
+            if (line != null) {
+                result.append(line).append("\n");
+            } else {
+                notFound.add(name);
+            }
+        });
+        if (!notFound.isEmpty()) {
+            result.append("未找到的表：").append(String.join(", ", notFound))
+                  .append("，请用 list_tables 确认表名是否正确。");
+        }
+        return result.toString();
+    }
+
+    /**
+     * One line per table, e.g. {@code orders(id bigint PK, user_id bigint →users.id "下单用户") -- 订单 ~1200行}.
+     * Much terser than {@link #renderTableSchema}, which matters when many tables are requested.
+     */
+    static String renderCompactSchema(SchemaSnapshotService.TableInfo table) {
+        if (table == null) return null;
+        Map<String, SchemaSnapshotService.ForeignKey> fks = new HashMap<>();
+        for (SchemaSnapshotService.ForeignKey fk : table.getForeignKeys()) fks.putIfAbsent(fk.fkColumn(), fk);
+
+        StringBuilder line = new StringBuilder(table.getTableName()).append("(");
+        List<SchemaSnapshotService.ColumnInfo> columns = table.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            SchemaSnapshotService.ColumnInfo col = columns.get(i);
+            if (i > 0) line.append(", ");
+            line.append(col.name()).append(" ").append(col.type() == null ? "?" : col.type().toLowerCase());
+            if (table.getPrimaryKeys().contains(col.name())) line.append(" PK");
+            SchemaSnapshotService.ForeignKey fk = fks.get(col.name());
+            if (fk != null) line.append(" →").append(fk.pkTable()).append(".").append(fk.pkColumn());
+            if (col.remarks() != null && !col.remarks().isBlank()) line.append(" \"").append(col.remarks()).append("\"");
+        }
+        line.append(")");
+        boolean hasRemarks = table.getRemarks() != null && !table.getRemarks().isBlank();
+        if (hasRemarks || table.getRowEstimate() != null) {
+            line.append(" --");
+            if (hasRemarks) line.append(" ").append(table.getRemarks());
+            if (table.getRowEstimate() != null) line.append(" ~").append(table.getRowEstimate()).append("行");
+        }
+        return line.toString();
+    }
+
+    /**
+     * Reads just the requested tables of a never-synced data source in one extraction
+     * (the dialect's catalog queries where available), wrapped in an unsaved snapshot for lookup.
+     */
+    private SchemaSnapshotService.Snapshot fetchTables(Long dataSourceId, List<String> tableNames) throws Exception {
+        DataSource ds = dataSourceRepository.findById(dataSourceId).orElse(null);
+        if (ds == null) return null;
+        Set<String> wanted = new HashSet<>();
+        for (String name : tableNames) wanted.add(simpleName(name));
+        List<SchemaSnapshotService.TableInfo> tables = SchemaExtractor.extract(
+                () -> connectionPoolService.getConnection(ds), 1, MAX_SCHEMA_BATCH_TABLES,
+                ds.getDialect(), ds.getDbName(), qualified -> wanted.contains(simpleName(qualified)), null);
+        return new SchemaSnapshotService.Snapshot(dataSourceId, 0, null, tables);
+    }
+
+    private static String simpleName(String tableName) {
+        String unquoted = tableName.replace("\"", "").replace("`", "").trim().toLowerCase();
+        return unquoted.substring(unquoted.lastIndexOf('.') + 1);
+    }
+
+    /** Accepts a JSON array or, from less careful models, a comma-separated string. */
+    private static List<String> stringList(Object value) {
+        List<String> result = new ArrayList<>();
+        if (value instanceof Collection<?> items) {
+            for (Object item : items) {
+                if (item != null && !item.toString().isBlank()) result.add(item.toString().trim());
+            }
+        } else if (value instanceof String text) {
+            for (String item : text.split(",")) {
+                if (!item.isBlank()) result.add(item.trim());
+            }
+        }
+        return result.stream().distinct().toList();
+    }
+
+    /** Reads one table's columns via JDBC; only used for data sources that have never been synced. */
     private String fetchTableSchema(Long dataSourceId, String tableName) {
         DataSource ds = dataSourceRepository.findById(dataSourceId).orElse(null);
         if (ds == null) return null;
@@ -267,9 +503,50 @@ public class ToolService {
         String pattern = (String) arguments.get("pattern");
         if (dsId == null || pattern == null) return "错误：缺少 data_source_id 或 pattern 参数";
 
+        SchemaSnapshotService.Snapshot snapshot = schemaSnapshotService.getLatest(dsId.longValue());
+        if (snapshot != null) {
+            return renderColumnMatches(pattern, snapshot.columnIndex().search(pattern));
+        }
+
         DataSource ds = dataSourceRepository.findById(dsId.longValue()).orElse(null);
         if (ds == null) return "错误：数据源不存在";
+        List<String> matchedTables;
+        try {
+            matchedTables = fetchTablesByColumn(ds, pattern);
+        } catch (Exception e) {
+            return "错误：" + e.getMessage();
+        }
+        if (matchedTables.isEmpty()) {
+            return "未找到包含列关键词 '" + pattern + "' 的表。";
+        }
+        return "包含列 '" + pattern + "' 的表：" + String.join(", ", matchedTables);
+    }
+
+    /** "table(col, col)" list, best match first, capped at {@link #MAX_COLUMN_SEARCH_TABLES} tables. */
+    private String renderColumnMatches(String pattern, List<ColumnSearchIndex.TableMatch> matches) {
+        if (matches.isEmpty()) {
+            return "未找到包含列关键词 '" + pattern + "' 的表。";
+        }
+        StringBuilder result = new StringBuilder();
+        if (matches.get(0).fuzzy()) {
+            result.append("未找到包含列关键词 '").append(pattern).append("' 的表，名称相近的列：");
+        } else {
+            result.append("包含列 '").append(pattern).append("' 的表：");
+        }
+        int shown = Math.min(matches.size(), MAX_COLUMN_SEARCH_TABLES);
+        for (int i = 0; i < shown; i++) {
+            ColumnSearchIndex.TableMatch match = matches.get(i);
+            if (i > 0) result.append(", ");
+            result.append(match.tableName()).append("(").append(String.join(", ", match.columns())).append(")");
+        }
+        if (matches.size() > shown) {
+            result.append("\n（另有 ").append(matches.size() - shown).append(" 张表未列出，请使用更具体的关键词）");
+        }
+        return result.toString();
+    }
 
+    /** Scans JDBC metadata table by table; only used for data sources that have never been synced. */
+    private List<String> fetchTablesByColumn(DataSource ds, String pattern) throws Exception {
         List<String> matchedTables = new ArrayList<>();
         try (Connection conn = connectionPoolService.getConnection(ds)) {
             DatabaseMetaData meta = conn.getMetaData();
@@ -287,14 +564,8 @@ public class ToolService {
                     }
                 }
             }
-        } catch (Exception e) {
-            return "错误：" + e.getMessage();
         }
-
-        if (matchedTables.isEmpty()) {
-            return "未找到包含列关键词 '" + pattern + "' 的表。";
-        }
-        return "包含列 '" + pattern + "' 的表：" + String.join(", ", matchedTables);
+        return matchedTables;
     }
 
     private String getSampleData(Map<String, Object> arguments) {
@@ -306,32 +577,42 @@ public class ToolService {
         if (ds == null) return "错误：数据源不存在";
 
         StringBuilder result = new StringBuilder();
+        DatabaseDialect dialect = ds.getDialect();
+        String quotedTable = dialect.quoteIdentifier(tableName);
+        SchemaSnapshotService.Snapshot snapshot = schemaSnapshotService.getLatest(ds.getId());
+        SchemaSnapshotService.TableInfo table = snapshot != null ? snapshot.findTable(tableName) : null;
+        if (table != null) {
+            quotedTable = dialect.quoteQualifiedTable(table.isQualified() ? table.getTableSchema() : null, table.getSimpleName());
+        }
         try (Connection conn = connectionPoolService.getConnection(ds)) {
-            var stmt = conn.createStatement();
-            stmt.setQueryTimeout(TOOL_QUERY_TIMEOUT_SECONDS);
-            stmt.setMaxRows(5);
-            try (ResultSet rs = stmt.executeQuery(
-                    "SELECT * FROM " + ds.getDialect().quoteIdentifier(tableName) + " LIMIT 5")) {
-                int colCount = rs.getMetaData().getColumnCount();
-                for (int i = 1; i <= colCount; i++) {
-                    if (i > 1) result.append("\t");
-                    result.append(rs.getMetaData().getColumnName(i));
-                }
-                result.append("\n");
-
-                int rowCount = 0;
-                while (rs.next() && rowCount < 5) {
+            try (var stmt = dialect.createQueryStatement(conn, 5)) {
+                stmt.setQueryTimeout(TOOL_QUERY_TIMEOUT_SECONDS);
+                stmt.setMaxRows(5);
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT * FROM " + quotedTable + " LIMIT 5")) {
+                    int colCount = rs.getMetaData().getColumnCount();
                     for (int i = 1; i <= colCount; i++) {
                         if (i > 1) result.append("\t");
-                        Object val = rs.getObject(i);
-                        String valStr = (val == null) ? "NULL" : val.toString();
-                        if (valStr.length() > 50) valStr = valStr.substring(0, 47) + "...";
-                        result.append(valStr);
+                        result.append(rs.getMetaData().getColumnName(i));
                     }
                     result.append("\n");
-                    rowCount++;
+
+                    int rowCount = 0;
+                    while (rs.next() && rowCount < 5) {
+                        for (int i = 1; i <= colCount; i++) {
+                            if (i > 1) result.append("\t");
+                            Object val = rs.getObject(i);
+                            String valStr = (val == null) ? "NULL" : val.toString();
+                            if (valStr.length() > 50) valStr = valStr.substring(0, 47) + "...";
+                            result.append(valStr);
+                        }
+                        result.append("\n");
+                        rowCount++;
+                    }
+                    if (rowCount == 0) result.append("(表为空)");
                 }
-                if (rowCount == 0) result.append("(表为空)");
+            } finally {
+                dialect.finishQuery(conn);
             }
         } catch (Exception e) {
             return "错误：" + e.getMessage();
@@ -0,0 +1,83 @@
+package com.example.mysqlbot.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Spans for the answer pipeline (chat turn, agent rounds, tool calls, permission rewrite, SQL
+ * execution, chart / suggest agents) on the Micrometer tracer, which Spring Boot backs with
+ * the OpenTelemetry SDK. Work handed to another thread must be wrapped with one of the
+ * {@code wrap} methods to stay in the caller's trace.
+ *
+ * <p>Without a tracer (tracing disabled) every method is a no-op.
+ */
+@Service
+public class TraceService {
+
+    private final Tracer tracer;
+
+    @Autowired
+    public TraceService(ObjectProvider<Tracer> tracer) {
+        this(tracer.getIfAvailable(() -> Tracer.NOOP));
+    }
+
+    public TraceService(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /** Runs {@code body} in a new child span of the current one (a new trace if there is none). */
+    public <T> T inSpan(String name, Supplier<T> body) {
+        Span span = tracer.nextSpan().name(name).start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return body.get();
+        } catch (RuntimeException | Error e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    public void inSpan(String name, Runnable body) {
+        inSpan(name, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /** Tags the current span; ignored without a span or value. */
+    public void tag(String key, Object value) {
+        Span span = tracer.currentSpan();
+        if (span != null && value != null) span.tag(key, value.toString());
+    }
+
+    /** Trace id of the current span, null outside a trace. */
+    public String currentTraceId() {
+        Span span = tracer.currentSpan();
+        if (span == null) return null;
+        String traceId = span.context().traceId();
+        return traceId == null || traceId.isEmpty() ? null : traceId;
+    }
+
+    /** Runs {@code task} in the trace context current at the time of this call. */
+    public Runnable wrap(Runnable task) {
+        return tracer.currentTraceContext().wrap(task);
+    }
+
+    /** Runs {@code task} in the trace context current at the time of this call. */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return tracer.currentTraceContext().wrap(task);
+    }
+
+    /** Runs each task in the trace context current when it is submitted. */
+    public Executor wrap(Executor executor) {
+        return tracer.currentTraceContext().wrap(executor);
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.SqlExample;
+import com.example.mysqlbot.model.TermGlossary;
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.Snapshot;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import com.example.mysqlbot.service.embedding.EmbeddingProvider;
+import com.example.mysqlbot.service.embedding.VectorIndex;
+import com.example.mysqlbot.service.embedding.VectorIndex.Entry;
+import com.example.mysqlbot.service.embedding.VectorIndex.Hit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Semantic retrieval over one data source's tables, glossary terms and SQL examples, used by
+ * {@link SchemaRetrievalService} next to its lexical scoring.
+ *
+ * <p>Each table is embedded as one document (name, comment, column names and comments), each
+ * glossary entry as term + definition and each example as question + SQL. The vectors live in a
+ * per-data-source {@link VectorIndex} that is persisted under {@code mysqlbot.embedding.index-dir}
+ * and rebuilt when the schema snapshot or the knowledge base changes; on rebuild only documents
+ * whose text changed are re-embedded. A query then costs one embedding call plus an in-memory
+ * scan. Embedding failures are logged and yield no hits, so retrieval degrades to lexical only.
+ *
+ * <p>Rebuilds run on a background executor, triggered by {@link #refresh} when a sync finishes
+ * or the knowledge base changes (and by a query that finds the index stale). Queries never wait
+ * for one: they search the previous index, or return no hits until the first build is done.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VectorRetrievalService {
+
+    public static final String TYPE_TABLE = "table";
+    public static final String TYPE_TERM = "term";
+    public static final String TYPE_EXAMPLE = "example";
+
+    private final SchemaSnapshotService schemaSnapshotService;
+    private final EmbeddingProvider embeddingProvider;
+    private final TermGlossaryMatchService termGlossaryMatchService;
+    private final SqlExampleSelectionService sqlExampleSelectionService;
+
+    @Value("${mysqlbot.embedding.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mysqlbot.embedding.index-dir:./data/vector-index}")
+    private String indexDir;
+
+    /**
+     * What a loaded index was checked against, so the check is skipped while nothing changed.
+     * An index read from disk at startup has no snapshot yet and counts as stale until checked.
+     */
+    private record State(Snapshot snapshot, int knowledgeHash, VectorIndex index) {
+        boolean isCurrent(Snapshot current, int currentKnowledgeHash) {
+            return snapshot == current && knowledgeHash == currentKnowledgeHash;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, State> states = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Object> locks = new ConcurrentHashMap<>();
+    /** Data sources with a rebuild running, and those whose inputs changed since it started. */
+    private final Set<Long> building = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private Executor indexExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vector-index-", 0).factory());
+
+    /**
+     * The {@code k} documents of each type most similar to {@code query}, best first. Empty when
+     * disabled, when the data source has no snapshot or index yet, or when embedding fails.
+     * A stale index is still searched while a rebuild is scheduled.
+     */
+    public List<Hit> search(Long dataSourceId, String query, List<TermGlossary> terms,
+                            List<SqlExample> examples, int k) {
+        if (!enabled || query == null || query.isBlank() || k <= 0) return List.of();
+        Snapshot snapshot = schemaSnapshotService.getLatest(dataSourceId);
+        if (snapshot == null || snapshot.getTables().isEmpty()) return List.of();
+        try {
+            State state = states.computeIfAbsent(dataSourceId, this::loadState);
+            if (state == null || !state.isCurrent(snapshot, knowledgeHash(terms, examples))) {
+                refresh(dataSourceId);
+                state = states.get(dataSourceId);
+            }
+            if (state == null) return List.of();
+            VectorIndex index = state.index();
+            float[] vector = embeddingProvider.embed(List.of(query)).get(0);
+            Map<String, List<Hit>> byType = index.searchByType(vector, k);
+            List<Hit> hits = new ArrayList<>();
+            for (String type : List.of(TYPE_TABLE, TYPE_TERM, TYPE_EXAMPLE)) {
+                hits.addAll(byType.getOrDefault(type, List.of()));
+            }
+            return hits;
+        } catch (Exception e) {
+            log.warn("Vector retrieval failed for dataSourceId={}: {}", dataSourceId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Schedules a background rebuild of the data source's index against its latest snapshot and
+     * current knowledge base; {@code null} refreshes every indexed data source (a global term
+     * changed). A request arriving while a rebuild runs is folded into one more pass after it.
+     */
+    public void refresh(Long dataSourceId) {
+        if (!enabled) return;
+        if (dataSourceId == null) {
+            states.keySet().forEach(this::refresh);
+            return;
+        }
+        dirty.add(dataSourceId);
+        if (!building.add(dataSourceId)) return;
+        indexExecutor.execute(() -> {
+            try {
+                while (dirty.remove(dataSourceId)) rebuild(dataSourceId);
+            } finally {
+                building.remove(dataSourceId);
+            }
+            // a refresh that raced with the exit above found the build still marked running
+            if (dirty.contains(dataSourceId)) refresh(dataSourceId);
+        });
+    }
+
+    /** Drops the in-memory and persisted index of a deleted data source. */
+    public void evictDataSource(Long dataSourceId) {
+        states.remove(dataSourceId);
+        try {
+            Files.deleteIfExists(indexFile(dataSourceId));
+        } catch (IOException e) {
+            log.warn("Failed to delete vector index of dataSourceId={}: {}", dataSourceId, e.getMessage());
+        }
+    }
+
+    /** Embedding provider id, index sizes per data source. */
+    public Map<String, Object> getStats() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        states.forEach((id, state) -> sizes.put(String.valueOf(id), state.index().size()));
+        return Map.of("enabled", enabled, "provider", embeddingProvider.id(), "indexedDocuments", sizes);
+    }
+
+    // ---------------------------------------------------------------------------
+    // Index maintenance
+    // ---------------------------------------------------------------------------
+
+    private void rebuild(Long dataSourceId) {
+        try {
+            Snapshot snapshot = schemaSnapshotService.getLatest(dataSourceId);
+            if (snapshot == null || snapshot.getTables().isEmpty()) return;
+            index(dataSourceId, snapshot, termGlossaryMatchService.terms(dataSourceId),
+                    sqlExampleSelectionService.examples(dataSourceId));
+        } catch (Exception e) {
+            log.warn("Vector index rebuild failed for dataSourceId={}: {}", dataSourceId, e.getMessage());
+        }
+    }
+
+    /** Brings the index up to date, embedding what changed; runs on the index executor. */
+    VectorIndex index(Long dataSourceId, Snapshot snapshot, List<TermGlossary> terms, List<SqlExample> examples) {
+        int knowledgeHash = knowledgeHash(terms, examples);
+        State state = states.get(dataSourceId);
+        if (state != null && state.isCurrent(snapshot, knowledgeHash)) return state.index();
+        synchronized (locks.computeIfAbsent(dataSourceId, k -> new Object())) {
+            state = states.get(dataSourceId);
+            if (state != null && state.isCurrent(snapshot, knowledgeHash)) return state.index();
+            List<Entry> entries = documents(snapshot, terms, examples);
+            String stamp = stamp(snapshot, entries);
+
+            VectorIndex previous = state != null ? state.index() : load(dataSourceId);
+            VectorIndex index;
+            if (previous != null && previous.stamp().equals(stamp)) {
+                index = previous;
+            } else {
+                index = build(stamp, entries, previous);
+                save(dataSourceId, index);
+            }
+            states.put(dataSourceId, new State(snapshot, knowledgeHash, index));
+            return index;
+        }
+    }
+
+    /** Embeds {@code entries}, reusing the vectors of texts already in {@code previous} when it is compatible. */
+    private VectorIndex build(String stamp, List<Entry> entries, VectorIndex previous) {
+        Map<String, float[]> known = new HashMap<>();
+        if (compatible(previous)) {
+            for (int i = 0; i < previous.size(); i++) known.put(previous.entries().get(i).text(), previous.vector(i));
+        }
+        List<String> missing = new ArrayList<>();
+        for (Entry e : entries) {
+            if (!known.containsKey(e.text())) missing.add(e.text());
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(missing));
+        if (!distinct.isEmpty()) {
+            long start = System.currentTimeMillis();
+            List<float[]> vectors = embeddingProvider.embed(distinct);
+            for (int i = 0; i < distinct.size(); i++) known.put(distinct.get(i), vectors.get(i));
+            log.info("Embedded {} documents ({} reused) with {} in {}ms", distinct.size(),
+                    entries.size() - missing.size(), embeddingProvider.id(), System.currentTimeMillis() - start);
+        }
+        List<float[]> vectors = new ArrayList<>(entries.size());
+        for (Entry e : entries) vectors.add(known.get(e.text()));
+        return new VectorIndex(embeddingProvider.id(), embeddingProvider.dimension(), stamp, entries, vectors);
+    }
+
+    private boolean compatible(VectorIndex index) {
+        return index != null && index.providerId().equals(embeddingProvider.id())
+                && index.dimension() == embeddingProvider.dimension();
+    }
+
+    /** The persisted index as an unchecked state, so queries after a restart need not wait for a rebuild. */
+    private State loadState(Long dataSourceId) {
+        VectorIndex index = load(dataSourceId);
+        return index != null ? new State(null, 0, index) : null;
+    }
+
+    private VectorIndex load(Long dataSourceId) {
+        Path file = indexFile(dataSourceId);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            VectorIndex index = VectorIndex.read(file);
+            return compatible(index) ? index : null;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable vector index {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(Long dataSourceId, VectorIndex index) {
+        try {
+            index.write(indexFile(dataSourceId));
+        } catch (IOException e) {
+            log.warn("Failed to persist vector index of dataSourceId={}: {}", dataSourceId, e.getMessage());
+        }
+    }
+
+    private Path indexFile(Long dataSourceId) {
+        return Paths.get(indexDir, "ds-" + dataSourceId + ".idx");
+    }
+
+    // ---------------------------------------------------------------------------
+    // Documents
+    // ---------------------------------------------------------------------------
+
+    static List<Entry> documents(Snapshot snapshot, List<TermGlossary> terms, List<SqlExample> examples) {
+        List<Entry> entries = new ArrayList<>();
+        for (TableInfo t : snapshot.getTables()) entries.add(new Entry(TYPE_TABLE, t.getTableName(), tableText(t)));
+        if (terms != null) {
+            for (TermGlossary g : terms) {
+                if (g.getTerm() == null || g.getTerm().isBlank()) continue;
+                entries.add(new Entry(TYPE_TERM, g.getTerm(), g.getTerm() + ": " + Objects.toString(g.getDefinition(), "")));
+            }
+        }
+        if (examples != null) {
+            for (SqlExample ex : examples) {
+                if (ex.getQuestion() == null || ex.getSqlQuery() == null) continue;
+                entries.add(new Entry(TYPE_EXAMPLE, String.valueOf(ex.getId()), ex.getQuestion() + "\n" + ex.getSqlQuery()));
+            }
+        }
+        return entries;
+    }
+
+    private static String tableText(TableInfo t) {
+        StringBuilder sb = new StringBuilder(t.getSimpleName());
+        if (t.getRemarks() != null && !t.getRemarks().isBlank()) sb.append(" ").append(t.getRemarks());
+        for (ColumnInfo col : t.getColumns()) {
+            sb.append("\n").append(col.name());
+            if (col.remarks() != null && !col.remarks().isBlank()) sb.append(" ").append(col.remarks());
+        }
+        return sb.toString();
+    }
+
+    private static int knowledgeHash(List<TermGlossary> terms, List<SqlExample> examples) {
+        int h = 1;
+        if (terms != null) {
+            for (TermGlossary g : terms) h = 31 * h + Objects.hash(g.getTerm(), g.getDefinition());
+        }
+        if (examples != null) {
+            for (SqlExample ex : examples) h = 31 * h + Objects.hash(ex.getId(), ex.getQuestion(), ex.getSqlQuery());
+        }
+        return h;
+    }
+
+    /** Snapshot version plus a digest of every document, so any content change forces a rebuild. */
+    private static String stamp(Snapshot snapshot, List<Entry> entries) {
+        long h = 1125899906842597L;
+        for (Entry e : entries) h = 31 * h + e.hashCode();
+        return "v" + snapshot.getVersion() + ":" + Long.toHexString(h) + ":" + entries.size();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.mysqlbot.service.embedding;
+
+import java.util.List;
+
+/**
+ * Turns texts into fixed-size vectors for {@link VectorIndex}. Implementations must be
+ * thread-safe; vectors need not be normalized (the index normalizes them).
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * Identifies the model and its settings. A persisted index built by a provider with a
+     * different id is discarded and rebuilt.
+     */
+    String id();
+
+    int dimension();
+
+    /** One vector per input text, in input order. */
+    List<float[]> embed(List<String> texts);
+}
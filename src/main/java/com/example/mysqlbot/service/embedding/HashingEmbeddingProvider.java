@@ -0,0 +1,55 @@
+package com.example.mysqlbot.service.embedding;
+
+import com.example.mysqlbot.service.SchemaRetrievalService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic offline embedding: the text's terms (see {@link SchemaRetrievalService#terms})
+ * are feature-hashed into a signed bag-of-terms vector. It has no notion of synonyms, but needs
+ * no model or network, gives identical vectors on every machine, and is the default until a
+ * remote provider is configured — and the provider tests run against.
+ */
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private final int dimension;
+
+    public HashingEmbeddingProvider(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public String id() {
+        return "hashing-" + dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            float[] v = new float[dimension];
+            for (String term : SchemaRetrievalService.terms(text)) {
+                int h = mix(term.hashCode());
+                v[Math.floorMod(h, dimension)] += (h & 0x40000000) == 0 ? 1f : -1f;
+            }
+            vectors.add(v);
+        }
+        return vectors;
+    }
+
+    /** Murmur3 finalizer, so that similar strings land in unrelated buckets. */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
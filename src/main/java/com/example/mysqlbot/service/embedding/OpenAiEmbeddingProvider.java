@@ -0,0 +1,84 @@
+package com.example.mysqlbot.service.embedding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embeddings from an OpenAI-compatible {@code /embeddings} endpoint (OpenAI, Zhipu embedding-3,
+ * a local Ollama / text-embeddings-inference server, ...). Texts are sent in batches.
+ */
+@Slf4j
+public class OpenAiEmbeddingProvider implements EmbeddingProvider {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final RestClient restClient;
+    private final String model;
+    private final int dimension;
+
+    public OpenAiEmbeddingProvider(String baseUrl, String apiKey, String model, int dimension) {
+        String cleanBase = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(Duration.ofSeconds(10));
+        factory.setReadTimeout(Duration.ofSeconds(60));
+        RestClient.Builder builder = RestClient.builder()
+                .baseUrl(cleanBase)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .requestFactory(factory);
+        if (apiKey != null && !apiKey.isBlank()) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey);
+        }
+        this.restClient = builder.build();
+        this.model = model;
+        this.dimension = dimension;
+        log.info("OpenAiEmbeddingProvider: baseUrl={}, model={}, dimension={}", cleanBase, model, dimension);
+    }
+
+    @Override
+    public String id() {
+        return "openai:" + model + ":" + dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += BATCH_SIZE) {
+            List<String> batch = texts.subList(from, Math.min(from + BATCH_SIZE, texts.size()));
+            JsonNode response = restClient.post()
+                    .uri("/embeddings")
+                    .body(Map.of("model", model, "input", batch))
+                    .retrieve()
+                    .body(JsonNode.class);
+            float[][] ordered = new float[batch.size()][];
+            for (JsonNode item : response.path("data")) {
+                JsonNode embedding = item.path("embedding");
+                if (embedding.size() != dimension) {
+                    throw new IllegalStateException("Embedding dimension " + embedding.size()
+                            + " does not match configured " + dimension);
+                }
+                float[] v = new float[dimension];
+                for (int i = 0; i < dimension; i++) v[i] = (float) embedding.get(i).asDouble();
+                ordered[item.path("index").asInt()] = v;
+            }
+            for (float[] v : ordered) {
+                if (v == null) throw new IllegalStateException("Embedding response is missing inputs");
+                vectors.add(v);
+            }
+        }
+        return vectors;
+    }
+}
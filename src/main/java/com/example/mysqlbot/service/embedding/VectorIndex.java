@@ -0,0 +1,235 @@
+package com.example.mysqlbot.service.embedding;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable flat (exact) cosine-similarity index. Unit vectors are stored dimension-major in one
+ * {@code float[]} (all documents' first component, then all second components, ...), so a query
+ * is {@code dimension} passes of {@code scores[i] += q[d] * m[d][i]} over contiguous memory — a
+ * loop the JIT compiles to SIMD instructions without the incubating Vector API. A data source has
+ * a few thousand documents at most, for which an exact scan takes well under a millisecond and
+ * needs none of an HNSW graph's build time, memory or recall tuning.
+ *
+ * <p>Indexes are written to and read from a small binary file so they survive restarts without
+ * re-embedding. {@link #stamp()} records what the index was built from, letting the owner tell
+ * whether it is still current.
+ */
+public final class VectorIndex {
+
+    /** One indexed document: its kind ({@code table}, {@code term}, {@code example}), key and embedded text. */
+    public record Entry(String type, String key, String text) {}
+
+    public record Hit(Entry entry, float score) {}
+
+    private static final int MAGIC = 0x4D425658; // "MBVX"
+    private static final int FORMAT_VERSION = 1; // dimension-major little-endian floats
+
+    private final String providerId;
+    private final int dimension;
+    private final String stamp;
+    private final List<Entry> entries;
+    /** Component {@code d} of entry {@code i} is at {@code d * size() + i}. */
+    private final float[] vectors;
+
+    /** {@code vectors} holds one vector per entry; they are normalized here. */
+    public VectorIndex(String providerId, int dimension, String stamp, List<Entry> entries, List<float[]> vectors) {
+        if (entries.size() != vectors.size()) throw new IllegalArgumentException("entries and vectors differ in size");
+        this.providerId = providerId;
+        this.dimension = dimension;
+        this.stamp = stamp;
+        this.entries = List.copyOf(entries);
+        int n = entries.size();
+        this.vectors = new float[n * dimension];
+        for (int i = 0; i < n; i++) {
+            float[] v = normalize(vectors.get(i));
+            if (v.length != dimension) throw new IllegalArgumentException("vector " + i + " has dimension " + v.length);
+            for (int d = 0; d < dimension; d++) this.vectors[d * n + i] = v[d];
+        }
+    }
+
+    private VectorIndex(String providerId, int dimension, String stamp, List<Entry> entries, float[] vectors) {
+        this.providerId = providerId;
+        this.dimension = dimension;
+        this.stamp = stamp;
+        this.entries = entries;
+        this.vectors = vectors;
+    }
+
+    public String providerId() { return providerId; }
+    public int dimension() { return dimension; }
+    public String stamp() { return stamp; }
+    public List<Entry> entries() { return entries; }
+    public int size() { return entries.size(); }
+
+    /** Stored (unit) vector of entry {@code i}. */
+    public float[] vector(int i) {
+        float[] v = new float[dimension];
+        for (int d = 0; d < dimension; d++) v[d] = vectors[d * entries.size() + i];
+        return v;
+    }
+
+    /**
+     * The {@code k} entries most similar to {@code query} (cosine), best first, among those
+     * accepted by {@code filter} (null accepts all).
+     */
+    public List<Hit> search(float[] query, int k, Predicate<Entry> filter) {
+        if (query.length != dimension) throw new IllegalArgumentException("query has dimension " + query.length);
+        if (k <= 0 || entries.isEmpty()) return List.of();
+        float[] scores = scores(normalize(query));
+        TopK top = new TopK(k);
+        for (int i = 0; i < scores.length; i++) {
+            if (!top.accepts(scores[i])) continue;
+            if (filter != null && !filter.test(entries.get(i))) continue;
+            top.add(i, scores[i]);
+        }
+        return top.hits();
+    }
+
+    /**
+     * The {@code k} entries most similar to {@code query} of each entry type, best first. Every
+     * entry is scored once, however many types there are.
+     */
+    public Map<String, List<Hit>> searchByType(float[] query, int k) {
+        if (query.length != dimension) throw new IllegalArgumentException("query has dimension " + query.length);
+        if (k <= 0 || entries.isEmpty()) return Map.of();
+        float[] scores = scores(normalize(query));
+        Map<String, TopK> tops = new LinkedHashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            TopK top = tops.computeIfAbsent(entries.get(i).type(), type -> new TopK(k));
+            if (top.accepts(scores[i])) top.add(i, scores[i]);
+        }
+        Map<String, List<Hit>> hits = new LinkedHashMap<>();
+        tops.forEach((type, top) -> hits.put(type, top.hits()));
+        return hits;
+    }
+
+    /** Best {@code k} (entry, score) pairs seen so far, kept in small arrays sorted by score. */
+    private final class TopK {
+        private final int[] index;
+        private final float[] score;
+        private int found;
+
+        TopK(int k) {
+            index = new int[k];
+            score = new float[k];
+        }
+
+        boolean accepts(float s) {
+            return found < index.length || s > score[index.length - 1];
+        }
+
+        /** Only called after {@link #accepts} returned true. */
+        void add(int i, float s) {
+            int at = found < index.length ? found++ : index.length - 1;
+            while (at > 0 && score[at - 1] < s) {
+                score[at] = score[at - 1];
+                index[at] = index[at - 1];
+                at--;
+            }
+            score[at] = s;
+            index[at] = i;
+        }
+
+        List<Hit> hits() {
+            List<Hit> hits = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) hits.add(new Hit(entries.get(index[i]), score[i]));
+            return hits;
+        }
+    }
+
+    /** Dot product of {@code q} with every entry. */
+    private float[] scores(float[] q) {
+        int n = entries.size();
+        float[] scores = new float[n];
+        for (int d = 0; d < dimension; d++) {
+            float qd = q[d];
+            if (qd == 0) continue;
+            int offset = d * n;
+            for (int i = 0; i < n; i++) scores[i] += qd * vectors[offset + i];
+        }
+        return scores;
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        if (norm == 0) return v.clone();
+        float inv = (float) (1 / Math.sqrt(norm));
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+        return out;
+    }
+
+    // ---------------------------------------------------------------------------
+    // Persistence
+    // ---------------------------------------------------------------------------
+
+    /** Writes the index to {@code file} atomically (temp file + rename). */
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, providerId);
+            out.writeInt(dimension);
+            writeString(out, stamp);
+            out.writeInt(entries.size());
+            for (Entry e : entries) {
+                writeString(out, e.type());
+                writeString(out, e.key());
+                writeString(out, e.text());
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(vectors.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asFloatBuffer().put(vectors);
+            out.write(buffer.array());
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Reads an index written by {@link #write}; fails on a foreign or corrupt file. */
+    public static VectorIndex read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a vector index file: " + file);
+            }
+            String providerId = readString(in);
+            int dimension = in.readInt();
+            String stamp = readString(in);
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(new Entry(readString(in), readString(in), readString(in)));
+            }
+            byte[] bytes = new byte[count * dimension * Float.BYTES];
+            in.readFully(bytes);
+            float[] vectors = new float[count * dimension];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vectors);
+            return new VectorIndex(providerId, dimension, stamp, Collections.unmodifiableList(entries), vectors);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -54,6 +54,24 @@ public interface LlmProvider {
         throw new UnsupportedOperationException("chatWithMessagesAndTools not implemented");
     }
 
+    /**
+     * Streamed chat with tools: content tokens reach {@code callback} as generated and each tool
+     * call reaches {@code listener} once complete. The default falls back to the blocking call and
+     * replays its result.
+     */
+    default ChatResult chatStreamWithTools(
+            List<Map<String, Object>> messages,
+            List<Map<String, Object>> tools,
+            double temperature, String modelName, String toolChoice,
+            OpenAiLlmUtil.StreamCallback callback, OpenAiLlmUtil.ToolCallListener listener) {
+        ChatResult result = chatWithMessagesAndTools(messages, tools, temperature, modelName, toolChoice);
+        if (result.getContent() != null && !result.getContent().isEmpty()) {
+            callback.onToken("content", result.getContent());
+        }
+        if (result.getToolCalls() != null) result.getToolCalls().forEach(listener::onToolCall);
+        return result;
+    }
+
     /**
      * Streaming chat using Object-typed messages (may contain tool_calls / tool-role history).
      * Used for the final answer turn after the non-streamed tool-exploration loop.
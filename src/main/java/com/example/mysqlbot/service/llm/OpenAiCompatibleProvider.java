@@ -1,5 +1,6 @@
 package com.example.mysqlbot.service.llm;
 
+import com.example.mysqlbot.util.LlmHttpTransport;
 import com.example.mysqlbot.util.OpenAiLlmUtil;
 import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResult;
 import lombok.extern.slf4j.Slf4j;
@@ -13,9 +14,9 @@ public class OpenAiCompatibleProvider implements LlmProvider {
 
     private final OpenAiLlmUtil util;
 
-    public OpenAiCompatibleProvider(String baseUrl, String apiKey, String defaultModel) {
+    public OpenAiCompatibleProvider(String baseUrl, String apiKey, String defaultModel, LlmHttpTransport transport) {
         String effectiveBaseUrl = (baseUrl != null && !baseUrl.isBlank()) ? baseUrl : "https://api.openai.com/v1";
-        this.util = new OpenAiLlmUtil(effectiveBaseUrl, apiKey, defaultModel);
+        this.util = new OpenAiLlmUtil(effectiveBaseUrl, apiKey, defaultModel, transport);
         log.info("OpenAiCompatibleProvider: client initialized baseUrl={}", effectiveBaseUrl);
     }
 
@@ -52,6 +53,16 @@ public class OpenAiCompatibleProvider implements LlmProvider {
         return util.chatWithMessagesAndTools(messages, temperature, modelName, tools, toolChoice);
     }
 
+    @Override
+    public ChatResult chatStreamWithTools(
+            List<Map<String, Object>> messages,
+            List<Map<String, Object>> tools,
+            double temperature, String modelName, String toolChoice,
+            OpenAiLlmUtil.StreamCallback callback, OpenAiLlmUtil.ToolCallListener listener) {
+        log.debug("OpenAiCompatibleProvider chatStreamWithTools: model={}, tools={}, toolChoice={}", modelName, tools != null ? tools.size() : 0, toolChoice);
+        return util.chatStreamWithTools(messages, temperature, modelName, tools, toolChoice, callback, listener);
+    }
+
     @Override
     public String chatStreamObjectMessages(
             List<Map<String, Object>> messages,
@@ -0,0 +1,192 @@
+package com.example.mysqlbot.service.result;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+
+/**
+ * A single typed column of a {@link ColumnarResult}.
+ *
+ * <p>Integral and floating-point columns keep their values in primitive arrays, decimals are
+ * stored as unscaled {@code long}s while they fit, string columns are dictionary-encoded while
+ * the cardinality stays low, and everything else falls back to a plain {@code Object[]}.
+ * Values are only boxed when read through {@link #get(int)}.
+ */
+public abstract class ColumnVector {
+
+    public enum Kind { LONG, DOUBLE, DECIMAL, STRING, OBJECT }
+
+    protected final int size;
+    protected final BitSet nulls;
+
+    ColumnVector(int size, BitSet nulls) {
+        this.size = size;
+        this.nulls = nulls;
+    }
+
+    public abstract Kind kind();
+
+    /** Boxed value of the given row, {@code null} for SQL NULL. */
+    public abstract Object get(int row);
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    public int nullCount() {
+        return nulls.cardinality();
+    }
+
+    /** Whether {@link #getDouble(int)} is supported for non-null rows. */
+    public boolean isNumeric() {
+        return false;
+    }
+
+    public long getLong(int row) {
+        throw new UnsupportedOperationException("Column of kind " + kind() + " has no long view");
+    }
+
+    public double getDouble(int row) {
+        throw new UnsupportedOperationException("Column of kind " + kind() + " is not numeric");
+    }
+
+    // ---------------------------------------------------------------------------
+    // Implementations
+    // ---------------------------------------------------------------------------
+
+    static final class LongVector extends ColumnVector {
+        private final long[] values;
+
+        LongVector(long[] values, int size, BitSet nulls) {
+            super(size, nulls);
+            this.values = values;
+        }
+
+        @Override public Kind kind() { return Kind.LONG; }
+        @Override public boolean isNumeric() { return true; }
+        @Override public long getLong(int row) { return values[row]; }
+        @Override public double getDouble(int row) { return values[row]; }
+
+        @Override
+        public Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+    }
+
+    static final class DoubleVector extends ColumnVector {
+        private final double[] values;
+
+        DoubleVector(double[] values, int size, BitSet nulls) {
+            super(size, nulls);
+            this.values = values;
+        }
+
+        @Override public Kind kind() { return Kind.DOUBLE; }
+        @Override public boolean isNumeric() { return true; }
+        @Override public double getDouble(int row) { return values[row]; }
+
+        @Override
+        public Object get(int row) {
+            return nulls.get(row) ? null : values[row];
+        }
+    }
+
+    /** Fixed-point decimals kept as unscaled longs plus a per-row scale. */
+    static final class DecimalVector extends ColumnVector {
+        private final long[] unscaled;
+        private final byte[] scales;
+
+        DecimalVector(long[] unscaled, byte[] scales, int size, BitSet nulls) {
+            super(size, nulls);
+            this.unscaled = unscaled;
+            this.scales = scales;
+        }
+
+        @Override public Kind kind() { return Kind.DECIMAL; }
+        @Override public boolean isNumeric() { return true; }
+
+        @Override
+        public double getDouble(int row) {
+            int scale = scales[row];
+            return scale == 0 ? unscaled[row] : BigDecimal.valueOf(unscaled[row], scale).doubleValue();
+        }
+
+        @Override
+        public Object get(int row) {
+            return nulls.get(row) ? null : BigDecimal.valueOf(unscaled[row], scales[row]);
+        }
+    }
+
+    /**
+     * String column. While the number of distinct values stays small the rows hold
+     * {@code int} codes into a shared dictionary; otherwise the strings are kept as-is.
+     */
+    public static final class StringVector extends ColumnVector {
+        private final int[] codes;
+        private final String[] dictionary;
+        private final String[] values;
+
+        StringVector(int[] codes, String[] dictionary, int size, BitSet nulls) {
+            super(size, nulls);
+            this.codes = codes;
+            this.dictionary = dictionary;
+            this.values = null;
+        }
+
+        StringVector(String[] values, int size, BitSet nulls) {
+            super(size, nulls);
+            this.codes = null;
+            this.dictionary = null;
+            this.values = values;
+        }
+
+        @Override public Kind kind() { return Kind.STRING; }
+
+        public boolean isDictionaryEncoded() {
+            return dictionary != null;
+        }
+
+        /** Number of dictionary entries; only valid when {@link #isDictionaryEncoded()}. */
+        public int dictionarySize() {
+            return dictionary.length;
+        }
+
+        /** Dictionary code of a non-null row; only valid when {@link #isDictionaryEncoded()}. */
+        public int code(int row) {
+            return codes[row];
+        }
+
+        public String dictionaryValue(int code) {
+            return dictionary[code];
+        }
+
+        public String getString(int row) {
+            if (nulls.get(row)) return null;
+            return dictionary != null ? dictionary[codes[row]] : values[row];
+        }
+
+        @Override
+        public Object get(int row) {
+            return getString(row);
+        }
+    }
+
+    static final class ObjectVector extends ColumnVector {
+        private final Object[] values;
+
+        ObjectVector(Object[] values, int size, BitSet nulls) {
+            super(size, nulls);
+            this.values = values;
+        }
+
+        @Override public Kind kind() { return Kind.OBJECT; }
+
+        @Override
+        public Object get(int row) {
+            return values[row];
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.mysqlbot.service.result;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Column-oriented SQL result set: one typed {@link ColumnVector} per result column.
+ *
+ * <p>Consumers that aggregate (chart recommendation, question suggestion, table rendering)
+ * iterate columns directly. Code that still expects the historical
+ * {@code List<Map<String, Object>>} shape can use {@link #asRowMaps()}, which returns a lazy
+ * view without copying any values.
+ */
+public final class ColumnarResult {
+
+    public static final ColumnarResult EMPTY = new ColumnarResult(List.of(), new ColumnVector[0], 0, 0);
+
+    private final List<String> columns;
+    private final ColumnVector[] vectors;
+    private final int rowCount;
+    private final long estimatedBytes;
+
+    /** Distinct field names in first-occurrence order, as a row map would expose them. */
+    private final List<String> fieldNames;
+    /** Field name → column index; for duplicate labels the last column wins, like {@code Map.put}. */
+    private final Map<String, Integer> fieldIndex;
+
+    ColumnarResult(List<String> columns, ColumnVector[] vectors, int rowCount, long estimatedBytes) {
+        this.columns = List.copyOf(columns);
+        this.vectors = vectors;
+        this.rowCount = rowCount;
+        this.estimatedBytes = estimatedBytes;
+        Map<String, Integer> index = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            index.put(columns.get(i), i);
+        }
+        this.fieldIndex = index;
+        this.fieldNames = List.copyOf(index.keySet());
+    }
+
+    /** Column labels exactly as reported by the driver (may contain duplicates). */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /** Approximate heap footprint of the values, see {@link ColumnarResultBuilder#estimatedBytes()}. */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public int getColumnCount() {
+        return vectors.length;
+    }
+
+    public ColumnVector column(int index) {
+        return vectors[index];
+    }
+
+    /** Column backing the given field name, or {@code null} if there is none. */
+    public ColumnVector column(String name) {
+        Integer idx = fieldIndex.get(name);
+        return idx != null ? vectors[idx] : null;
+    }
+
+    public Object get(int row, int column) {
+        return vectors[column].get(row);
+    }
+
+    /** Row-oriented, read-only view over this result; values are boxed on access only. */
+    public List<Map<String, Object>> asRowMaps() {
+        return new RowList(this, 0, rowCount);
+    }
+
+    /** Row-oriented view over rows {@code [from, to)}. */
+    public List<Map<String, Object>> asRowMaps(int from, int to) {
+        Objects.checkFromToIndex(from, to, rowCount);
+        return new RowList(this, from, to - from);
+    }
+
+    /**
+     * Builds a columnar result from row maps (e.g. a result deserialized from JSON).
+     * The header is the union of all row keys in first-seen order; each column's kind is
+     * inferred from its non-null values.
+     */
+    public static ColumnarResult fromRows(List<Map<String, Object>> rows) {
+        if (rows == null || rows.isEmpty()) return EMPTY;
+        if (rows instanceof RowList view && view.offset == 0 && view.size == view.result.rowCount) {
+            return view.result;
+        }
+
+        LinkedHashSet<String> header = new LinkedHashSet<>();
+        for (Map<String, Object> row : rows) {
+            header.addAll(row.keySet());
+        }
+        List<String> columns = new ArrayList<>(header);
+        List<ColumnVector.Kind> kinds = new ArrayList<>(columns.size());
+        for (String col : columns) {
+            kinds.add(inferKind(rows, col));
+        }
+
+        ColumnarResultBuilder builder = ColumnarResultBuilder.forKinds(columns, kinds, rows.size());
+        Object[] values = new Object[columns.size()];
+        for (Map<String, Object> row : rows) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = row.get(columns.get(i));
+            }
+            builder.appendValues(values);
+        }
+        return builder.build();
+    }
+
+    private static ColumnVector.Kind inferKind(List<Map<String, Object>> rows, String col) {
+        ColumnVector.Kind kind = null;
+        for (Map<String, Object> row : rows) {
+            Object v = row.get(col);
+            if (v == null) continue;
+            ColumnVector.Kind k;
+            if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+                k = ColumnVector.Kind.LONG;
+            } else if (v instanceof Double) {
+                k = ColumnVector.Kind.DOUBLE;
+            } else if (v instanceof BigDecimal) {
+                k = ColumnVector.Kind.DECIMAL;
+            } else if (v instanceof String) {
+                k = ColumnVector.Kind.STRING;
+            } else {
+                return ColumnVector.Kind.OBJECT;
+            }
+            if (kind == null) {
+                kind = k;
+            } else if (kind != k) {
+                return ColumnVector.Kind.OBJECT;
+            }
+        }
+        return kind != null ? kind : ColumnVector.Kind.OBJECT;
+    }
+
+    // ---------------------------------------------------------------------------
+    // Row view
+    // ---------------------------------------------------------------------------
+
+    private static final class RowList extends AbstractList<Map<String, Object>> implements RandomAccess {
+        private final ColumnarResult result;
+        private final int offset;
+        private final int size;
+
+        RowList(ColumnarResult result, int offset, int size) {
+            this.result = result;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public Map<String, Object> get(int row) {
+            Objects.checkIndex(row, size);
+            return new RowView(result, offset + row);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final class RowView extends AbstractMap<String, Object> {
+        private final ColumnarResult result;
+        private final int row;
+
+        RowView(ColumnarResult result, int row) {
+            this.result = result;
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer idx = result.fieldIndex.get(key);
+            return idx != null ? result.vectors[idx].get(row) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return result.fieldIndex.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return result.fieldNames.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<String> names = result.fieldNames.iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return names.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            String name = names.next();
+                            return new SimpleImmutableEntry<>(name, RowView.this.get(name));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return result.fieldNames.size();
+                }
+            };
+        }
+    }
+
+    // ---------------------------------------------------------------------------
+    // JSON
+    // ---------------------------------------------------------------------------
+
+    /**
+     * Writes a row list as the usual JSON array of objects. When the list is a view over a
+     * {@link ColumnarResult}, primitive columns are written straight from their arrays.
+     */
+    public static class RowsSerializer extends StdSerializer<List<Map<String, Object>>> {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public RowsSerializer() {
+            super((Class) List.class);
+        }
+
+        @Override
+        public void serialize(List<Map<String, Object>> rows, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            if (!(rows instanceof RowList view)) {
+                provider.defaultSerializeValue(rows, gen);
+                return;
+            }
+            ColumnarResult result = view.result;
+            int[] fieldColumns = new int[result.fieldNames.size()];
+            for (int i = 0; i < fieldColumns.length; i++) {
+                fieldColumns[i] = result.fieldIndex.get(result.fieldNames.get(i));
+            }
+
+            int end = view.offset + view.size;
+            gen.writeStartArray(rows, view.size);
+            for (int row = view.offset; row < end; row++) {
+                gen.writeStartObject();
+                for (int i = 0; i < fieldColumns.length; i++) {
+                    gen.writeFieldName(result.fieldNames.get(i));
+                    writeValue(result.vectors[fieldColumns[i]], row, gen, provider);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+
+        private static void writeValue(ColumnVector vector, int row, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            if (vector.isNull(row)) {
+                gen.writeNull();
+                return;
+            }
+            switch (vector.kind()) {
+                case LONG -> gen.writeNumber(vector.getLong(row));
+                case DOUBLE -> gen.writeNumber(vector.getDouble(row));
+                case DECIMAL -> gen.writeNumber((BigDecimal) vector.get(row));
+                case STRING -> gen.writeString(((ColumnVector.StringVector) vector).getString(row));
+                default -> provider.defaultSerializeValue(vector.get(row), gen);
+            }
+        }
+    }
+}
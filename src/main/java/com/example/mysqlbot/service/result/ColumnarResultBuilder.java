@@ -0,0 +1,395 @@
+package com.example.mysqlbot.service.result;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Accumulates rows into type-specialized column buffers.
+ *
+ * <p>The column kind is chosen once from the JDBC column type, so reading a row is a
+ * tight loop of primitive getters ({@code getLong}/{@code getDouble}/{@code getBigDecimal})
+ * with no per-row map or boxed value. Columns whose values turn out not to fit their
+ * specialized buffer (e.g. a decimal wider than 63 bits) are transparently promoted to a
+ * generic object column.
+ */
+public final class ColumnarResultBuilder {
+
+    /** Dictionary encoding is abandoned once a string column has this many distinct values. */
+    static final int MAX_DICTIONARY_SIZE = 1024;
+
+    private final List<String> columns;
+    private final ColumnAppender[] appenders;
+    private int rowCount;
+
+    private ColumnarResultBuilder(List<String> columns, ColumnAppender[] appenders) {
+        this.columns = columns;
+        this.appenders = appenders;
+    }
+
+    /**
+     * Creates a builder whose column layout mirrors the given result-set metadata.
+     *
+     * @param initialCapacity expected row count, used to size the first buffers
+     */
+    public static ColumnarResultBuilder forResultSet(ResultSetMetaData metaData, int initialCapacity) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        int capacity = Math.max(16, initialCapacity);
+        List<String> columns = new ArrayList<>(columnCount);
+        ColumnAppender[] appenders = new ColumnAppender[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            columns.add(metaData.getColumnLabel(i));
+            appenders[i - 1] = appenderFor(metaData, i, capacity);
+        }
+        return new ColumnarResultBuilder(columns, appenders);
+    }
+
+    /**
+     * Creates a builder for in-memory values (e.g. a deserialized result), one appender per kind.
+     */
+    static ColumnarResultBuilder forKinds(List<String> columns, List<ColumnVector.Kind> kinds, int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ColumnAppender[] appenders = new ColumnAppender[kinds.size()];
+        for (int i = 0; i < kinds.size(); i++) {
+            appenders[i] = switch (kinds.get(i)) {
+                case LONG -> new LongAppender(capacity);
+                case DOUBLE -> new DoubleAppender(capacity);
+                case DECIMAL -> new DecimalAppender(capacity);
+                case STRING -> new StringAppender(capacity);
+                case OBJECT -> new ObjectAppender(capacity);
+            };
+        }
+        return new ColumnarResultBuilder(List.copyOf(columns), appenders);
+    }
+
+    /** Appends the current row of {@code rs}. */
+    public void appendRow(ResultSet rs) throws SQLException {
+        for (int i = 0; i < appenders.length; i++) {
+            appenders[i].append(rs, i + 1);
+        }
+        rowCount++;
+    }
+
+    /** Appends one row of already-materialized values, in column order. */
+    void appendValues(Object[] values) {
+        for (int i = 0; i < appenders.length; i++) {
+            appenders[i].appendValue(values[i]);
+        }
+        rowCount++;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Rough heap footprint of the buffered values (array capacity plus string/object payloads).
+     * Used to enforce a per-query memory budget; it is an estimate, not an exact measurement.
+     */
+    public long estimatedBytes() {
+        long total = 0;
+        for (ColumnAppender appender : appenders) {
+            total += appender.estimatedBytes();
+        }
+        return total;
+    }
+
+    public ColumnarResult build() {
+        ColumnVector[] vectors = new ColumnVector[appenders.length];
+        for (int i = 0; i < appenders.length; i++) {
+            vectors[i] = appenders[i].build(rowCount);
+        }
+        return new ColumnarResult(columns, vectors, rowCount, estimatedBytes());
+    }
+
+    private static ColumnAppender appenderFor(ResultSetMetaData metaData, int column, int capacity) throws SQLException {
+        return switch (metaData.getColumnType(column)) {
+            // Unsigned BIGINT may exceed Long.MAX_VALUE; keep the driver's own representation.
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT ->
+                    metaData.isSigned(column) || metaData.getColumnType(column) != Types.BIGINT
+                            ? new LongAppender(capacity) : new ObjectAppender(capacity);
+            // JDBC FLOAT is double precision; REAL stays an object so Float values print unchanged.
+            case Types.FLOAT, Types.DOUBLE -> new DoubleAppender(capacity);
+            case Types.DECIMAL, Types.NUMERIC -> new DecimalAppender(capacity);
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR,
+                 Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR -> new StringAppender(capacity);
+            default -> new ObjectAppender(capacity);
+        };
+    }
+
+    // ---------------------------------------------------------------------------
+    // Per-kind appenders
+    // ---------------------------------------------------------------------------
+
+    private abstract static class ColumnAppender {
+        protected final BitSet nulls = new BitSet();
+        protected int size;
+
+        abstract void append(ResultSet rs, int index) throws SQLException;
+
+        abstract void appendValue(Object value);
+
+        abstract ColumnVector build(int rowCount);
+
+        abstract long estimatedBytes();
+    }
+
+    /** Approximate retained size of a boxed or driver-specific value. */
+    private static long valueBytes(Object value) {
+        if (value == null) return 0;
+        if (value instanceof String s) return 40L + 2L * s.length();
+        if (value instanceof byte[] b) return 16L + b.length;
+        if (value instanceof BigDecimal) return 64;
+        return 32;
+    }
+
+    private static final class LongAppender extends ColumnAppender {
+        private long[] values;
+
+        LongAppender(int capacity) {
+            values = new long[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            long v = rs.getLong(index);
+            add(v, rs.wasNull());
+        }
+
+        @Override
+        void appendValue(Object value) {
+            add(value != null ? ((Number) value).longValue() : 0L, value == null);
+        }
+
+        private void add(long v, boolean isNull) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            if (isNull) nulls.set(size);
+            values[size++] = v;
+        }
+
+        @Override
+        ColumnVector build(int rowCount) {
+            return new ColumnVector.LongVector(values, rowCount, nulls);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 8L * values.length;
+        }
+    }
+
+    private static final class DoubleAppender extends ColumnAppender {
+        private double[] values;
+
+        DoubleAppender(int capacity) {
+            values = new double[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            double v = rs.getDouble(index);
+            add(v, rs.wasNull());
+        }
+
+        @Override
+        void appendValue(Object value) {
+            add(value != null ? ((Number) value).doubleValue() : 0d, value == null);
+        }
+
+        private void add(double v, boolean isNull) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            if (isNull) nulls.set(size);
+            values[size++] = v;
+        }
+
+        @Override
+        ColumnVector build(int rowCount) {
+            return new ColumnVector.DoubleVector(values, rowCount, nulls);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 8L * values.length;
+        }
+    }
+
+    private static final class DecimalAppender extends ColumnAppender {
+        private long[] unscaled;
+        private byte[] scales;
+        /** Non-null once a value did not fit an unscaled long; all further rows go here. */
+        private ObjectAppender promoted;
+
+        DecimalAppender(int capacity) {
+            unscaled = new long[capacity];
+            scales = new byte[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            appendValue(rs.getBigDecimal(index));
+        }
+
+        @Override
+        void appendValue(Object value) {
+            if (promoted != null) {
+                promoted.appendValue(value);
+                return;
+            }
+            if (value == null) {
+                add(0L, (byte) 0, true);
+                return;
+            }
+            BigDecimal d = value instanceof BigDecimal bd ? bd : new BigDecimal(value.toString());
+            if (d.unscaledValue().bitLength() > 63 || d.scale() != (byte) d.scale()) {
+                promote();
+                promoted.appendValue(d);
+                return;
+            }
+            add(d.unscaledValue().longValue(), (byte) d.scale(), false);
+        }
+
+        private void add(long v, byte scale, boolean isNull) {
+            if (size == unscaled.length) {
+                unscaled = Arrays.copyOf(unscaled, size << 1);
+                scales = Arrays.copyOf(scales, size << 1);
+            }
+            if (isNull) nulls.set(size);
+            unscaled[size] = v;
+            scales[size++] = scale;
+        }
+
+        private void promote() {
+            promoted = new ObjectAppender(unscaled.length);
+            for (int i = 0; i < size; i++) {
+                promoted.appendValue(nulls.get(i) ? null : BigDecimal.valueOf(unscaled[i], scales[i]));
+            }
+            unscaled = null;
+            scales = null;
+        }
+
+        @Override
+        ColumnVector build(int rowCount) {
+            if (promoted != null) return promoted.build(rowCount);
+            return new ColumnVector.DecimalVector(unscaled, scales, rowCount, nulls);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return promoted != null ? promoted.estimatedBytes() : 9L * unscaled.length;
+        }
+    }
+
+    private static final class StringAppender extends ColumnAppender {
+        private HashMap<String, Integer> dictionaryIndex = new HashMap<>();
+        private List<String> dictionary = new ArrayList<>();
+        private int[] codes;
+        /** Non-null once the column stopped being dictionary-encoded. */
+        private String[] values;
+        /** Payload of the distinct strings held (dictionary entries, then plain values). */
+        private long stringBytes;
+
+        StringAppender(int capacity) {
+            codes = new int[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            appendValue(rs.getString(index));
+        }
+
+        @Override
+        void appendValue(Object value) {
+            String s = value != null ? value.toString() : null;
+            if (values == null && s != null && shouldStopEncoding()) {
+                decode();
+            }
+            if (values != null) {
+                if (size == values.length) values = Arrays.copyOf(values, size << 1);
+                if (s == null) nulls.set(size);
+                values[size++] = s;
+                stringBytes += valueBytes(s);
+                return;
+            }
+            if (size == codes.length) codes = Arrays.copyOf(codes, size << 1);
+            if (s == null) {
+                nulls.set(size);
+                codes[size++] = -1;
+                return;
+            }
+            Integer code = dictionaryIndex.get(s);
+            if (code == null) {
+                code = dictionary.size();
+                dictionaryIndex.put(s, code);
+                dictionary.add(s);
+                stringBytes += valueBytes(s) + 48;
+            }
+            codes[size++] = code;
+        }
+
+        /** High-cardinality columns gain nothing from a dictionary; keep the strings directly. */
+        private boolean shouldStopEncoding() {
+            int distinct = dictionary.size();
+            return distinct >= MAX_DICTIONARY_SIZE || (size >= 256 && distinct > size / 2);
+        }
+
+        private void decode() {
+            values = new String[codes.length];
+            for (int i = 0; i < size; i++) {
+                values[i] = codes[i] < 0 ? null : dictionary.get(codes[i]);
+            }
+            codes = null;
+            dictionary = null;
+            dictionaryIndex = null;
+        }
+
+        @Override
+        ColumnVector build(int rowCount) {
+            if (values != null) return new ColumnVector.StringVector(values, rowCount, nulls);
+            return new ColumnVector.StringVector(codes, dictionary.toArray(new String[0]), rowCount, nulls);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return stringBytes + (values != null ? 8L * values.length : 4L * codes.length);
+        }
+    }
+
+    private static final class ObjectAppender extends ColumnAppender {
+        private Object[] values;
+        private long payloadBytes;
+
+        ObjectAppender(int capacity) {
+            values = new Object[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            appendValue(rs.getObject(index));
+        }
+
+        @Override
+        void appendValue(Object value) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            if (value == null) nulls.set(size);
+            values[size++] = value;
+            payloadBytes += valueBytes(value);
+        }
+
+        @Override
+        ColumnVector build(int rowCount) {
+            return new ColumnVector.ObjectVector(values, rowCount, nulls);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return payloadBytes + 8L * values.length;
+        }
+    }
+}
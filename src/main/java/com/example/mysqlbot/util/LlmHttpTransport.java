@@ -0,0 +1,225 @@
+package com.example.mysqlbot.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP transport shared by every OpenAI-compatible LLM client in the process.
+ *
+ * <p>One {@link HttpClient} serves all providers and hosts, so connections are kept alive and
+ * pooled across requests (and across LLM configs pointing at the same host), HTTP/2 is negotiated
+ * via ALPN where the server supports it — agent rounds then multiplex over one connection — and
+ * TLS sessions are resumed from the client's session cache instead of doing full handshakes.
+ * Non-streaming requests are asynchronous; no thread waits for the response.
+ *
+ * <p>Each host gets at most {@code maxConnectionsPerHost} requests in flight; further requests
+ * queue, without blocking a thread, until one completes. This bounds the number of HTTP/1.1
+ * connections and keeps bursts of concurrent agent loops inside provider rate limits. A request
+ * that waits longer than {@code acquireTimeout} for a slot fails with {@link HttpTimeoutException};
+ * a request given up while queued (timeout, interrupt) leaves the queue without taking a slot.
+ */
+@Slf4j
+public final class LlmHttpTransport implements AutoCloseable {
+
+    /** Status and body stream of a streaming response; closing the body frees the host slot. */
+    public record StreamResponse(int statusCode, InputStream body) {}
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final int maxConnectionsPerHost;
+    private final Duration requestTimeout;
+    private final Duration streamTimeout;
+    private final Duration acquireTimeout;
+    private final ConcurrentHashMap<String, HostLimiter> limiters = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public LlmHttpTransport(int maxConnectionsPerHost, Duration connectTimeout, Duration requestTimeout,
+                            Duration streamTimeout, Duration acquireTimeout, boolean http2) {
+        this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+        this.requestTimeout = requestTimeout;
+        this.streamTimeout = streamTimeout;
+        this.acquireTimeout = acquireTimeout;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("llm-http-", 0).factory());
+        this.client = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+        log.info("LlmHttpTransport: http2={}, maxConnectionsPerHost={}, connectTimeout={}s, requestTimeout={}s, acquireTimeout={}s",
+                http2, this.maxConnectionsPerHost, connectTimeout.toSeconds(), requestTimeout.toSeconds(),
+                acquireTimeout.toSeconds());
+    }
+
+    /** The previous per-client settings: 10s connect, 90s response, 3min stream; 60s queueing for a slot. */
+    public static LlmHttpTransport withDefaults() {
+        return new LlmHttpTransport(16, Duration.ofSeconds(10), Duration.ofSeconds(90), Duration.ofMinutes(3),
+                Duration.ofSeconds(60), true);
+    }
+
+    /** POSTs a JSON body; completes with the response whatever its status, exceptionally on I/O failure. */
+    public CompletableFuture<HttpResponse<String>> postJson(URI uri, String apiKey, String body) {
+        HttpRequest request = jsonRequest(uri, apiKey, body, requestTimeout);
+        HostLimiter limiter = limiter(uri);
+        return limiter.acquire(acquireTimeout)
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(slotTimeout(uri)))
+                .thenCompose(v -> client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                        .whenComplete((r, e) -> limiter.release()))
+                .whenComplete((r, e) -> count(e));
+    }
+
+    /**
+     * POSTs a JSON body and returns once the response headers arrive, with the body as a stream
+     * (SSE). The host slot is held until the caller closes the body.
+     */
+    public StreamResponse postJsonStream(URI uri, String apiKey, String body) throws IOException, InterruptedException {
+        HttpRequest request = jsonRequest(uri, apiKey, body, streamTimeout);
+        HostLimiter limiter = limiter(uri);
+        CompletableFuture<Void> slot = limiter.acquire(acquireTimeout);
+        try {
+            slot.get();
+        } catch (InterruptedException e) {
+            // Leave the queue; if the slot was handed over meanwhile, give it back
+            if (!slot.cancel(false) && !slot.isCompletedExceptionally()) limiter.release();
+            count(e);
+            throw e;
+        } catch (ExecutionException e) {
+            HttpTimeoutException timeout = slotTimeout(uri);
+            count(timeout);
+            throw timeout;
+        }
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            count(null);
+            AtomicBoolean released = new AtomicBoolean();
+            InputStream stream = new FilterInputStream(response.body()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) limiter.release();
+                    }
+                }
+            };
+            return new StreamResponse(response.statusCode(), stream);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            limiter.release();
+            count(e);
+            throw e;
+        }
+    }
+
+    /** Requests sent, transport-level failures, and per-host in-flight / queued counts. */
+    public Map<String, Object> getStats() {
+        Map<String, Object> hosts = new TreeMap<>();
+        limiters.forEach((host, l) -> hosts.put(host, l.stats()));
+        return Map.of(
+                "requests", requests.get(),
+                "failures", failures.get(),
+                "maxConnectionsPerHost", maxConnectionsPerHost,
+                "hosts", hosts);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        executor.shutdown();
+    }
+
+    private void count(Throwable error) {
+        requests.incrementAndGet();
+        if (error != null) failures.incrementAndGet();
+    }
+
+    private HttpTimeoutException slotTimeout(URI uri) {
+        return new HttpTimeoutException("No free connection slot for " + uri.getHost()
+                + " within " + acquireTimeout.toSeconds() + "s");
+    }
+
+    private static HttpRequest jsonRequest(URI uri, String apiKey, String body, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+        if (apiKey != null && !apiKey.isBlank()) builder.header("Authorization", "Bearer " + apiKey);
+        return builder.build();
+    }
+
+    private HostLimiter limiter(URI uri) {
+        String host = uri.getScheme() + "://" + uri.getHost() + (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+        return limiters.computeIfAbsent(host, h -> new HostLimiter(maxConnectionsPerHost));
+    }
+
+    /** Counting semaphore whose waiters are futures instead of parked threads. */
+    private static final class HostLimiter {
+        private final int permits;
+        private int inFlight;
+        private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+        HostLimiter(int permits) {
+            this.permits = permits;
+        }
+
+        /**
+         * Completes once a slot is held, or exceptionally after {@code timeout} (or when cancelled)
+         * without one. A queued waiter that completes exceptionally is removed from the queue; if
+         * {@link #release} had already handed it the slot, the slot is passed on again.
+         */
+        CompletableFuture<Void> acquire(Duration timeout) {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                if (inFlight < permits) {
+                    inFlight++;
+                    return CompletableFuture.completedFuture(null);
+                }
+                waiter = new CompletableFuture<>();
+                waiters.add(waiter);
+            }
+            waiter.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((v, e) -> {
+                        if (e != null) abandon(waiter);
+                    });
+            return waiter;
+        }
+
+        private void abandon(CompletableFuture<Void> waiter) {
+            boolean queued;
+            synchronized (this) {
+                queued = waiters.remove(waiter);
+            }
+            if (!queued) release();
+        }
+
+        /** Hands the slot to the next waiter, completed outside the lock. */
+        void release() {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) inFlight--;
+            }
+            if (next != null) next.complete(null);
+        }
+
+        synchronized Map<String, Integer> stats() {
+            return Map.of("inFlight", inFlight, "queued", waiters.size());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.mysqlbot.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * OpenTelemetry span exporter for offline use: keeps the spans of the most recent traces in
+ * memory and, when a file is configured, appends every span to it as one JSON line, so the
+ * waterfall of a slow answer can be pulled by trace id without a tracing backend.
+ *
+ * <p>Traces evicted from memory (or from before a restart) are looked up in the file by a linear
+ * scan. To keep that scan and the disk use bounded, the file is rotated once it reaches
+ * {@code maxFileBytes}: it is renamed to {@code <file>.1}, replacing the previous one, and a new
+ * file is started, so at most about twice that size is kept and searched.
+ */
+@Slf4j
+public final class LocalSpanExporter implements SpanExporter {
+
+    /** One finished span; times in microseconds since the epoch. */
+    public record SpanRecord(String traceId, String spanId, String parentSpanId, String name,
+                             long startMicros, long durationMicros, String status, String statusMessage,
+                             Map<String, String> attributes) {}
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int maxTraces;
+    private final Path file;
+    private final long maxFileBytes;
+    private final Map<String, List<SpanRecord>> traces;
+    private BufferedWriter writer;
+    private long fileBytes;
+
+    /**
+     * @param maxTraces    traces kept in memory, oldest dropped first
+     * @param file         JSON-lines file to append spans to; null keeps spans in memory only
+     * @param maxFileBytes size at which the file is rotated
+     */
+    public LocalSpanExporter(int maxTraces, Path file, long maxFileBytes) {
+        this.maxTraces = maxTraces;
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.traces = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<SpanRecord>> eldest) {
+                return size() > LocalSpanExporter.this.maxTraces;
+            }
+        };
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        List<SpanRecord> records = new ArrayList<>(spans.size());
+        for (SpanData span : spans) {
+            SpanRecord record = toRecord(span);
+            records.add(record);
+            traces.computeIfAbsent(record.traceId(), id -> new ArrayList<>()).add(record);
+        }
+        if (file == null) return CompletableResultCode.ofSuccess();
+        try {
+            if (writer != null && fileBytes >= maxFileBytes) rotate();
+            if (writer == null) open();
+            for (SpanRecord record : records) {
+                String line = MAPPER.writeValueAsString(record);
+                writer.write(line);
+                writer.write('\n');
+                fileBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("Failed to write spans to {}: {}", file, e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    /** Spans of a trace ordered by start time; empty if the trace is unknown. */
+    public List<SpanRecord> find(String traceId) {
+        List<SpanRecord> spans;
+        synchronized (this) {
+            List<SpanRecord> cached = traces.get(traceId);
+            spans = cached != null ? new ArrayList<>(cached) : null;
+        }
+        if (spans == null) {
+            spans = readFromFile(rotated(), traceId);
+            spans.addAll(readFromFile(file, traceId));
+        }
+        spans.sort(Comparator.comparingLong(SpanRecord::startMicros));
+        return spans;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close span file {}: {}", file, e.getMessage());
+            }
+            writer = null;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private void open() throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        if (Files.exists(file) && Files.size(file) >= maxFileBytes) {
+            Files.move(file, rotated(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        writer.close();
+        writer = null;
+        Files.move(file, rotated(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotated() {
+        return file == null ? null : file.resolveSibling(file.getFileName() + ".1");
+    }
+
+    private List<SpanRecord> readFromFile(Path file, String traceId) {
+        List<SpanRecord> spans = new ArrayList<>();
+        if (file == null || !Files.exists(file)) return spans;
+        String needle = "\"traceId\":\"" + traceId + "\"";
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains(needle)) spans.add(MAPPER.readValue(line, SpanRecord.class));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read spans from {}: {}", file, e.getMessage());
+        }
+        return spans;
+    }
+
+    private static SpanRecord toRecord(SpanData span) {
+        Map<String, String> attributes = new TreeMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        String parent = span.getParentSpanContext().isValid() ? span.getParentSpanId() : null;
+        String message = span.getStatus().getDescription();
+        return new SpanRecord(span.getTraceId(), span.getSpanId(), parent, span.getName(),
+                span.getStartEpochNanos() / 1_000,
+                (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000,
+                span.getStatus().getStatusCode().name(),
+                message == null || message.isEmpty() ? null : message,
+                attributes);
+    }
+}
@@ -1,67 +1,56 @@
 package com.example.mysqlbot.util;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.web.client.RestClient;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Generic OpenAI-compatible HTTP client (DeepSeek / OpenAI / Tongyi Qianwen etc.)
  * Supports DeepSeek thinking mode, reasoning_content parsing, and SSE streaming.
+ *
+ * <p>Requests go through the process-wide {@link LlmHttpTransport} (pooled keep-alive
+ * connections, HTTP/2, per-host limits). Tool-calling chat is available asynchronously via
+ * {@link #chatWithMessagesAndToolsAsync}; the blocking methods wait on the same future.
  */
 @Slf4j
 public class OpenAiLlmUtil {
 
     private static final int MAX_RETRIES = 2;
     private static final long RETRY_DELAY_MS = 1000;
-    private static final ObjectMapper STREAM_MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    private final RestClient restClient;
-    private final HttpClient streamClient;
-    private final String baseUrl;
+    private final LlmHttpTransport transport;
+    private final URI endpoint;
     private final String apiKey;
     private final String model;
 
-    public OpenAiLlmUtil(String baseUrl, String apiKey, String model) {
+    public OpenAiLlmUtil(String baseUrl, String apiKey, String model, LlmHttpTransport transport) {
         String cleanBase = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
-        this.baseUrl = cleanBase;
+        this.endpoint = URI.create(cleanBase + "/chat/completions");
         this.apiKey = apiKey;
         this.model = model;
-        this.restClient = RestClient.builder()
-                .baseUrl(cleanBase)
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .requestFactory(createRequestFactory())
-                .build();
-        this.streamClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-    }
-
-    private static ClientHttpRequestFactory createRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(Duration.ofSeconds(10));
-        factory.setReadTimeout(Duration.ofSeconds(90));
-        return factory;
+        this.transport = transport;
     }
 
     /** Standard chat, no model override */
@@ -86,7 +75,7 @@ public class OpenAiLlmUtil {
         request.setTools(tools);
 
         log.debug("OpenAiLlmUtil request: model={}, messages={}, tools={}", effectiveModel, messages.size(), tools != null ? tools.size() : 0);
-        return executeWithRetry(request).getContent();
+        return await(executeAsync(request)).getContent();
     }
 
     /**
@@ -107,6 +96,17 @@ public class OpenAiLlmUtil {
     public ChatResult chatWithMessagesAndTools(List<Map<String, Object>> messages, double temperature,
                                                 String modelOverride, List<Map<String, Object>> tools,
                                                 String toolChoice) {
+        return await(chatWithMessagesAndToolsAsync(messages, temperature, modelOverride, tools, toolChoice));
+    }
+
+    /**
+     * Non-blocking {@link #chatWithMessagesAndTools}: completes with the result, or exceptionally
+     * once the retries are exhausted. Retries are scheduled, not slept.
+     */
+    public CompletableFuture<ChatResult> chatWithMessagesAndToolsAsync(List<Map<String, Object>> messages,
+                                                                       double temperature, String modelOverride,
+                                                                       List<Map<String, Object>> tools,
+                                                                       String toolChoice) {
         String effectiveModel = (modelOverride != null && !modelOverride.isBlank()) ? modelOverride : this.model;
         ChatRequest request = new ChatRequest();
         request.setModel(effectiveModel);
@@ -117,7 +117,7 @@ public class OpenAiLlmUtil {
 
         log.debug("OpenAiLlmUtil request: model={}, messages={}, tools={}, toolChoice={}",
                 effectiveModel, messages.size(), tools != null ? tools.size() : 0, toolChoice);
-        return executeWithRetry(request);
+        return executeAsync(request);
     }
 
     /**
@@ -142,7 +142,7 @@ public class OpenAiLlmUtil {
         }
 
         log.debug("OpenAiLlmUtil request: model={}, thinking={}, messages={}, tools={}", model, thinking, messages.size(), tools != null ? tools.size() : 0);
-        return executeWithRetry(request).getContent();
+        return await(executeAsync(request)).getContent();
     }
 
     /**
@@ -182,7 +182,7 @@ public class OpenAiLlmUtil {
         request.setTools(tools);
 
         log.debug("OpenAiLlmUtil stream request: model={}, messages={}, tools={}", effectiveModel, messages.size(), tools != null ? tools.size() : 0);
-        return doStream(request, callback);
+        return doStream(request, callback, null).getContent();
     }
 
     /**
@@ -200,130 +200,270 @@ public class OpenAiLlmUtil {
         request.setStream(true);
 
         log.debug("OpenAiLlmUtil stream(object) request: model={}, messages={}", effectiveModel, messages.size());
-        return doStream(request, callback);
+        return doStream(request, callback, null).getContent();
+    }
+
+    /**
+     * Streamed tool-calling round. Thinking and content tokens go to {@code callback} as they
+     * arrive; tool calls are assembled from their deltas and each one is passed to
+     * {@code listener} as soon as it is complete, before the response has finished.
+     *
+     * @return content (if any), all tool calls in order, and the finish reason
+     */
+    public ChatResult chatStreamWithTools(List<Map<String, Object>> messages, double temperature,
+                                          String modelOverride, List<Map<String, Object>> tools,
+                                          String toolChoice, StreamCallback callback, ToolCallListener listener) {
+        String effectiveModel = (modelOverride != null && !modelOverride.isBlank()) ? modelOverride : this.model;
+        ChatRequest request = new ChatRequest();
+        request.setModel(effectiveModel);
+        request.setTemperature(temperature);
+        request.setMessages(messages);
+        request.setStream(true);
+        request.setStreamOptions(Map.of("include_usage", true));
+        request.setTools(tools);
+        request.setToolChoice(toolChoice);
+
+        log.debug("OpenAiLlmUtil stream(tools) request: model={}, messages={}, tools={}, toolChoice={}",
+                effectiveModel, messages.size(), tools != null ? tools.size() : 0, toolChoice);
+        return doStream(request, callback, listener);
     }
 
     /**
      * Shared SSE streaming core. Sends {@code request} (stream=true) and forwards
-     * thinking / content / tool_calls tokens to {@code callback}.
+     * thinking / content tokens to {@code callback}. Tool call deltas are assembled and
+     * reported to {@code listener} when given, otherwise forwarded raw as {@code tool_calls} tokens.
+     * Retryable failures are retried like the blocking path, but only until the first token or
+     * tool call has reached the caller; after that a retry would replay output already shown.
      */
-    private String doStream(ChatRequest request, StreamCallback callback) {
+    private ChatResult doStream(ChatRequest request, StreamCallback callback, ToolCallListener listener) {
+        String body;
         try {
-            String body = STREAM_MAPPER.writeValueAsString(request);
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/chat/completions"))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
-                    .timeout(Duration.ofMinutes(3))
-                    .build();
-
-            HttpResponse<java.io.InputStream> httpResp = streamClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
-            if (httpResp.statusCode() != 200) {
-                String errBody = new String(httpResp.body().readAllBytes(), StandardCharsets.UTF_8);
-                throw new RuntimeException("LLM stream HTTP " + httpResp.statusCode() + ": " + errBody);
+            body = MAPPER.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("LLM request serialization failed: " + e.getMessage(), e);
+        }
+        AtomicBoolean delivered = new AtomicBoolean();
+        StreamCallback tracked = (type, token) -> {
+            delivered.set(true);
+            callback.onToken(type, token);
+        };
+        ToolCallListener trackedListener = listener == null ? null : new ToolCallListener() {
+            @Override
+            public void onToolCall(ChatResponse.Choice.ToolCall toolCall) {
+                delivered.set(true);
+                listener.onToolCall(toolCall);
             }
 
-            StringBuilder fullContent = new StringBuilder();
-            StringBuilder fullThinking = new StringBuilder();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(httpResp.body(), StandardCharsets.UTF_8));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.startsWith("data:")) continue;
-                String data = line.substring(5).trim();
-                if ("[DONE]".equals(data)) break;
-
+            @Override
+            public void onPartialArguments(String toolName, String partialArguments) {
+                delivered.set(true);
+                listener.onPartialArguments(toolName, partialArguments);
+            }
+        };
+        for (int attempt = 0; ; attempt++) {
+            try {
+                ChatResult result = streamOnce(body, tracked,
+                        trackedListener != null ? new ToolCallAssembler(trackedListener) : null);
+                result.setRetries(attempt);
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("LLM stream call interrupted", e);
+            } catch (Exception e) {
+                if (attempt >= MAX_RETRIES || delivered.get() || !isRetryable(e)) {
+                    log.error("OpenAiLlmUtil stream failed after {} attempts", attempt + 1);
+                    throw new RuntimeException("LLM stream call failed: " + e.getMessage(), e);
+                }
+                long delay = RETRY_DELAY_MS * (attempt + 1);
+                log.warn("LLM stream failed (attempt {}/{}), retrying in {}ms: {}",
+                        attempt + 1, MAX_RETRIES + 1, delay, e.getMessage());
                 try {
-                    JsonNode chunk = STREAM_MAPPER.readTree(data);
-                    JsonNode choices = chunk.get("choices");
-                    if (choices == null || choices.isEmpty()) continue;
-                    JsonNode delta = choices.get(0).get("delta");
-                    if (delta == null) continue;
-
-                    // DeepSeek reasoning_content
-                    JsonNode reasoningNode = delta.get("reasoning_content");
-                    if (reasoningNode != null && !reasoningNode.isNull() && !reasoningNode.asText().isEmpty()) {
-                        String token = reasoningNode.asText();
-                        fullThinking.append(token);
-                        callback.onToken("thinking", token);
-                    }
-
-                    // Standard content
-                    JsonNode contentNode = delta.get("content");
-                    if (contentNode != null && !contentNode.isNull() && !contentNode.asText().isEmpty()) {
-                        String token = contentNode.asText();
-                        fullContent.append(token);
-                        callback.onToken("content", token);
-                    }
-
-                    // Tool calls streaming detection
-                    JsonNode toolCallsNode = delta.get("tool_calls");
-                    if (toolCallsNode != null && toolCallsNode.isArray()) {
-                        String toolCallsJson = STREAM_MAPPER.writeValueAsString(toolCallsNode);
-                        callback.onToken("tool_calls", toolCallsJson);
-                    }
-                } catch (Exception e) {
-                    log.trace("Failed to parse SSE chunk: {}", data, e);
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("LLM stream call interrupted", ie);
                 }
             }
+        }
+    }
 
-            // If there was thinking content but no regular content, return thinking
-            if (fullContent.isEmpty() && fullThinking.length() > 0) {
-                return fullThinking.toString();
+    private ChatResult streamOnce(String body, StreamCallback callback, ToolCallAssembler toolCalls)
+            throws IOException, InterruptedException {
+        LlmHttpTransport.StreamResponse httpResp = transport.postJsonStream(endpoint, apiKey, body);
+        try (InputStream stream = httpResp.body()) {
+            if (httpResp.statusCode() != 200) {
+                String errBody = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+                throw new LlmHttpStatusException(httpResp.statusCode(), errBody);
             }
-            return fullContent.toString();
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException("LLM stream call failed: " + e.getMessage(), e);
+            return readStream(stream, callback, toolCalls);
         }
     }
 
-    private ChatResult executeWithRetry(ChatRequest request) {
-        Exception lastException = null;
-        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                ChatResponse response = restClient.post()
-                        .uri("/chat/completions")
-                        .body(request)
-                        .retrieve()
-                        .body(ChatResponse.class);
-
-                if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
-                    throw new RuntimeException("LLM returned empty response");
-                }
+    private ChatResult readStream(InputStream stream, StreamCallback callback, ToolCallAssembler toolCalls)
+            throws IOException {
+        String finishReason = null;
+        ChatResponse.Usage usage = null;
+        StringBuilder fullContent = new StringBuilder();
+        StringBuilder fullThinking = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) continue;
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) break;
 
-                ChatResponse.Choice choice = response.getChoices().get(0);
-                ChatResponse.Choice.Message message = choice.getMessage();
-                String reasoningContent = message.getReasoningContent();
-                if (reasoningContent != null && !reasoningContent.isBlank()) {
-                    log.debug("DeepSeek reasoning_content ({}chars): {}...",
-                            reasoningContent.length(),
-                            reasoningContent.substring(0, Math.min(200, reasoningContent.length())));
+            try {
+                JsonNode chunk = MAPPER.readTree(data);
+                JsonNode usageNode = chunk.get("usage");
+                if (usageNode != null && usageNode.isObject()) usage = MAPPER.treeToValue(usageNode, ChatResponse.Usage.class);
+                JsonNode choices = chunk.get("choices");
+                if (choices == null || choices.isEmpty()) continue;
+                JsonNode finish = choices.get(0).get("finish_reason");
+                if (finish != null && !finish.isNull()) finishReason = finish.asText();
+                JsonNode delta = choices.get(0).get("delta");
+                if (delta == null) continue;
+
+                // DeepSeek reasoning_content
+                JsonNode reasoningNode = delta.get("reasoning_content");
+                if (reasoningNode != null && !reasoningNode.isNull() && !reasoningNode.asText().isEmpty()) {
+                    String token = reasoningNode.asText();
+                    fullThinking.append(token);
+                    callback.onToken("thinking", token);
                 }
 
-                // Check for tool calls
-                List<ChatResponse.Choice.ToolCall> toolCalls = message.getToolCalls();
-                if (toolCalls != null && !toolCalls.isEmpty()) {
-                    return new ChatResult(message.getContent(), toolCalls, choice.getFinishReason());
+                // Standard content
+                JsonNode contentNode = delta.get("content");
+                if (contentNode != null && !contentNode.isNull() && !contentNode.asText().isEmpty()) {
+                    String token = contentNode.asText();
+                    fullContent.append(token);
+                    callback.onToken("content", token);
                 }
 
-                return ChatResult.fromContent(message.getContent());
-            } catch (Exception e) {
-                lastException = e;
-                if (attempt < MAX_RETRIES) {
-                    long delay = RETRY_DELAY_MS * (attempt + 1);
-                    log.warn("LLM request failed (attempt {}/{}), retrying in {}ms: {}",
-                            attempt + 1, MAX_RETRIES + 1, delay, e.getMessage());
-                    try { Thread.sleep(delay); } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("LLM call interrupted", ie);
+                // Tool calls streaming detection
+                JsonNode toolCallsNode = delta.get("tool_calls");
+                if (toolCallsNode != null && toolCallsNode.isArray()) {
+                    if (toolCalls != null) {
+                        toolCalls.accept(toolCallsNode);
+                    } else {
+                        callback.onToken("tool_calls", MAPPER.writeValueAsString(toolCallsNode));
                     }
                 }
+            } catch (Exception e) {
+                log.trace("Failed to parse SSE chunk: {}", data, e);
             }
         }
-        log.error("OpenAiLlmUtil request failed after {} attempts", MAX_RETRIES + 1);
-        throw new RuntimeException("LLM call failed: " + lastException.getMessage(), lastException);
+
+        ChatResult result;
+        if (toolCalls != null && !toolCalls.isEmpty()) {
+            result = new ChatResult(fullContent.toString(), toolCalls.finish(),
+                    finishReason != null ? finishReason : "tool_calls");
+        } else {
+            // If there was thinking content but no regular content, return thinking
+            String content = fullContent.isEmpty() && fullThinking.length() > 0
+                    ? fullThinking.toString() : fullContent.toString();
+            result = new ChatResult(content, null, finishReason != null ? finishReason : "stop");
+        }
+        result.setUsage(usage);
+        return result;
+    }
+
+    private CompletableFuture<ChatResult> executeAsync(ChatRequest request) {
+        try {
+            return attempt(MAPPER.writeValueAsString(request), 0);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("LLM request serialization failed: " + e.getMessage(), e));
+        }
+    }
+
+    private CompletableFuture<ChatResult> attempt(String body, int attempt) {
+        return transport.postJson(endpoint, apiKey, body)
+                .thenApply(httpResp -> {
+                    ChatResult result = toResult(httpResp);
+                    result.setRetries(attempt);
+                    return result;
+                })
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (attempt < MAX_RETRIES && isRetryable(cause)) {
+                        long delay = RETRY_DELAY_MS * (attempt + 1);
+                        log.warn("LLM request failed (attempt {}/{}), retrying in {}ms: {}",
+                                attempt + 1, MAX_RETRIES + 1, delay, cause.getMessage());
+                        return CompletableFuture.runAsync(() -> {},
+                                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                                .thenCompose(v -> attempt(body, attempt + 1));
+                    }
+                    log.error("OpenAiLlmUtil request failed after {} attempts", attempt + 1);
+                    return CompletableFuture.failedFuture(
+                            new RuntimeException("LLM call failed: " + cause.getMessage(), cause));
+                });
+    }
+
+    private ChatResult toResult(HttpResponse<String> httpResp) {
+        if (httpResp.statusCode() / 100 != 2) {
+            throw new LlmHttpStatusException(httpResp.statusCode(), httpResp.body());
+        }
+        ChatResponse response;
+        try {
+            response = MAPPER.readValue(httpResp.body(), ChatResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("LLM returned invalid JSON: " + e.getOriginalMessage(), e);
+        }
+        if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
+            throw new RuntimeException("LLM returned empty response");
+        }
+
+        ChatResponse.Choice choice = response.getChoices().get(0);
+        ChatResponse.Choice.Message message = choice.getMessage();
+        String reasoningContent = message.getReasoningContent();
+        if (reasoningContent != null && !reasoningContent.isBlank()) {
+            log.debug("DeepSeek reasoning_content ({}chars): {}...",
+                    reasoningContent.length(),
+                    reasoningContent.substring(0, Math.min(200, reasoningContent.length())));
+        }
+
+        // Check for tool calls
+        List<ChatResponse.Choice.ToolCall> toolCalls = message.getToolCalls();
+        ChatResult result = toolCalls != null && !toolCalls.isEmpty()
+                ? new ChatResult(message.getContent(), toolCalls, choice.getFinishReason())
+                : ChatResult.fromContent(message.getContent());
+        result.setUsage(response.getUsage());
+        return result;
+    }
+
+    /** Transport failures, timeouts, 429 and 5xx are retried; other 4xx would fail the same way again. */
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof LlmHttpStatusException status) {
+            return status.getStatusCode() == 429 || status.getStatusCode() >= 500;
+        }
+        return true;
+    }
+
+    /** Blocks for a result, rethrowing the failure and honouring interruption. */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("LLM call interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException("LLM call failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /** Non-2xx response of the chat completions endpoint. */
+    public static class LlmHttpStatusException extends RuntimeException {
+        private final int statusCode;
+
+        public LlmHttpStatusException(int statusCode, String body) {
+            super("LLM HTTP " + statusCode + ": " + body);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
     }
 
     // ===== Streaming callback interface =====
@@ -332,6 +472,14 @@ public class OpenAiLlmUtil {
         void onToken(String type, String token);
     }
 
+    /** Receives each tool call of a streamed response as soon as its arguments are complete. */
+    public interface ToolCallListener {
+        void onToolCall(ChatResponse.Choice.ToolCall toolCall);
+
+        /** Arguments received so far of a call still being generated; usually incomplete JSON. */
+        default void onPartialArguments(String toolName, String partialArguments) {}
+    }
+
     // ===== DTOs =====
 
     @Data
@@ -344,6 +492,9 @@ public class OpenAiLlmUtil {
         private Integer maxTokens;
         @JsonProperty("stream")
         private boolean stream = false;
+        /** {@code include_usage} makes the last streamed chunk carry token usage. */
+        @JsonProperty("stream_options")
+        private Map<String, Object> streamOptions;
         private ThinkingConfig thinking;
         private List<Map<String, Object>> tools;
         @JsonProperty("tool_choice")
@@ -425,6 +576,12 @@ public class OpenAiLlmUtil {
         private List<ChatResponse.Choice.ToolCall> toolCalls;
         @JsonProperty("finish_reason")
         private String finishReason;
+        /** Token usage reported by the provider, if any. */
+        @JsonIgnore
+        private ChatResponse.Usage usage;
+        /** Attempts that failed and were retried before this result. */
+        @JsonIgnore
+        private int retries;
 
         public ChatResult(String content, List<ChatResponse.Choice.ToolCall> toolCalls, String finishReason) {
             this.content = content;
@@ -0,0 +1,118 @@
+package com.example.mysqlbot.util;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt template ({@code prompts/*.st}) compiled once into alternating literal and placeholder
+ * segments, so rendering is a single append pass instead of one {@code String.replace} scan of
+ * the whole text per placeholder.
+ *
+ * <p>Placeholders are {@code {name}} with an identifier inside; other braces (the JSON samples in
+ * the prompts) are literal text. A placeholder without a value is kept as written. Values are
+ * inserted verbatim and never scanned for placeholders themselves, unlike chained replaces, where
+ * a question containing {@code {sql}} would have been substituted too.
+ *
+ * <p>{@link #bind} substitutes some placeholders and returns a new template for the rest, which
+ * lets callers cache a prompt's static part and render only the per-request part. Instances are
+ * immutable.
+ */
+public final class PromptTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z][A-Za-z0-9_]*)}");
+
+    /** {@code literals.length == names.length + 1}: literal, name, literal, ..., literal. */
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, String[] names) {
+        this.literals = literals;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) length += literal.length();
+        this.literalLength = length;
+    }
+
+    public static PromptTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Matcher m = PLACEHOLDER.matcher(text);
+        int last = 0;
+        while (m.find()) {
+            literals.add(text.substring(last, m.start()));
+            names.add(m.group(1));
+            last = m.end();
+        }
+        literals.add(text.substring(last));
+        return new PromptTemplate(literals.toArray(String[]::new), names.toArray(String[]::new));
+    }
+
+    /** Compiles a UTF-8 classpath resource, e.g. {@code prompts/sql-generate.st}. */
+    public static PromptTemplate load(String path) {
+        try {
+            return compile(new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load prompt template: " + path, e);
+        }
+    }
+
+    /** Placeholder names in order of first occurrence. */
+    public Set<String> placeholders() {
+        return new LinkedHashSet<>(Arrays.asList(names));
+    }
+
+    /** Length of the template's literal text, i.e. of a render with every value empty. */
+    public int length() {
+        return literalLength;
+    }
+
+    public String render(Map<String, String> values) {
+        int capacity = literalLength;
+        for (String name : names) {
+            String value = values.get(name);
+            capacity += value != null ? value.length() : name.length() + 2;
+        }
+        StringBuilder sb = new StringBuilder(capacity);
+        for (int i = 0; i < names.length; i++) {
+            sb.append(literals[i]);
+            appendValue(sb, names[i], values);
+        }
+        return sb.append(literals[names.length]).toString();
+    }
+
+    /** A template with the given placeholders substituted and the others still open. */
+    public PromptTemplate bind(Map<String, String> values) {
+        List<String> newLiterals = new ArrayList<>();
+        List<String> newNames = new ArrayList<>();
+        StringBuilder pending = new StringBuilder(literals[0]);
+        for (int i = 0; i < names.length; i++) {
+            String value = values.get(names[i]);
+            if (value != null) {
+                pending.append(value);
+            } else {
+                newLiterals.add(pending.toString());
+                newNames.add(names[i]);
+                pending.setLength(0);
+            }
+            pending.append(literals[i + 1]);
+        }
+        newLiterals.add(pending.toString());
+        return new PromptTemplate(newLiterals.toArray(String[]::new), newNames.toArray(String[]::new));
+    }
+
+    private static void appendValue(StringBuilder sb, String name, Map<String, String> values) {
+        String value = values.get(name);
+        if (value != null) {
+            sb.append(value);
+        } else {
+            sb.append('{').append(name).append('}');
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.mysqlbot.util;
+
+import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResponse.Choice.ToolCall;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Rebuilds the tool calls of a streamed completion from its {@code delta.tool_calls} fragments.
+ *
+ * <p>Calls arrive one after another, each as an id/name fragment followed by argument pieces,
+ * keyed by {@code index}. A call is complete as soon as its JSON arguments close (tracked by
+ * brace depth outside string literals), or failing that once a fragment of a later call arrives
+ * or the stream ends. It is then handed to the {@link OpenAiLlmUtil.ToolCallListener}, so the
+ * caller can start executing it while the rest of the response is still being generated; the
+ * listener also sees the arguments of an open call as they grow.
+ *
+ * <p>Not thread-safe; one instance per streamed response.
+ */
+final class ToolCallAssembler {
+
+    private static final class Partial {
+        String id;
+        String type;
+        String name;
+        final StringBuilder arguments = new StringBuilder();
+        ToolCall completed;
+        int depth;
+        boolean opened;
+        boolean inString;
+        boolean escaped;
+
+        /** Scans a new argument piece; true once the top-level JSON object has closed. */
+        boolean closes(String piece) {
+            for (int i = 0; i < piece.length(); i++) {
+                char c = piece.charAt(i);
+                if (inString) {
+                    if (escaped) escaped = false;
+                    else if (c == '\\') escaped = true;
+                    else if (c == '"') inString = false;
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                    opened = true;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+            return opened && depth == 0;
+        }
+    }
+
+    private final OpenAiLlmUtil.ToolCallListener listener;
+    private final TreeMap<Integer, Partial> partials = new TreeMap<>();
+    private int current = -1;
+
+    ToolCallAssembler(OpenAiLlmUtil.ToolCallListener listener) {
+        this.listener = listener;
+    }
+
+    /** Feeds one {@code delta.tool_calls} array. */
+    void accept(JsonNode toolCalls) {
+        for (JsonNode fragment : toolCalls) {
+            int index = indexOf(fragment);
+            if (index != current) {
+                if (current >= 0) complete(partials.get(current));
+                current = index;
+            }
+            Partial p = partials.computeIfAbsent(index, i -> new Partial());
+            if (p.completed != null) continue;
+            if (fragment.hasNonNull("id") && p.id == null) p.id = fragment.get("id").asText();
+            if (fragment.hasNonNull("type") && p.type == null) p.type = fragment.get("type").asText();
+            JsonNode function = fragment.get("function");
+            if (function == null) continue;
+            if (function.hasNonNull("name") && p.name == null) p.name = function.get("name").asText();
+            if (function.hasNonNull("arguments")) {
+                String piece = function.get("arguments").asText();
+                p.arguments.append(piece);
+                if (p.closes(piece)) {
+                    complete(p);
+                } else if (listener != null && p.name != null && !piece.isEmpty()) {
+                    listener.onPartialArguments(p.name, p.arguments.toString());
+                }
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return partials.isEmpty();
+    }
+
+    /** Completes the calls still open at the end of the stream; all calls in index order. */
+    List<ToolCall> finish() {
+        List<ToolCall> calls = new ArrayList<>(partials.size());
+        for (Partial p : partials.values()) calls.add(complete(p));
+        return calls;
+    }
+
+    /**
+     * OpenAI sends an explicit index; some compatible servers omit it and only start a new
+     * call with a new id.
+     */
+    private int indexOf(JsonNode fragment) {
+        if (fragment.has("index")) return fragment.get("index").asInt();
+        if (current < 0) return 0;
+        String id = fragment.hasNonNull("id") ? fragment.get("id").asText() : null;
+        Partial open = partials.get(current);
+        return id != null && open != null && open.id != null && !Objects.equals(id, open.id)
+                ? partials.lastKey() + 1 : current;
+    }
+
+    private ToolCall complete(Partial p) {
+        if (p.completed != null) return p.completed;
+        ToolCall.FunctionCall function = new ToolCall.FunctionCall();
+        function.setName(p.name);
+        function.setArguments(p.arguments.toString());
+        ToolCall call = new ToolCall();
+        call.setId(p.id);
+        call.setType(p.type != null ? p.type : "function");
+        call.setFunction(function);
+        p.completed = call;
+        if (listener != null && p.name != null) listener.onToolCall(call);
+        return call;
+    }
+}
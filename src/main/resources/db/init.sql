@@ -20,6 +20,7 @@ CREATE TABLE IF NOT EXISTS data_source (
     password         VARCHAR(500) NOT NULL,
     status           SMALLINT DEFAULT 1,
     schema_synced_at TIMESTAMP,
+    result_cache_ttl_seconds INT,
     created_at       TIMESTAMP DEFAULT NOW(),
     updated_at       TIMESTAMP DEFAULT NOW(),
     CONSTRAINT uk_data_source_name UNIQUE (name)
@@ -28,6 +29,7 @@ COMMENT ON TABLE  data_source IS '数据源配置';
 COMMENT ON COLUMN data_source.db_type IS '数据库类型: postgresql';
 COMMENT ON COLUMN data_source.status  IS '状态: 1=正常, 0=禁用';
 COMMENT ON COLUMN data_source.schema_synced_at IS 'Schema 最后同步时间';
+COMMENT ON COLUMN data_source.result_cache_ttl_seconds IS '查询结果缓存时长(秒), NULL/0=不缓存';
 
 -- ===== LLM 配置表 =====
 CREATE TABLE IF NOT EXISTS llm_config (
@@ -71,6 +73,7 @@ CREATE TABLE IF NOT EXISTS chat_message (
     sql_result TEXT,
     error_msg  TEXT,
     thinking_content TEXT,
+    trace_id   VARCHAR(32),
     created_at TIMESTAMP DEFAULT NOW()
 );
 CREATE INDEX IF NOT EXISTS idx_chat_message_session_id ON chat_message (session_id);
@@ -78,6 +81,7 @@ COMMENT ON TABLE  chat_message IS '对话消息';
 COMMENT ON COLUMN chat_message.role       IS '角色: user, assistant';
 COMMENT ON COLUMN chat_message.sql_query  IS '生成的 SQL';
 COMMENT ON COLUMN chat_message.sql_result IS 'SQL 执行结果 (JSON)';
+COMMENT ON COLUMN chat_message.trace_id   IS '链路追踪 trace id';
 
 -- ===== SQL 示例表 (用于 RAG 优化) =====
 CREATE TABLE IF NOT EXISTS sql_example (
@@ -98,12 +102,14 @@ CREATE TABLE IF NOT EXISTS term_glossary (
     data_source_id BIGINT,
     term           VARCHAR(200) NOT NULL,
     definition     TEXT NOT NULL,
+    synonyms       VARCHAR(500),
     is_active      SMALLINT DEFAULT 1,
     created_at     TIMESTAMP DEFAULT NOW()
 );
 CREATE INDEX IF NOT EXISTS idx_term_glossary_data_source_id ON term_glossary (data_source_id);
 COMMENT ON TABLE  term_glossary IS '业务术语表';
 COMMENT ON COLUMN term_glossary.data_source_id IS '关联数据源 (NULL 表示全局)';
+COMMENT ON COLUMN term_glossary.synonyms IS '同义词，逗号/顿号/分号分隔';
 
 -- ===== 系统配置表 (Key-Value 持久化) =====
 CREATE TABLE IF NOT EXISTS system_config (
@@ -155,3 +161,34 @@ CREATE INDEX IF NOT EXISTS idx_table_relation_ds ON table_relation (data_source_
 COMMENT ON TABLE  table_relation IS '表间关系（JOIN 依据）：外键/命名约定/LLM推断/手动声明';
 COMMENT ON COLUMN table_relation.source     IS '来源: fk=物理外键, naming=命名约定, llm=LLM推断, manual=手动声明';
 COMMENT ON COLUMN table_relation.confidence IS '置信度 0.0~1.0';
+
+-- ===== Schema 快照（同步时写入，工具/页面读取）=====
+CREATE TABLE IF NOT EXISTS schema_snapshot (
+    id              BIGSERIAL PRIMARY KEY,
+    data_source_id  BIGINT NOT NULL,
+    version         INTEGER NOT NULL,
+    table_count     INTEGER,
+    created_at      TIMESTAMP DEFAULT NOW(),
+    CONSTRAINT uk_schema_snapshot UNIQUE (data_source_id, version)
+);
+COMMENT ON TABLE  schema_snapshot IS 'Schema 快照版本（每次同步一个版本）';
+
+CREATE TABLE IF NOT EXISTS schema_snapshot_table (
+    id                 BIGSERIAL PRIMARY KEY,
+    snapshot_id        BIGINT NOT NULL,
+    table_name         VARCHAR(500) NOT NULL,
+    simple_name        VARCHAR(200) NOT NULL,
+    table_schema       VARCHAR(200),
+    remarks            TEXT,
+    row_estimate       BIGINT,
+    fingerprint        VARCHAR(64),
+    columns_json       TEXT NOT NULL,
+    primary_keys_json  TEXT,
+    foreign_keys_json  TEXT
+);
+CREATE INDEX IF NOT EXISTS idx_schema_snapshot_table_snapshot ON schema_snapshot_table (snapshot_id);
+COMMENT ON TABLE  schema_snapshot_table IS 'Schema 快照中的表结构';
+COMMENT ON COLUMN schema_snapshot_table.table_name   IS '限定表名（非默认 schema 带前缀）';
+COMMENT ON COLUMN schema_snapshot_table.row_estimate IS '统计信息中的行数估算';
+COMMENT ON COLUMN schema_snapshot_table.fingerprint  IS '表结构指纹，增量同步用于变更检测';
+COMMENT ON COLUMN schema_snapshot_table.columns_json IS '列信息 JSON: [{name,type,remarks}]';
@@ -0,0 +1,86 @@
+package com.example.mysqlbot.benchmark;
+
+import com.example.mysqlbot.util.LlmHttpTransport;
+import com.example.mysqlbot.util.MockOpenAiServer;
+import com.example.mysqlbot.util.OpenAiLlmUtil;
+import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip latency of tool-calling chat requests against a local {@link MockOpenAiServer}:
+ * a client with its own transport per call (a new connection each time, as the per-provider
+ * clients had once their idle connections were gone) versus the shared pooled transport, and
+ * a burst of concurrent async requests on the shared transport.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.mysqlbot.benchmark.LlmTransportBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LlmTransportBenchmark {
+
+    private static final List<Map<String, Object>> MESSAGES = List.of(
+            Map.of("role", "system", "content", "You are a SQL assistant."),
+            Map.of("role", "user", "content", "上个月各地区的订单数"));
+
+    @Param({"8"})
+    public int concurrency;
+
+    private MockOpenAiServer server;
+    private LlmHttpTransport shared;
+    private OpenAiLlmUtil pooled;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new MockOpenAiServer();
+        shared = LlmHttpTransport.withDefaults();
+        pooled = new OpenAiLlmUtil(server.baseUrl(), "sk-bench", "mock-model", shared);
+    }
+
+    @TearDown
+    public void tearDown() {
+        shared.close();
+        server.close();
+    }
+
+    @Benchmark
+    public ChatResult newConnectionPerCall() {
+        try (LlmHttpTransport own = LlmHttpTransport.withDefaults()) {
+            return new OpenAiLlmUtil(server.baseUrl(), "sk-bench", "mock-model", own)
+                    .chatWithMessagesAndTools(MESSAGES, 0.1, null, null);
+        }
+    }
+
+    @Benchmark
+    public ChatResult sharedTransport() {
+        return pooled.chatWithMessagesAndTools(MESSAGES, 0.1, null, null);
+    }
+
+    @Benchmark
+    public List<ChatResult> sharedTransportConcurrent() {
+        List<CompletableFuture<ChatResult>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(pooled.chatWithMessagesAndToolsAsync(MESSAGES, 0.1, null, null, null));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(LlmTransportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.mysqlbot.benchmark;
+
+import com.example.mysqlbot.service.RelationInferenceService;
+import com.example.mysqlbot.service.RelationInferenceService.InferredRelation;
+import com.example.mysqlbot.service.RelationInferenceService.TableMeta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Naming-convention relation inference on a synthetic schema: the indexed implementation in
+ * {@link RelationInferenceService#inferFromNamingConventions} against the previous nested scan,
+ * kept here as {@link #scan}, which compared every column with every other table's primary key.
+ *
+ * <p>Each table has 12 columns: an {@code id} primary key, two {@code xxx_id} references to
+ * earlier tables and, on every tenth table, a business key that is another table's primary key.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.mysqlbot.benchmark.NamingConventionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NamingConventionBenchmark {
+
+    private static final int COLUMNS_PER_TABLE = 12;
+
+    @Param({"1000", "10000"})
+    public int tables;
+
+    private final RelationInferenceService service = new RelationInferenceService(new ObjectMapper());
+    private final List<TableMeta> schema = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int t = 0; t < tables; t++) {
+            TableMeta meta = new TableMeta();
+            meta.simpleTableName = "entity" + t + "s";
+            meta.tableName = meta.simpleTableName;
+            boolean businessKey = t % 10 == 0;
+            meta.primaryKeys.add(businessKey ? "code" + t : "id");
+            meta.columns.add(meta.primaryKeys.get(0));
+            for (int r = 0; r < 2 && t > 0; r++) {
+                meta.columns.add("entity" + random.nextInt(t) + "_id");
+            }
+            if (t >= 10) meta.columns.add("code" + (random.nextInt(t / 10) * 10));
+            while (meta.columns.size() < COLUMNS_PER_TABLE) {
+                meta.columns.add("attr_" + meta.columns.size());
+            }
+            schema.add(meta);
+        }
+        if (indexed().size() != scan().size()) {
+            throw new IllegalStateException("Indexed and scanning inference disagree");
+        }
+    }
+
+    @Benchmark
+    public List<InferredRelation> indexed() {
+        return service.inferFromNamingConventions(schema);
+    }
+
+    @Benchmark
+    public List<InferredRelation> scan() {
+        Map<String, TableMeta> bySimpleName = new HashMap<>();
+        for (TableMeta t : schema) {
+            bySimpleName.put(t.simpleTableName.toLowerCase(), t);
+        }
+        Map<String, InferredRelation> dedup = new LinkedHashMap<>();
+        for (TableMeta table : schema) {
+            Set<String> pkSet = new HashSet<>(table.primaryKeys);
+            for (String col : table.columns) {
+                if (pkSet.contains(col)) continue;
+                String colLower = col.toLowerCase();
+                if (colLower.endsWith("_id") && !colLower.equals("_id")) {
+                    String prefix = colLower.substring(0, colLower.length() - 3);
+                    TableMeta candidate = bySimpleName.get(prefix);
+                    if (candidate == null) candidate = bySimpleName.get(prefix + "s");
+                    if (candidate != null && !candidate.primaryKeys.isEmpty()) {
+                        String pk = candidate.primaryKeys.get(0);
+                        dedup.putIfAbsent(table.tableName + "|" + col + "|" + candidate.tableName + "|" + pk,
+                                new InferredRelation(table.tableName, col, candidate.tableName, pk,
+                                        "naming", new BigDecimal("0.70")));
+                    }
+                }
+                for (TableMeta other : schema) {
+                    if (other.tableName.equals(table.tableName)) continue;
+                    if (other.primaryKeys.contains(col)) {
+                        dedup.putIfAbsent(table.tableName + "|" + col + "|" + other.tableName + "|" + col,
+                                new InferredRelation(table.tableName, col, other.tableName, col,
+                                        "naming", new BigDecimal("0.65")));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(dedup.values());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(NamingConventionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
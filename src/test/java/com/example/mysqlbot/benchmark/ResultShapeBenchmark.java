@@ -0,0 +1,157 @@
+package com.example.mysqlbot.benchmark;
+
+import com.example.mysqlbot.service.result.ColumnarResult;
+import com.example.mysqlbot.service.result.ColumnarResultBuilder;
+import com.example.mysqlbot.service.result.FakeResultSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the historical map-per-row result shape with {@link ColumnarResult}: materializing
+ * a result set, serializing it to the {@code rows} JSON, and a typical aggregation pass.
+ *
+ * <p>Run with the GC profiler to see allocation per operation:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.mysqlbot.benchmark.ResultShapeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultShapeBenchmark {
+
+    private static final String[] LABELS = {"id", "region", "amount", "ratio", "created_at"};
+    private static final int[] TYPES = {Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.DOUBLE, Types.TIMESTAMP};
+    private static final String[] REGIONS = {"华东", "华北", "华南", "西南", "东北"};
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private Object[][] table;
+    private ResultSetMetaData metaData;
+    private List<Map<String, Object>> mapRows;
+    private ColumnarResult columnar;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        table = new Object[rows][];
+        long base = System.currentTimeMillis();
+        for (int i = 0; i < rows; i++) {
+            table[i] = new Object[]{
+                    (long) i,
+                    REGIONS[random.nextInt(REGIONS.length)],
+                    BigDecimal.valueOf(random.nextInt(1_000_000), 2),
+                    random.nextDouble(),
+                    new Timestamp(base - i * 60_000L)
+            };
+        }
+        metaData = FakeResultSet.metaData(LABELS, TYPES);
+        mapRows = readAsMaps();
+        columnar = readColumnar();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> materializeMaps() throws Exception {
+        return readAsMaps();
+    }
+
+    @Benchmark
+    public ColumnarResult materializeColumnar() throws Exception {
+        return readColumnar();
+    }
+
+    @Benchmark
+    public String serializeMaps() throws Exception {
+        return objectMapper.writeValueAsString(Map.of("rows", mapRows));
+    }
+
+    @Benchmark
+    public String serializeColumnar() throws Exception {
+        return objectMapper.writeValueAsString(new Holder(columnar));
+    }
+
+    @Benchmark
+    public double sumAmountMaps() {
+        double sum = 0;
+        for (Map<String, Object> row : mapRows) {
+            Object v = row.get("amount");
+            if (v instanceof Number n) sum += n.doubleValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sumAmountColumnar() {
+        var vector = columnar.column("amount");
+        double sum = 0;
+        for (int r = 0; r < vector.size(); r++) {
+            if (!vector.isNull(r)) sum += vector.getDouble(r);
+        }
+        return sum;
+    }
+
+    /** Bean whose {@code rows} property goes through {@link ColumnarResult.RowsSerializer}. */
+    public static final class Holder {
+        private final ColumnarResult data;
+
+        Holder(ColumnarResult data) {
+            this.data = data;
+        }
+
+        @com.fasterxml.jackson.databind.annotation.JsonSerialize(using = ColumnarResult.RowsSerializer.class)
+        public List<Map<String, Object>> getRows() {
+            return data.asRowMaps();
+        }
+    }
+
+    // ===== Fake JDBC =====
+
+    private List<Map<String, Object>> readAsMaps() throws Exception {
+        ResultSet rs = fakeResultSet();
+        List<Map<String, Object>> result = new ArrayList<>();
+        while (rs.next()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 1; i <= LABELS.length; i++) {
+                row.put(LABELS[i - 1], rs.getObject(i));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    private ColumnarResult readColumnar() throws Exception {
+        ResultSet rs = fakeResultSet();
+        ColumnarResultBuilder builder = ColumnarResultBuilder.forResultSet(metaData, Math.min(rows, 256));
+        while (rs.next()) {
+            builder.appendRow(rs);
+        }
+        return builder.build();
+    }
+
+    private ResultSet fakeResultSet() {
+        return FakeResultSet.of(metaData, table);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ResultShapeBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.mysqlbot.benchmark;
+
+import com.example.mysqlbot.model.DatabaseDialect;
+import com.example.mysqlbot.service.SchemaExtractor;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares per-table {@link DatabaseMetaData} extraction with the dialect's bulk catalog queries
+ * on a synthetic 5,000-table schema (12 columns, a primary key and two foreign keys per table).
+ *
+ * <p>The fake driver answers from memory and charges {@code latencyMicros} per round trip
+ * (each metadata call or {@code executeQuery}), which is what dominates sync time against a
+ * remote database: the metadata path makes 3 × tables + 2 round trips, the bulk path 4.
+ * {@code parallelism} is the number of concurrent connections a sync may use.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.mysqlbot.benchmark.SchemaExtractionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SchemaExtractionBenchmark {
+
+    private static final String DB = "bench";
+    private static final int COLUMNS_PER_TABLE = 12;
+    private static final DatabaseDialect DIALECT = DatabaseDialect.MYSQL;
+
+    @Param({"5000"})
+    public int tables;
+
+    /** Simulated network round-trip time; 0 isolates client-side cost. */
+    @Param({"0", "200"})
+    public int latencyMicros;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private final List<Map<String, Object>> tableRows = new ArrayList<>();
+    private final List<Map<String, Object>> columnRows = new ArrayList<>();
+    private final List<Map<String, Object>> pkRows = new ArrayList<>();
+    private final List<Map<String, Object>> fkRows = new ArrayList<>();
+    private final Map<String, List<Map<String, Object>>> columnsByTable = new HashMap<>();
+    private final Map<String, List<Map<String, Object>>> pksByTable = new HashMap<>();
+    private final Map<String, List<Map<String, Object>>> fksByTable = new HashMap<>();
+    private final AtomicInteger roundTrips = new AtomicInteger();
+    private Connection connection;
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        for (int t = 0; t < tables; t++) {
+            String table = "t_" + t;
+            tableRows.add(row("table_schema", DB, "table_name", table, "remarks", "table " + t,
+                    "row_estimate", (long) random.nextInt(1_000_000),
+                    "TABLE_NAME", table, "TABLE_SCHEM", null, "REMARKS", "table " + t));
+            for (int c = 0; c < COLUMNS_PER_TABLE; c++) {
+                String column = c == 0 ? "id" : "col_" + c;
+                String type = c == 0 ? "BIGINT" : "VARCHAR";
+                add(columnRows, columnsByTable, table, row("table_schema", DB, "table_name", table,
+                        "column_name", column, "type_name", type, "remarks", null,
+                        "COLUMN_NAME", column, "TYPE_NAME", type, "REMARKS", null));
+            }
+            add(pkRows, pksByTable, table, row("table_schema", DB, "table_name", table,
+                    "column_name", "id", "COLUMN_NAME", "id"));
+            for (int f = 1; f <= 2 && t > 0; f++) {
+                String target = "t_" + random.nextInt(t);
+                add(fkRows, fksByTable, table, row("table_schema", DB, "table_name", table,
+                        "fk_column", "col_" + f, "pk_table_schema", DB, "pk_table_name", target, "pk_column", "id",
+                        "FKCOLUMN_NAME", "col_" + f, "PKTABLE_SCHEM", null, "PKTABLE_NAME", target, "PKCOLUMN_NAME", "id"));
+            }
+        }
+        connection = fakeConnection();
+
+        List<TableInfo> bulk = readBulk();
+        List<TableInfo> perTable = readWithMetaData();
+        if (bulk.size() != tables || !bulk.get(tables - 1).getColumns().equals(perTable.get(tables - 1).getColumns())
+                || !bulk.get(tables - 1).getForeignKeys().equals(perTable.get(tables - 1).getForeignKeys())) {
+            throw new IllegalStateException("Bulk and metadata extraction disagree");
+        }
+    }
+
+    /** Round trips per invocation, reported by JMH next to the timing. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long roundTrips;
+    }
+
+    @Benchmark
+    public List<TableInfo> metaData(RoundTrips counter) throws Exception {
+        int before = roundTrips.get();
+        List<TableInfo> result = readWithMetaData();
+        counter.roundTrips += roundTrips.get() - before;
+        return result;
+    }
+
+    @Benchmark
+    public List<TableInfo> bulk(RoundTrips counter) throws Exception {
+        int before = roundTrips.get();
+        List<TableInfo> result = readBulk();
+        counter.roundTrips += roundTrips.get() - before;
+        return result;
+    }
+
+    private List<TableInfo> readWithMetaData() throws Exception {
+        return SchemaExtractor.extractWithMetaData(() -> connection, parallelism, 100, DIALECT, DB, t -> true, null);
+    }
+
+    private List<TableInfo> readBulk() throws Exception {
+        return SchemaExtractor.extractBulk(() -> connection, parallelism, DIALECT, DIALECT.catalogQueries(), DB, t -> true, null);
+    }
+
+    // ===== Fake JDBC =====
+
+    private static Map<String, Object> row(Object... kv) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2) {
+            row.put((String) kv[i], kv[i + 1]);
+        }
+        return row;
+    }
+
+    private static void add(List<Map<String, Object>> all, Map<String, List<Map<String, Object>>> byTable,
+                            String table, Map<String, Object> row) {
+        all.add(row);
+        byTable.computeIfAbsent(table, k -> new ArrayList<>()).add(row);
+    }
+
+    private void roundTrip() {
+        roundTrips.incrementAndGet();
+        if (latencyMicros > 0) LockSupport.parkNanos(latencyMicros * 1_000L);
+    }
+
+    private Connection fakeConnection() {
+        DatabaseDialect.CatalogQueries queries = DIALECT.catalogQueries();
+        Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Statement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "executeQuery" -> {
+                        roundTrip();
+                        String sql = (String) args[0];
+                        if (sql.equals(queries.tables()) || sql.equals(DIALECT.rowEstimateSql())) yield resultSet(tableRows);
+                        if (sql.equals(queries.columns())) yield resultSet(columnRows);
+                        if (sql.equals(queries.primaryKeys())) yield resultSet(pkRows);
+                        if (sql.equals(queries.foreignKeys())) yield resultSet(fkRows);
+                        throw new UnsupportedOperationException(sql);
+                    }
+                    case "setFetchSize", "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, (proxy, method, args) -> {
+                    roundTrip();
+                    return switch (method.getName()) {
+                        case "getTables" -> resultSet(tableRows);
+                        case "getColumns" -> resultSet(columnsByTable.getOrDefault((String) args[2], List.of()));
+                        case "getPrimaryKeys" -> resultSet(pksByTable.getOrDefault((String) args[2], List.of()));
+                        case "getImportedKeys" -> resultSet(fksByTable.getOrDefault((String) args[2], List.of()));
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "createStatement" -> statement;
+                    case "getMetaData" -> metaData;
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /** Cursor over label-keyed rows; only the getters the extractor uses are supported. */
+    private ResultSet resultSet(List<Map<String, Object>> rows) {
+        int[] cursor = {-1};
+        boolean[] wasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.size();
+                        case "wasNull":
+                            return wasNull[0];
+                        case "close":
+                            return null;
+                        default:
+                            break;
+                    }
+                    Object v = rows.get(cursor[0]).get((String) args[0]);
+                    wasNull[0] = v == null;
+                    return switch (method.getName()) {
+                        case "getLong" -> v == null ? 0L : ((Number) v).longValue();
+                        case "getString" -> v == null ? null : v.toString();
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SchemaExtractionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.mysqlbot.benchmark;
+
+import com.example.mysqlbot.service.embedding.VectorIndex;
+import com.example.mysqlbot.service.embedding.VectorIndex.Entry;
+import com.example.mysqlbot.service.embedding.VectorIndex.Hit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-k query latency of the flat {@link VectorIndex} over random unit vectors: the whole index
+ * is scanned, with and without a document-type filter (one type in three).
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.mysqlbot.benchmark.VectorIndexBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorIndexBenchmark {
+
+    private static final String[] TYPES = {"table", "term", "example"};
+
+    @Param({"1000", "10000"})
+    public int documents;
+
+    @Param({"256", "1024"})
+    public int dimension;
+
+    private VectorIndex index;
+    private float[] query;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<Entry> entries = new ArrayList<>(documents);
+        List<float[]> vectors = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            entries.add(new Entry(TYPES[i % 3], "doc" + i, "doc" + i));
+            vectors.add(randomVector(random));
+        }
+        index = new VectorIndex("bench", dimension, "bench", entries, vectors);
+        query = randomVector(random);
+    }
+
+    private float[] randomVector(Random random) {
+        float[] v = new float[dimension];
+        for (int i = 0; i < dimension; i++) v[i] = (float) random.nextGaussian();
+        return v;
+    }
+
+    @Benchmark
+    public List<Hit> top10() {
+        return index.search(query, 10, null);
+    }
+
+    @Benchmark
+    public List<Hit> top10Tables() {
+        return index.search(query, 10, e -> e.type().equals("table"));
+    }
+
+    @Benchmark
+    public Map<String, List<Hit>> top10PerType() {
+        return index.searchByType(query, 10);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(VectorIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
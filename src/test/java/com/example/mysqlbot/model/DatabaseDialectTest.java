@@ -0,0 +1,44 @@
+package com.example.mysqlbot.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the per-dialect result fetching strategy.
+ */
+class DatabaseDialectTest {
+
+    @Test
+    void mysqlStreamsRowByRow() throws Exception {
+        Connection conn = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(stmt);
+
+        DatabaseDialect.MYSQL.createQueryStatement(conn, 200);
+        DatabaseDialect.MYSQL.finishQuery(conn);
+
+        verify(stmt).setFetchSize(Integer.MIN_VALUE);
+        verify(conn, never()).setAutoCommit(anyBoolean());
+    }
+
+    @Test
+    void postgresqlUsesCursorInsideTransaction() throws Exception {
+        Connection conn = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(stmt);
+
+        DatabaseDialect.POSTGRESQL.createQueryStatement(conn, 200);
+        verify(conn).setAutoCommit(false);
+        verify(stmt).setFetchSize(200);
+
+        when(conn.getAutoCommit()).thenReturn(false);
+        DatabaseDialect.POSTGRESQL.finishQuery(conn);
+        verify(conn).rollback();
+        verify(conn).setAutoCommit(true);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.mysqlbot.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowFilterInjectorTest {
+
+    private static final String RULE = "tenant_id = 't1'";
+    private static final String FILTERED = "WHERE tenant_id = 't1')";
+
+    private static String inject(String sql) {
+        Optional<String> result = RowFilterInjector.inject(sql, RULE);
+        assertTrue(result.isPresent(), "expected AST rewrite for: " + sql);
+        return result.get();
+    }
+
+    private static int count(String haystack, String needle) {
+        return haystack.split(java.util.regex.Pattern.quote(needle), -1).length - 1;
+    }
+
+    @Test
+    void singleTable_keepsNameAsAlias() {
+        assertEquals("SELECT * FROM (SELECT * FROM orders WHERE tenant_id = 't1') orders",
+                inject("SELECT * FROM orders"));
+    }
+
+    @Test
+    void joins_filterEveryTableAndKeepAliases() {
+        String sql = inject("SELECT o.id, c.name FROM orders o LEFT JOIN customers AS c ON o.cid = c.id WHERE o.amt > 10");
+        assertEquals(2, count(sql, FILTERED));
+        assertTrue(sql.contains("FROM orders WHERE tenant_id = 't1') o LEFT JOIN"));
+        assertTrue(sql.contains("FROM customers WHERE tenant_id = 't1') AS c ON o.cid = c.id"));
+        assertTrue(sql.endsWith("WHERE o.amt > 10"));
+    }
+
+    @Test
+    void unionsAndSubqueries_areFiltered() {
+        assertEquals(2, count(inject("SELECT id FROM a UNION ALL SELECT id FROM b"), FILTERED));
+        assertEquals(3, count(inject(
+                "SELECT * FROM a WHERE id IN (SELECT aid FROM b) AND EXISTS (SELECT 1 FROM c WHERE c.x = a.x)"), FILTERED));
+        assertEquals(2, count(inject("SELECT (SELECT max(v) FROM b) AS m FROM a"), FILTERED));
+        assertEquals(2, count(inject("SELECT * FROM (SELECT x FROM a) sub JOIN b ON sub.x = b.x"), FILTERED));
+    }
+
+    @Test
+    void anyAllComparisons_filterTheSubquery() {
+        assertEquals(2, count(inject("SELECT * FROM a WHERE v > ANY (SELECT v FROM b)"), FILTERED));
+        assertEquals(2, count(inject("SELECT * FROM a WHERE v >= ALL (SELECT v FROM b WHERE b.k = a.k)"), FILTERED));
+        assertEquals(2, count(inject("SELECT * FROM a WHERE v = SOME (SELECT v FROM b)"), FILTERED));
+    }
+
+    @Test
+    void existsSubquery_isFiltered() {
+        assertEquals(2, count(inject("SELECT * FROM a WHERE EXISTS (SELECT 1 FROM b WHERE b.id = a.id)"), FILTERED));
+        assertEquals(2, count(inject("SELECT * FROM a WHERE NOT EXISTS (SELECT 1 FROM b WHERE b.id = a.id)"), FILTERED));
+    }
+
+    @Test
+    void scalarSubqueryInSelectList_isFiltered() {
+        String sql = inject("SELECT a.id, (SELECT count(*) FROM b WHERE b.aid = a.id) AS n FROM a");
+        assertEquals(2, count(sql, FILTERED));
+        assertTrue(sql.contains("FROM b WHERE tenant_id = 't1') b WHERE b.aid = a.id) AS n"));
+        assertEquals(3, count(inject(
+                "SELECT CASE WHEN x > (SELECT avg(x) FROM b) THEN (SELECT max(y) FROM c) END FROM a"), FILTERED));
+    }
+
+    @Test
+    void cte_bodyFilteredButReferenceLeftAlone() {
+        String sql = inject("WITH recent AS (SELECT * FROM orders WHERE d > '2024-01-01') SELECT count(*) FROM recent");
+        assertEquals(1, count(sql, FILTERED));
+        assertTrue(sql.endsWith("FROM recent"));
+    }
+
+    @Test
+    void cteShadowingTable_stillFiltersTheTable() {
+        String sql = inject("WITH orders AS (SELECT * FROM orders) SELECT * FROM orders");
+        assertEquals(1, count(sql, FILTERED));
+    }
+
+    @Test
+    void unsupportedInput_fallsBack() {
+        assertTrue(RowFilterInjector.inject("DELETE FROM a", RULE).isEmpty());
+        assertTrue(RowFilterInjector.inject("SELECT * FROM generate_series(1, 3)", RULE).isEmpty());
+        assertTrue(RowFilterInjector.inject("SELECT * FROM a", "a.tenant_id = 't1'").isEmpty());
+        assertTrue(RowFilterInjector.inject("SELECT * FROM a", "tenant_id IN (SELECT id FROM t)").isEmpty());
+        assertTrue(RowFilterInjector.inject("not sql at all", RULE).isEmpty());
+    }
+}
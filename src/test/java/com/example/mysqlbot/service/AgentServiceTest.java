@@ -1,19 +1,26 @@
 package com.example.mysqlbot.service;
 
 import com.example.mysqlbot.service.AgentService.ToolExecutor;
+import com.example.mysqlbot.util.LocalSpanExporter;
 import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResponse;
 import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResult;
 import com.example.mysqlbot.util.OpenAiLlmUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,7 +28,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
- * Tests for {@link AgentService}, focusing on parallel tool execution.
+ * Tests for {@link AgentService}, focusing on parallel tool execution and the streaming loop.
  */
 @ExtendWith(MockitoExtension.class)
 class AgentServiceTest {
@@ -32,11 +39,15 @@ class AgentServiceTest {
     @Mock
     private ToolService toolService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MetricsService metricsService = new MetricsService(meterRegistry);
+    private final TraceService traceService = new TraceService(Tracer.NOOP);
+
     // ---- Parallel execution: timing ----
 
     @Test
     void multipleToolCalls_executeInParallel() {
-        AgentService agentService = new AgentService(llmService, toolService);
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, traceService);
 
         // Each tool call sleeps 300ms; 3 calls serial = 900ms, parallel ~= 300ms
         ToolExecutor trackingExecutor = (name, args) -> {
@@ -69,11 +80,42 @@ class AgentServiceTest {
                 "3 parallel 300ms calls should complete in < 800ms, took " + elapsed + "ms");
     }
 
+    // ---- Metrics ----
+
+    @Test
+    void agentLoop_recordsRoundsTokensAndToolTimings() {
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, traceService);
+        ReflectionTestUtils.setField(agentService, "maxToolRounds", 8);
+        ChatResult toolRound = new ChatResult(null, List.of(makeToolCall("call_1", "get_table_schema")), "tool_calls");
+        ChatResponse.Usage usage = new ChatResponse.Usage();
+        usage.setPromptTokens(120);
+        usage.setCompletionTokens(30);
+        toolRound.setUsage(usage);
+        toolRound.setRetries(1);
+        when(llmService.chatWithMessagesAndTools(anyList(), anyList(), anyDouble(), any()))
+                .thenReturn(toolRound)
+                .thenReturn(new ChatResult("final answer", null, "stop"));
+        when(toolService.executeTool(eq("get_table_schema"), anyMap())).thenReturn("表 orders 的列：...");
+        when(toolService.cacheState(eq(7L), eq("get_table_schema"), anyMap())).thenReturn("hit");
+
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "user", "content", "test"));
+        assertEquals("final answer", agentService.runAgentLoop(messages, new ArrayList<>(), 7L, 0.3, null));
+
+        assertEquals(2, meterRegistry.get("mysqlbot.llm.request").tag("data_source", "7").timer().count());
+        assertEquals(120, meterRegistry.get("mysqlbot.llm.tokens").tag("type", "prompt").counter().count());
+        assertEquals(1, meterRegistry.get("mysqlbot.llm.retries").counter().count());
+        assertEquals(1, meterRegistry.get("mysqlbot.tool.execution")
+                .tags("tool", "get_table_schema", "cache", "hit", "data_source", "7", "outcome", "success")
+                .timer().count());
+        assertEquals(2, meterRegistry.get("mysqlbot.agent.rounds").summary().totalAmount());
+    }
+
     // ---- Parallel execution: result ordering ----
 
     @Test
     void multipleToolCalls_preserveOrderInMessages() {
-        AgentService agentService = new AgentService(llmService, toolService);
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, traceService);
 
         AtomicInteger counter = new AtomicInteger(0);
         Map<String, Integer> executionOrder = new ConcurrentHashMap<>();
@@ -112,11 +154,41 @@ class AgentServiceTest {
         assertEquals("call_3", toolMessages.get(2).get("tool_call_id"));
     }
 
+    // ---- Tracing: parallel tool calls stay in the agent's trace ----
+
+    @Test
+    void parallelToolCalls_areSpansOfTheAgentLoop() {
+        LocalSpanExporter exporter = new LocalSpanExporter(10, null, Long.MAX_VALUE);
+        TraceService tracing = new TraceService(TraceServiceTest.otelTracer(exporter));
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, tracing);
+
+        when(llmService.chatWithMessagesAndTools(anyList(), anyList(), anyDouble(), any()))
+                .thenReturn(new ChatResult(null, List.of(makeToolCall("call_1", "tool_a"), makeToolCall("call_2", "tool_b")),
+                        "tool_calls"))
+                .thenReturn(new ChatResult("done", null, "stop"));
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "user", "content", "test"));
+
+        String traceId = tracing.inSpan("chat.turn", () -> {
+            agentService.runAgentLoop(messages, new ArrayList<>(), 0.3, null, (name, args) -> name + "-done", 5);
+            return tracing.currentTraceId();
+        });
+
+        List<LocalSpanExporter.SpanRecord> spans = exporter.find(traceId);
+        String loopId = spans.stream().filter(s -> s.name().equals("agent.loop")).findFirst().orElseThrow().spanId();
+        List<LocalSpanExporter.SpanRecord> tools = spans.stream().filter(s -> s.name().equals("tool.call")).toList();
+        assertEquals(2, spans.stream().filter(s -> s.name().equals("llm.request")).count());
+        assertEquals(2, tools.size());
+        tools.forEach(tool -> assertEquals(loopId, tool.parentSpanId(), "tool span parent"));
+        assertEquals(java.util.Set.of("tool_a", "tool_b"),
+                tools.stream().map(t -> t.attributes().get("tool.name")).collect(java.util.stream.Collectors.toSet()));
+    }
+
     // ---- Single tool call: no parallel overhead ----
 
     @Test
     void singleToolCall_executesDirectly() {
-        AgentService agentService = new AgentService(llmService, toolService);
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, traceService);
 
         ToolExecutor executor = (name, args) -> "single-result";
 
@@ -147,7 +219,7 @@ class AgentServiceTest {
 
     @Test
     void noToolCalls_returnsContentImmediately() {
-        AgentService agentService = new AgentService(llmService, toolService);
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, traceService);
 
         when(llmService.chatWithMessagesAndTools(anyList(), anyList(), anyDouble(), any()))
                 .thenReturn(new ChatResult("quick answer", null, "stop"));
@@ -163,6 +235,83 @@ class AgentServiceTest {
 
     // ---- Helper ----
 
+    // ---- Streaming loop: tools start before the round's response ends ----
+
+    @Test
+    void genericLoop_withEagerDispatch_streamsRoundsAndRunsToolsFromTheListener() {
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, traceService);
+        ReflectionTestUtils.setField(agentService, "eagerDispatch", true);
+
+        CountDownLatch toolStarted = new CountDownLatch(1);
+        ToolExecutor executor = (name, args) -> {
+            toolStarted.countDown();
+            return "result-" + name;
+        };
+        ChatResponse.Choice.ToolCall call = makeToolCall("call_1", "get_table_schema");
+        AtomicBoolean startedBeforeRoundEnded = new AtomicBoolean();
+        when(llmService.chatStreamWithTools(anyList(), anyList(), anyDouble(), any(), any(), any()))
+                .thenAnswer(inv -> {
+                    OpenAiLlmUtil.ToolCallListener listener = inv.getArgument(5);
+                    listener.onToolCall(call);
+                    startedBeforeRoundEnded.set(toolStarted.await(2, TimeUnit.SECONDS));
+                    return new ChatResult(null, List.of(call), "tool_calls");
+                })
+                .thenReturn(new ChatResult("final answer", null, "stop"));
+
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "user", "content", "test"));
+        String result = agentService.runAgentLoop(messages, new ArrayList<>(), 0.3, null, executor, 5);
+
+        assertEquals("final answer", result);
+        assertTrue(startedBeforeRoundEnded.get(), "tool should start while the round is still streaming");
+        assertEquals("result-get_table_schema", messages.get(2).get("content"));
+        assertEquals("call_1", messages.get(2).get("tool_call_id"));
+        verify(llmService, never()).chatWithMessagesAndTools(anyList(), any(), anyDouble(), any());
+        assertEquals(1.0, meterRegistry.get("mysqlbot.agent.loop").tag("mode", "stream").timer().count());
+    }
+
+    @Test
+    void streamingLoop_dispatchesToolsWhileStreamingAndForwardsTokens() {
+        AgentService agentService = new AgentService(llmService, toolService, metricsService, traceService);
+        ReflectionTestUtils.setField(agentService, "maxToolRounds", 5);
+
+        CountDownLatch toolStarted = new CountDownLatch(1);
+        when(toolService.executeTool(eq("list_tables"), anyMap())).thenAnswer(inv -> {
+            toolStarted.countDown();
+            return "orders";
+        });
+        ChatResponse.Choice.ToolCall call = makeToolCall("call_1", "list_tables");
+        AtomicBoolean startedBeforeRoundEnded = new AtomicBoolean();
+        when(llmService.chatStreamWithTools(anyList(), anyList(), anyDouble(), any(), any(), any()))
+                .thenAnswer(inv -> {
+                    OpenAiLlmUtil.StreamCallback callback = inv.getArgument(4);
+                    OpenAiLlmUtil.ToolCallListener listener = inv.getArgument(5);
+                    callback.onToken("content", "先查看有哪些表");
+                    listener.onToolCall(call);
+                    startedBeforeRoundEnded.set(toolStarted.await(2, TimeUnit.SECONDS));
+                    return new ChatResult("先查看有哪些表", List.of(call), "tool_calls");
+                })
+                .thenAnswer(inv -> {
+                    OpenAiLlmUtil.StreamCallback callback = inv.getArgument(4);
+                    callback.onToken("content", "{\"sql\":");
+                    callback.onToken("content", "\"SELECT 1\"}");
+                    return new ChatResult("{\"sql\":\"SELECT 1\"}", null, "stop");
+                });
+
+        List<String> tokens = new ArrayList<>();
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "user", "content", "test"));
+        String result = agentService.runStreamingAgentLoop(messages, new ArrayList<>(), 1L, 0.3, null, false,
+                (type, token) -> tokens.add(type + ":" + token));
+
+        assertEquals("{\"sql\":\"SELECT 1\"}", result);
+        assertTrue(startedBeforeRoundEnded.get(), "tool should start while the round is still streaming");
+        assertEquals(List.of("content:先查看有哪些表", "content_reset:", "content:{\"sql\":", "content:\"SELECT 1\"}"),
+                tokens);
+        assertEquals("orders", messages.get(2).get("content"));
+        assertEquals("call_1", messages.get(2).get("tool_call_id"));
+    }
+
     private ChatResponse.Choice.ToolCall makeToolCall(String id, String toolName) {
         ChatResponse.Choice.ToolCall tc = new ChatResponse.Choice.ToolCall();
         tc.setId(id);
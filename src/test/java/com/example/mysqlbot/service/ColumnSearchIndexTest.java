@@ -0,0 +1,98 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.service.ColumnSearchIndex.TableMatch;
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ColumnSearchIndex}: ranking of substring matches, the fuzzy fallback
+ * and copy-on-write incremental updates with compaction.
+ */
+class ColumnSearchIndexTest {
+
+    @Test
+    void search_ranksExactThenPrefixThenWordStartThenSubstring() {
+        ColumnSearchIndex index = ColumnSearchIndex.build(List.of(
+                table("audit", "id", "modified_user"),
+                table("profiles", "id", "username"),
+                table("orders", "id", "user_id", "amount"),
+                table("users", "id", "user"),
+                table("misc", "id", "superuser")));
+
+        List<TableMatch> matches = index.search("USER");
+
+        assertEquals(List.of("users", "orders", "profiles", "audit", "misc"),
+                matches.stream().map(TableMatch::tableName).toList());
+        assertEquals(List.of("user_id"), matches.get(1).columns());
+        assertFalse(matches.get(0).fuzzy());
+        assertEquals(5, index.search("%user%").size());
+        assertEquals(5, index.search("id").size());
+    }
+
+    @Test
+    void search_fallsBackToSimilarNames() {
+        ColumnSearchIndex index = ColumnSearchIndex.build(List.of(
+                table("users", "id", "user_name"),
+                table("orders", "id", "amount")));
+
+        List<TableMatch> matches = index.search("user_nmae");
+
+        assertEquals(1, matches.size());
+        assertTrue(matches.get(0).fuzzy());
+        assertEquals(List.of("user_name"), matches.get(0).columns());
+        assertTrue(index.search("zzzz").isEmpty());
+    }
+
+    @Test
+    void update_reindexesOnlyChangedTablesAndLeavesTheOriginalAlone() {
+        List<TableInfo> tables = new ArrayList<>(List.of(
+                table("users", "id", "email"),
+                table("orders", "id", "amount"),
+                table("legacy", "id", "fax_no")));
+        ColumnSearchIndex original = ColumnSearchIndex.build(tables);
+
+        tables.set(0, table("users", "id", "email", "phone"));
+        tables.remove(2);
+        ColumnSearchIndex updated = original.update(tables);
+        assertEquals(2, updated.reindexedTables());
+
+        assertEquals("users", updated.search("phone").get(0).tableName());
+        assertTrue(updated.search("fax").isEmpty());
+        assertEquals(0, updated.update(tables).reindexedTables());
+        // readers still holding the previous version see it unchanged
+        assertTrue(original.search("phone").isEmpty());
+        assertEquals("legacy", original.search("fax").get(0).tableName());
+    }
+
+    @Test
+    void update_compactsOnceDroppedNamesPileUp() {
+        List<TableInfo> tables = new ArrayList<>();
+        for (int i = 0; i < 10; i++) tables.add(table("t" + i, "id", "col_" + i));
+        ColumnSearchIndex index = ColumnSearchIndex.build(tables);
+        assertEquals(11, index.indexedNames());
+
+        // renaming a column leaves the old name without a table; a few such names are tolerated
+        tables.set(0, table("t0", "id", "renamed_0"));
+        index = index.update(tables);
+        assertEquals(12, index.indexedNames());
+
+        // past the threshold the next update rebuilds and drops them
+        for (int i = 1; i < 5; i++) tables.set(i, table("t" + i, "id", "renamed_" + i));
+        index = index.update(tables);
+        assertEquals(11, index.indexedNames());
+        assertEquals("t3", index.search("renamed_3").get(0).tableName());
+        assertTrue(index.search("col_3").isEmpty());
+    }
+
+    private static TableInfo table(String name, String... columns) {
+        List<ColumnInfo> cols = new ArrayList<>();
+        for (String c : columns) cols.add(new ColumnInfo(c, "varchar", null));
+        return TableInfo.builder().tableName(name).simpleName(name).columns(cols).build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.service.RelationInferenceService.InferredRelation;
+import com.example.mysqlbot.service.RelationInferenceService.TableMeta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for naming-convention inference and batched LLM relation inference: batch planning keeps
+ * related tables together and covers every table once; batches are sent separately and their
+ * results merged.
+ */
+class RelationInferenceServiceTest {
+
+    private RelationInferenceService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RelationInferenceService(new ObjectMapper());
+        // @Value won't be processed in plain unit test; set manually
+        ReflectionTestUtils.setField(service, "llmBatchChars", 400);
+        ReflectionTestUtils.setField(service, "llmParallelism", 3);
+        ReflectionTestUtils.setField(service, "llmTimeoutSeconds", 10L);
+    }
+
+    @Test
+    void inferFromNamingConventions_resolvesConventionVariants() {
+        List<TableMeta> tables = List.of(
+                table("t_users", "id", "name"),
+                table("tb_category", "id"),
+                table("people", "id"),
+                table("order_header", "order_no", "customerId"),
+                table("order_items", "id", "order_no", "fk_category", "person_id", "USER_ID", "remark"));
+        tables.get(3).primaryKeys = new ArrayList<>(List.of("order_no"));
+
+        Set<String> found = new HashSet<>();
+        for (InferredRelation r : service.inferFromNamingConventions(tables)) {
+            found.add(r.getFromTable() + "." + r.getFromColumn() + "->" + r.getToTable() + "." + r.getToColumn());
+        }
+
+        assertEquals(Set.of(
+                "order_items.order_no->order_header.order_no",
+                "order_items.fk_category->tb_category.id",
+                "order_items.person_id->people.id",
+                "order_items.USER_ID->t_users.id"), found);
+    }
+
+    @Test
+    void singular_handlesRegularAndIrregularPlurals() {
+        assertEquals("order_item", TableNameIndex.singular("order_items"));
+        assertEquals("category", TableNameIndex.singular("categories"));
+        assertEquals("address", TableNameIndex.singular("addresses"));
+        assertEquals("person", TableNameIndex.singular("people"));
+        assertEquals("status", TableNameIndex.singular("status"));
+        assertEquals("user", TableNameIndex.entityOf("userId"));
+        assertEquals("order_item", TableNameIndex.entityOf("fk_order_item_id"));
+        assertNull(TableNameIndex.entityOf("paid"));
+    }
+
+    @Test
+    void planBatches_coversEveryTableOnceAndKeepsRelatedTablesTogether() {
+        List<TableMeta> tables = new ArrayList<>();
+        // Interleave two domains so input order alone would split them
+        for (int i = 0; i < 6; i++) {
+            tables.add(table("crm_account_" + i, "id", "crm_region_code", "owner_name"));
+            tables.add(table("wms_bin_" + i, "id", "warehouse_no", "capacity"));
+        }
+        tables.add(table("orders", "id", "customer_id", "amount"));
+        tables.add(table("customers", "id", "name"));
+
+        List<List<TableMeta>> batches = RelationInferenceService.planBatches(tables, 500);
+
+        List<String> flattened = batches.stream().flatMap(List::stream).map(t -> t.tableName).toList();
+        assertEquals(tables.size(), flattened.size());
+        assertEquals(tables.size(), new HashSet<>(flattened).size());
+        assertTrue(batches.size() > 1);
+        assertEquals(batchOf(batches, "orders"), batchOf(batches, "customers"));
+        for (List<TableMeta> batch : batches) {
+            long crm = batch.stream().filter(t -> t.tableName.startsWith("crm_")).count();
+            long wms = batch.stream().filter(t -> t.tableName.startsWith("wms_")).count();
+            assertTrue(crm == 0 || wms == 0 || batch.size() > 6, "domains mixed in a small batch: " + names(batch));
+        }
+    }
+
+    @Test
+    void planBatches_smallSchemaIsOneBatch() {
+        List<TableMeta> tables = List.of(table("a", "id"), table("b", "id", "a_id"));
+        assertEquals(1, RelationInferenceService.planBatches(tables, 8000).size());
+    }
+
+    @Test
+    void inferFromLlm_sendsEveryBatchAndMergesResults() {
+        List<TableMeta> tables = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tables.add(table("t" + i, "id", "t" + (i + 1) + "_ref", "payload_" + i));
+        }
+        LlmService llm = mock(LlmService.class);
+        when(llm.chat(anyString(), anyDouble())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            // Each batch "finds" a relation from its first table; t0 -> t1 also comes back from every batch
+            String first = prompt.substring(prompt.indexOf("Table: ") + 7, prompt.indexOf('\n', prompt.indexOf("Table: ")));
+            return "[{\"from_table\":\"" + first + "\",\"from_column\":\"x\",\"to_table\":\"t1\",\"to_column\":\"id\",\"confidence\":0.7},"
+                    + "{\"from_table\":\"t0\",\"from_column\":\"t1_ref\",\"to_table\":\"t1\",\"to_column\":\"id\",\"confidence\":0.9}]";
+        });
+
+        List<InferredRelation> result = service.inferFromLlm(tables, llm, "PostgreSQL");
+
+        int calls = mockingDetails(llm).getInvocations().size();
+        assertTrue(calls > 1, "expected several batches, got " + calls);
+        // one relation per batch plus the shared one, deduplicated
+        assertEquals(calls + 1, result.size());
+        assertEquals(1, result.stream().filter(r -> r.getFromColumn().equals("t1_ref")).count());
+    }
+
+    @Test
+    void inferFromLlm_withFocusOnlySendsBatchesContainingFocusTables() {
+        List<TableMeta> tables = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tables.add(table("t" + i, "id", "payload_" + i));
+        }
+        LlmService llm = mock(LlmService.class);
+        when(llm.chat(anyString(), anyDouble())).thenReturn("[]");
+
+        service.inferFromLlm(tables, llm, "MySQL", Set.of("t7"));
+
+        verify(llm, times(1)).chat(argThat(prompt -> prompt.contains("Table: t7\n")), anyDouble());
+        verifyNoMoreInteractions(llm);
+    }
+
+    private static TableMeta table(String name, String... columns) {
+        TableMeta meta = new TableMeta();
+        meta.tableName = name;
+        meta.simpleTableName = name;
+        meta.columns = new ArrayList<>(List.of(columns));
+        meta.primaryKeys = new ArrayList<>(List.of("id"));
+        return meta;
+    }
+
+    private static int batchOf(List<List<TableMeta>> batches, String table) {
+        for (int i = 0; i < batches.size(); i++) {
+            for (TableMeta t : batches.get(i)) {
+                if (t.tableName.equals(table)) return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> names(List<TableMeta> batch) {
+        return batch.stream().map(t -> t.tableName).toList();
+    }
+}
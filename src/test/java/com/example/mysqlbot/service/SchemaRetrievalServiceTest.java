@@ -0,0 +1,112 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.SqlExample;
+import com.example.mysqlbot.model.TableRelation;
+import com.example.mysqlbot.model.TermGlossary;
+import com.example.mysqlbot.repository.TableRelationRepository;
+import com.example.mysqlbot.service.SchemaRetrievalService.Retrieval;
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.Snapshot;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import com.example.mysqlbot.service.embedding.VectorIndex.Entry;
+import com.example.mysqlbot.service.embedding.VectorIndex.Hit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for schema pre-retrieval: term extraction, ranking by names and comments,
+ * glossary expansion, SQL-example bonus and embedding hits.
+ */
+class SchemaRetrievalServiceTest {
+
+    private SchemaRetrievalService service;
+    private TableRelationRepository tableRelationRepository;
+    private VectorRetrievalService vectorRetrievalService;
+
+    @BeforeEach
+    void setUp() {
+        List<TableInfo> tables = new ArrayList<>(List.of(
+                table("orders", "订单", "id", "user_id", "pay_amount"),
+                table("users", "用户", "id", "nickname", "region"),
+                table("products", "商品", "id", "title", "price"),
+                table("sys_log", "系统日志", "id", "message")));
+        for (int i = 0; i < 20; i++) tables.add(table("misc_" + i, null, "id", "value_" + i));
+
+        SchemaSnapshotService schemaSnapshotService = mock(SchemaSnapshotService.class);
+        when(schemaSnapshotService.getLatest(1L)).thenReturn(new Snapshot(1L, 1, LocalDateTime.now(), tables));
+        tableRelationRepository = mock(TableRelationRepository.class);
+        vectorRetrievalService = mock(VectorRetrievalService.class);
+        service = new SchemaRetrievalService(schemaSnapshotService, tableRelationRepository, vectorRetrievalService);
+        // @Value won't be processed in plain unit test; set manually
+        ReflectionTestUtils.setField(service, "prefetchTables", 3);
+    }
+
+    @Test
+    void terms_splitWordsAndChineseBigrams() {
+        assertEquals(Set.of("order", "item", "pay", "amount"), SchemaRetrievalService.terms("order_items payAmount"));
+        assertEquals(Set.of("订单", "单金", "金额", "gmv"), SchemaRetrievalService.terms("订单金额 GMV?"));
+    }
+
+    @Test
+    void retrieve_ranksTablesByNamesAndComments() {
+        TableRelation relation = TableRelation.builder()
+                .fromTable("orders").fromColumn("user_id").toTable("users").toColumn("id").build();
+        when(tableRelationRepository.safelyFindRelationsInvolvingTables(eq(1L), anyList())).thenReturn(List.of(relation));
+
+        Retrieval retrieval = service.retrieve(1L, "每个用户地区的订单数量", null, List.of(), List.of());
+
+        List<String> names = retrieval.tables().stream().map(TableInfo::getTableName).toList();
+        assertEquals(Set.of("orders", "users"), Set.copyOf(names));
+        assertTrue(retrieval.context().contains("orders(id bigint PK, user_id bigint"), retrieval.context());
+        assertTrue(retrieval.context().contains("orders.user_id → users.id"), retrieval.context());
+    }
+
+    @Test
+    void retrieve_usesGlossaryDefinitionsAndSimilarExamples() {
+        TermGlossary gmv = TermGlossary.builder().term("GMV").definition("订单 pay_amount 之和").build();
+        Retrieval byGlossary = service.retrieve(1L, "上月 GMV 是多少", null, List.of(gmv), List.of());
+        assertEquals("orders", byGlossary.tables().get(0).getTableName());
+
+        SqlExample example = SqlExample.builder().question("最贵的 10 件宝贝")
+                .sqlQuery("SELECT title FROM products ORDER BY price DESC LIMIT 10").build();
+        Retrieval byExample = service.retrieve(1L, "最贵的 5 件宝贝", null, List.of(), List.of(example));
+        assertEquals("products", byExample.tables().get(0).getTableName());
+
+        assertTrue(service.retrieve(1L, "你好", null, List.of(), List.of()).isEmpty());
+    }
+
+    @Test
+    void retrieve_addsTablesAndTermsFoundByEmbedding() {
+        TermGlossary gmv = TermGlossary.builder().term("GMV").definition("订单 pay_amount 之和").build();
+        when(vectorRetrievalService.search(eq(1L), anyString(), anyList(), anyList(), anyInt())).thenReturn(List.of(
+                new Hit(new Entry(VectorRetrievalService.TYPE_TABLE, "products", "products 商品"), 0.62f),
+                new Hit(new Entry(VectorRetrievalService.TYPE_TERM, "GMV", "GMV: 订单 pay_amount 之和"), 0.48f),
+                new Hit(new Entry(VectorRetrievalService.TYPE_TABLE, "sys_log", "sys_log 系统日志"), 0.05f)));
+
+        // neither "宝贝" nor "成交总额" occurs in the schema or the glossary
+        Retrieval retrieval = service.retrieve(1L, "宝贝的成交总额", null, List.of(gmv), List.of());
+
+        List<String> names = retrieval.tables().stream().map(TableInfo::getTableName).toList();
+        assertEquals(Set.of("products", "orders"), Set.copyOf(names));
+    }
+
+    private static TableInfo table(String name, String remarks, String... columns) {
+        List<ColumnInfo> cols = new ArrayList<>();
+        for (String c : columns) cols.add(new ColumnInfo(c, "BIGINT", null));
+        return TableInfo.builder().tableName(name).simpleName(name).remarks(remarks)
+                .columns(cols).primaryKeys(List.of("id")).build();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.ForeignKey;
+import com.example.mysqlbot.service.SchemaSnapshotService.SchemaChanges;
+import com.example.mysqlbot.service.SchemaSnapshotService.Snapshot;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import com.example.mysqlbot.model.SchemaSnapshot;
+import com.example.mysqlbot.repository.SchemaSnapshotRepository;
+import com.example.mysqlbot.repository.SchemaSnapshotTableRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the in-memory {@link Snapshot} view: name lookup, conversion
+ * to relation-inference input and fingerprint diffing for incremental sync; and for
+ * publishing a saved snapshot only once its transaction commits and never over a newer one.
+ */
+class SchemaSnapshotServiceTest {
+
+    private static final TableInfo ORDERS = TableInfo.builder()
+            .tableName("orders")
+            .simpleName("orders")
+            .tableSchema("public")
+            .columns(List.of(new ColumnInfo("id", "int8", null), new ColumnInfo("user_id", "int8", "下单用户")))
+            .primaryKeys(List.of("id"))
+            .foreignKeys(List.of(new ForeignKey("user_id", "users", "id")))
+            .build();
+
+    private static final TableInfo SALES_ORDERS = TableInfo.builder()
+            .tableName("\"sales\".\"orders\"")
+            .simpleName("orders")
+            .tableSchema("sales")
+            .columns(List.of(new ColumnInfo("id", "int8", null)))
+            .build();
+
+    private final Snapshot snapshot = new Snapshot(1L, 2, LocalDateTime.now(), List.of(SALES_ORDERS, ORDERS));
+
+    @Test
+    void findTable_byQualifiedUnquotedOrSimpleName() {
+        assertSame(ORDERS, snapshot.findTable("ORDERS"));
+        assertSame(SALES_ORDERS, snapshot.findTable("\"sales\".\"orders\""));
+        assertSame(SALES_ORDERS, snapshot.findTable("sales.orders"));
+        assertNull(snapshot.findTable("missing"));
+    }
+
+    @Test
+    void qualifiedTablesAreFlagged() {
+        assertFalse(ORDERS.isQualified());
+        assertTrue(SALES_ORDERS.isQualified());
+    }
+
+    @Test
+    void toTableMetas_carriesColumnsAndKeys() {
+        RelationInferenceService.TableMeta meta = snapshot.toTableMetas().stream()
+                .filter(m -> m.tableName.equals("orders"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(List.of("id", "user_id"), meta.columns);
+        assertEquals(List.of("id"), meta.primaryKeys);
+        assertEquals(1, meta.importedKeys.size());
+        assertEquals("users", meta.importedKeys.get(0).pkTable);
+    }
+
+    @Test
+    void schemaChanges_detectAddedAlteredAndDroppedTables() {
+        SchemaChanges changes = SchemaChanges.between(
+                Map.of("orders", "a1", "users", "b1", "legacy", "c1"),
+                Map.of("orders", "a1", "users", "b2", "refunds", "d1"));
+        assertEquals(Set.of("users", "refunds"), changes.changed());
+        assertEquals(Set.of("legacy"), changes.removed());
+        assertEquals(Set.of("users", "refunds", "legacy"), changes.affected());
+        assertTrue(SchemaChanges.between(Map.of("orders", "a1"), Map.of("orders", "a1")).isEmpty());
+    }
+
+    @Test
+    void fingerprints_requireEveryTableToHaveOne() {
+        assertNull(snapshot.fingerprints());
+        TableInfo fingerprinted = TableInfo.builder().tableName("t").simpleName("t").fingerprint("f").build();
+        assertEquals(Map.of("t", "f"), new Snapshot(1L, 1, LocalDateTime.now(), List.of(fingerprinted)).fingerprints());
+    }
+
+    @Test
+    void save_publishesLatestOnlyAfterCommit() {
+        SchemaSnapshotRepository headers = mock(SchemaSnapshotRepository.class);
+        when(headers.findTopByDataSourceIdOrderByVersionDesc(1L)).thenReturn(Optional.empty());
+        when(headers.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(headers.findByDataSourceIdOrderByVersionDesc(1L)).thenReturn(List.of());
+        SchemaSnapshotService service = new SchemaSnapshotService(
+                headers, mock(SchemaSnapshotTableRepository.class), new ObjectMapper());
+        ReflectionTestUtils.setField(service, "retainVersions", 3);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.save(1L, List.of(ORDERS));
+            // rolled back: the synchronization never fires, readers still see nothing
+            TransactionSynchronizationManager.clearSynchronization();
+            assertNull(service.getLatest(1L));
+
+            TransactionSynchronizationManager.initSynchronization();
+            service.save(1L, List.of(ORDERS, SALES_ORDERS));
+            assertNull(service.getLatest(1L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(2, service.getLatest(1L).getTables().size());
+        } finally {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+    }
+
+    @Test
+    void getLatest_neverReplacesANewerPublishedVersionWithTheOneItLoaded() {
+        SchemaSnapshotRepository headers = mock(SchemaSnapshotRepository.class);
+        SchemaSnapshotTableRepository tables = mock(SchemaSnapshotTableRepository.class);
+        SchemaSnapshotService service = new SchemaSnapshotService(headers, tables, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "retainVersions", 3);
+        SchemaSnapshot v1 = SchemaSnapshot.builder().id(10L).dataSourceId(1L).version(1).build();
+        when(headers.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(headers.findByDataSourceIdOrderByVersionDesc(1L)).thenReturn(List.of());
+        when(tables.findBySnapshotId(10L)).thenReturn(List.of());
+
+        // v2 is saved and published while getLatest is still loading v1
+        AtomicInteger lookups = new AtomicInteger();
+        when(headers.findTopByDataSourceIdOrderByVersionDesc(1L)).thenAnswer(inv -> {
+            if (lookups.getAndIncrement() == 0) service.save(1L, List.of(ORDERS, SALES_ORDERS));
+            return Optional.of(v1);
+        });
+
+        assertEquals(2, service.getLatest(1L).getVersion());
+        assertEquals(2, service.getLatest(1L).getVersion());
+    }
+}
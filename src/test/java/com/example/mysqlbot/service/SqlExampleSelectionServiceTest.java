@@ -0,0 +1,68 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.SqlExample;
+import com.example.mysqlbot.repository.SqlExampleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for few-shot example selection: BM25 ranking, count and token budget, corpus caching.
+ */
+class SqlExampleSelectionServiceTest {
+
+    private SqlExampleRepository repository;
+    private SqlExampleSelectionService service;
+
+    @BeforeEach
+    void setUp() {
+        List<SqlExample> examples = new ArrayList<>();
+        examples.add(example(1L, "每个地区的用户数量", "SELECT region, COUNT(*) FROM users GROUP BY region"));
+        examples.add(example(2L, "上个月的订单金额", "SELECT SUM(pay_amount) FROM orders"));
+        examples.add(example(3L, "订单数量最多的用户", "SELECT user_id, COUNT(*) FROM orders GROUP BY user_id"));
+        for (int i = 0; i < 50; i++) examples.add(example(100L + i, "商品 " + i + " 的库存", "SELECT stock FROM products"));
+        repository = mock(SqlExampleRepository.class);
+        when(repository.findByDataSourceId(1L)).thenReturn(examples);
+
+        service = new SqlExampleSelectionService(repository);
+        // @Value won't be processed in plain unit test; set manually
+        ReflectionTestUtils.setField(service, "maxExamples", 2);
+        ReflectionTestUtils.setField(service, "tokenBudget", 1000);
+    }
+
+    @Test
+    void select_ranksByBm25WithinCountAndTokenBudget() {
+        List<SqlExample> selected = service.select(1L, "本月订单金额是多少");
+        assertEquals(List.of(2L, 3L), selected.stream().map(SqlExample::getId).toList());
+
+        int firstCost = SqlExampleSelectionService.estimateTokens(SqlExampleSelectionService.render(selected.get(0)));
+        ReflectionTestUtils.setField(service, "tokenBudget", firstCost);
+        assertEquals(List.of(2L), service.select(1L, "本月订单金额是多少").stream().map(SqlExample::getId).toList());
+
+        assertTrue(service.select(1L, "你好").isEmpty());
+    }
+
+    @Test
+    void corpus_isCachedUntilEvicted() {
+        String fingerprint = service.fingerprint(1L);
+        service.select(1L, "订单");
+        service.select(1L, "用户");
+        verify(repository, times(1)).findByDataSourceId(1L);
+
+        when(repository.findByDataSourceId(1L)).thenReturn(List.of(example(1L, "每个地区的用户数量", "SELECT 1")));
+        service.evict(1L);
+        assertEquals(1, service.examples(1L).size());
+        assertNotEquals(fingerprint, service.fingerprint(1L));
+        verify(repository, times(2)).findByDataSourceId(1L);
+    }
+
+    private static SqlExample example(Long id, String question, String sql) {
+        return SqlExample.builder().id(id).dataSourceId(1L).question(question).sqlQuery(sql).build();
+    }
+}
@@ -1,11 +1,24 @@
 package com.example.mysqlbot.service;
 
+import com.example.mysqlbot.model.DataSource;
+import com.example.mysqlbot.repository.DataSourceRepository;
+import com.example.mysqlbot.service.result.FakeResultSet;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 /**
- * Tests for SQL security validation logic.
+ * Tests for SQL security validation logic and the max-rows truncation flag.
  */
 class SqlExecuteServiceTest {
 
@@ -52,6 +65,54 @@ class SqlExecuteServiceTest {
         assertThrows(SecurityException.class, () -> validateSql(sql));
     }
 
+    @Test
+    void resultWithExactlyMaxRowsIsNotTruncated() throws Exception {
+        SqlExecuteService.SqlExecuteResult result = executeOver(3, 3);
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getRowCount());
+        assertFalse(result.isTruncated());
+    }
+
+    @Test
+    void resultWithMoreThanMaxRowsIsTruncatedToMaxRows() throws Exception {
+        SqlExecuteService.SqlExecuteResult result = executeOver(10, 3);
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getRowCount());
+        assertTrue(result.isTruncated());
+    }
+
+    /** Runs a query against a table of {@code tableRows} rows; the fake statement honours setMaxRows. */
+    private SqlExecuteService.SqlExecuteResult executeOver(int tableRows, int maxRows) throws Exception {
+        Object[][] table = new Object[tableRows][];
+        for (int i = 0; i < tableRows; i++) table[i] = new Object[]{(long) i};
+
+        Statement stmt = mock(Statement.class);
+        int[] statementMaxRows = {0};
+        doAnswer(inv -> statementMaxRows[0] = inv.getArgument(0)).when(stmt).setMaxRows(anyInt());
+        when(stmt.executeQuery(anyString())).thenAnswer(inv -> FakeResultSet.of(new String[]{"n"},
+                new int[]{Types.BIGINT}, Arrays.copyOf(table, Math.min(tableRows, statementMaxRows[0]))));
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement(anyInt(), anyInt())).thenReturn(stmt);
+
+        DataSource ds = DataSource.builder().id(1L).name("test").dbType("mysql").build();
+        DataSourceRepository repository = mock(DataSourceRepository.class);
+        when(repository.findById(1L)).thenReturn(Optional.of(ds));
+        ConnectionPoolService pools = mock(ConnectionPoolService.class);
+        when(pools.getConnection(ds)).thenReturn(conn);
+
+        SqlExecuteService service = new SqlExecuteService(repository, pools, mock(SqlResultCacheService.class),
+                mock(MetricsService.class), new TraceService(Tracer.NOOP));
+        ReflectionTestUtils.setField(service, "allowOnlySelect", true);
+        ReflectionTestUtils.setField(service, "maxRows", maxRows);
+        ReflectionTestUtils.setField(service, "timeoutSeconds", 30);
+        ReflectionTestUtils.setField(service, "fetchSize", 200);
+        ReflectionTestUtils.setField(service, "maxResultMb", 64);
+        ReflectionTestUtils.setField(service, "streamChunkSize", 200);
+        return service.execute("SELECT n FROM t", 1L);
+    }
+
     // Mirror the validation logic from SqlExecuteService
     private void validateSql(String sql) {
         if (sql == null || sql.trim().isEmpty()) {
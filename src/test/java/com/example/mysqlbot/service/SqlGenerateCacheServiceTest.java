@@ -0,0 +1,79 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.ChatMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SqlGenerateCacheService}.
+ * Covers key normalization, LRU bound, hit/miss accounting and eviction.
+ */
+class SqlGenerateCacheServiceTest {
+
+    private static final LocalDateTime SYNCED = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private SqlGenerateCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SqlGenerateCacheService();
+        // @Value won't be processed in plain unit test; set manually
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxEntries", 2);
+        ReflectionTestUtils.setField(service, "ttlSeconds", 60L);
+    }
+
+    @Test
+    void equivalentQuestionsShareKey() {
+        String a = service.buildKey(1L, 5L, false, SYNCED, "k", "本月销售额是多少？", List.of());
+        String b = service.buildKey(1L, 5L, false, SYNCED, "k", "  本月销售额是多少  ", List.of());
+        assertEquals(a, b);
+    }
+
+    @Test
+    void modelSchemaVersionKnowledgeAndHistoryChangeKey() {
+        String base = service.buildKey(1L, 5L, false, SYNCED, "k", "q", List.of());
+        assertNotEquals(base, service.buildKey(1L, 5L, false, SYNCED.plusHours(1), "k", "q", List.of()));
+        assertNotEquals(base, service.buildKey(1L, 5L, false, SYNCED, "k2", "q", List.of()));
+        assertNotEquals(base, service.buildKey(2L, 5L, false, SYNCED, "k", "q", List.of()));
+        assertNotEquals(base, service.buildKey(1L, 6L, false, SYNCED, "k", "q", List.of()));
+        assertNotEquals(base, service.buildKey(1L, null, false, SYNCED, "k", "q", List.of()));
+        assertNotEquals(base, service.buildKey(1L, 5L, true, SYNCED, "k", "q", List.of()));
+
+        ChatMessage earlier = ChatMessage.builder().role("user").content("上个月呢").build();
+        assertNotEquals(base, service.buildKey(1L, 5L, false, SYNCED, "k", "q", List.of(earlier)));
+
+        // The current question itself at the end of the window does not count as history
+        ChatMessage current = ChatMessage.builder().role("user").content("q").build();
+        assertEquals(base, service.buildKey(1L, 5L, false, SYNCED, "k", "q", List.of(current)));
+    }
+
+    @Test
+    void hitMissAndLruEviction() {
+        service.put("ds:1:a", 1L, "A");
+        service.put("ds:1:b", 1L, "B");
+        assertEquals("A", service.get("ds:1:a"));   // a becomes most recently used
+        service.put("ds:1:c", 1L, "C");              // evicts b
+
+        assertNull(service.get("ds:1:b"));
+        assertEquals("C", service.get("ds:1:c"));
+        assertEquals(2L, service.getStats().get("hits"));
+        assertEquals(1L, service.getStats().get("misses"));
+        assertEquals(1L, service.getStats().get("evictions"));
+    }
+
+    @Test
+    void evictDataSourceOnlyRemovesThatDataSource() {
+        service.put("ds:1:a", 1L, "A");
+        service.put("ds:2:a", 2L, "B");
+        service.evictDataSource(1L);
+        assertNull(service.get("ds:1:a"));
+        assertEquals("B", service.get("ds:2:a"));
+    }
+}
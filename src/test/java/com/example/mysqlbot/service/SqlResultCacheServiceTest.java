@@ -0,0 +1,85 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.service.SqlExecuteService.SqlExecuteResult;
+import com.example.mysqlbot.service.result.ColumnarResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SqlResultCacheService}.
+ * Covers key canonicalization, the per-data-source opt-in TTL and the byte bound.
+ */
+class SqlResultCacheServiceTest {
+
+    private SqlResultCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SqlResultCacheService();
+        // @Value won't be processed in plain unit test; set manually
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxMb", 1L);
+    }
+
+    @Test
+    void formattingDoesNotChangeKeyButPermissionRuleDoes() {
+        String a = service.buildKey(1L, "select id, name from users where id = 1", null);
+        String b = service.buildKey(1L, "SELECT id,  name\n  FROM users WHERE id=1", null);
+        assertEquals(a, b);
+
+        assertNotEquals(a, service.buildKey(1L, "select id, name from users where id = 1", "dept_id = 7"));
+        assertNotEquals(a, service.buildKey(2L, "select id, name from users where id = 1", null));
+    }
+
+    @Test
+    void zeroTtlIsNotCached() {
+        service.put("k", 1L, result(10), 0);
+        assertNull(service.get("k"));
+    }
+
+    @Test
+    void byteBudgetEvictsLeastRecentlyUsed() {
+        SqlExecuteResult r = result(2_000);
+        long bytes = r.getData().getEstimatedBytes();
+        assertTrue(bytes > 0 && bytes <= 1024 * 1024 / 4, "fixture should fit a single slot: " + bytes);
+
+        int fits = (int) (1024 * 1024 / bytes);
+        for (int i = 0; i <= fits; i++) {
+            service.put("k" + i, 1L, result(2_000), 60);
+            service.get("k0"); // keep k0 hot
+        }
+        assertNotNull(service.get("k0"));
+        assertNull(service.get("k1"));
+        assertTrue((long) service.getStats().get("bytes") <= 1024 * 1024);
+    }
+
+    @Test
+    void evictDataSourceRemovesOnlyItsEntries() {
+        service.put("a", 1L, result(5), 60);
+        service.put("b", 2L, result(5), 60);
+        assertEquals(1, service.evictDataSource(1L));
+        assertNull(service.get("a"));
+        assertNotNull(service.get("b"));
+    }
+
+    private static SqlExecuteResult result(int rows) {
+        List<Map<String, Object>> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            data.add(Map.of("id", (long) i, "name", "name-" + i));
+        }
+        ColumnarResult columnar = ColumnarResult.fromRows(data);
+        return SqlExecuteResult.builder()
+                .success(true)
+                .columns(columnar.getColumns())
+                .data(columnar)
+                .rowCount(rows)
+                .build();
+    }
+}
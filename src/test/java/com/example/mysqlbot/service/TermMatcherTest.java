@@ -0,0 +1,42 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.TermGlossary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Aho–Corasick glossary matcher: synonyms, overlapping Chinese terms, ASCII word
+ * boundaries and full-width folding.
+ */
+class TermMatcherTest {
+
+    private static final TermGlossary GMV = term("GMV", "成交总额，交易额");
+    private static final TermGlossary ACTIVE_USER = term("活跃用户", null);
+    private static final TermGlossary USER = term("用户", null);
+    private static final TermGlossary ID = term("id", null);
+    private static final TermGlossary REPURCHASE = term("复购率", "回购率; repurchase rate");
+
+    private final TermMatcher matcher = new TermMatcher(List.of(GMV, ACTIVE_USER, USER, ID, REPURCHASE));
+
+    @Test
+    void match_findsTermsAndSynonymsInOrderOfMention() {
+        assertEquals(9, matcher.size());
+        assertEquals(List.of(ACTIVE_USER, USER, GMV), matcher.match(List.of("上月活跃用户的交易额")));
+        assertEquals(List.of(REPURCHASE, GMV), matcher.match(List.of("Repurchase Rate by month", "再看 gmv")));
+        assertTrue(matcher.match(List.of("没有提到任何术语")).isEmpty());
+    }
+
+    @Test
+    void match_respectsAsciiWordBoundariesAndFoldsFullWidth() {
+        assertTrue(matcher.match(List.of("paid amount", "GMVX", "ids")).isEmpty());
+        assertEquals(List.of(ID, GMV), matcher.match(List.of("按 user id 汇总ＧＭＶ")));
+        assertEquals(List.of(GMV), matcher.match(List.of("本月GMV多少")));
+    }
+
+    private static TermGlossary term(String term, String synonyms) {
+        return TermGlossary.builder().term(term).synonyms(synonyms).definition(term + " 的定义").build();
+    }
+}
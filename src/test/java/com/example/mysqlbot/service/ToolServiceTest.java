@@ -0,0 +1,88 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.repository.DataSourceRepository;
+import com.example.mysqlbot.repository.TableRelationRepository;
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.ForeignKey;
+import com.example.mysqlbot.service.SchemaSnapshotService.Snapshot;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@code get_table_schemas} batch tool: compact rendering from the snapshot,
+ * not-found reporting, per-table caching and pre-warming from streamed arguments.
+ */
+class ToolServiceTest {
+
+    private SchemaSnapshotService schemaSnapshotService;
+    private ToolService toolService;
+
+    @BeforeEach
+    void setUp() {
+        SchemaCacheService schemaCacheService = new SchemaCacheService();
+        // @Value won't be processed in plain unit test; set manually
+        ReflectionTestUtils.setField(schemaCacheService, "ttlSeconds", 300L);
+        schemaSnapshotService = mock(SchemaSnapshotService.class);
+        toolService = new ToolService(mock(DataSourceRepository.class), mock(TableRelationRepository.class),
+                mock(ConnectionPoolService.class), schemaCacheService, schemaSnapshotService);
+
+        TableInfo users = TableInfo.builder().tableName("users").simpleName("users")
+                .columns(List.of(new ColumnInfo("id", "BIGINT", null), new ColumnInfo("name", "VARCHAR", "姓名")))
+                .primaryKeys(List.of("id"))
+                .build();
+        TableInfo orders = TableInfo.builder().tableName("orders").simpleName("orders")
+                .remarks("订单").rowEstimate(1200L)
+                .columns(List.of(new ColumnInfo("id", "BIGINT", null), new ColumnInfo("user_id", "BIGINT", null)))
+                .primaryKeys(List.of("id"))
+                .foreignKeys(List.of(new ForeignKey("user_id", "users", "id")))
+                .build();
+        when(schemaSnapshotService.getLatest(1L))
+                .thenReturn(new Snapshot(1L, 1, LocalDateTime.now(), List.of(users, orders)));
+    }
+
+    @Test
+    void getTableSchemas_rendersEveryTableOnOneLine() {
+        String result = toolService.executeTool("get_table_schemas",
+                Map.of("data_source_id", 1L, "table_names", List.of("ORDERS", "users", "missing")));
+
+        assertTrue(result.contains("orders(id bigint PK, user_id bigint →users.id) -- 订单 ~1200行\n"), result);
+        assertTrue(result.contains("users(id bigint PK, name varchar \"姓名\")\n"), result);
+        assertTrue(result.contains("未找到的表：missing"), result);
+        assertTrue(result.indexOf("orders(") < result.indexOf("users("), "keeps the requested order");
+    }
+
+    @Test
+    void getTableSchemas_servesRepeatedTablesFromCache() {
+        toolService.executeTool("get_table_schemas", Map.of("data_source_id", 1L, "table_names", List.of("orders")));
+        String result = toolService.executeTool("get_table_schemas",
+                Map.of("data_source_id", 1L, "table_names", "orders"));
+
+        assertTrue(result.contains("orders(id bigint PK"), result);
+        verify(schemaSnapshotService, times(1)).getLatest(1L);
+    }
+
+    @Test
+    void prewarm_cachesTablesNamedInPartialArguments() {
+        assertEquals(List.of("orders"),
+                ToolService.tableNamesIn("get_table_schemas", "{\"table_names\": [\"orders\", \"us"));
+        assertEquals(List.of("users"), ToolService.tableNamesIn("get_table_schema", "{\"table_name\":\"users\""));
+        assertEquals(List.of(), ToolService.tableNamesIn("get_table_schema", "{\"table_name\":\"use"));
+        assertEquals(List.of(), ToolService.tableNamesIn("list_tables", "{}"));
+
+        toolService.prewarmTableSchema(1L, "get_table_schemas", "orders");
+        String result = toolService.executeTool("get_table_schemas",
+                Map.of("data_source_id", 1L, "table_names", List.of("orders")));
+
+        assertTrue(result.contains("orders(id bigint PK"), result);
+        verify(schemaSnapshotService, times(1)).getLatest(1L);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.util.LocalSpanExporter;
+import com.example.mysqlbot.util.LocalSpanExporter.SpanRecord;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TraceService} on the OpenTelemetry SDK with a {@link LocalSpanExporter}:
+ * context propagation across threads, error status, and lookup from memory and the rotated span file.
+ */
+class TraceServiceTest {
+
+    /** Micrometer tracer on the OTel SDK exporting each span synchronously, as the tests need. */
+    static Tracer otelTracer(SpanExporter exporter) {
+        SdkTracerProvider provider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        return new OtelTracer(provider.get("mysqlbot-test"), new OtelCurrentTraceContext(), event -> {});
+    }
+
+    @Test
+    void wrappedTasksOnOtherThreadsJoinTheCallersTrace() throws Exception {
+        LocalSpanExporter exporter = new LocalSpanExporter(10, null, Long.MAX_VALUE);
+        TraceService traceService = new TraceService(otelTracer(exporter));
+
+        String traceId;
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            traceId = traceService.inSpan("chat.turn", () -> {
+                traceService.tag("chat.session_id", "s1");
+                CompletableFuture<Void> a = CompletableFuture.runAsync(
+                        () -> traceService.inSpan("tool.call", () -> traceService.tag("tool.name", "a")),
+                        traceService.wrap(pool));
+                CompletableFuture<Void> b = CompletableFuture.runAsync(
+                        traceService.wrap(() -> traceService.inSpan("tool.call", () -> traceService.tag("tool.name", "b"))),
+                        pool);
+                a.join();
+                b.join();
+                return traceService.currentTraceId();
+            });
+        }
+
+        List<SpanRecord> spans = exporter.find(traceId);
+        assertEquals(3, spans.size());
+        SpanRecord root = spans.get(0);
+        assertEquals("chat.turn", root.name());
+        assertNull(root.parentSpanId());
+        assertEquals("s1", root.attributes().get("chat.session_id"));
+        spans.stream().skip(1).forEach(span -> {
+            assertEquals("tool.call", span.name());
+            assertEquals(root.spanId(), span.parentSpanId());
+        });
+        assertNull(traceService.currentTraceId());
+    }
+
+    @Test
+    void failedSpanIsMarkedAsError() {
+        LocalSpanExporter exporter = new LocalSpanExporter(10, null, Long.MAX_VALUE);
+        TraceService traceService = new TraceService(otelTracer(exporter));
+        String[] traceId = new String[1];
+
+        assertThrows(IllegalStateException.class, () -> traceService.inSpan("sql.execute", () -> {
+            traceId[0] = traceService.currentTraceId();
+            throw new IllegalStateException("connection refused");
+        }));
+
+        SpanRecord span = exporter.find(traceId[0]).get(0);
+        assertEquals("ERROR", span.status());
+        assertEquals("connection refused", span.statusMessage());
+    }
+
+    @Test
+    void evictedTracesAreReadBackFromTheSpanFile(@TempDir Path dir) {
+        Path file = dir.resolve("traces/spans.jsonl");
+        LocalSpanExporter exporter = new LocalSpanExporter(1, file, Long.MAX_VALUE);
+        TraceService traceService = new TraceService(otelTracer(exporter));
+
+        String first = traceService.inSpan("chat.turn", traceService::currentTraceId);
+        String second = traceService.inSpan("chat.turn", traceService::currentTraceId);
+        assertNotEquals(first, second);
+
+        // only the latest trace is kept in memory; the first comes from the file
+        assertEquals(first, exporter.find(first).get(0).traceId());
+        exporter.shutdown();
+        assertEquals(second, new LocalSpanExporter(1, file, Long.MAX_VALUE).find(second).get(0).traceId());
+        assertTrue(exporter.find("0af7651916cd43dd8448eb211c80319c").isEmpty());
+    }
+
+    @Test
+    void spanFileIsRotatedOnceAndOlderTracesAgeOut(@TempDir Path dir) {
+        Path file = dir.resolve("spans.jsonl");
+        // every export finds the file full, so each trace starts a new one
+        LocalSpanExporter exporter = new LocalSpanExporter(1, file, 1);
+        TraceService traceService = new TraceService(otelTracer(exporter));
+
+        String first = traceService.inSpan("chat.turn", traceService::currentTraceId);
+        String second = traceService.inSpan("chat.turn", traceService::currentTraceId);
+        String third = traceService.inSpan("chat.turn", traceService::currentTraceId);
+
+        assertTrue(Files.exists(dir.resolve("spans.jsonl.1")));
+        assertFalse(Files.exists(dir.resolve("spans.jsonl.2")));
+        assertEquals(third, exporter.find(third).get(0).traceId());
+        assertEquals(second, exporter.find(second).get(0).traceId());
+        assertTrue(exporter.find(first).isEmpty());
+        exporter.shutdown();
+    }
+}
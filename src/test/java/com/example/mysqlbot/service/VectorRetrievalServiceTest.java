@@ -0,0 +1,110 @@
+package com.example.mysqlbot.service;
+
+import com.example.mysqlbot.model.TermGlossary;
+import com.example.mysqlbot.service.SchemaSnapshotService.ColumnInfo;
+import com.example.mysqlbot.service.SchemaSnapshotService.Snapshot;
+import com.example.mysqlbot.service.SchemaSnapshotService.TableInfo;
+import com.example.mysqlbot.service.embedding.EmbeddingProvider;
+import com.example.mysqlbot.service.embedding.HashingEmbeddingProvider;
+import com.example.mysqlbot.service.embedding.VectorIndex.Hit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for embedding retrieval: hits per document type, incremental re-embedding, reloading
+ * the persisted index and building it off the query path.
+ */
+class VectorRetrievalServiceTest {
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void search_embedsOnlyChangedDocumentsAndReloadsFromDisk() {
+        SchemaSnapshotService snapshots = mock(SchemaSnapshotService.class);
+        Snapshot v1 = snapshot(1, table("orders", "订单"), table("users", "用户"));
+        when(snapshots.getLatest(1L)).thenReturn(v1);
+        EmbeddingProvider provider = spy(new HashingEmbeddingProvider(64));
+        TermGlossary gmv = TermGlossary.builder().term("GMV").definition("订单 pay_amount 之和").build();
+        VectorRetrievalService service = service(snapshots, provider, List.of(gmv), Runnable::run);
+
+        List<Hit> hits = service.search(1L, "用户数量", List.of(gmv), List.of(), 1);
+        assertEquals(List.of("users", "GMV"), hits.stream().map(h -> h.entry().key()).toList());
+        verify(provider).embed(argThat(texts -> texts.size() == 3));
+        assertTrue(Files.exists(indexDir.resolve("ds-1.idx")));
+
+        // a new snapshot version with one added table embeds just that table
+        when(snapshots.getLatest(1L)).thenReturn(snapshot(2, table("orders", "订单"), table("users", "用户"), table("products", "商品")));
+        service.search(1L, "商品", List.of(gmv), List.of(), 1);
+        verify(provider).embed(argThat(texts -> texts.size() == 1 && texts.get(0).startsWith("products")));
+
+        // a fresh instance finds the persisted index current and embeds nothing but the query
+        EmbeddingProvider fresh = spy(new HashingEmbeddingProvider(64));
+        List<Hit> reloaded = service(snapshots, fresh, List.of(gmv), Runnable::run).search(1L, "商品", List.of(gmv), List.of(), 1);
+        assertEquals("products", reloaded.get(0).entry().key());
+        verify(fresh, times(1)).embed(anyList());
+    }
+
+    @Test
+    void search_neverWaitsForTheBuildAndUsesThePreviousIndexMeanwhile() {
+        SchemaSnapshotService snapshots = mock(SchemaSnapshotService.class);
+        when(snapshots.getLatest(1L)).thenReturn(snapshot(1, table("orders", "订单"), table("users", "用户")));
+        EmbeddingProvider provider = spy(new HashingEmbeddingProvider(64));
+        List<Runnable> background = new ArrayList<>();
+        VectorRetrievalService service = service(snapshots, provider, List.of(), background::add);
+
+        // no index yet: no hits, and only the build is queued, nothing embedded on the query path
+        assertTrue(service.search(1L, "用户数量", List.of(), List.of(), 1).isEmpty());
+        assertEquals(1, background.size());
+        verify(provider, never()).embed(anyList());
+        // further queries while the build is pending do not queue more builds
+        service.search(1L, "用户数量", List.of(), List.of(), 1);
+        assertEquals(1, background.size());
+
+        background.remove(0).run();
+        assertEquals("users", service.search(1L, "用户数量", List.of(), List.of(), 1).get(0).entry().key());
+
+        // after a sync the stale index keeps answering until the refresh has run
+        when(snapshots.getLatest(1L)).thenReturn(snapshot(2, table("orders", "订单"), table("users", "用户"), table("products", "商品")));
+        service.refresh(1L);
+        List<Hit> stale = service.search(1L, "商品", List.of(), List.of(), 3);
+        assertFalse(stale.stream().anyMatch(h -> h.entry().key().equals("products")));
+        background.forEach(Runnable::run);
+        assertTrue(service.search(1L, "商品", List.of(), List.of(), 3).stream()
+                .anyMatch(h -> h.entry().key().equals("products")));
+    }
+
+    private VectorRetrievalService service(SchemaSnapshotService snapshots, EmbeddingProvider provider,
+                                           List<TermGlossary> terms, Executor executor) {
+        TermGlossaryMatchService glossary = mock(TermGlossaryMatchService.class);
+        when(glossary.terms(1L)).thenReturn(terms);
+        SqlExampleSelectionService examples = mock(SqlExampleSelectionService.class);
+        when(examples.examples(1L)).thenReturn(List.of());
+        VectorRetrievalService service = new VectorRetrievalService(snapshots, provider, glossary, examples);
+        // @Value won't be processed in plain unit test; set manually
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "indexDir", indexDir.toString());
+        ReflectionTestUtils.setField(service, "indexExecutor", executor);
+        return service;
+    }
+
+    private static Snapshot snapshot(int version, TableInfo... tables) {
+        return new Snapshot(1L, version, LocalDateTime.now(), new ArrayList<>(List.of(tables)));
+    }
+
+    private static TableInfo table(String name, String remarks) {
+        return TableInfo.builder().tableName(name).simpleName(name).remarks(remarks)
+                .columns(List.of(new ColumnInfo("id", "BIGINT", null))).primaryKeys(List.of("id")).build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.mysqlbot.service.embedding;
+
+import com.example.mysqlbot.service.embedding.VectorIndex.Entry;
+import com.example.mysqlbot.service.embedding.VectorIndex.Hit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the flat vector index: cosine top-k with a type filter or per type, and the on-disk format.
+ */
+class VectorIndexTest {
+
+    private static final List<Entry> ENTRIES = List.of(
+            new Entry("table", "orders", "订单"),
+            new Entry("table", "users", "用户"),
+            new Entry("term", "GMV", "GMV: 成交总额"),
+            new Entry("table", "products", "商品"));
+
+    private static final List<float[]> VECTORS = List.of(
+            new float[]{1, 0, 0, 0, 0},
+            new float[]{0, 2, 0, 0, 0},
+            new float[]{3, 0, 1, 0, 0},
+            new float[]{1, 1, 0, 0, 0});
+
+    @Test
+    void search_returnsTopKByCosineWithinFilter() {
+        VectorIndex index = new VectorIndex("test", 5, "v1", ENTRIES, VECTORS);
+
+        List<Hit> hits = index.search(new float[]{2, 0, 0, 0, 0}, 2, null);
+        assertEquals(List.of("orders", "GMV"), hits.stream().map(h -> h.entry().key()).toList());
+        assertEquals(1.0f, hits.get(0).score(), 1e-6);
+
+        List<Hit> tables = index.search(new float[]{2, 0, 0, 0, 0}, 5, e -> e.type().equals("table"));
+        assertEquals(List.of("orders", "products", "users"), tables.stream().map(h -> h.entry().key()).toList());
+        assertEquals(0.0f, tables.get(2).score(), 1e-6);
+    }
+
+    @Test
+    void searchByType_keepsTopKOfEachTypeInOnePass() {
+        VectorIndex index = new VectorIndex("test", 5, "v1", ENTRIES, VECTORS);
+
+        Map<String, List<Hit>> hits = index.searchByType(new float[]{2, 0, 0, 0, 0}, 2);
+        assertEquals(List.of("orders", "products"), hits.get("table").stream().map(h -> h.entry().key()).toList());
+        assertEquals(List.of("GMV"), hits.get("term").stream().map(h -> h.entry().key()).toList());
+        assertFalse(hits.containsKey("example"));
+    }
+
+    @Test
+    void writeAndRead_roundTripsEntriesAndVectors(@TempDir Path dir) throws Exception {
+        VectorIndex index = new VectorIndex("hashing-5", 5, "v3:abc", ENTRIES, VECTORS);
+        Path file = dir.resolve("sub").resolve("ds-1.idx");
+        index.write(file);
+
+        VectorIndex read = VectorIndex.read(file);
+        assertEquals("hashing-5", read.providerId());
+        assertEquals("v3:abc", read.stamp());
+        assertEquals(ENTRIES, read.entries());
+        for (int i = 0; i < ENTRIES.size(); i++) assertArrayEquals(index.vector(i), read.vector(i));
+    }
+}
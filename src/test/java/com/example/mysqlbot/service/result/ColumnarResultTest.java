@@ -0,0 +1,132 @@
+package com.example.mysqlbot.service.result;
+
+import com.example.mysqlbot.service.SqlExecuteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the columnar result representation and its row-map compatibility view.
+ */
+class ColumnarResultTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void buildsTypedColumnsFromResultSet() throws Exception {
+        ColumnarResult result = read(
+                new String[]{"id", "region", "amount", "ratio"},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.DOUBLE},
+                new Object[][]{
+                        {1L, "east", new BigDecimal("10.50"), 0.25},
+                        {2L, null, null, null},
+                        {null, "east", new BigDecimal("3"), 1.5}
+                });
+
+        assertEquals(3, result.getRowCount());
+        assertEquals(ColumnVector.Kind.LONG, result.column("id").kind());
+        assertEquals(ColumnVector.Kind.STRING, result.column("region").kind());
+        assertEquals(ColumnVector.Kind.DECIMAL, result.column("amount").kind());
+        assertEquals(ColumnVector.Kind.DOUBLE, result.column("ratio").kind());
+
+        assertEquals(2L, result.get(1, 0));
+        assertNull(result.get(2, 0));
+        assertEquals(new BigDecimal("10.50"), result.get(0, 2));
+        assertEquals(1, result.column("amount").nullCount());
+
+        ColumnVector.StringVector region = (ColumnVector.StringVector) result.column("region");
+        assertTrue(region.isDictionaryEncoded());
+        assertEquals(1, region.dictionarySize());
+    }
+
+    @Test
+    void rowViewAndJsonMatchMapPerRowShape() throws Exception {
+        List<Map<String, Object>> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", (long) i);
+            row.put("name", i % 2 == 0 ? "a" : null);
+            row.put("price", new BigDecimal(i + ".10"));
+            expected.add(row);
+        }
+
+        ColumnarResult result = ColumnarResult.fromRows(expected);
+        assertEquals(expected, result.asRowMaps());
+
+        SqlExecuteService.SqlExecuteResult wrapped = SqlExecuteService.SqlExecuteResult.builder()
+                .success(true).columns(result.getColumns()).data(result).rowCount(5).build();
+        String json = objectMapper.writeValueAsString(wrapped);
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(Map.of("rows", expected))).get("rows"),
+                objectMapper.readTree(json).get("rows"));
+        assertFalse(objectMapper.readTree(json).has("data"));
+
+        SqlExecuteService.SqlExecuteResult back = objectMapper.readValue(json, SqlExecuteService.SqlExecuteResult.class);
+        assertEquals(5, back.getData().getRowCount());
+        assertEquals("a", back.getData().get(0, 1));
+    }
+
+    @Test
+    void rowSliceSerializesOnlyItsRows() throws Exception {
+        Object[][] rows = new Object[10][];
+        for (int i = 0; i < rows.length; i++) rows[i] = new Object[]{(long) i};
+        ColumnarResult result = read(new String[]{"n"}, new int[]{Types.BIGINT}, rows);
+
+        SqlExecuteService.RowChunk chunk = new SqlExecuteService.RowChunk(
+                result.getColumns(), result.asRowMaps(4, 7), 4);
+        String json = objectMapper.writeValueAsString(chunk);
+
+        assertEquals("[{\"n\":4},{\"n\":5},{\"n\":6}]", objectMapper.readTree(json).get("rows").toString());
+        assertEquals(4, objectMapper.readTree(json).get("offset").asInt());
+        assertThrows(IndexOutOfBoundsException.class, () -> result.asRowMaps(8, 11));
+    }
+
+    @Test
+    void duplicateLabelsBehaveLikeMapPut() throws Exception {
+        ColumnarResult result = read(
+                new String[]{"id", "id"},
+                new int[]{Types.INTEGER, Types.INTEGER},
+                new Object[][]{{1L, 2L}});
+
+        assertEquals(List.of("id", "id"), result.getColumns());
+        assertEquals(List.of("id"), result.getFieldNames());
+        assertEquals(Map.of("id", 2L), result.asRowMaps().get(0));
+    }
+
+    @Test
+    void highCardinalityStringsLeaveDictionary() throws Exception {
+        Object[][] rows = new Object[2000][];
+        for (int i = 0; i < rows.length; i++) rows[i] = new Object[]{"v" + i};
+        ColumnarResult result = read(new String[]{"s"}, new int[]{Types.VARCHAR}, rows);
+
+        ColumnVector.StringVector s = (ColumnVector.StringVector) result.column("s");
+        assertFalse(s.isDictionaryEncoded());
+        assertEquals("v1999", s.getString(1999));
+        assertEquals("v0", s.getString(0));
+    }
+
+    @Test
+    void wideDecimalsArePromotedToObjects() throws Exception {
+        BigDecimal wide = new BigDecimal("123456789012345678901234567890.12");
+        ColumnarResult result = read(new String[]{"d"}, new int[]{Types.NUMERIC},
+                new Object[][]{{new BigDecimal("1.5")}, {null}, {wide}});
+
+        ColumnVector d = result.column("d");
+        assertEquals(ColumnVector.Kind.OBJECT, d.kind());
+        assertEquals(new BigDecimal("1.5"), d.get(0));
+        assertNull(d.get(1));
+        assertEquals(wide, d.get(2));
+    }
+
+    private static ColumnarResult read(String[] labels, int[] types, Object[][] table) throws Exception {
+        ResultSet rs = FakeResultSet.of(labels, types, table);
+        ColumnarResultBuilder builder = ColumnarResultBuilder.forResultSet(rs.getMetaData(), 4);
+        while (rs.next()) builder.appendRow(rs);
+        return builder.build();
+    }
+}
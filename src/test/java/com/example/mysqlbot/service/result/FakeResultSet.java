@@ -0,0 +1,60 @@
+package com.example.mysqlbot.service.result;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+/**
+ * In-memory {@link ResultSet} over a table of values, shared by the result tests and benchmarks.
+ * Getters return the stored value as a driver would for the supported types; anything else throws.
+ */
+public final class FakeResultSet {
+
+    private FakeResultSet() {
+    }
+
+    public static ResultSetMetaData metaData(String[] labels, int[] types) {
+        return (ResultSetMetaData) Proxy.newProxyInstance(FakeResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> labels.length;
+                    case "getColumnLabel", "getColumnName" -> labels[(int) args[0] - 1];
+                    case "getColumnType" -> types[(int) args[0] - 1];
+                    case "isSigned" -> true;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /** Cursor over {@code table}, one array of column values per row. */
+    public static ResultSet of(ResultSetMetaData metaData, Object[][] table) {
+        int[] cursor = {-1};
+        boolean[] wasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(FakeResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < table.length;
+                        case "wasNull":
+                            return wasNull[0];
+                        case "getMetaData":
+                            return metaData;
+                        case "close":
+                            return null;
+                        default:
+                            break;
+                    }
+                    Object v = table[cursor[0]][(int) args[0] - 1];
+                    wasNull[0] = v == null;
+                    return switch (method.getName()) {
+                        case "getLong" -> v == null ? 0L : ((Number) v).longValue();
+                        case "getDouble" -> v == null ? 0d : ((Number) v).doubleValue();
+                        case "getString" -> v == null ? null : v.toString();
+                        case "getBigDecimal", "getObject" -> v;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+
+    public static ResultSet of(String[] labels, int[] types, Object[][] table) {
+        return of(metaData(labels, types), table);
+    }
+}
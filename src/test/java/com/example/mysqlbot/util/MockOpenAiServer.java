@@ -0,0 +1,137 @@
+package com.example.mysqlbot.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/**
+ * Local OpenAI-compatible {@code /chat/completions} endpoint for tests and benchmarks.
+ *
+ * <p>Replies are taken from a queue ({@link #enqueue}); when it is empty the server answers with
+ * a plain {@code "ok"} completion. Request bodies and the client ports they arrived from are
+ * recorded, so tests can check what was sent and whether connections were reused.
+ */
+public class MockOpenAiServer implements AutoCloseable {
+
+    /** One canned reply; {@code sse} sends {@code body} as-is with an event-stream content type. */
+    public record Reply(int status, String body, boolean sse) {}
+
+    static {
+        // the JDK server writes headers and body separately; without TCP_NODELAY every reply on a
+        // kept-alive connection waits for the client's delayed ACK (~40ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile long latencyMillis;
+
+    public MockOpenAiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/chat/completions", this::handle);
+        server.start();
+    }
+
+    /** Base URL to configure a client with, ending in {@code /v1}. */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    /** Simulated model latency added before every reply. */
+    public MockOpenAiServer latency(long millis) {
+        this.latencyMillis = millis;
+        return this;
+    }
+
+    public MockOpenAiServer enqueue(Reply reply) {
+        replies.add(reply);
+        return this;
+    }
+
+    /** A 200 completion whose message has the given content. */
+    public MockOpenAiServer enqueueContent(String content) {
+        return enqueue(new Reply(200, completion("{\"role\":\"assistant\",\"content\":" + quote(content) + "}", "stop"), false));
+    }
+
+    /** A 200 completion with one tool call and no content. */
+    public MockOpenAiServer enqueueToolCall(String id, String function, String arguments) {
+        String message = "{\"role\":\"assistant\",\"content\":null,\"tool_calls\":[{\"id\":" + quote(id)
+                + ",\"type\":\"function\",\"function\":{\"name\":" + quote(function)
+                + ",\"arguments\":" + quote(arguments) + "}}]}";
+        return enqueue(new Reply(200, completion(message, "tool_calls"), false));
+    }
+
+    /** A streamed reply sending each token as one SSE {@code content} delta. */
+    public MockOpenAiServer enqueueStream(String... tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            sb.append("data: {\"choices\":[{\"delta\":{\"content\":").append(quote(token)).append("}}]}\n\n");
+        }
+        sb.append("data: [DONE]\n\n");
+        return enqueue(new Reply(200, sb.toString(), true));
+    }
+
+    public MockOpenAiServer enqueueError(int status) {
+        return enqueue(new Reply(status, "{\"error\":{\"message\":\"mock error " + status + "\"}}", false));
+    }
+
+    /** Request bodies received, in order. */
+    public List<String> requests() {
+        return requests;
+    }
+
+    /** Distinct client ports seen, i.e. the number of TCP connections opened. */
+    public int connections() {
+        return clientPorts.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            requests.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            if (latencyMillis > 0) Thread.sleep(latencyMillis);
+            Reply reply = replies.poll();
+            if (reply == null) {
+                reply = new Reply(200, completion("{\"role\":\"assistant\",\"content\":\"ok\"}", "stop"), false);
+            }
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", reply.sse() ? "text/event-stream" : "application/json");
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String completion(String message, String finishReason) {
+        return "{\"id\":\"chatcmpl-mock\",\"object\":\"chat.completion\",\"choices\":[{\"index\":0,\"message\":"
+                + message + ",\"finish_reason\":" + quote(finishReason) + "}],"
+                + "\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":2}}";
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.mysqlbot.util;
+
+import com.example.mysqlbot.util.OpenAiLlmUtil.ChatResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the OpenAI-compatible client against a local mock server: async tool calls over
+ * pooled connections, retry policy, and SSE streaming.
+ */
+class OpenAiLlmUtilTest {
+
+    private MockOpenAiServer server;
+    private LlmHttpTransport transport;
+    private OpenAiLlmUtil util;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockOpenAiServer();
+        transport = new LlmHttpTransport(2, Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(10),
+                Duration.ofSeconds(10), false);
+        util = new OpenAiLlmUtil(server.baseUrl(), "sk-test", "mock-model", transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    void toolCallsAsync_reuseConnectionsWithinHostLimit() {
+        server.enqueueToolCall("call_1", "get_table_schema", "{\"table\":\"orders\"}");
+        List<Map<String, Object>> messages = List.of(Map.of("role", "user", "content", "订单数"));
+
+        ChatResult first = util.chatWithMessagesAndToolsAsync(messages, 0.1, null, List.of(), null).join();
+        assertEquals("tool_calls", first.getFinishReason());
+        assertEquals("get_table_schema", first.getToolCalls().get(0).getFunction().getName());
+        assertEquals("{\"table\":\"orders\"}", first.getToolCalls().get(0).getFunction().getArguments());
+        assertTrue(server.requests().get(0).contains("\"model\":\"mock-model\""));
+
+        List<CompletableFuture<ChatResult>> burst = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            burst.add(util.chatWithMessagesAndToolsAsync(messages, 0.1, "override", null, "none"));
+        }
+        burst.forEach(f -> assertEquals("ok", f.join().getContent()));
+        assertTrue(server.requests().get(1).contains("\"tool_choice\":\"none\""));
+        // 9 requests, at most 2 in flight per host: connections are pooled, not opened per call
+        assertTrue(server.connections() <= 2, "connections: " + server.connections());
+        assertEquals(9L, transport.getStats().get("requests"));
+    }
+
+    @Test
+    void retriesServerErrorsButNotClientErrors() {
+        server.enqueueError(503).enqueueContent("recovered");
+        assertEquals("recovered", util.chat(List.of(Map.of("role", "user", "content", "hi")), 0.1));
+        assertEquals(2, server.requests().size());
+
+        server.enqueueError(400);
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> util.chat(List.of(Map.of("role", "user", "content", "hi")), 0.1));
+        assertInstanceOf(OpenAiLlmUtil.LlmHttpStatusException.class, e.getCause());
+        assertEquals(3, server.requests().size());
+    }
+
+    @Test
+    void chatStream_retriesServerErrorsBeforeTheFirstTokenButNotClientErrors() {
+        server.enqueueError(503).enqueueStream("SELECT 1");
+        List<String> tokens = new ArrayList<>();
+        assertEquals("SELECT 1", util.chatStream(List.of(Map.of("role", "user", "content", "hi")), 0.1, null,
+                (type, token) -> tokens.add(token)));
+        assertEquals(List.of("SELECT 1"), tokens);
+        assertEquals(2, server.requests().size());
+
+        server.enqueueError(400);
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> util.chatStream(List.of(Map.of("role", "user", "content", "hi")), 0.1, null, (type, token) -> {}));
+        assertInstanceOf(OpenAiLlmUtil.LlmHttpStatusException.class, e.getCause());
+        assertEquals(3, server.requests().size());
+    }
+
+    @Test
+    void chatStreamWithTools_assemblesCallsAndReportsEachWhenComplete() {
+        String sse = """
+                data: {"choices":[{"delta":{"role":"assistant","tool_calls":[{"index":0,"id":"call_a","type":"function","function":{"name":"get_table_schema","arguments":""}}]}}]}
+
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"function":{"arguments":"{\\"table\\":"}}]}}]}
+
+                data: {"choices":[{"delta":{"tool_calls":[{"index":0,"function":{"arguments":"\\"orders\\"}"}}]}}]}
+
+                data: {"choices":[{"delta":{"tool_calls":[{"index":1,"id":"call_b","type":"function","function":{"name":"get_table_schema","arguments":"{\\"table\\":\\"users\\"}"}}]}}]}
+
+                data: {"choices":[{"delta":{},"finish_reason":"tool_calls"}]}
+
+                data: [DONE]
+
+                """;
+        server.enqueue(new MockOpenAiServer.Reply(200, sse, true));
+        List<String> events = new ArrayList<>();
+        ChatResult result = util.chatStreamWithTools(List.of(Map.of("role", "user", "content", "订单和用户")), 0.1,
+                null, List.of(), null,
+                (type, token) -> events.add(type),
+                tc -> events.add(tc.getId() + "=" + tc.getFunction().getArguments()));
+
+        assertEquals("tool_calls", result.getFinishReason());
+        assertEquals(2, result.getToolCalls().size());
+        assertEquals("call_b", result.getToolCalls().get(1).getId());
+        // call_a is reported when call_b starts, call_b at the end of the stream; no raw tool_calls tokens
+        assertEquals(List.of("call_a={\"table\":\"orders\"}", "call_b={\"table\":\"users\"}"), events);
+    }
+
+    @Test
+    void toolCallAssembler_dispatchesWhenArgumentsCloseAndReportsPartials() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> events = new ArrayList<>();
+        ToolCallAssembler assembler = new ToolCallAssembler(new OpenAiLlmUtil.ToolCallListener() {
+            @Override
+            public void onToolCall(OpenAiLlmUtil.ChatResponse.Choice.ToolCall toolCall) {
+                events.add("call:" + toolCall.getFunction().getArguments());
+            }
+
+            @Override
+            public void onPartialArguments(String toolName, String partialArguments) {
+                events.add("partial:" + partialArguments);
+            }
+        });
+        assembler.accept(mapper.readTree("""
+                [{"index":0,"id":"c1","function":{"name":"get_table_schemas","arguments":"{\\"table_names\\":[\\"a}\\""}}]"""));
+        assembler.accept(mapper.readTree("""
+                [{"index":0,"function":{"arguments":",\\"b\\"]}"}}]"""));
+
+        // dispatched at the closing brace, not at the next call or the end of the stream;
+        // the brace inside the string literal does not count
+        assertEquals(List.of("partial:{\"table_names\":[\"a}\"", "call:{\"table_names\":[\"a}\",\"b\"]}"), events);
+        assertEquals(1, assembler.finish().size());
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    void chatStream_deliversTokensAndReleasesHostSlot() {
+        server.enqueueStream("SELECT ", "COUNT(*) ", "FROM orders");
+        List<String> tokens = new ArrayList<>();
+        String full = util.chatStream(List.of(Map.of("role", "user", "content", "订单数")), 0.1, null,
+                (type, token) -> tokens.add(type + ":" + token));
+
+        assertEquals("SELECT COUNT(*) FROM orders", full);
+        assertEquals(List.of("content:SELECT ", "content:COUNT(*) ", "content:FROM orders"), tokens);
+        assertTrue(server.requests().get(0).contains("\"stream\":true"));
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Integer>> hosts = (Map<String, Map<String, Integer>>) transport.getStats().get("hosts");
+        assertEquals(0, hosts.values().iterator().next().get("inFlight"));
+    }
+
+    @Test
+    void interruptedWhileQueued_leavesQueueWithoutLeakingSlot() throws Exception {
+        URI endpoint = URI.create(server.baseUrl() + "/chat/completions");
+        server.enqueueStream("a").enqueueStream("b");
+        InputStream first = transport.postJsonStream(endpoint, "sk-test", "{}").body();
+        InputStream second = transport.postJsonStream(endpoint, "sk-test", "{}").body();
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread queued = Thread.ofVirtual().start(() -> {
+            try {
+                transport.postJsonStream(endpoint, "sk-test", "{}").body().close();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        while (hostStats(transport).get("queued") == 0) Thread.sleep(5);
+        queued.interrupt();
+        queued.join(5000);
+
+        assertInstanceOf(InterruptedException.class, failure.get());
+        assertEquals(0, hostStats(transport).get("queued"));
+        first.close();
+        second.close();
+        assertEquals(0, hostStats(transport).get("inFlight"));
+        // both slots are still usable
+        assertEquals("ok", util.chat(List.of(Map.of("role", "user", "content", "hi")), 0.1));
+    }
+
+    @Test
+    void queuedLongerThanAcquireTimeout_failsAndFreesQueue() throws Exception {
+        try (LlmHttpTransport single = new LlmHttpTransport(1, Duration.ofSeconds(5), Duration.ofSeconds(10),
+                Duration.ofSeconds(10), Duration.ofMillis(200), false)) {
+            URI endpoint = URI.create(server.baseUrl() + "/chat/completions");
+            server.enqueueStream("a");
+            InputStream held = single.postJsonStream(endpoint, "sk-test", "{}").body();
+
+            assertThrows(HttpTimeoutException.class, () -> single.postJsonStream(endpoint, "sk-test", "{}"));
+            CompletableFuture<?> async = single.postJson(endpoint, "sk-test", "{}");
+            Throwable cause = assertThrows(CompletionException.class, async::join).getCause();
+            assertInstanceOf(HttpTimeoutException.class, cause);
+
+            // timed-out waiters leave the queue from the timeout's completion callback
+            for (int i = 0; i < 200 && hostStats(single).get("queued") > 0; i++) Thread.sleep(5);
+            assertEquals(0, hostStats(single).get("queued"));
+            held.close();
+            assertEquals(0, hostStats(single).get("inFlight"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Integer> hostStats(LlmHttpTransport transport) {
+        Map<String, Map<String, Integer>> hosts = (Map<String, Map<String, Integer>>) transport.getStats().get("hosts");
+        return hosts.values().iterator().next();
+    }
+}
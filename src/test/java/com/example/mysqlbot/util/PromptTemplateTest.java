@@ -0,0 +1,42 @@
+package com.example.mysqlbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for compiled prompt templates: placeholder parsing, single-pass rendering and partial binding.
+ */
+class PromptTemplateTest {
+
+    private static final PromptTemplate TEMPLATE = PromptTemplate.compile(
+            "引擎: {dbEngine}\n问题: {question}\n输出：{\"success\":true,\"sql\":\"...\"} {sql} {question}");
+
+    @Test
+    void render_substitutesAllOccurrencesInOnePass() {
+        assertEquals(Set.of("dbEngine", "question", "sql"), TEMPLATE.placeholders());
+
+        String prompt = TEMPLATE.render(Map.of("dbEngine", "MySQL", "question", "为什么 {sql} 为空", "sql", "SELECT 1"));
+        assertEquals("引擎: MySQL\n问题: 为什么 {sql} 为空\n输出：{\"success\":true,\"sql\":\"...\"} SELECT 1 为什么 {sql} 为空",
+                prompt);
+        assertEquals("引擎: {dbEngine}\n问题: q\n输出：{\"success\":true,\"sql\":\"...\"} {sql} q",
+                TEMPLATE.render(Map.of("question", "q")));
+    }
+
+    @Test
+    void bind_leavesOtherPlaceholdersOpen() {
+        PromptTemplate bound = TEMPLATE.bind(Map.of("dbEngine", "PostgreSQL", "sql", "SELECT 2"));
+        assertEquals(Set.of("question"), bound.placeholders());
+        assertEquals(TEMPLATE.render(Map.of("dbEngine", "PostgreSQL", "sql", "SELECT 2", "question", "q")),
+                bound.render(Map.of("question", "q")));
+
+        for (String path : List.of("prompts/sql-generate.st", "prompts/chart-agent.st", "prompts/suggest-agent.st",
+                "prompts/sql-permissions.st", "prompts/data-analysis.st", "prompts/relation-infer.st")) {
+            assertFalse(PromptTemplate.load(path).placeholders().isEmpty(), path);
+        }
+    }
+}